@@ -0,0 +1,54 @@
+package battleship;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Colocación de la flota estándar con distintos tamaños de tablero. En
+ * tableros chicos quedan pocas colocaciones libres para los últimos barcos.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ColocacionBenchmark {
+    private static final int[] FLOTA = { 5, 4, 3, 3, 2 };
+
+    @Param({ "6", "8", "10", "11" })
+    public int tamanio;
+
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final Bitboard ocupadas = new Bitboard();
+    private final Bitboard barco = new Bitboard();
+    private GeneradorColocacion generador;
+
+    @Setup
+    public void preparar() {
+        generador = GeneradorColocacion.para(tamanio);
+    }
+
+    @Benchmark
+    public Bitboard colocarFlota() {
+        do {
+            ocupadas.limpiar();
+        } while (!colocarTodos());
+        return ocupadas;
+    }
+
+    private boolean colocarTodos() {
+        for (int largo : FLOTA) {
+            int colocacion = generador.elegir(largo, ocupadas, random);
+            if (colocacion < 0) {
+                return false;
+            }
+            barco.limpiar();
+            generador.aplicar(largo, colocacion, barco);
+            ocupadas.unir(barco);
+        }
+        return true;
+    }
+}
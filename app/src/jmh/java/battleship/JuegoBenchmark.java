@@ -0,0 +1,129 @@
+package battleship;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Operaciones del motor de juego que se ejecutan en cada turno, con la flota
+ * estándar en tableros de distintos tamaños.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JuegoBenchmark {
+    // Celdas consultadas en cada invocación; los resultados son por celda
+    private static final int DISPAROS = 100;
+
+    @Param({ "10", "100", "1000" })
+    public int tamanio;
+
+    private final SplittableRandom random = new SplittableRandom(42);
+    private ConfiguracionPartida configuracion;
+    private JuegoBattleship juego;
+    private final int[] filas = new int[DISPAROS];
+    private final int[] columnas = new int[DISPAROS];
+    private byte[] estado;
+
+    @Setup
+    public void preparar() {
+        configuracion = ConfiguracionPartida.parsear(String.valueOf(tamanio),
+                ConfiguracionPartida.ESTANDAR.describirFlota());
+        juego = new JuegoBattleship(configuracion);
+        juego.colocarBarcosAutomaticamente(random);
+
+        // La mitad del tablero enemigo ya tiene disparos registrados
+        int celdas = tamanio * tamanio;
+        for (int c = 0; c < celdas; c += 2) {
+            juego.registrarFallo(c / tamanio, c % tamanio);
+        }
+        estado = juego.exportarEstado();
+
+        // Celdas distintas al azar; en el tablero de 10x10 son todas
+        int[] orden = new int[celdas];
+        for (int c = 0; c < celdas; c++) {
+            orden[c] = c;
+        }
+        for (int i = 0; i < DISPAROS; i++) {
+            int j = i + random.nextInt(celdas - i);
+            int celda = orden[j];
+            orden[j] = orden[i];
+            filas[i] = celda / tamanio;
+            columnas[i] = celda % tamanio;
+        }
+    }
+
+    /**
+     * Tablero propio con la flota colocada y sin disparos, restaurado antes
+     * de cada invocación para que la colocación no entre en la medición
+     */
+    @State(Scope.Thread)
+    public static class TableroIntacto {
+        JuegoBattleship juego;
+        private int[] filasBarcos;
+        private int[] columnasBarcos;
+        private boolean[] horizontales;
+
+        @Setup(Level.Trial)
+        public void colocar(JuegoBenchmark base) {
+            juego = new JuegoBattleship(base.configuracion);
+            juego.colocarBarcosAutomaticamente(base.random);
+            int barcos = juego.getCantidadBarcos();
+            filasBarcos = new int[barcos];
+            columnasBarcos = new int[barcos];
+            horizontales = new boolean[barcos];
+            for (int barco = 0; barco < barcos; barco++) {
+                filasBarcos[barco] = juego.getFilaBarco(barco);
+                columnasBarcos[barco] = juego.getColumnaBarco(barco);
+                horizontales[barco] = juego.esBarcoHorizontal(barco);
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void restaurar() {
+            juego.reiniciar();
+            for (int barco = 0; barco < filasBarcos.length; barco++) {
+                juego.colocarBarco(barco, filasBarcos[barco], columnasBarcos[barco], horizontales[barco]);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DISPAROS)
+    public void recibirDisparo(TableroIntacto tablero, Blackhole bh) {
+        JuegoBattleship propio = tablero.juego;
+        for (int i = 0; i < DISPAROS; i++) {
+            bh.consume(propio.recibirDisparo(filas[i], columnas[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DISPAROS)
+    public void yaDisparado(Blackhole bh) {
+        for (int i = 0; i < DISPAROS; i++) {
+            bh.consume(juego.yaDisparado(filas[i], columnas[i]));
+        }
+    }
+
+    @Benchmark
+    public JuegoBattleship colocarBarcosAutomaticamente() {
+        JuegoBattleship nuevo = new JuegoBattleship(configuracion);
+        nuevo.colocarBarcosAutomaticamente(random);
+        return nuevo;
+    }
+
+    @Benchmark
+    public byte[] exportarEstado() {
+        return juego.exportarEstado();
+    }
+
+    @Benchmark
+    public JuegoBattleship importarEstado() {
+        return JuegoBattleship.importarEstado(estado);
+    }
+}
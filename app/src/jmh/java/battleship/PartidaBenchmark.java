@@ -0,0 +1,32 @@
+package battleship;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Partida completa sin entrada ni salida entre dos estrategias iguales.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PartidaBenchmark {
+    @Param({ "aleatoria", "cazahundir", "probabilidad" })
+    public String estrategia;
+
+    private Simulador simulador;
+    private long semilla;
+
+    @Setup
+    public void preparar() {
+        simulador = new Simulador(Simulador.fabrica(estrategia), Simulador.fabrica(estrategia));
+    }
+
+    @Benchmark
+    public int partidaCompleta() {
+        return simulador.jugarPartida(semilla++);
+    }
+}
@@ -0,0 +1,91 @@
+package battleship;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Costo de construir y parsear mensajes en ambos formatos del protocolo.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProtocoloBenchmark {
+    private static final String[] NOMBRES_BARCOS = new JuegoBattleship().getNombresBarcos();
+
+    private String lineaDisparo;
+    private String lineaHundido;
+    private byte[] tramaDisparo;
+    private int longitudDisparo;
+    private byte[] tramaHundido;
+    private int longitudHundido;
+    private byte[] bytesDisparo;
+    private byte[] bytesHundido;
+    private final byte[] buffer = new byte[16];
+    private final ProtocoloBattleship.Mensaje destino = new ProtocoloBattleship.Mensaje();
+
+    @Setup
+    public void preparar() {
+        lineaDisparo = ProtocoloBattleship.construirMensajeDisparo(3, 7);
+        lineaHundido = ProtocoloBattleship.construirMensajeResultado(ProtocoloBattleship.HUNDIDO, 3, 7, "CRUCERO");
+
+        bytesDisparo = lineaDisparo.getBytes(StandardCharsets.UTF_8);
+        bytesHundido = lineaHundido.getBytes(StandardCharsets.UTF_8);
+
+        tramaDisparo = new byte[16];
+        longitudDisparo = ProtocoloBattleship.codificarDisparo(tramaDisparo, 3, 7);
+        tramaHundido = new byte[16];
+        longitudHundido = ProtocoloBattleship.codificarResultado(tramaHundido, ProtocoloBattleship.HUNDIDO, 3, 7, 2);
+    }
+
+    @Benchmark
+    public ProtocoloBattleship.Mensaje parsearDisparoTexto() {
+        return ProtocoloBattleship.parsearMensaje(lineaDisparo);
+    }
+
+    @Benchmark
+    public ProtocoloBattleship.Mensaje parsearHundidoTexto() {
+        return ProtocoloBattleship.parsearMensaje(lineaHundido);
+    }
+
+    @Benchmark
+    public ProtocoloBattleship.Mensaje parsearDisparoTextoEnSitio() {
+        return ProtocoloBattleship.parsearMensaje(bytesDisparo, bytesDisparo.length, NOMBRES_BARCOS, destino);
+    }
+
+    @Benchmark
+    public ProtocoloBattleship.Mensaje parsearHundidoTextoEnSitio() {
+        return ProtocoloBattleship.parsearMensaje(bytesHundido, bytesHundido.length, NOMBRES_BARCOS, destino);
+    }
+
+    @Benchmark
+    public ProtocoloBattleship.Mensaje parsearHundidoBinarioEnSitio() {
+        return ProtocoloBattleship.parsearMensajeBinario(tramaHundido, longitudHundido, NOMBRES_BARCOS, destino);
+    }
+
+    @Benchmark
+    public ProtocoloBattleship.Mensaje parsearDisparoBinario() {
+        return ProtocoloBattleship.parsearMensajeBinario(tramaDisparo, longitudDisparo, NOMBRES_BARCOS);
+    }
+
+    @Benchmark
+    public ProtocoloBattleship.Mensaje parsearHundidoBinario() {
+        return ProtocoloBattleship.parsearMensajeBinario(tramaHundido, longitudHundido, NOMBRES_BARCOS);
+    }
+
+    @Benchmark
+    public String construirDisparoTexto() {
+        return ProtocoloBattleship.construirMensajeDisparo(3, 7);
+    }
+
+    @Benchmark
+    public void codificarDisparoBinario(Blackhole bh) {
+        bh.consume(ProtocoloBattleship.codificarDisparo(buffer, 3, 7));
+        bh.consume(buffer);
+    }
+}
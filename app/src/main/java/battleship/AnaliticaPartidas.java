@@ -0,0 +1,334 @@
+package battleship;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Estadísticas de las partidas que se agregan a medida que llegan los eventos
+ * del protocolo: mapas de calor de disparos, impactos y colocación de barcos
+ * por celda, resultados por comando, disparos necesarios para ganar y datos
+ * de cada jugador. Cada evento suma a contadores atómicos, como en
+ * {@link Metricas}, y las consultas leen esos contadores en vivo, sin
+ * recorrer el historial.
+ * <p>
+ * La memoria está acotada: los mapas de tableros grandes agrupan celdas hasta
+ * {@link #LADO_MAXIMO} por lado y se guardan a lo sumo {@link #MAX_TABLEROS}
+ * tamaños; los jugadores se cuentan en un {@link EsbozoConteo} de tamaño fijo
+ * y solo se recuerdan los nombres de los más activos, con {@link TopFrecuentes}.
+ */
+public final class AnaliticaPartidas {
+    public static final int LADO_MAXIMO = 64;
+    public static final int MAX_TABLEROS = 8;
+
+    // Las que alimentan el juego P2P y el servidor de partidas del proceso
+    public static final AnaliticaPartidas GLOBAL = new AnaliticaPartidas();
+
+    private static final int FILAS_ESBOZO = 5;
+    private static final int ANCHO_ESBOZO = 4096;
+    private static final int JUGADORES_ACTIVOS = 32;
+    private static final int JUGADORES_RESUMEN = 10;
+    private static final int LADO_MAXIMO_DIBUJO = 32;
+
+    // Campos de cada jugador en el esbozo
+    private static final int PARTIDAS = 0;
+    private static final int VICTORIAS = 1;
+    private static final int DISPAROS = 2;
+    private static final int IMPACTOS = 3;
+    private static final int DISPAROS_PARA_GANAR = 4;
+    private static final int CAMPOS = 5;
+
+    private final ConcurrentHashMap<Integer, MapaCalor> mapas = new ConcurrentHashMap<>();
+    private final LongAdder fallos = new LongAdder();
+    private final LongAdder impactos = new LongAdder();
+    private final LongAdder hundidos = new LongAdder();
+    private final LongAdder partidas = new LongAdder();
+    // Eventos de tableros que ya no entraban en MAX_TABLEROS
+    private final LongAdder descartados = new LongAdder();
+    private final HistogramaConcurrente disparosParaGanar = new HistogramaConcurrente();
+    private final EsbozoConteo jugadores = new EsbozoConteo(FILAS_ESBOZO, ANCHO_ESBOZO, CAMPOS);
+    private final TopFrecuentes masActivos = new TopFrecuentes(JUGADORES_ACTIVOS);
+
+    /**
+     * Suma la colocación de una flota al mapa de ocupación de su tablero
+     */
+    public void registrarColocacion(JuegoBattleship juego) {
+        MapaCalor mapa = mapa(juego.getTamanioTablero(), true);
+        if (mapa == null) {
+            return;
+        }
+        for (int barco = 0; barco < juego.getCantidadBarcos(); barco++) {
+            int fila = juego.getFilaBarco(barco);
+            int columna = juego.getColumnaBarco(barco);
+            boolean horizontal = juego.esBarcoHorizontal(barco);
+            for (int k = 0; k < juego.getTamanioBarco(barco); k++) {
+                mapa.ocupadas.incrementAndGet(horizontal ? mapa.indice(fila, columna + k)
+                        : mapa.indice(fila + k, columna));
+            }
+        }
+        mapa.colocaciones.increment();
+    }
+
+    /**
+     * Suma el resultado de un disparo de {@code tirador} en un tablero de
+     * {@code tamanio} celdas por lado
+     */
+    public void registrarDisparo(String tirador, int tamanio, int x, int y, String resultado) {
+        boolean acierto;
+        switch (resultado) {
+            case ProtocoloBattleship.FALLO: fallos.increment(); acierto = false; break;
+            case ProtocoloBattleship.IMPACTO: impactos.increment(); acierto = true; break;
+            case ProtocoloBattleship.HUNDIDO: hundidos.increment(); acierto = true; break;
+            default: return;
+        }
+        MapaCalor mapa = mapa(tamanio, true);
+        if (mapa != null && x >= 0 && x < tamanio && y >= 0 && y < tamanio) {
+            int indice = mapa.indice(x, y);
+            mapa.disparos.incrementAndGet(indice);
+            if (acierto) {
+                mapa.impactos.incrementAndGet(indice);
+            }
+        }
+        jugadores.sumar(tirador, DISPAROS, 1);
+        if (acierto) {
+            jugadores.sumar(tirador, IMPACTOS, 1);
+        }
+    }
+
+    /**
+     * Suma una partida terminada; {@code disparos} son los que necesitó el ganador
+     */
+    public void registrarPartida(String ganador, String perdedor, int disparos) {
+        partidas.increment();
+        disparosParaGanar.registrar(disparos);
+        jugadores.sumar(ganador, PARTIDAS, 1);
+        jugadores.sumar(ganador, VICTORIAS, 1);
+        jugadores.sumar(ganador, DISPAROS_PARA_GANAR, disparos);
+        jugadores.sumar(perdedor, PARTIDAS, 1);
+        masActivos.agregar(ganador);
+        masActivos.agregar(perdedor);
+    }
+
+    private MapaCalor mapa(int tamanio, boolean crear) {
+        MapaCalor mapa = mapas.get(tamanio);
+        if (mapa != null || !crear) {
+            return mapa;
+        }
+        synchronized (mapas) {
+            if (mapas.size() >= MAX_TABLEROS && !mapas.containsKey(tamanio)) {
+                descartados.increment();
+                return null;
+            }
+            return mapas.computeIfAbsent(tamanio, MapaCalor::new);
+        }
+    }
+
+    /**
+     * Mapa de calor de los tableros de ese tamaño, o null si no hubo eventos
+     */
+    public MapaCalor mapa(int tamanio) {
+        return mapa(tamanio, false);
+    }
+
+    public long getPartidas() {
+        return partidas.sum();
+    }
+
+    public long getFallos() {
+        return fallos.sum();
+    }
+
+    public long getImpactos() {
+        return impactos.sum();
+    }
+
+    public long getHundidos() {
+        return hundidos.sum();
+    }
+
+    public HistogramaConcurrente getDisparosParaGanar() {
+        return disparosParaGanar;
+    }
+
+    /**
+     * Estadísticas estimadas de un jugador: pueden exceder a las reales por
+     * choques en el esbozo, nunca quedarse cortas
+     */
+    public EstadisticasJugador jugador(String nombre) {
+        return new EstadisticasJugador(nombre, jugadores.estimar(nombre, PARTIDAS),
+                jugadores.estimar(nombre, VICTORIAS), jugadores.estimar(nombre, DISPAROS),
+                jugadores.estimar(nombre, IMPACTOS), jugadores.estimar(nombre, DISPAROS_PARA_GANAR));
+    }
+
+    /**
+     * Jugadores con más partidas, de mayor a menor
+     */
+    public List<EstadisticasJugador> jugadoresMasActivos() {
+        List<EstadisticasJugador> lista = new ArrayList<>();
+        for (TopFrecuentes.Entrada entrada : masActivos.mayores()) {
+            lista.add(jugador(entrada.clave));
+        }
+        return lista;
+    }
+
+    /**
+     * Resumen legible de todo lo agregado, con los mapas de los tableros chicos
+     */
+    public String resumen() {
+        StringBuilder sb = new StringBuilder(4096);
+        long disparos = getFallos() + getImpactos() + getHundidos();
+        sb.append(String.format("Partidas: %d, disparos: %d (%.1f%% aciertos, %d hundidos)%n", getPartidas(),
+                disparos, disparos == 0 ? 0 : 100.0 * (getImpactos() + getHundidos()) / disparos, getHundidos()));
+        if (disparosParaGanar.getCantidad() > 0) {
+            sb.append(String.format("Disparos para ganar: media=%.1f p50=%d p90=%d max=%d%n",
+                    disparosParaGanar.getMedia(), disparosParaGanar.percentil(50),
+                    disparosParaGanar.percentil(90), disparosParaGanar.getMaximo()));
+        }
+
+        List<EstadisticasJugador> activos = jugadoresMasActivos();
+        if (!activos.isEmpty()) {
+            sb.append(String.format("%nJugadores más activos (estimado):%n%-20s %9s %9s %9s %9s%n",
+                    "Jugador", "Partidas", "Victorias", "Aciertos", "Disp/gan"));
+            for (EstadisticasJugador jugador : activos.subList(0, Math.min(activos.size(), JUGADORES_RESUMEN))) {
+                sb.append(String.format("%-20.20s %9d %9d %8.1f%% %9.1f%n", jugador.nombre, jugador.partidas,
+                        jugador.victorias, jugador.getPrecision() * 100, jugador.getMediaDisparosParaGanar()));
+            }
+        }
+
+        List<Integer> tamanios = new ArrayList<>(mapas.keySet());
+        Collections.sort(tamanios);
+        for (int tamanio : tamanios) {
+            mapas.get(tamanio).dibujar(sb);
+        }
+        if (descartados.sum() > 0) {
+            sb.append("Eventos de otros tableros sin mapa: ").append(descartados.sum()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Conteos por celda de los tableros de un tamaño. Las celdas se agrupan en
+     * bloques de {@code factor x factor} cuando el lado supera
+     * {@link #LADO_MAXIMO}.
+     */
+    public static final class MapaCalor {
+        private final int tamanio;
+        private final int factor;
+        private final int lado;
+        private final AtomicLongArray disparos;
+        private final AtomicLongArray impactos;
+        private final AtomicLongArray ocupadas;
+        private final LongAdder colocaciones = new LongAdder();
+
+        MapaCalor(int tamanio) {
+            this.tamanio = tamanio;
+            this.factor = (tamanio + LADO_MAXIMO - 1) / LADO_MAXIMO;
+            this.lado = (tamanio + factor - 1) / factor;
+            this.disparos = new AtomicLongArray(lado * lado);
+            this.impactos = new AtomicLongArray(lado * lado);
+            this.ocupadas = new AtomicLongArray(lado * lado);
+        }
+
+        private int indice(int fila, int columna) {
+            return fila / factor * lado + columna / factor;
+        }
+
+        public int getTamanio() {
+            return tamanio;
+        }
+
+        /**
+         * Celdas por lado del mapa; cada una cubre {@code factor x factor} del tablero
+         */
+        public int getLado() {
+            return lado;
+        }
+
+        public int getFactor() {
+            return factor;
+        }
+
+        public long getColocaciones() {
+            return colocaciones.sum();
+        }
+
+        public long disparos(int fila, int columna) {
+            return disparos.get(fila * lado + columna);
+        }
+
+        public long impactos(int fila, int columna) {
+            return impactos.get(fila * lado + columna);
+        }
+
+        /**
+         * Veces que una colocación ocupó la celda del mapa
+         */
+        public long ocupadas(int fila, int columna) {
+            return ocupadas.get(fila * lado + columna);
+        }
+
+        private void dibujar(StringBuilder sb) {
+            sb.append(String.format("%nTablero %dx%d", tamanio, tamanio));
+            if (factor > 1) {
+                sb.append(String.format(" (bloques de %dx%d)", factor, factor));
+            }
+            sb.append(": ").append(getColocaciones()).append(" colocaciones\n");
+            if (lado > LADO_MAXIMO_DIBUJO) {
+                return;
+            }
+            // Cada celda de 0 a 9 respecto de la más alta del mapa
+            sb.append(String.format("%-" + (lado + 2) + "s%s%n", "Impactos", "Ocupación"));
+            long maximoImpactos = maximo(impactos);
+            long maximoOcupadas = maximo(ocupadas);
+            for (int fila = 0; fila < lado; fila++) {
+                for (int columna = 0; columna < lado; columna++) {
+                    sb.append(nivel(impactos(fila, columna), maximoImpactos));
+                }
+                sb.append("  ");
+                for (int columna = 0; columna < lado; columna++) {
+                    sb.append(nivel(ocupadas(fila, columna), maximoOcupadas));
+                }
+                sb.append('\n');
+            }
+        }
+
+        private static long maximo(AtomicLongArray cuentas) {
+            long maximo = 0;
+            for (int i = 0; i < cuentas.length(); i++) {
+                maximo = Math.max(maximo, cuentas.get(i));
+            }
+            return maximo;
+        }
+
+        private static char nivel(long valor, long maximo) {
+            return maximo == 0 ? '.' : (char) ('0' + (int) (valor * 9 / maximo));
+        }
+    }
+
+    public static final class EstadisticasJugador {
+        public final String nombre;
+        public final long partidas;
+        public final long victorias;
+        public final long disparos;
+        public final long impactos;
+        public final long disparosParaGanar;
+
+        EstadisticasJugador(String nombre, long partidas, long victorias, long disparos, long impactos,
+                long disparosParaGanar) {
+            this.nombre = nombre;
+            this.partidas = partidas;
+            this.victorias = victorias;
+            this.disparos = disparos;
+            this.impactos = impactos;
+            this.disparosParaGanar = disparosParaGanar;
+        }
+
+        public double getPrecision() {
+            return disparos == 0 ? 0 : (double) impactos / disparos;
+        }
+
+        public double getMediaDisparosParaGanar() {
+            return victorias == 0 ? 0 : (double) disparosParaGanar / victorias;
+        }
+    }
+}
@@ -2,40 +2,129 @@ package battleship;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.*;
+import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.random.RandomGenerator;
 
 public class BattleshipP2P {
-    private static final int PUERTO = 12345;
-    private Socket socket;
-    private ServerSocket serverSocket;
-    private PrintWriter salida;
-    private BufferedReader entrada;
+    static final int PUERTO = 12345;
+    private Transporte transporte;
+    private ServerSocketChannel servidor;
+    private volatile CanalMensajes canal;
     private JuegoBattleship juego;
     private boolean esServidor;
+    private boolean miTurno;
     private String nombreJugador;
-    private Scanner scanner;
+    private String nombreOponente;
+    // Cada cuánto se atiende la conexión mientras se espera al jugador
+    private static final int INTERVALO_VIGILANCIA_MS = 200;
+    private final EntradaConsola consola;
+    private boolean disparoAutomatico;
+    private EstrategiaDisparo estrategia;
+    private ConfiguracionPartida configuracion = ConfiguracionPartida.desdeConfiguracion();
+    // LISTO que llegó mientras se esperaba una configuración
+    private String listoAdelantado;
+    // Diario de la partida, si se eligió un directorio con battleship.diario
+    private final Path directorioDiario = System.getProperty("battleship.diario") != null
+            ? Paths.get(System.getProperty("battleship.diario")) : null;
+    private DiarioPartida diario;
+    private DiarioPartida.Recuperacion recuperada;
+    private final boolean protocoloBinario = Boolean.getBoolean("battleship.binario");
+    // Sesión reanudable, si ambos la anuncian con battleship.sesiones
+    private final boolean usarSesiones = Boolean.getBoolean("battleship.sesiones");
+    private String tokenSesion;
+    // Disparos por turno que se proponen con battleship.salva y los acordados
+    private final int salvaPropuesta = Math.max(1,
+            Math.min(ProtocoloBattleship.MAX_SALVA, Integer.getInteger("battleship.salva", 1)));
+    private int salva = 1;
+    private String hostRemoto;
+    private ScheduledExecutorService latidos;
+    // Lo necesario para ponerse al día con el rival tras reconectar
+    private int turnosCompletados;
+    // Disparos sin respuesta como x0, y0, x1, y1, ...
+    private int[] disparoPendiente;
+    private ProtocoloBattleship.Mensaje ultimaRespuesta;
+    private String ultimaRespuestaSalva;
+    private final HistogramaLatencia latenciaTurnos = new HistogramaLatencia();
+    // Cuándo llegó el disparo que se está respondiendo
+    private long llegadaDisparo;
 
     public BattleshipP2P() {
-        this.scanner = new Scanner(System.in);
-        this.juego = new JuegoBattleship();
+        this.consola = new EntradaConsola(System.in);
+    }
+
+    /**
+     * Jugador automático ya conectado por {@code transporte} y con la flota
+     * colocada; sin consola, para jugar turnos sueltos en las pruebas
+     */
+    BattleshipP2P(String nombre, Transporte transporte, JuegoBattleship juego, boolean esServidor, int salva,
+            Random random) {
+        this.consola = new EntradaConsola(InputStream.nullInputStream());
+        this.nombreJugador = nombre;
+        this.transporte = transporte;
+        this.juego = juego;
+        this.esServidor = esServidor;
+        this.miTurno = esServidor;
+        this.salva = salva;
+        configurarFlujos();
+        canal.setNombresBarcos(juego.getNombresBarcos());
+        estrategia = new EstrategiaCazaHundir();
+        estrategia.reiniciar(juego, random);
     }
 
     public void iniciar() {
         System.out.println("=== BATTLESHIP P2P ===");
         System.out.print("Ingresa tu nombre: ");
-        this.nombreJugador = scanner.nextLine();
+        this.nombreJugador = consola.leerLinea();
+
+        System.out.print("¿Quieres que la computadora dispare por ti? (s/n): ");
+        disparoAutomatico = consola.leerLinea().trim().equalsIgnoreCase("s");
 
+        buscarPartidaPendiente();
         elegirModo();
     }
 
+    /**
+     * Ofrece reanudar la última partida del jugador si quedó sin terminar.
+     * Para continuarla ambos jugadores deben reanudar la misma partida y
+     * conectarse con el rol que tenían; si no, ambos comienzan una nueva.
+     */
+    private void buscarPartidaPendiente() {
+        if (directorioDiario == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(directorioDiario);
+            Path pendiente = DiarioPartida.buscarPendiente(directorioDiario, nombreJugador);
+            if (pendiente == null) {
+                return;
+            }
+            long inicio = System.nanoTime();
+            DiarioPartida.Recuperacion recuperacion = DiarioPartida.recuperar(pendiente);
+            System.out.printf("Hay una partida sin terminar (%s, turno %d, recuperada en %.1f ms).%n",
+                    recuperacion.esServidor ? "creada por ti" : "unido a otro jugador",
+                    recuperacion.turnos, (System.nanoTime() - inicio) / 1e6);
+            System.out.print("¿Quieres reanudarla? (s/n): ");
+            if (consola.leerLinea().trim().equalsIgnoreCase("s")) {
+                recuperada = recuperacion;
+            }
+        } catch (IOException | RuntimeException e) {
+            System.out.println("No se pudo leer el diario de partidas: " + e.getMessage());
+        }
+    }
+
     private void elegirModo() {
         while (true) {
             System.out.println("\nSelecciona modo:");
             System.out.println("1. Crear partida (Esperar conexión)");
             System.out.println("2. Unirse a partida (Conectar a otro jugador)");
+            System.out.println("3. Buscar partida en un servidor");
+            System.out.println("4. Mirar una partida en un servidor");
             System.out.print("Opción: ");
 
-            String opcion = scanner.nextLine();
+            String opcion = consola.leerLinea();
 
             if ("1".equals(opcion)) {
                 esServidor = true;
@@ -45,6 +134,12 @@ public class BattleshipP2P {
                 esServidor = false;
                 conectarAPartida();
                 break;
+            } else if ("3".equals(opcion)) {
+                conectarAServidorPartidas();
+                break;
+            } else if ("4".equals(opcion)) {
+                mirarPartida();
+                break;
             } else {
                 System.out.println("Opción inválida. Intenta nuevamente.");
             }
@@ -54,11 +149,11 @@ public class BattleshipP2P {
     private void esperarConexion() {
         try {
             System.out.println("\nIniciando servidor en puerto " + PUERTO + "...");
-            serverSocket = new ServerSocket(PUERTO);
+            servidor = ServerSocketChannel.open().bind(new InetSocketAddress(PUERTO));
             System.out.println("Esperando conexión de otro jugador...");
 
-            socket = serverSocket.accept();
-            System.out.println("¡Jugador conectado desde: " + socket.getInetAddress() + "!");
+            transporte = Transporte.aceptar(servidor);
+            System.out.println("¡Jugador conectado desde: " + transporte.getDireccionRemota() + "!");
 
             configurarFlujos();
             intercambiarNombres();
@@ -72,10 +167,11 @@ public class BattleshipP2P {
     private void conectarAPartida() {
         try {
             System.out.print("\nIngresa la IP del otro jugador: ");
-            String ip = scanner.nextLine();
+            String ip = consola.leerLinea();
 
             System.out.println("Conectando a " + ip + ":" + PUERTO + "...");
-            socket = new Socket(ip, PUERTO);
+            transporte = Transporte.conectar(ip, PUERTO);
+            hostRemoto = ip;
             System.out.println("¡Conectado exitosamente!");
 
             configurarFlujos();
@@ -85,28 +181,86 @@ public class BattleshipP2P {
         } catch (IOException e) {
             System.err.println("Error al conectar: " + e.getMessage());
             System.out.println("¿Deseas intentar nuevamente? (s/n)");
-            String respuesta = scanner.nextLine();
+            String respuesta = consola.leerLinea();
             if (respuesta.equalsIgnoreCase("s")) {
                 conectarAPartida();
             }
         }
     }
 
-    private void configurarFlujos() throws IOException {
-        salida = new PrintWriter(socket.getOutputStream(), true);
-        entrada = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+    private void conectarAServidorPartidas() {
+        try {
+            System.out.print("\nIngresa la IP del servidor de partidas: ");
+            String ip = consola.leerLinea();
+
+            System.out.println("Conectando a " + ip + ":" + PUERTO + "...");
+            transporte = Transporte.conectar(ip, PUERTO);
+            hostRemoto = ip;
+            configurarFlujos();
+
+            canal.enviarLinea(nombreJugador);
+            System.out.println("Esperando rival...");
+
+            String aviso = canal.leerLinea();
+            if (aviso == null) {
+                System.out.println("El servidor cerró la conexión.");
+                cerrarConexion();
+                return;
+            }
+
+            String[] partes = aviso.split("\\" + ProtocoloBattleship.SEPARADOR_CAMPOS, 3);
+            if (partes.length < 3 || !ProtocoloBattleship.EMPAREJADO.equals(partes[0])) {
+                System.out.println("Respuesta inesperada del servidor: " + aviso);
+                cerrarConexion();
+                return;
+            }
+
+            // El servidor decide quién comienza
+            esServidor = ProtocoloBattleship.PRIMERO.equals(partes[1]);
+            // El servidor describe al rival como "nombre (puntuación)"
+            nombreOponente = partes[2].replaceFirst(" \\(-?\\d+\\)$", "");
+            System.out.println("Jugando contra: " + partes[2]);
+            iniciarJuego();
+
+        } catch (IOException e) {
+            System.err.println("Error al conectar: " + e.getMessage());
+            System.out.println("¿Deseas intentar nuevamente? (s/n)");
+            String respuesta = consola.leerLinea();
+            if (respuesta.equalsIgnoreCase("s")) {
+                conectarAServidorPartidas();
+            }
+        }
+    }
+
+    private void mirarPartida() {
+        System.out.print("\nIngresa la IP del servidor de partidas: ");
+        String ip = consola.leerLinea();
+        System.out.print("Número de partida (vacío para la última): ");
+        String numero = consola.leerLinea().trim();
+
+        try (EspectadorPartida espectador = new EspectadorPartida(Transporte.conectar(ip, PUERTO))) {
+            espectador.mirar(numero.isEmpty() ? 0 : Integer.parseInt(numero));
+        } catch (NumberFormatException e) {
+            System.out.println("Número de partida inválido.");
+        } catch (IOException e) {
+            System.err.println("Error al conectar: " + e.getMessage());
+        }
+    }
+
+    private void configurarFlujos() {
+        canal = new CanalMensajes(transporte);
     }
 
     private void intercambiarNombres() throws IOException {
         if (esServidor) {
             // Esperar nombre del cliente
-            String nombreOponente = entrada.readLine();
-            salida.println(nombreJugador);
+            nombreOponente = canal.leerLinea();
+            canal.enviarLinea(nombreJugador);
             System.out.println("Jugando contra: " + nombreOponente);
         } else {
             // Enviar nombre primero
-            salida.println(nombreJugador);
-            String nombreOponente = entrada.readLine();
+            canal.enviarLinea(nombreJugador);
+            nombreOponente = canal.leerLinea();
             System.out.println("Jugando contra: " + nombreOponente);
         }
     }
@@ -114,51 +268,80 @@ public class BattleshipP2P {
     private void iniciarJuego() throws IOException {
         System.out.println("\n=== INICIANDO JUEGO ===");
 
-        // Colocar barcos automáticamente
-        juego.colocarBarcosAutomaticamente();
-        System.out.println("Tus barcos han sido colocados automáticamente.");
-        juego.mostrarTableroPropio();
-
+        if (!negociarConfiguracion()) {
+            cerrarConexion();
+            return;
+        }
         boolean juegoActivo = true;
-        boolean miTurno = esServidor; // El servidor comienza
 
         try {
-            salida.println(ProtocoloBattleship.LISTO);
-            String respuesta = entrada.readLine();
+            // Quien comienza identifica la partida nueva; solo hace falta para el diario
+            String partidaNueva = esServidor && directorioDiario != null ? ProtocoloBattleship.generarToken() : null;
+            String reanudacion = ofrecerReanudacion();
+            String listo = ProtocoloBattleship.construirMensajeListo(protocoloBinario, usarSesiones, salvaPropuesta);
+            if (partidaNueva != null) {
+                listo += ProtocoloBattleship.SEPARADOR_CAMPOS + ProtocoloBattleship.anunciarPartida(partidaNueva);
+            }
+            if (reanudacion != null) {
+                listo += ProtocoloBattleship.SEPARADOR_CAMPOS + reanudacion;
+            }
+            canal.enviarLinea(listo);
+            String respuesta = listoAdelantado != null ? listoAdelantado : canal.leerLinea();
 
             if (respuesta == null) {
                 System.out.println("El oponente se desconectó durante la inicialización.");
                 return;
             }
 
-            if (ProtocoloBattleship.LISTO.equals(respuesta)) {
+            if (ProtocoloBattleship.LISTO.equals(ProtocoloBattleship.parsearMensaje(respuesta).comando)) {
+                // Se reanuda solo si ambos ofrecen la misma partida, turno y jugador que mueve
+                boolean reanudada = reanudacion != null && ProtocoloBattleship.anunciaCapacidad(respuesta, reanudacion);
+                if (!esServidor) {
+                    partidaNueva = ProtocoloBattleship.valorCapacidad(respuesta, ProtocoloBattleship.CAPACIDAD_PARTIDA);
+                }
+                prepararPartida(reanudada, partidaNueva != null ? partidaNueva : ProtocoloBattleship.generarToken());
                 System.out.println("¡Ambos jugadores listos! El juego comienza.");
 
+                // Binario solo si ambos lo anunciaron; un par antiguo envía LISTO a secas
+                if (protocoloBinario
+                        && ProtocoloBattleship.anunciaCapacidad(respuesta, ProtocoloBattleship.CAPACIDAD_BINARIA)) {
+                    canal.setBinario(true);
+                    System.out.println("Usando protocolo binario.");
+                }
+                if (usarSesiones
+                        && ProtocoloBattleship.anunciaCapacidad(respuesta, ProtocoloBattleship.CAPACIDAD_SESIONES)) {
+                    establecerSesion();
+                }
+                // Ambos calculan lo mismo: la salva más chica de las dos propuestas
+                salva = Math.min(salvaPropuesta, ProtocoloBattleship.salvaAnunciada(respuesta));
+                if (salva > 1) {
+                    System.out.println("Jugando con salvas de " + salva + " disparos por turno.");
+                }
+
                 if (miTurno) {
                     System.out.println("\n¡Tú comienzas!");
                 } else {
                     System.out.println("\nEl oponente comienza...");
                 }
 
-                while (juegoActivo) {
-                    if (miTurno) {
-                        juegoActivo = turnoLocal();
-                        if (juegoActivo) {
-                            miTurno = false;
-                        }
-                    } else {
-                        juegoActivo = turnoRemoto();
-                        if (juegoActivo) {
-                            miTurno = true;
+                Metricas.PARTIDAS_ACTIVAS.increment();
+                try {
+                    while (juegoActivo) {
+                        try {
+                            juegoActivo = !miTurno ? turnoRemoto() : salva > 1 ? turnoSalvaLocal() : turnoLocal();
+                        } catch (IOException e) {
+                            Metricas.DESCONEXIONES.increment();
+                            if (tokenSesion == null || !reconectar(e)) {
+                                throw e;
+                            }
                         }
                     }
+                } finally {
+                    Metricas.PARTIDAS_ACTIVAS.decrement();
+                }
 
-                    // Pequeña pausa para estabilizar la comunicación
-                    try {
-                        Thread.sleep(100);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    }
+                if (latenciaTurnos.getCantidad() > 0) {
+                    System.out.println("Latencia por turno (ida y vuelta): " + latenciaTurnos.resumen());
                 }
             }
         } catch (IOException e) {
@@ -168,88 +351,517 @@ public class BattleshipP2P {
         }
     }
 
-    private boolean turnoLocal() throws IOException {
-        System.out.println("\n=== TU TURNO ===");
-        juego.mostrarTableroEnemigo();
+    /**
+     * Campo de LISTO que ofrece reanudar la partida guardada, o null si no hay
+     * ninguna que sirva para esta conexión. Hace falta el mismo rol y la misma
+     * configuración que al guardarla; el resto lo compara el rival.
+     */
+    private String ofrecerReanudacion() {
+        if (recuperada == null || recuperada.esServidor != esServidor
+                || !recuperada.juego.getConfiguracion().equals(configuracion)) {
+            return null;
+        }
+        return ProtocoloBattleship.anunciarReanudacion(recuperada.partida, recuperada.turnos,
+                recuperada.miTurno == esServidor);
+    }
+
+    /**
+     * Continúa la partida guardada o coloca una flota nueva, y prepara el
+     * diario y la estrategia. Ambos jugadores llegan aquí con la misma
+     * decisión, tomada con los dos LISTO.
+     */
+    private void prepararPartida(boolean reanudada, String partida) {
+        miTurno = esServidor; // El servidor comienza
+        if (reanudada) {
+            juego = recuperada.juego;
+            miTurno = recuperada.miTurno;
+            turnosCompletados = recuperada.turnos;
+            System.out.println("Partida reanudada en el turno " + recuperada.turnos + ".");
+        } else {
+            if (recuperada != null) {
+                System.out.println("La partida guardada no coincide con la del oponente; comienza una nueva.");
+            }
+            juego = new JuegoBattleship(configuracion);
+
+            // Colocar barcos automáticamente
+            juego.colocarBarcosAutomaticamente();
+            AnaliticaPartidas.GLOBAL.registrarColocacion(juego);
+            System.out.println("Tus barcos han sido colocados automáticamente.");
+        }
+        canal.setNombresBarcos(juego.getNombresBarcos());
         juego.mostrarTableroPropio();
+        abrirDiario(reanudada, partida);
+
+        if (disparoAutomatico) {
+            // La estrategia por densidad recorre todo el tablero en cada turno
+            estrategia = juego.getTamanioTablero() * juego.getTamanioTablero() <= EstrategiaProbabilidad.MAX_CELDAS
+                    ? new EstrategiaLibro(new EstrategiaProbabilidad())
+                    : new EstrategiaCazaHundir();
+            estrategia.reiniciar(juego, RandomGenerator.getDefault());
+            if (reanudada) {
+                // La estrategia solo recupera impactos y fallos, no qué barcos se hundieron
+                int tamanio = juego.getTamanioTablero();
+                juego.recorrerImpactosEnemigo(c -> estrategia.registrarResultado(c / tamanio, c % tamanio,
+                        ProtocoloBattleship.IMPACTO, null));
+                juego.recorrerFallosEnemigo(c -> estrategia.registrarResultado(c / tamanio, c % tamanio,
+                        ProtocoloBattleship.FALLO, null));
+            }
+        }
+    }
+
+    /**
+     * Acuerda tablero y flota antes de colocar los barcos. Quien comienza
+     * propone su configuración; solo la envía si no es la estándar, así que un
+     * par antiguo sigue pudiendo jugar la partida clásica. El otro jugador
+     * adopta lo que reciba: si lo primero que llega es LISTO, la partida es
+     * la estándar.
+     */
+    private boolean negociarConfiguracion() throws IOException {
+        if (esServidor) {
+            if (!configuracion.esEstandar()) {
+                canal.enviarLinea(ProtocoloBattleship.construirMensajeConfiguracion(configuracion));
+                System.out.println("Configuración propuesta: " + configuracion);
+            }
+            return true;
+        }
 
-        int[] disparo = obtenerDisparoJugador();
-        salida.println(ProtocoloBattleship.construirMensajeDisparo(disparo[0], disparo[1]));
+        String linea = canal.leerLinea();
+        if (linea == null) {
+            System.out.println("El oponente se desconectó durante la inicialización.");
+            return false;
+        }
+
+        ConfiguracionPartida recibida;
+        if (ProtocoloBattleship.CONFIGURACION.equals(ProtocoloBattleship.parsearMensaje(linea).comando)) {
+            try {
+                recibida = ProtocoloBattleship.parsearConfiguracion(linea);
+            } catch (IllegalArgumentException e) {
+                System.out.println("Configuración inválida del oponente: " + e.getMessage());
+                return false;
+            }
+        } else {
+            recibida = ConfiguracionPartida.ESTANDAR;
+            listoAdelantado = linea;
+        }
 
-        String respuesta = entrada.readLine();
+        if (!recibida.equals(configuracion)) {
+            System.out.println("Se usa la configuración del oponente: " + recibida);
+        }
+        configuracion = recibida;
+        return true;
+    }
+
+    /**
+     * Quien comienza elige el token de la sesión y se lo envía al otro
+     * jugador (a través del servidor de partidas, si lo hay). Desde aquí las
+     * lecturas tienen plazo y se envían latidos para que un silencio largo
+     * signifique una conexión caída.
+     */
+    private void establecerSesion() throws IOException {
+        transporte.setTiempoLectura(ProtocoloBattleship.TIEMPO_LECTURA_MS);
+        if (esServidor) {
+            tokenSesion = ProtocoloBattleship.generarToken();
+            canal.enviarLinea(ProtocoloBattleship.construirMensajeSesion(tokenSesion));
+        } else {
+            String linea = canal.leerLinea();
+            if (linea == null) {
+                throw new EOFException("El oponente se desconectó durante la inicialización");
+            }
+            tokenSesion = ProtocoloBattleship.parsearSesion(linea);
+        }
+
+        latidos = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "latidos");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        latidos.scheduleAtFixedRate(this::enviarLatido, ProtocoloBattleship.INTERVALO_LATIDO_MS,
+                ProtocoloBattleship.INTERVALO_LATIDO_MS, TimeUnit.MILLISECONDS);
+        System.out.println("Sesión reanudable establecida.");
+    }
+
+    private void enviarLatido() {
+        try {
+            canal.enviarLatido();
+        } catch (IOException e) {
+            // La conexión caída la detecta la lectura por su plazo
+        }
+    }
+
+    /**
+     * Intenta recuperar la conexión perdida durante el tiempo de gracia. Quien
+     * creó la partida espera una nueva conexión en su puerto; los demás
+     * vuelven a conectarse al otro jugador o al servidor de partidas.
+     */
+    private boolean reconectar(IOException causa) {
+        System.out.println("Se perdió la conexión (" + causa.getMessage() + "). Intentando reanudar la partida...");
+        boolean binario = canal.isBinario();
+        cerrarTransporte();
+
+        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ProtocoloBattleship.TIEMPO_RECONEXION_MS);
+        while (System.nanoTime() < limite) {
+            int restante = (int) Math.max(1, TimeUnit.NANOSECONDS.toMillis(limite - System.nanoTime()));
+            try {
+                transporte = servidor != null
+                        ? Transporte.aceptar(servidor, restante)
+                        : Transporte.conectar(hostRemoto, PUERTO);
+                configurarFlujos();
+                canal.setBinario(binario);
+                canal.setNombresBarcos(juego.getNombresBarcos());
+                // El otro extremo puede tardar en notar el corte hasta que venza su propia lectura
+                transporte.setTiempoLectura(restante);
+
+                if (servidor != null) {
+                    String linea = canal.leerLinea();
+                    if (linea == null) {
+                        throw new EOFException("Conexión cerrada antes de reanudar");
+                    }
+                    atenderReanudacion(linea);
+                } else {
+                    canal.enviarLinea(ProtocoloBattleship.construirMensajeReanudar(tokenSesion,
+                            turnosCompletados, esServidor));
+                    // Lo que el rival envió antes de recibir el pedido se descarta: vuelve a
+                    // llegar cuando se pone al día
+                    do {
+                        if (!canal.leerTrama()) {
+                            throw new EOFException("Conexión cerrada antes de reanudar");
+                        }
+                    } while (!canal.esComando(ProtocoloBattleship.REANUDAR)
+                            && !canal.esComando(ProtocoloBattleship.ERROR));
+                    ProtocoloBattleship.Reanudacion reanudacion = validarReanudacion(canal.tramaComoTexto());
+                    ponerseAlDia(reanudacion.turnos);
+                }
+                transporte.setTiempoLectura(ProtocoloBattleship.TIEMPO_LECTURA_MS);
+                Metricas.RECONEXIONES.increment();
+                System.out.println("Conexión recuperada en el turno " + turnosCompletados + ".");
+                return true;
+            } catch (IOException | IllegalArgumentException e) {
+                cerrarTransporte();
+                if (servidor == null) {
+                    try {
+                        Thread.sleep(1000);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+            }
+        }
+        System.out.println("El oponente no volvió a tiempo.");
+        return false;
+    }
+
+    /**
+     * Responde a un pedido de reanudación del otro jugador con los turnos
+     * propios y reenvía lo que le falte
+     */
+    private void atenderReanudacion(String linea) throws IOException {
+        ProtocoloBattleship.Reanudacion reanudacion = validarReanudacion(linea);
+        canal.enviarLinea(ProtocoloBattleship.construirMensajeReanudar(tokenSesion, turnosCompletados, esServidor));
+        ponerseAlDia(reanudacion.turnos);
+    }
+
+    private ProtocoloBattleship.Reanudacion validarReanudacion(String linea) throws IOException {
+        if (linea.startsWith(ProtocoloBattleship.ERROR)) {
+            throw new IOException("Reanudación rechazada: " + linea);
+        }
+        ProtocoloBattleship.Reanudacion reanudacion = ProtocoloBattleship.parsearReanudar(linea);
+        if (!reanudacion.token.equals(tokenSesion) || reanudacion.primero == esServidor) {
+            throw new IOException("Pedido de reanudación de otra sesión");
+        }
+        return reanudacion;
+    }
+
+    /**
+     * Cada disparo se completa al enviar o recibir su resultado, así que los
+     * contadores de ambos jugadores difieren a lo sumo en los disparos de un
+     * turno. Quien va adelantado reenvía su última respuesta, y los disparos
+     * que el rival no llegó a contestar se vuelven a enviar.
+     */
+    void ponerseAlDia(int turnosRival) throws IOException {
+        if (Math.abs(turnosCompletados - turnosRival) > salva) {
+            throw new IOException("Partida desincronizada: " + turnosCompletados + " turnos contra " + turnosRival);
+        }
+        if (turnosCompletados > turnosRival) {
+            if (ultimaRespuestaSalva != null) {
+                canal.enviarLinea(ultimaRespuestaSalva);
+            } else if (ultimaRespuesta != null) {
+                canal.enviarResultado(ultimaRespuesta.comando, ultimaRespuesta.x, ultimaRespuesta.y,
+                        ultimaRespuesta.tipoBarco);
+            } else {
+                throw new IOException("No se puede reenviar la última respuesta");
+            }
+        }
+        if (disparoPendiente != null && turnosRival <= turnosCompletados) {
+            enviarDisparos(disparoPendiente);
+        }
+    }
+
+    int getTurnosCompletados() {
+        return turnosCompletados;
+    }
+
+    private void enviarDisparos(int[] disparos) throws IOException {
+        if (salva > 1) {
+            canal.enviarLinea(ProtocoloBattleship.construirMensajeSalva(disparos));
+        } else {
+            canal.enviarDisparo(disparos[0], disparos[1]);
+        }
+    }
+
+    /**
+     * Recibe el siguiente mensaje del juego atendiendo los pedidos de
+     * reanudación que lleguen por el servidor de partidas
+     */
+    private ProtocoloBattleship.Mensaje recibirMensaje() throws IOException {
+        while (true) {
+            ProtocoloBattleship.Mensaje mensaje = canal.recibir();
+            if (mensaje == null && tokenSesion != null) {
+                throw new EOFException("Conexión cerrada por el otro extremo");
+            }
+            if (mensaje == null || !ProtocoloBattleship.REANUDAR.equals(mensaje.comando)) {
+                return mensaje;
+            }
+            atenderReanudacion(canal.tramaComoTexto());
+        }
+    }
+
+    private void abrirDiario(boolean reanudada, String partida) {
+        if (directorioDiario == null) {
+            return;
+        }
+        try {
+            diario = reanudada
+                    ? DiarioPartida.reanudar(recuperada)
+                    : DiarioPartida.crear(DiarioPartida.rutaNueva(directorioDiario, nombreJugador), juego, esServidor,
+                            partida);
+        } catch (IOException e) {
+            System.out.println("No se pudo abrir el diario de la partida: " + e.getMessage());
+        }
+    }
+
+    boolean turnoLocal() throws IOException {
+        // Tras reconectar, un disparo sin respuesta ya se reenvió al ponerse al día
+        int[] disparo = disparoPendiente;
+        long inicio = 0;
+        if (disparo == null) {
+            System.out.println("\n=== TU TURNO ===");
+            juego.mostrarTableroEnemigo();
+            juego.mostrarTableroPropio();
+
+            disparo = estrategia != null ? obtenerDisparoAutomatico() : obtenerDisparoJugador();
+
+            // El turno avanza en cuanto llega la respuesta, que confirma el disparo
+            inicio = System.nanoTime();
+            disparoPendiente = disparo;
+            canal.enviarDisparo(disparo[0], disparo[1]);
+            if (diario != null) {
+                diario.registrarDisparo(true, disparo[0], disparo[1]);
+            }
+        }
+        ProtocoloBattleship.Mensaje mensaje;
+        try {
+            mensaje = recibirMensaje();
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error procesando respuesta: " + e.getMessage());
+            return false;
+        }
+        if (inicio != 0) {
+            long latencia = System.nanoTime() - inicio;
+            latenciaTurnos.registrar(latencia);
+            Metricas.TURNO_LOCAL.registrar(latencia);
+        }
 
         // VERIFICACIÓN DE NULL AÑADIDA
-        if (respuesta == null) {
+        if (mensaje == null) {
             System.out.println("El oponente se desconectó o hubo un error en la comunicación.");
             return false;
         }
 
         try {
-            ProtocoloBattleship.Mensaje mensaje = ProtocoloBattleship.parsearMensaje(respuesta);
+            if (mensaje.x >= 0 && (mensaje.x != disparo[0] || mensaje.y != disparo[1])) {
+                System.out.println("La respuesta no corresponde al disparo enviado: " + mensaje);
+                return false;
+            }
+            if (mensaje.x >= 0) {
+                disparoPendiente = null;
+                turnosCompletados++;
+            }
+            miTurno = false;
+
+            if (diario != null) {
+                anotarRespuesta(false, mensaje);
+            }
+
+            if (estrategia != null && mensaje.x >= 0) {
+                estrategia.registrarResultado(mensaje.x, mensaje.y, mensaje.comando, mensaje.tipoBarco);
+            }
 
             switch (mensaje.comando) {
                 case ProtocoloBattleship.IMPACTO:
-                    System.out.println("¡IMPACTO en (" + mensaje.x + "," + mensaje.y + ")!");
-                    juego.registrarImpacto(mensaje.x, mensaje.y);
-                    return true;
-
                 case ProtocoloBattleship.FALLO:
-                    System.out.println("FALLO en (" + mensaje.x + "," + mensaje.y + ")");
-                    juego.registrarFallo(mensaje.x, mensaje.y);
-                    return true;
-
                 case ProtocoloBattleship.HUNDIDO:
-                    System.out.println("¡HUNDIDO! " + mensaje.tipoBarco + " en (" + mensaje.x + "," + mensaje.y + ")");
-                    juego.registrarImpacto(mensaje.x, mensaje.y);
+                    mostrarResultado(mensaje);
                     return true;
 
                 case ProtocoloBattleship.JUEGO_TERMINADO:
+                    registrarFinPartida(true);
                     System.out.println("¡FELICIDADES! ¡HAS GANADO!");
                     return false;
 
                 default:
-                    System.out.println("Respuesta inesperada: " + respuesta);
+                    System.out.println("Respuesta inesperada: " + mensaje);
                     return true;
             }
         } catch (Exception e) {
             System.out.println("Error procesando respuesta: " + e.getMessage());
-            System.out.println("Respuesta recibida: " + respuesta);
+            System.out.println("Respuesta recibida: " + mensaje);
             return false;
         }
     }
 
-   private boolean turnoRemoto() throws IOException {
+    /**
+     * Turno con salva: todos los disparos viajan en una línea y sus resultados
+     * vuelven juntos en otra, así que el turno cuesta una sola ida y vuelta
+     */
+    boolean turnoSalvaLocal() throws IOException {
+        int[] disparos = disparoPendiente;
+        long inicio = 0;
+        if (disparos == null) {
+            System.out.println("\n=== TU TURNO ===");
+            juego.mostrarTableroEnemigo();
+            juego.mostrarTableroPropio();
+
+            disparos = estrategia != null ? obtenerSalvaAutomatica() : obtenerSalvaJugador();
+
+            inicio = System.nanoTime();
+            disparoPendiente = disparos;
+            enviarDisparos(disparos);
+            if (diario != null) {
+                for (int i = 0; i < disparos.length; i += 2) {
+                    diario.registrarDisparo(true, disparos[i], disparos[i + 1]);
+                }
+            }
+        }
+        ProtocoloBattleship.Mensaje[] resultados;
+        try {
+            ProtocoloBattleship.Mensaje mensaje = recibirMensaje();
+            if (mensaje == null) {
+                System.out.println("El oponente se desconectó o hubo un error en la comunicación.");
+                return false;
+            }
+            if (!ProtocoloBattleship.RESULTADOS.equals(mensaje.comando)) {
+                System.out.println("Respuesta inesperada: " + mensaje);
+                return false;
+            }
+            resultados = ProtocoloBattleship.parsearResultados(canal.tramaComoTexto(), juego.getNombresBarcos());
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error procesando respuesta: " + e.getMessage());
+            return false;
+        }
+        if (inicio != 0) {
+            long latencia = System.nanoTime() - inicio;
+            latenciaTurnos.registrar(latencia);
+            Metricas.TURNO_LOCAL.registrar(latencia);
+        }
+
+        if (resultados.length != disparos.length / 2) {
+            System.out.println("La respuesta no corresponde a la salva enviada.");
+            return false;
+        }
+        for (int i = 0; i < resultados.length; i++) {
+            if (resultados[i].x != disparos[2 * i] || resultados[i].y != disparos[2 * i + 1]) {
+                System.out.println("La respuesta no corresponde a la salva enviada: " + resultados[i]);
+                return false;
+            }
+        }
+        disparoPendiente = null;
+        turnosCompletados += resultados.length;
+        miTurno = false;
+
+        for (ProtocoloBattleship.Mensaje resultado : resultados) {
+            if (diario != null) {
+                anotarRespuesta(false, resultado);
+            }
+            if (estrategia != null) {
+                estrategia.registrarResultado(resultado.x, resultado.y, resultado.comando, resultado.tipoBarco);
+            }
+            mostrarResultado(resultado);
+        }
+        return true;
+    }
+
+    private void mostrarResultado(ProtocoloBattleship.Mensaje mensaje) {
+        AnaliticaPartidas.GLOBAL.registrarDisparo(nombreJugador, juego.getTamanioTablero(), mensaje.x, mensaje.y,
+                mensaje.comando);
+        switch (mensaje.comando) {
+            case ProtocoloBattleship.IMPACTO:
+                System.out.println("¡IMPACTO en (" + mensaje.x + "," + mensaje.y + ")!");
+                juego.registrarImpacto(mensaje.x, mensaje.y);
+                break;
+
+            case ProtocoloBattleship.FALLO:
+                System.out.println("FALLO en (" + mensaje.x + "," + mensaje.y + ")");
+                juego.registrarFallo(mensaje.x, mensaje.y);
+                break;
+
+            default:
+                System.out.println("¡HUNDIDO! " + mensaje.tipoBarco + " en (" + mensaje.x + "," + mensaje.y + ")");
+                juego.registrarImpacto(mensaje.x, mensaje.y);
+                break;
+        }
+    }
+
+   boolean turnoRemoto() throws IOException {
     System.out.println("\n=== TURNO DEL OPONENTE ===");
     System.out.println("Esperando disparo del oponente...");
     
-    String mensajeEntrante = entrada.readLine();
-    
-    if (mensajeEntrante == null) {
-        System.out.println("El oponente se desconectó.");
-        return false;
-    }
-    
     try {
-        ProtocoloBattleship.Mensaje mensaje = ProtocoloBattleship.parsearMensaje(mensajeEntrante);
+        ProtocoloBattleship.Mensaje mensaje = recibirMensaje();
+        llegadaDisparo = System.nanoTime();
+
+        if (mensaje == null) {
+            System.out.println("El oponente se desconectó.");
+            return false;
+        }
         
-        if (ProtocoloBattleship.DISPARAR.equals(mensaje.comando)) {
+        // Tras hundir el último barco el oponente envía el fin del juego
+        if (ProtocoloBattleship.JUEGO_TERMINADO.equals(mensaje.comando)) {
+            if (diario != null) {
+                diario.registrarFin(false);
+            }
+            registrarFinPartida(true);
+            System.out.println("¡FELICIDADES! ¡HAS GANADO!");
+            return false;
+        }
+
+        if (ProtocoloBattleship.SALVA.equals(mensaje.comando)) {
+            if (!responderSalva(ProtocoloBattleship.parsearSalva(canal.tramaComoTexto()))) {
+                return false;
+            }
+        } else if (ProtocoloBattleship.DISPARAR.equals(mensaje.comando)
+                && !juego.dentroDelTablero(mensaje.x, mensaje.y)) {
+            responder(ProtocoloBattleship.FALLO, mensaje.x, mensaje.y, null);
+            System.out.println("El oponente disparó fuera del tablero (" + mensaje.x + "," + mensaje.y + ")");
+        } else if (ProtocoloBattleship.DISPARAR.equals(mensaje.comando)) {
+            if (diario != null) {
+                diario.registrarDisparo(false, mensaje.x, mensaje.y);
+            }
             boolean impacto = juego.recibirDisparo(mensaje.x, mensaje.y);
             
             if (impacto) {
-                String tipoBarco = juego.obtenerTipoBarcoEn(mensaje.x, mensaje.y);
-                
-                // VERIFICACIÓN MEJORADA
-                if (tipoBarco.equals("DESCONOCIDO")) {
-                    // No podemos determinar el tipo de barco, solo decimos IMPACTO
-                    salida.println(ProtocoloBattleship.construirMensajeResultado(
-                        ProtocoloBattleship.IMPACTO, mensaje.x, mensaje.y, null));
-                    System.out.println("El oponente impactó en (" + mensaje.x + "," + mensaje.y + ")");
-                } else if (juego.estaBarcoHundido(tipoBarco)) {
-                    salida.println(ProtocoloBattleship.construirMensajeResultado(
-                        ProtocoloBattleship.HUNDIDO, mensaje.x, mensaje.y, tipoBarco));
+                int barco = juego.barcoEn(mensaje.x, mensaje.y);
+                String tipoBarco = juego.getNombreBarco(barco);
+
+                if (juego.estaBarcoHundido(barco)) {
+                    responder(ProtocoloBattleship.HUNDIDO, mensaje.x, mensaje.y, tipoBarco);
                     
                     if (juego.todosBarcosHundidos()) {
-                        salida.println(ProtocoloBattleship.JUEGO_TERMINADO);
+                        canal.enviarComando(ProtocoloBattleship.JUEGO_TERMINADO);
+                        if (diario != null) {
+                            diario.registrarFin(true);
+                        }
+                        registrarFinPartida(false);
                         System.out.println("El oponente hundió tu " + tipoBarco);
                         System.out.println("¡HAS PERDIDO!");
                         return false;
@@ -257,67 +869,313 @@ public class BattleshipP2P {
                         System.out.println("El oponente hundió tu " + tipoBarco + " en (" + mensaje.x + "," + mensaje.y + ")");
                     }
                 } else {
-                    salida.println(ProtocoloBattleship.construirMensajeResultado(
-                        ProtocoloBattleship.IMPACTO, mensaje.x, mensaje.y, null));
+                    responder(ProtocoloBattleship.IMPACTO, mensaje.x, mensaje.y, null);
                     System.out.println("El oponente impactó en (" + mensaje.x + "," + mensaje.y + ")");
                 }
             } else {
-                salida.println(ProtocoloBattleship.construirMensajeResultado(
-                    ProtocoloBattleship.FALLO, mensaje.x, mensaje.y, null));
+                responder(ProtocoloBattleship.FALLO, mensaje.x, mensaje.y, null);
                 System.out.println("El oponente falló en (" + mensaje.x + "," + mensaje.y + ")");
             }
         }
         
+        miTurno = true;
         juego.mostrarTableroPropio();
         return true;
         
+    } catch (IOException e) {
+        // Posible corte de conexión: lo atiende el bucle del juego
+        throw e;
     } catch (Exception e) {
         System.out.println("Error procesando mensaje del oponente: " + e.getMessage());
         e.printStackTrace(); // Esto te dará más detalles del error
         return false;
     }
 }
-    private int[] obtenerDisparoJugador() {
-        while (true) {
-            try {
-                System.out.print("Ingresa coordenadas para disparar (fila,columna 0-9): ");
-                String entrada = scanner.nextLine();
-                String[] coordenadas = entrada.split(",");
+    /**
+     * Responde a un disparo y, si cayó dentro del tablero, lo anota en el diario.
+     * El turno cuenta como completado aunque el envío falle: al reconectar se
+     * reenvía la respuesta.
+     */
+    private void responder(String resultado, int x, int y, String tipoBarco) throws IOException {
+        ultimaRespuesta = new ProtocoloBattleship.Mensaje(resultado, x, y, tipoBarco);
+        turnosCompletados++;
+        miTurno = true;
+        canal.enviarResultado(resultado, x, y, tipoBarco);
+        Metricas.TURNO_REMOTO.registrar(System.nanoTime() - llegadaDisparo);
+        if (juego.dentroDelTablero(x, y)) {
+            AnaliticaPartidas.GLOBAL.registrarDisparo(rival(), juego.getTamanioTablero(), x, y, resultado);
+            if (diario != null) {
+                diario.registrarResultado(true, resultado, x, y, tipoBarco);
+            }
+        }
+    }
 
-                if (coordenadas.length != 2) {
-                    System.out.println("Formato inválido. Usa: fila,columna");
-                    continue;
+    /**
+     * Resuelve todos los disparos de una salva y los contesta en una sola
+     * línea. Devuelve false si la salva hundió el último barco.
+     */
+    private boolean responderSalva(int[] disparos) throws IOException {
+        int cantidad = disparos.length / 2;
+        if (cantidad > salva) {
+            throw new IllegalArgumentException("Salva de " + cantidad + " disparos; se acordaron " + salva);
+        }
+        ProtocoloBattleship.Mensaje[] resultados = new ProtocoloBattleship.Mensaje[cantidad];
+        for (int i = 0; i < cantidad; i++) {
+            int x = disparos[2 * i];
+            int y = disparos[2 * i + 1];
+            if (!juego.dentroDelTablero(x, y)) {
+                resultados[i] = new ProtocoloBattleship.Mensaje(ProtocoloBattleship.FALLO, x, y);
+                System.out.println("El oponente disparó fuera del tablero (" + x + "," + y + ")");
+                continue;
+            }
+            if (diario != null) {
+                diario.registrarDisparo(false, x, y);
+            }
+            if (!juego.recibirDisparo(x, y)) {
+                resultados[i] = new ProtocoloBattleship.Mensaje(ProtocoloBattleship.FALLO, x, y);
+                System.out.println("El oponente falló en (" + x + "," + y + ")");
+                continue;
+            }
+            int barco = juego.barcoEn(x, y);
+            if (juego.estaBarcoHundido(barco)) {
+                resultados[i] = new ProtocoloBattleship.Mensaje(ProtocoloBattleship.HUNDIDO, x, y,
+                        juego.getNombreBarco(barco));
+                System.out.println("El oponente hundió tu " + juego.getNombreBarco(barco) + " en (" + x + "," + y + ")");
+            } else {
+                resultados[i] = new ProtocoloBattleship.Mensaje(ProtocoloBattleship.IMPACTO, x, y);
+                System.out.println("El oponente impactó en (" + x + "," + y + ")");
+            }
+        }
+
+        // Como en responder(): el turno cuenta aunque el envío falle
+        ultimaRespuestaSalva = ProtocoloBattleship.construirMensajeResultados(resultados);
+        turnosCompletados += cantidad;
+        miTurno = true;
+        canal.enviarLinea(ultimaRespuestaSalva);
+        Metricas.TURNO_REMOTO.registrar(System.nanoTime() - llegadaDisparo);
+        for (ProtocoloBattleship.Mensaje resultado : resultados) {
+            if (!juego.dentroDelTablero(resultado.x, resultado.y)) {
+                continue;
+            }
+            AnaliticaPartidas.GLOBAL.registrarDisparo(rival(), juego.getTamanioTablero(), resultado.x,
+                    resultado.y, resultado.comando);
+            if (diario != null) {
+                diario.registrarResultado(true, resultado.comando, resultado.x, resultado.y,
+                        resultado.tipoBarco);
+            }
+        }
+
+        if (juego.todosBarcosHundidos()) {
+            canal.enviarComando(ProtocoloBattleship.JUEGO_TERMINADO);
+            if (diario != null) {
+                diario.registrarFin(true);
+            }
+            registrarFinPartida(false);
+            System.out.println("¡HAS PERDIDO!");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Suma a las estadísticas del proceso la partida que acaba de terminar,
+     * con los disparos que necesitó quien ganó
+     */
+    private void registrarFinPartida(boolean gane) {
+        if (gane) {
+            AnaliticaPartidas.GLOBAL.registrarPartida(nombreJugador, rival(), juego.getDisparosRealizados());
+        } else {
+            AnaliticaPartidas.GLOBAL.registrarPartida(rival(), nombreJugador, juego.getDisparosRecibidos());
+        }
+    }
+
+    private String rival() {
+        return nombreOponente != null ? nombreOponente : "?";
+    }
+
+    private void anotarRespuesta(boolean propio, ProtocoloBattleship.Mensaje mensaje) throws IOException {
+        switch (mensaje.comando) {
+            case ProtocoloBattleship.IMPACTO:
+            case ProtocoloBattleship.FALLO:
+            case ProtocoloBattleship.HUNDIDO:
+                if (juego.dentroDelTablero(mensaje.x, mensaje.y)) {
+                    diario.registrarResultado(propio, mensaje.comando, mensaje.x, mensaje.y, mensaje.tipoBarco);
                 }
+                break;
+            case ProtocoloBattleship.JUEGO_TERMINADO:
+                diario.registrarFin(propio);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private int[] obtenerDisparoAutomatico() {
+        int celda = estrategia.elegirDisparo();
+        int tamanio = juego.getTamanioTablero();
+        int[] disparo = { celda / tamanio, celda % tamanio };
+        System.out.println("La computadora dispara a (" + disparo[0] + "," + disparo[1] + ")");
+        return disparo;
+    }
 
-                int fila = Integer.parseInt(coordenadas[0].trim());
-                int columna = Integer.parseInt(coordenadas[1].trim());
+    private int[] obtenerSalvaAutomatica() {
+        int tamanio = juego.getTamanioTablero();
+        int[] celdas = new int[salva];
+        int cantidad = Math.max(1, estrategia.elegirSalva(celdas, salva));
+        int[] disparos = new int[2 * cantidad];
+        StringBuilder descripcion = new StringBuilder("La computadora dispara a");
+        for (int i = 0; i < cantidad; i++) {
+            disparos[2 * i] = celdas[i] / tamanio;
+            disparos[2 * i + 1] = celdas[i] % tamanio;
+            descripcion.append(" (").append(disparos[2 * i]).append(',').append(disparos[2 * i + 1]).append(')');
+        }
+        System.out.println(descripcion);
+        return disparos;
+    }
 
-                if (fila >= 0 && fila < 10 && columna >= 0 && columna < 10) {
-                    if (!juego.yaDisparado(fila, columna)) {
-                        return new int[] { fila, columna };
-                    } else {
-                        System.out.println("Ya disparaste en esa posición.");
-                    }
-                } else {
-                    System.out.println("Coordenadas fuera de rango. Usa números del 0 al 9.");
+    /**
+     * Pide al jugador los disparos de una salva en una línea, atendiendo la
+     * conexión mientras escribe como {@link #obtenerDisparoJugador()}
+     */
+    private int[] obtenerSalvaJugador() throws IOException {
+        int maximo = juego.getTamanioTablero() - 1;
+        String indicacion = "Ingresa hasta " + salva + " disparos separados por espacios (fila,columna 0-"
+                + maximo + "): ";
+        System.out.print(indicacion);
+        while (true) {
+            String entrada = consola.esperarLinea(INTERVALO_VIGILANCIA_MS);
+            if (entrada == null) {
+                vigilarConexion();
+                continue;
+            }
+
+            int[] disparos = validarSalva(entrada, maximo);
+            if (disparos != null) {
+                return disparos;
+            }
+            System.out.print(indicacion);
+        }
+    }
+
+    private int[] validarSalva(String entrada, int maximo) {
+        String[] partes = entrada.trim().split("[\\s;]+");
+        if (partes[0].isEmpty() || partes.length > salva) {
+            System.out.println("Ingresa entre 1 y " + salva + " disparos, por ejemplo: 3,4 5,6");
+            return null;
+        }
+        int[] disparos = new int[2 * partes.length];
+        for (int i = 0; i < partes.length; i++) {
+            int[] disparo = validarDisparo(partes[i], maximo);
+            if (disparo == null) {
+                return null;
+            }
+            for (int j = 0; j < i; j++) {
+                if (disparos[2 * j] == disparo[0] && disparos[2 * j + 1] == disparo[1]) {
+                    System.out.println("Repetiste (" + disparo[0] + "," + disparo[1] + ") en la salva.");
+                    return null;
                 }
-            } catch (NumberFormatException e) {
-                System.out.println("Por favor ingresa números válidos.");
+            }
+            disparos[2 * i] = disparo[0];
+            disparos[2 * i + 1] = disparo[1];
+        }
+        return disparos;
+    }
+
+    /**
+     * Pide el disparo al jugador. Mientras escribe se sigue atendiendo la
+     * conexión, así que un jugador lento no la deja sin leer.
+     */
+    private int[] obtenerDisparoJugador() throws IOException {
+        int maximo = juego.getTamanioTablero() - 1;
+        System.out.print("Ingresa coordenadas para disparar (fila,columna 0-" + maximo + "): ");
+        while (true) {
+            String entrada = consola.esperarLinea(INTERVALO_VIGILANCIA_MS);
+            if (entrada == null) {
+                vigilarConexion();
+                continue;
+            }
+
+            int[] disparo = validarDisparo(entrada, maximo);
+            if (disparo != null) {
+                return disparo;
+            }
+            System.out.print("Ingresa coordenadas para disparar (fila,columna 0-" + maximo + "): ");
+        }
+    }
+
+    /**
+     * Devuelve el disparo si la línea es válida, o explica por qué no lo es
+     */
+    private int[] validarDisparo(String entrada, int maximo) {
+        String[] coordenadas = entrada.split(",");
+        if (coordenadas.length != 2) {
+            System.out.println("Formato inválido. Usa: fila,columna");
+            return null;
+        }
+
+        try {
+            int fila = Integer.parseInt(coordenadas[0].trim());
+            int columna = Integer.parseInt(coordenadas[1].trim());
+
+            if (!juego.dentroDelTablero(fila, columna)) {
+                System.out.println("Coordenadas fuera de rango. Usa números del 0 al " + maximo + ".");
+            } else if (juego.yaDisparado(fila, columna)) {
+                System.out.println("Ya disparaste en esa posición.");
+            } else {
+                return new int[] { fila, columna };
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Por favor ingresa números válidos.");
+        }
+        return null;
+    }
+
+    /**
+     * Atiende lo que llega mientras el jugador escribe: descarta los latidos y
+     * contesta los pedidos de reanudación. Con sesión, si el rival deja de
+     * enviar latidos se trata como un corte sin esperar a que el jugador
+     * termine de escribir.
+     */
+    private void vigilarConexion() throws IOException {
+        while (canal.hayDatosPendientes()) {
+            if (!canal.leerTrama()) {
+                throw new EOFException("Conexión cerrada por el otro extremo");
+            }
+            if (canal.esComando(ProtocoloBattleship.REANUDAR)) {
+                atenderReanudacion(canal.tramaComoTexto());
+            } else if (!canal.esLatido()) {
+                System.out.println("\nSe ignoró un mensaje inesperado del oponente.");
             }
         }
+        if (tokenSesion != null && System.nanoTime() - canal.getUltimaLectura()
+                > TimeUnit.MILLISECONDS.toNanos(ProtocoloBattleship.TIEMPO_LECTURA_MS)) {
+            throw new SocketTimeoutException("El oponente dejó de responder");
+        }
+    }
+
+    private void cerrarTransporte() {
+        try {
+            if (canal != null)
+                canal.close();
+            if (transporte != null)
+                transporte.close();
+        } catch (IOException e) {
+            // Ya estaba cerrado o caído
+        }
     }
 
     private void cerrarConexion() {
         try {
-            if (entrada != null)
-                entrada.close();
-            if (salida != null)
-                salida.close();
-            if (socket != null)
-                socket.close();
-            if (serverSocket != null)
-                serverSocket.close();
-            scanner.close();
+            if (latidos != null)
+                latidos.shutdownNow();
+            if (diario != null)
+                diario.close();
+            if (canal != null)
+                canal.close();
+            if (transporte != null)
+                transporte.close();
+            if (servidor != null)
+                servidor.close();
             System.out.println("Conexión cerrada.");
         } catch (IOException e) {
             System.err.println("Error al cerrar conexión: " + e.getMessage());
@@ -325,7 +1183,12 @@ public class BattleshipP2P {
     }
 
     public static void main(String[] args) {
+        Metricas.exponer();
         BattleshipP2P juego = new BattleshipP2P();
-        juego.iniciar();
+        try {
+            juego.iniciar();
+        } finally {
+            Metricas.detener();
+        }
     }
 }
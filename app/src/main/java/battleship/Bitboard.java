@@ -0,0 +1,100 @@
+package battleship;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Conjunto de hasta 128 celdas guardado en dos {@code long}. Las celdas se
+ * numeran como {@code fila * tamanio + columna}; con el tablero de 10x10 las
+ * celdas 0-63 viven en {@code bajo} y las 64-99 en {@code alto}.
+ */
+public final class Bitboard implements ConjuntoCeldas {
+    public static final int MAX_CELDAS = 128;
+
+    private long bajo;
+    private long alto;
+
+    @Override
+    public boolean contiene(int celda) {
+        return celda < 64
+                ? (bajo & (1L << celda)) != 0
+                : (alto & (1L << (celda - 64))) != 0;
+    }
+
+    @Override
+    public void agregar(int celda) {
+        if (celda < 64) {
+            bajo |= 1L << celda;
+        } else {
+            alto |= 1L << (celda - 64);
+        }
+    }
+
+    @Override
+    public void quitar(int celda) {
+        if (celda < 64) {
+            bajo &= ~(1L << celda);
+        } else {
+            alto &= ~(1L << (celda - 64));
+        }
+    }
+
+    @Override
+    public void limpiar() {
+        bajo = 0;
+        alto = 0;
+    }
+
+    @Override
+    public int cantidad() {
+        return Long.bitCount(bajo) + Long.bitCount(alto);
+    }
+
+    @Override
+    public void recorrer(IntConsumer accion) {
+        for (long resto = bajo; resto != 0; resto &= resto - 1) {
+            accion.accept(Long.numberOfTrailingZeros(resto));
+        }
+        for (long resto = alto; resto != 0; resto &= resto - 1) {
+            accion.accept(64 + Long.numberOfTrailingZeros(resto));
+        }
+    }
+
+    /**
+     * Cuenta las celdas presentes en ambos conjuntos
+     */
+    public int cantidadComun(Bitboard otro) {
+        return Long.bitCount(bajo & otro.bajo) + Long.bitCount(alto & otro.alto);
+    }
+
+    @Override
+    public boolean estaVacio() {
+        return (bajo | alto) == 0;
+    }
+
+    /**
+     * Indica si ambos conjuntos comparten alguna celda
+     */
+    public boolean intersecta(Bitboard otro) {
+        return intersecta(otro.bajo, otro.alto);
+    }
+
+    /**
+     * Indica si todas las celdas de {@code otro} están en este conjunto
+     */
+    public boolean contieneTodo(Bitboard otro) {
+        return ((otro.bajo & ~bajo) | (otro.alto & ~alto)) == 0;
+    }
+
+    public boolean intersecta(long otroBajo, long otroAlto) {
+        return ((bajo & otroBajo) | (alto & otroAlto)) != 0;
+    }
+
+    public void unir(Bitboard otro) {
+        unir(otro.bajo, otro.alto);
+    }
+
+    public void unir(long otroBajo, long otroAlto) {
+        bajo |= otroBajo;
+        alto |= otroAlto;
+    }
+}
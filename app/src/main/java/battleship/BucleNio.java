@@ -0,0 +1,127 @@
+package battleship;
+
+import java.io.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Bucle de eventos con un único {@link Selector} que atiende la lectura y la
+ * escritura de todas las conexiones {@link TransporteNio} del proceso.
+ */
+public class BucleNio implements Runnable, Closeable {
+    private static BucleNio compartido;
+
+    private final Selector selector;
+    private final Queue<Runnable> tareas = new ConcurrentLinkedQueue<>();
+    private final Thread hilo;
+    private volatile boolean activo = true;
+
+    public BucleNio() throws IOException {
+        selector = Selector.open();
+        hilo = new Thread(this, "bucle-nio");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Bucle compartido por todo el proceso, creado al primer uso
+     */
+    public static synchronized BucleNio compartido() throws IOException {
+        if (compartido == null) {
+            compartido = new BucleNio();
+        }
+        return compartido;
+    }
+
+    /**
+     * Registra un transporte para lectura y devuelve su clave de selección
+     */
+    SelectionKey registrar(TransporteNio transporte, SocketChannel canal) throws IOException {
+        CompletableFuture<SelectionKey> clave = new CompletableFuture<>();
+        ejecutar(() -> {
+            try {
+                clave.complete(canal.register(selector, SelectionKey.OP_READ, transporte));
+            } catch (IOException e) {
+                clave.completeExceptionally(e);
+            }
+        });
+        try {
+            return clave.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Registro interrumpido");
+        } catch (ExecutionException e) {
+            throw new IOException("No se pudo registrar la conexión", e.getCause());
+        }
+    }
+
+    /**
+     * Ejecuta una tarea en el hilo del bucle
+     */
+    void ejecutar(Runnable tarea) {
+        tareas.add(tarea);
+        selector.wakeup();
+    }
+
+    /**
+     * Agrega operaciones de interés a una clave y despierta al selector
+     */
+    void interesar(SelectionKey clave, int operaciones) {
+        try {
+            clave.interestOpsOr(operaciones);
+            selector.wakeup();
+        } catch (CancelledKeyException e) {
+            // La conexión ya se cerró
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (activo) {
+                atenderEventos();
+            }
+        } catch (IOException e) {
+            System.err.println("Error en el bucle NIO: " + e.getMessage());
+        } finally {
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // Nada más que hacer
+            }
+        }
+    }
+
+    private void atenderEventos() throws IOException {
+        selector.select();
+
+        Runnable tarea;
+        while ((tarea = tareas.poll()) != null) {
+            tarea.run();
+        }
+
+        Iterator<SelectionKey> claves = selector.selectedKeys().iterator();
+        while (claves.hasNext()) {
+            SelectionKey clave = claves.next();
+            claves.remove();
+            TransporteNio transporte = (TransporteNio) clave.attachment();
+            try {
+                if (clave.isWritable()) {
+                    transporte.alPoderEscribir(clave);
+                }
+                if (clave.isReadable()) {
+                    transporte.alPoderLeer(clave);
+                }
+            } catch (CancelledKeyException e) {
+                transporte.alCerrarse();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        activo = false;
+        selector.wakeup();
+    }
+}
@@ -0,0 +1,332 @@
+package battleship;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Canal de mensajes del protocolo sobre un flujo de bytes. Lee tanto líneas de
+ * texto como tramas binarias (se distinguen por el primer byte) y escribe en
+ * binario solo cuando ambos extremos lo negociaron. Los latidos se descartan
+ * al leer mensajes y líneas, pero no al leer tramas sueltas.
+ */
+public class CanalMensajes implements Closeable {
+    private static final int TAMANIO_BUFFER = 8192;
+    private static final int LARGO_MAXIMO_VARINT = 5;
+
+    private final InputStream entrada;
+    private final OutputStream salida;
+    private final Closeable recurso;
+    private final byte[] bufferSalida = new byte[16];
+    // Se reutiliza en cada mensaje recibido
+    private final ProtocoloBattleship.Mensaje recibido = new ProtocoloBattleship.Mensaje();
+    private byte[] trama = new byte[128];
+    private int longitudTrama;
+    private boolean tramaBinaria;
+    private long ultimaLectura = System.nanoTime();
+    private boolean binario;
+    private String[] nombresBarcos;
+
+    public CanalMensajes(Transporte transporte) {
+        this(transporte.getEntrada(), transporte.getSalida(), transporte);
+    }
+
+    public CanalMensajes(InputStream entrada, OutputStream salida, Closeable recurso) {
+        this.entrada = new BufferedInputStream(entrada, TAMANIO_BUFFER);
+        this.salida = new BufferedOutputStream(salida, TAMANIO_BUFFER);
+        this.recurso = recurso;
+    }
+
+    public boolean isBinario() {
+        return binario;
+    }
+
+    /**
+     * Activa el envío en binario; la lectura reconoce ambos formatos siempre
+     */
+    public void setBinario(boolean binario) {
+        this.binario = binario;
+    }
+
+    /**
+     * Flota usada para traducir el índice de barco de las tramas binarias
+     */
+    public void setNombresBarcos(String[] nombresBarcos) {
+        this.nombresBarcos = nombresBarcos;
+    }
+
+    /**
+     * Lee la siguiente trama completa. Devuelve false al final del flujo.
+     */
+    public boolean leerTrama() throws IOException {
+        int primero = entrada.read();
+        if (primero < 0) {
+            return false;
+        }
+
+        ultimaLectura = System.nanoTime();
+        longitudTrama = 0;
+        tramaBinaria = ProtocoloBattleship.esOpcodeBinario(primero);
+        if (tramaBinaria) {
+            leerRestoDeTramaBinaria(primero);
+        } else {
+            leerRestoDeLinea(primero);
+        }
+        return true;
+    }
+
+    /**
+     * Momento, según {@link System#nanoTime()}, en que comenzó a llegar la
+     * última trama
+     */
+    public long getUltimaLectura() {
+        return ultimaLectura;
+    }
+
+    public boolean esTramaBinaria() {
+        return tramaBinaria;
+    }
+
+    /**
+     * Indica, sin reservar memoria, si la última trama leída es el comando
+     * dado, en texto (con o sin campos) o en binario
+     */
+    public boolean esComando(String comando) {
+        if (tramaBinaria) {
+            return (trama[0] & ProtocoloBattleship.MASCARA_OPCODE) == ProtocoloBattleship.opcodeDe(comando);
+        }
+        int largo = comando.length();
+        if (longitudTrama < largo
+                || (longitudTrama > largo && trama[largo] != ProtocoloBattleship.SEPARADOR_CAMPOS.charAt(0))) {
+            return false;
+        }
+        for (int i = 0; i < largo; i++) {
+            if (trama[i] != comando.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean esLatido() {
+        return esComando(ProtocoloBattleship.LATIDO);
+    }
+
+    /**
+     * Lee la siguiente trama que no sea un latido. Devuelve false al final del flujo.
+     */
+    private boolean leerTramaSinLatidos() throws IOException {
+        do {
+            if (!leerTrama()) {
+                return false;
+            }
+        } while (esLatido());
+        return true;
+    }
+
+    /**
+     * Texto de la última trama leída, que debe ser una línea
+     */
+    public String tramaComoTexto() {
+        return new String(trama, 0, longitudTrama, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Lee una línea de texto. Devuelve null al final del flujo.
+     */
+    public String leerLinea() throws IOException {
+        if (!leerTramaSinLatidos()) {
+            return null;
+        }
+        if (tramaBinaria) {
+            throw new IOException("Se recibió una trama binaria donde se esperaba texto");
+        }
+        return tramaComoTexto();
+    }
+
+    /**
+     * Lee y parsea el siguiente mensaje. Devuelve null al final del flujo. El
+     * mensaje devuelto es válido hasta la siguiente lectura del canal.
+     */
+    public ProtocoloBattleship.Mensaje recibir() throws IOException {
+        if (!leerTramaSinLatidos()) {
+            return null;
+        }
+        return mensajeDeTrama();
+    }
+
+    /**
+     * Parsea la última trama leída, en texto o en binario, sin reservar
+     * memoria. El mensaje devuelto es válido hasta la siguiente lectura.
+     */
+    public ProtocoloBattleship.Mensaje mensajeDeTrama() {
+        if (tramaBinaria) {
+            return ProtocoloBattleship.parsearMensajeBinario(trama, longitudTrama, nombresBarcos, recibido);
+        }
+        return ProtocoloBattleship.parsearMensaje(trama, longitudTrama, nombresBarcos, recibido);
+    }
+
+    /**
+     * Indica si hay datos recibidos que todavía no se leyeron
+     */
+    public boolean hayDatosPendientes() throws IOException {
+        return entrada.available() > 0;
+    }
+
+    private void leerRestoDeLinea(int primero) throws IOException {
+        int b = primero;
+        while (b >= 0 && b != '\n') {
+            agregar(b);
+            b = entrada.read();
+        }
+        if (longitudTrama > 0 && trama[longitudTrama - 1] == '\r') {
+            longitudTrama--;
+        }
+    }
+
+    private void leerRestoDeTramaBinaria(int opcode) throws IOException {
+        agregar(opcode);
+        switch (opcode & ProtocoloBattleship.MASCARA_OPCODE) {
+            case ProtocoloBattleship.OP_DISPARAR:
+            case ProtocoloBattleship.OP_IMPACTO:
+            case ProtocoloBattleship.OP_FALLO:
+            case ProtocoloBattleship.OP_HUNDIDO:
+                if ((opcode & ProtocoloBattleship.OP_COORD_COMPACTA) != 0) {
+                    agregar(leerByte());
+                } else {
+                    copiarVarint();
+                    copiarVarint();
+                }
+                if ((opcode & ProtocoloBattleship.MASCARA_OPCODE) == ProtocoloBattleship.OP_HUNDIDO) {
+                    copiarVarint();
+                }
+                break;
+
+            case ProtocoloBattleship.OP_JUEGO_TERMINADO:
+            case ProtocoloBattleship.OP_SALIR:
+            case ProtocoloBattleship.OP_LATIDO:
+                break;
+
+            default:
+                // Sin saber el largo de la trama no se puede seguir leyendo
+                throw cerrarPorTramaInvalida("Opcode binario desconocido: " + opcode);
+        }
+    }
+
+    private void copiarVarint() throws IOException {
+        int b;
+        int largo = 0;
+        do {
+            if (++largo > LARGO_MAXIMO_VARINT) {
+                throw cerrarPorTramaInvalida("Varint de más de " + LARGO_MAXIMO_VARINT + " bytes");
+            }
+            b = leerByte();
+            agregar(b);
+        } while ((b & 0x80) != 0);
+    }
+
+    private int leerByte() throws IOException {
+        int b = entrada.read();
+        if (b < 0) {
+            throw new EOFException("Trama binaria incompleta");
+        }
+        return b;
+    }
+
+    private void agregar(int b) throws IOException {
+        if (longitudTrama == trama.length) {
+            if (longitudTrama == ProtocoloBattleship.LARGO_MAXIMO_TRAMA) {
+                throw cerrarPorTramaInvalida("Trama de más de " + ProtocoloBattleship.LARGO_MAXIMO_TRAMA + " bytes");
+            }
+            trama = Arrays.copyOf(trama, Math.min(trama.length * 2, ProtocoloBattleship.LARGO_MAXIMO_TRAMA));
+        }
+        trama[longitudTrama++] = (byte) b;
+    }
+
+    /**
+     * Cierra la conexión, porque el resto del flujo ya no se puede
+     * interpretar, y devuelve la excepción para lanzarla
+     */
+    private IOException cerrarPorTramaInvalida(String motivo) {
+        IOException error = new IOException(motivo);
+        try {
+            recurso.close();
+        } catch (IOException e) {
+            error.addSuppressed(e);
+        }
+        return error;
+    }
+
+    public synchronized void enviarLinea(String linea) throws IOException {
+        salida.write(linea.getBytes(StandardCharsets.UTF_8));
+        salida.write('\n');
+        salida.flush();
+    }
+
+    public synchronized void enviarDisparo(int x, int y) throws IOException {
+        if (!binario) {
+            enviarLinea(ProtocoloBattleship.construirMensajeDisparo(x, y));
+            return;
+        }
+        int longitud = ProtocoloBattleship.codificarDisparo(bufferSalida, x, y);
+        salida.write(bufferSalida, 0, longitud);
+        salida.flush();
+    }
+
+    public synchronized void enviarResultado(String resultado, int x, int y, String tipoBarco) throws IOException {
+        int idBarco = tipoBarco != null ? indiceBarco(tipoBarco) : 0;
+        if (!binario || idBarco < 0) {
+            enviarLinea(ProtocoloBattleship.construirMensajeResultado(resultado, x, y, tipoBarco));
+            return;
+        }
+        int longitud = ProtocoloBattleship.codificarResultado(bufferSalida, resultado, x, y, idBarco);
+        salida.write(bufferSalida, 0, longitud);
+        salida.flush();
+    }
+
+    /**
+     * Envía un comando sin argumentos (por ejemplo JUEGO_TERMINADO)
+     */
+    public synchronized void enviarComando(String comando) throws IOException {
+        int opcode = ProtocoloBattleship.opcodeDe(comando);
+        if (!binario || opcode < 0) {
+            enviarLinea(comando);
+            return;
+        }
+        salida.write(opcode);
+        salida.flush();
+    }
+
+    /**
+     * Envía un latido para que el otro extremo sepa que la conexión sigue viva
+     */
+    public void enviarLatido() throws IOException {
+        enviarComando(ProtocoloBattleship.LATIDO);
+    }
+
+    /**
+     * Reenvía sin cambios la última trama leída por otro canal
+     */
+    public synchronized void reenviar(CanalMensajes origen) throws IOException {
+        salida.write(origen.trama, 0, origen.longitudTrama);
+        if (!origen.tramaBinaria) {
+            salida.write('\n');
+        }
+        salida.flush();
+    }
+
+    private int indiceBarco(String tipoBarco) {
+        if (nombresBarcos == null) return -1;
+        for (int i = 0; i < nombresBarcos.length; i++) {
+            if (nombresBarcos[i].equals(tipoBarco)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        recurso.close();
+    }
+}
@@ -0,0 +1,37 @@
+package battleship;
+
+import java.util.concurrent.*;
+
+/**
+ * Puntuación Elo de cada jugador, por nombre y en memoria. Todos empiezan
+ * con {@link #PUNTUACION_INICIAL}; tras cada partida el ganador gana los
+ * puntos que pierde el perdedor, más cuanto menos se esperaba su victoria.
+ */
+public final class ClasificacionElo {
+    public static final int PUNTUACION_INICIAL = 1500;
+    static final int FACTOR_K = 32;
+
+    private final ConcurrentHashMap<String, Integer> puntuaciones = new ConcurrentHashMap<>();
+
+    public int puntuacion(String nombre) {
+        return puntuaciones.getOrDefault(nombre, PUNTUACION_INICIAL);
+    }
+
+    /**
+     * Actualiza ambas puntuaciones y devuelve los puntos transferidos
+     */
+    public synchronized int registrarResultado(String ganador, String perdedor) {
+        int variacion = variacion(puntuacion(ganador), puntuacion(perdedor));
+        puntuaciones.merge(ganador, PUNTUACION_INICIAL + variacion, (actual, nueva) -> actual + variacion);
+        puntuaciones.merge(perdedor, PUNTUACION_INICIAL - variacion, (actual, nueva) -> actual - variacion);
+        return variacion;
+    }
+
+    /**
+     * Puntos que gana quien vence a un rival con la puntuación dada
+     */
+    static int variacion(int ganador, int perdedor) {
+        double esperado = 1 / (1 + Math.pow(10, (perdedor - ganador) / 400.0));
+        return (int) Math.round(FACTOR_K * (1 - esperado));
+    }
+}
@@ -0,0 +1,189 @@
+package battleship;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+/**
+ * Cola de emparejamiento por puntuación. Los jugadores en espera se reparten
+ * en franjas de {@link #ANCHO_FRANJA} puntos, cada una una cola sin bloqueos;
+ * quien llega busca rival solo en las franjas cercanas a la suya, así que las
+ * llegadas a franjas distintas no compiten entre sí. Un jugador en espera se
+ * toma con una comparación atómica, por lo que nunca queda en dos parejas.
+ * <p>
+ * El margen de puntuación que acepta cada jugador crece con su tiempo de
+ * espera; {@link #emparejarPendientes} se llama periódicamente para juntar
+ * a quienes siguen esperando con ese margen ampliado.
+ */
+public final class ColaEmparejamiento<T> {
+    public static final int ANCHO_FRANJA = 100;
+    public static final int PUNTUACION_MAXIMA = 4000;
+    static final int MARGEN_INICIAL = 100;
+    static final int MARGEN_POR_SEGUNDO = 50;
+
+    private final List<ConcurrentLinkedQueue<Espera<T>>> franjas = new ArrayList<>();
+    private final Predicate<T> vigente;
+    private final AtomicInteger enEspera = new AtomicInteger();
+
+    /**
+     * @param vigente indica si un jugador en espera sigue conectado; los que
+     *                no lo están se descartan al encontrarlos
+     */
+    public ColaEmparejamiento(Predicate<T> vigente) {
+        this.vigente = vigente;
+        for (int i = 0; i <= PUNTUACION_MAXIMA / ANCHO_FRANJA; i++) {
+            franjas.add(new ConcurrentLinkedQueue<>());
+        }
+    }
+
+    /**
+     * Busca rival para el jugador entre quienes esperan con una puntuación
+     * cercana. Devuelve el rival, que deja la cola, o null si el jugador
+     * quedó en espera.
+     */
+    public T unirse(T jugador, int puntuacion) {
+        long ahora = System.nanoTime();
+        Espera<T> nueva = new Espera<>(jugador, puntuacion, ahora);
+        Espera<T> rival = buscarRival(nueva, MARGEN_INICIAL, ahora);
+        if (rival != null) {
+            return rival.jugador;
+        }
+        enEspera.incrementAndGet();
+        franjas.get(franja(puntuacion)).add(nueva);
+        return null;
+    }
+
+    /**
+     * Empareja a quienes siguen esperando según el margen que ya ganaron.
+     * Cada pareja se entrega con quien más esperó primero.
+     */
+    public void emparejarPendientes(BiConsumer<T, T> alEmparejar) {
+        long ahora = System.nanoTime();
+        for (ConcurrentLinkedQueue<Espera<T>> franja : franjas) {
+            for (Iterator<Espera<T>> it = franja.iterator(); it.hasNext();) {
+                Espera<T> espera = it.next();
+                if (espera.estaEmparejada()) {
+                    it.remove();
+                    continue;
+                }
+                // Reservada mientras busca, para que nadie la elija como rival
+                if (!espera.reservar()) {
+                    continue;
+                }
+                if (!vigente.test(espera.jugador)) {
+                    espera.confirmar();
+                    enEspera.decrementAndGet();
+                    it.remove();
+                    continue;
+                }
+
+                Espera<T> rival = buscarRival(espera, espera.margen(ahora), ahora);
+                if (rival == null) {
+                    espera.liberar();
+                    continue;
+                }
+                espera.confirmar();
+                enEspera.decrementAndGet();
+                it.remove();
+                if (espera.desde <= rival.desde) {
+                    alEmparejar.accept(espera.jugador, rival.jugador);
+                } else {
+                    alEmparejar.accept(rival.jugador, espera.jugador);
+                }
+            }
+        }
+    }
+
+    public int getCantidadEnEspera() {
+        return enEspera.get();
+    }
+
+    /**
+     * Recorre las franjas de la más cercana a la más lejana dentro del margen
+     * y reserva al primer jugador compatible, que es el que más esperó en su
+     * franja. Lo acepta si la diferencia entra en el margen de cualquiera de
+     * los dos, para no hacer esperar más a quien ya esperó mucho.
+     */
+    private Espera<T> buscarRival(Espera<T> buscador, int margen, long ahora) {
+        int propia = franja(buscador.puntuacion);
+        int alcance = margen / ANCHO_FRANJA + 1;
+        for (int d = 0; d <= alcance; d++) {
+            for (int signo = d == 0 ? 1 : -1; signo <= 1; signo += 2) {
+                int indice = propia + signo * d;
+                if (indice < 0 || indice >= franjas.size()) {
+                    continue;
+                }
+                for (Iterator<Espera<T>> it = franjas.get(indice).iterator(); it.hasNext();) {
+                    Espera<T> candidata = it.next();
+                    if (candidata == buscador) {
+                        continue;
+                    }
+                    if (candidata.estaEmparejada()) {
+                        it.remove();
+                        continue;
+                    }
+                    int diferencia = Math.abs(candidata.puntuacion - buscador.puntuacion);
+                    if (diferencia > Math.max(margen, candidata.margen(ahora)) || !candidata.tomar()) {
+                        continue;
+                    }
+                    enEspera.decrementAndGet();
+                    it.remove();
+                    if (vigente.test(candidata.jugador)) {
+                        return candidata;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static int franja(int puntuacion) {
+        return Math.max(0, Math.min(PUNTUACION_MAXIMA, puntuacion)) / ANCHO_FRANJA;
+    }
+
+    private static final class Espera<T> {
+        private static final int LIBRE = 0;
+        private static final int RESERVADA = 1;
+        private static final int EMPAREJADA = 2;
+
+        final T jugador;
+        final int puntuacion;
+        final long desde;
+        private final AtomicInteger estado = new AtomicInteger(LIBRE);
+
+        Espera(T jugador, int puntuacion, long desde) {
+            this.jugador = jugador;
+            this.puntuacion = puntuacion;
+            this.desde = desde;
+        }
+
+        /**
+         * Toma a este jugador como rival de otro
+         */
+        boolean tomar() {
+            return estado.compareAndSet(LIBRE, EMPAREJADA);
+        }
+
+        boolean reservar() {
+            return estado.compareAndSet(LIBRE, RESERVADA);
+        }
+
+        void confirmar() {
+            estado.set(EMPAREJADA);
+        }
+
+        void liberar() {
+            estado.set(LIBRE);
+        }
+
+        boolean estaEmparejada() {
+            return estado.get() == EMPAREJADA;
+        }
+
+        int margen(long ahora) {
+            long segundos = TimeUnit.NANOSECONDS.toSeconds(ahora - desde);
+            return (int) Math.min(PUNTUACION_MAXIMA, MARGEN_INICIAL + segundos * MARGEN_POR_SEGUNDO);
+        }
+    }
+}
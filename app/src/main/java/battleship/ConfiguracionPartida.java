@@ -0,0 +1,209 @@
+package battleship;
+
+import java.util.*;
+
+/**
+ * Tamaño del tablero y flota de una partida. Por defecto es el juego clásico
+ * de 10x10 con cinco barcos; otra configuración se elige con las propiedades
+ * {@code battleship.tablero} (por ejemplo {@code 100}) y {@code battleship.flota}
+ * (por ejemplo {@code PORTAAVIONES:5,CRUCERO:3,CRUCERO2:3}). Es inmutable.
+ * <p>
+ * Solo se aceptan flotas que entran acostadas en las filas del tablero (ver
+ * {@link #colocacionEnFilas}), así que colocar los barcos nunca falla.
+ */
+public final class ConfiguracionPartida {
+    public static final int TAMANIO_MAXIMO = 1000;
+    public static final int MAX_BARCOS = 1000;
+    // La flota descrita viaja en una línea CONFIGURACION, que tiene un largo máximo
+    public static final int LARGO_MAXIMO_FLOTA = ProtocoloBattleship.LARGO_MAXIMO_TRAMA - 64;
+
+    private static final String SEPARADOR_BARCOS = ",";
+    private static final String SEPARADOR_LARGO = ":";
+
+    public static final ConfiguracionPartida ESTANDAR = new ConfiguracionPartida(10,
+            new String[] { "PORTAAVIONES", "ACORAZADO", "CRUCERO", "SUBMARINO", "DESTRUCTOR" },
+            new int[] { 5, 4, 3, 3, 2 });
+
+    private final int tamanio;
+    private final String[] nombresBarcos;
+    private final int[] tamaniosBarcos;
+    private final int celdasConBarco;
+
+    public ConfiguracionPartida(int tamanio, String[] nombresBarcos, int[] tamaniosBarcos) {
+        if (tamanio < 1 || tamanio > TAMANIO_MAXIMO) {
+            throw new IllegalArgumentException("Tamaño de tablero inválido: " + tamanio);
+        }
+        if (nombresBarcos.length == 0 || nombresBarcos.length > MAX_BARCOS
+                || nombresBarcos.length != tamaniosBarcos.length) {
+            throw new IllegalArgumentException("Flota inválida: " + nombresBarcos.length + " barcos");
+        }
+
+        Set<String> vistos = new HashSet<>();
+        long total = 0;
+        for (int i = 0; i < nombresBarcos.length; i++) {
+            String nombre = nombresBarcos[i];
+            if (!nombreValido(nombre) || !vistos.add(nombre)) {
+                throw new IllegalArgumentException("Nombre de barco inválido o repetido: " + nombre);
+            }
+            if (tamaniosBarcos[i] < 1 || tamaniosBarcos[i] > tamanio) {
+                throw new IllegalArgumentException("Largo inválido para " + nombre + ": " + tamaniosBarcos[i]);
+            }
+            total += tamaniosBarcos[i];
+        }
+        if (total > (long) tamanio * tamanio) {
+            throw new IllegalArgumentException("La flota no cabe en un tablero de " + tamanio + "x" + tamanio);
+        }
+
+        this.tamanio = tamanio;
+        this.nombresBarcos = nombresBarcos.clone();
+        this.tamaniosBarcos = tamaniosBarcos.clone();
+        this.celdasConBarco = (int) total;
+        if (describirFlota().length() > LARGO_MAXIMO_FLOTA) {
+            throw new IllegalArgumentException("La descripción de la flota supera " + LARGO_MAXIMO_FLOTA + " caracteres");
+        }
+        if (colocacionEnFilas() == null) {
+            throw new IllegalArgumentException("La flota no cabe en un tablero de " + tamanio + "x" + tamanio);
+        }
+    }
+
+    /**
+     * Una colocación fija de la flota: todos los barcos horizontales, del más
+     * largo al más corto, cada uno en la primera fila donde todavía entra.
+     * Devuelve la celda de origen de cada barco, o null si así no entran.
+     */
+    int[] colocacionEnFilas() {
+        Integer[] orden = new Integer[tamaniosBarcos.length];
+        for (int i = 0; i < orden.length; i++) {
+            orden[i] = i;
+        }
+        Arrays.sort(orden, (a, b) -> tamaniosBarcos[b] - tamaniosBarcos[a]);
+
+        int[] ocupadasPorFila = new int[tamanio];
+        int[] origenes = new int[tamaniosBarcos.length];
+        for (int barco : orden) {
+            int largo = tamaniosBarcos[barco];
+            int fila = 0;
+            while (fila < tamanio && ocupadasPorFila[fila] + largo > tamanio) {
+                fila++;
+            }
+            if (fila == tamanio) {
+                return null;
+            }
+            origenes[barco] = fila * tamanio + ocupadasPorFila[fila];
+            ocupadasPorFila[fila] += largo;
+        }
+        return origenes;
+    }
+
+    private static boolean nombreValido(String nombre) {
+        if (nombre == null || nombre.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < nombre.length(); i++) {
+            char c = nombre.charAt(i);
+            // Los nombres viajan en el protocolo de texto y se dibujan en consola
+            if (c < 0x21 || c > 0x7E || c == '|' || c == ',' || c == ':') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Configuración elegida con las propiedades del sistema, o la estándar
+     */
+    public static ConfiguracionPartida desdeConfiguracion() {
+        String tamanio = System.getProperty("battleship.tablero");
+        String flota = System.getProperty("battleship.flota");
+        if (tamanio == null && flota == null) {
+            return ESTANDAR;
+        }
+        return parsear(tamanio != null ? tamanio : String.valueOf(ESTANDAR.tamanio),
+                flota != null ? flota : ESTANDAR.describirFlota());
+    }
+
+    /**
+     * Parsea el tamaño y la flota en el formato {@code NOMBRE:largo,NOMBRE:largo}
+     */
+    public static ConfiguracionPartida parsear(String tamanio, String flota) {
+        try {
+            String[] barcos = flota.trim().split(SEPARADOR_BARCOS);
+            String[] nombres = new String[barcos.length];
+            int[] largos = new int[barcos.length];
+            for (int i = 0; i < barcos.length; i++) {
+                String[] partes = barcos[i].trim().split(SEPARADOR_LARGO);
+                if (partes.length != 2) {
+                    throw new IllegalArgumentException("Barco con formato inválido: " + barcos[i]);
+                }
+                nombres[i] = partes[0].trim();
+                largos[i] = Integer.parseInt(partes[1].trim());
+            }
+            return new ConfiguracionPartida(Integer.parseInt(tamanio.trim()), nombres, largos);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Configuración con formato inválido: " + tamanio + " " + flota, e);
+        }
+    }
+
+    /**
+     * Flota en el formato que acepta {@link #parsear}
+     */
+    public String describirFlota() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < nombresBarcos.length; i++) {
+            if (i > 0) sb.append(SEPARADOR_BARCOS);
+            sb.append(nombresBarcos[i]).append(SEPARADOR_LARGO).append(tamaniosBarcos[i]);
+        }
+        return sb.toString();
+    }
+
+    public boolean esEstandar() {
+        return equals(ESTANDAR);
+    }
+
+    public int getTamanioTablero() {
+        return tamanio;
+    }
+
+    public int getCantidadBarcos() {
+        return nombresBarcos.length;
+    }
+
+    public String getNombreBarco(int barco) {
+        return nombresBarcos[barco];
+    }
+
+    public String[] getNombresBarcos() {
+        return nombresBarcos.clone();
+    }
+
+    public int getTamanioBarco(int barco) {
+        return tamaniosBarcos[barco];
+    }
+
+    /**
+     * Total de celdas ocupadas por la flota
+     */
+    public int getCeldasConBarco() {
+        return celdasConBarco;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ConfiguracionPartida)) return false;
+        ConfiguracionPartida otra = (ConfiguracionPartida) o;
+        return tamanio == otra.tamanio
+                && Arrays.equals(nombresBarcos, otra.nombresBarcos)
+                && Arrays.equals(tamaniosBarcos, otra.tamaniosBarcos);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * tamanio + Arrays.hashCode(nombresBarcos)) + Arrays.hashCode(tamaniosBarcos);
+    }
+
+    @Override
+    public String toString() {
+        return tamanio + "x" + tamanio + " " + describirFlota();
+    }
+}
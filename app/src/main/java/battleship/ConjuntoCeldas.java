@@ -0,0 +1,34 @@
+package battleship;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Conjunto de celdas de un tablero, numeradas como {@code fila * tamanio + columna}.
+ * Los tableros chicos usan un {@link Bitboard}; los grandes, un conjunto disperso
+ * cuyo tamaño depende de las celdas guardadas y no del área del tablero.
+ */
+public interface ConjuntoCeldas {
+    boolean contiene(int celda);
+
+    void agregar(int celda);
+
+    void quitar(int celda);
+
+    void limpiar();
+
+    int cantidad();
+
+    boolean estaVacio();
+
+    /**
+     * Aplica {@code accion} a cada celda, sin un orden definido
+     */
+    void recorrer(IntConsumer accion);
+
+    /**
+     * Crea el conjunto adecuado para un tablero con {@code celdas} celdas
+     */
+    static ConjuntoCeldas para(int celdas) {
+        return celdas <= Bitboard.MAX_CELDAS ? new Bitboard() : new ConjuntoCeldasDisperso();
+    }
+}
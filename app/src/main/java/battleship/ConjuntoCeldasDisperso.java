@@ -0,0 +1,130 @@
+package battleship;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Conjunto de celdas con direccionamiento abierto y sondeo lineal sobre un
+ * {@code int[]}. Ocupa memoria proporcional a las celdas guardadas, así que
+ * sirve para tableros grandes donde solo unas pocas celdas tienen barcos o
+ * disparos. No es seguro para varios hilos.
+ */
+public final class ConjuntoCeldasDisperso implements ConjuntoCeldas {
+    private static final int VACIA = -1;
+    private static final int CAPACIDAD_INICIAL = 64;
+
+    private int[] tabla;
+    private int mascara;
+    private int desplazamiento;
+    private int cantidad;
+
+    public ConjuntoCeldasDisperso() {
+        tabla = new int[CAPACIDAD_INICIAL];
+        Arrays.fill(tabla, VACIA);
+        ajustarMascara();
+    }
+
+    private void ajustarMascara() {
+        mascara = tabla.length - 1;
+        desplazamiento = Integer.numberOfLeadingZeros(mascara);
+    }
+
+    private int posicion(int celda) {
+        // Hash de Fibonacci: los bits altos del producto, para que las celdas
+        // vecinas queden lejos en la tabla
+        return (celda * 0x9E3779B9) >>> desplazamiento;
+    }
+
+    @Override
+    public boolean contiene(int celda) {
+        // Una celda negativa se confundiría con las posiciones vacías
+        if (celda < 0) return false;
+        for (int i = posicion(celda);; i = (i + 1) & mascara) {
+            int actual = tabla[i];
+            if (actual == celda) return true;
+            if (actual == VACIA) return false;
+        }
+    }
+
+    @Override
+    public void agregar(int celda) {
+        if (celda < 0) {
+            throw new IllegalArgumentException("Celda inválida: " + celda);
+        }
+        int i = posicion(celda);
+        while (tabla[i] != VACIA) {
+            if (tabla[i] == celda) return;
+            i = (i + 1) & mascara;
+        }
+        tabla[i] = celda;
+        // Factor de carga máximo de 1/2
+        if (++cantidad * 2 > tabla.length) {
+            agrandar();
+        }
+    }
+
+    @Override
+    public void quitar(int celda) {
+        if (celda < 0) return;
+        int i = posicion(celda);
+        while (tabla[i] != celda) {
+            if (tabla[i] == VACIA) return;
+            i = (i + 1) & mascara;
+        }
+
+        // Borrado con desplazamiento hacia atrás, sin marcas de borrado
+        int hueco = i;
+        for (int j = (hueco + 1) & mascara; tabla[j] != VACIA; j = (j + 1) & mascara) {
+            int ideal = posicion(tabla[j]);
+            if (((j - ideal) & mascara) >= ((j - hueco) & mascara)) {
+                tabla[hueco] = tabla[j];
+                hueco = j;
+            }
+        }
+        tabla[hueco] = VACIA;
+        cantidad--;
+    }
+
+    @Override
+    public void limpiar() {
+        if (cantidad > 0) {
+            Arrays.fill(tabla, VACIA);
+            cantidad = 0;
+        }
+    }
+
+    @Override
+    public int cantidad() {
+        return cantidad;
+    }
+
+    @Override
+    public boolean estaVacio() {
+        return cantidad == 0;
+    }
+
+    @Override
+    public void recorrer(IntConsumer accion) {
+        for (int celda : tabla) {
+            if (celda != VACIA) {
+                accion.accept(celda);
+            }
+        }
+    }
+
+    private void agrandar() {
+        int[] anterior = tabla;
+        tabla = new int[anterior.length * 2];
+        Arrays.fill(tabla, VACIA);
+        ajustarMascara();
+        for (int celda : anterior) {
+            if (celda != VACIA) {
+                int i = posicion(celda);
+                while (tabla[i] != VACIA) {
+                    i = (i + 1) & mascara;
+                }
+                tabla[i] = celda;
+            }
+        }
+    }
+}
@@ -0,0 +1,498 @@
+package battleship;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Diario binario de una partida, solo de agregado, sobre un archivo mapeado en
+ * memoria. Guarda el identificador de la partida, la configuración y la
+ * colocación de los barcos al comenzar, cada evento del protocolo en su forma
+ * binaria y, de vez en cuando, una {@link InstantaneaJuego} de la partida. Al
+ * recuperar se carga la última instantánea y se aplican los eventos posteriores.
+ * <p>
+ * Cada registro es {@code [tipo][longitud varint][datos]}. El byte de tipo se
+ * escribe al final, así que un registro a medio escribir queda en cero y marca
+ * el fin del diario. Lo escrito sobrevive a la caída del proceso; el disco se
+ * sincroniza en las instantáneas y al cerrar.
+ */
+public final class DiarioPartida implements Closeable {
+    private static final byte[] MAGIA = { 'B', 'S', 'D', '1' };
+    private static final String EXTENSION = ".diario";
+
+    private static final int TIPO_INICIO = 1;
+    private static final int TIPO_EVENTO_PROPIO = 2;
+    private static final int TIPO_EVENTO_REMOTO = 3;
+    private static final int TIPO_INSTANTANEA = 4;
+
+    private static final int TAMANIO_INICIAL = 64 * 1024;
+    private static final int EVENTOS_MINIMOS_INSTANTANEA = 256;
+
+    private final FileChannel archivo;
+    private final JuegoBattleship juego;
+    private MappedByteBuffer mapa;
+    private int posicion;
+
+    private byte[] datos = new byte[64];
+    private int longitudDatos;
+
+    private int turnos;
+    private boolean miTurno;
+    private boolean terminada;
+    private int eventosDesdeInstantanea;
+    private int bytesDesdeInstantanea;
+    private int tamanioUltimaInstantanea;
+    private boolean instantaneaPendiente;
+
+    private DiarioPartida(Path ruta, JuegoBattleship juego, int posicion, int turnos, boolean miTurno)
+            throws IOException {
+        this.archivo = FileChannel.open(ruta, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.juego = juego;
+        this.posicion = posicion;
+        this.turnos = turnos;
+        this.miTurno = miTurno;
+        this.mapa = archivo.map(FileChannel.MapMode.READ_WRITE, 0,
+                Math.max(TAMANIO_INICIAL, Math.max(archivo.size(), posicion)));
+    }
+
+    /**
+     * Crea un diario nuevo para una partida con los barcos ya colocados.
+     * {@code partida} es el identificador que ambos jugadores comparten y
+     * comparan antes de reanudarla.
+     */
+    public static DiarioPartida crear(Path ruta, JuegoBattleship juego, boolean esServidor, String partida)
+            throws IOException {
+        Files.deleteIfExists(ruta);
+        DiarioPartida diario = new DiarioPartida(ruta, juego, 0, 0, esServidor);
+        diario.mapa.put(0, MAGIA);
+        diario.posicion = MAGIA.length;
+        diario.escribirInicio(esServidor, partida);
+        return diario;
+    }
+
+    /**
+     * Sigue escribiendo el diario de una partida recuperada
+     */
+    public static DiarioPartida reanudar(Recuperacion recuperacion) throws IOException {
+        return new DiarioPartida(recuperacion.ruta, recuperacion.juego, recuperacion.finDatos,
+                recuperacion.turnos, recuperacion.miTurno);
+    }
+
+    /**
+     * Ruta para el diario de una partida nueva del jugador
+     */
+    public static Path rutaNueva(Path directorio, String jugador) {
+        return directorio.resolve(prefijo(jugador) + System.currentTimeMillis() + EXTENSION);
+    }
+
+    /**
+     * Último diario del jugador si su partida quedó sin terminar, o null
+     */
+    public static Path buscarPendiente(Path directorio, String jugador) throws IOException {
+        if (!Files.isDirectory(directorio)) {
+            return null;
+        }
+        String prefijo = prefijo(jugador);
+        Path ultimo = null;
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(directorio, prefijo + "*" + EXTENSION)) {
+            for (Path ruta : archivos) {
+                if (ultimo == null || ruta.getFileName().toString().compareTo(ultimo.getFileName().toString()) > 0) {
+                    ultimo = ruta;
+                }
+            }
+        }
+        if (ultimo == null || recuperar(ultimo).terminada) {
+            return null;
+        }
+        return ultimo;
+    }
+
+    private static String prefijo(String jugador) {
+        return jugador.replaceAll("[^A-Za-z0-9_-]", "_") + "-";
+    }
+
+    public int getTurnos() {
+        return turnos;
+    }
+
+    public boolean isTerminada() {
+        return terminada;
+    }
+
+    /**
+     * Registra un disparo; {@code propio} indica que lo hizo este jugador
+     */
+    public void registrarDisparo(boolean propio, int x, int y) throws IOException {
+        escribirInstantaneaPendiente();
+        asegurarDatos(16);
+        longitudDatos = ProtocoloBattleship.codificarDisparo(datos, x, y);
+        escribirRegistro(propio ? TIPO_EVENTO_PROPIO : TIPO_EVENTO_REMOTO);
+    }
+
+    /**
+     * Registra la respuesta a un disparo. Cierra el turno: {@code propio}
+     * indica que este jugador la envió, así que le toca disparar a él.
+     * Quien llama aplica la respuesta al juego después, así que la
+     * instantánea que corresponda se escribe con el evento siguiente.
+     */
+    public void registrarResultado(boolean propio, String resultado, int x, int y, String tipoBarco)
+            throws IOException {
+        escribirInstantaneaPendiente();
+        int idBarco = tipoBarco != null ? juego.indiceBarco(tipoBarco) : 0;
+        asegurarDatos(16);
+        longitudDatos = ProtocoloBattleship.codificarResultado(datos, resultado, x, y, Math.max(idBarco, 0));
+        escribirRegistro(propio ? TIPO_EVENTO_PROPIO : TIPO_EVENTO_REMOTO);
+
+        turnos++;
+        miTurno = propio;
+        eventosDesdeInstantanea++;
+        instantaneaPendiente = eventosDesdeInstantanea >= EVENTOS_MINIMOS_INSTANTANEA
+                && bytesDesdeInstantanea >= tamanioUltimaInstantanea;
+    }
+
+    private void escribirInstantaneaPendiente() throws IOException {
+        if (instantaneaPendiente) {
+            instantaneaPendiente = false;
+            escribirInstantanea();
+        }
+    }
+
+    /**
+     * Registra el fin de la partida y sincroniza el archivo
+     */
+    public void registrarFin(boolean propio) throws IOException {
+        datos[0] = (byte) ProtocoloBattleship.OP_JUEGO_TERMINADO;
+        longitudDatos = 1;
+        escribirRegistro(propio ? TIPO_EVENTO_PROPIO : TIPO_EVENTO_REMOTO);
+        terminada = true;
+        mapa.force();
+    }
+
+    private void escribirInicio(boolean esServidor, String partida) throws IOException {
+        ConfiguracionPartida configuracion = juego.getConfiguracion();
+        byte[] flota = configuracion.describirFlota().getBytes(StandardCharsets.UTF_8);
+        byte[] identificador = partida.getBytes(StandardCharsets.UTF_8);
+
+        longitudDatos = 0;
+        agregarByte(esServidor ? 1 : 0);
+        agregarVarint(identificador.length);
+        asegurarDatos(identificador.length);
+        System.arraycopy(identificador, 0, datos, longitudDatos, identificador.length);
+        longitudDatos += identificador.length;
+        agregarVarint(configuracion.getTamanioTablero());
+        agregarVarint(flota.length);
+        asegurarDatos(flota.length);
+        System.arraycopy(flota, 0, datos, longitudDatos, flota.length);
+        longitudDatos += flota.length;
+        for (int barco = 0; barco < juego.getCantidadBarcos(); barco++) {
+            agregarVarint(juego.getFilaBarco(barco));
+            agregarVarint(juego.getColumnaBarco(barco));
+            agregarByte(juego.esBarcoHorizontal(barco) ? 1 : 0);
+        }
+        escribirRegistro(TIPO_INICIO);
+        mapa.force();
+    }
+
+    /**
+     * Estado completo de la partida: permite recuperar sin releer todos los
+     * eventos anteriores
+     */
+    private void escribirInstantanea() throws IOException {
+        byte[] estado = juego.exportarEstado();
+        longitudDatos = 0;
+        agregarVarint(turnos);
+        agregarByte(miTurno ? 1 : 0);
+        asegurarDatos(estado.length);
+        System.arraycopy(estado, 0, datos, longitudDatos, estado.length);
+        longitudDatos += estado.length;
+        escribirRegistro(TIPO_INSTANTANEA);
+        mapa.force();
+
+        // La próxima instantánea espera a que los eventos pesen lo mismo que
+        // esta, así el costo total de escribirlas crece de forma lineal
+        tamanioUltimaInstantanea = longitudDatos;
+        eventosDesdeInstantanea = 0;
+        bytesDesdeInstantanea = 0;
+    }
+
+    private void escribirRegistro(int tipo) throws IOException {
+        byte[] longitud = new byte[5];
+        int largoLongitud = ProtocoloBattleship.escribirVarint(longitud, 0, longitudDatos);
+        int total = 1 + largoLongitud + longitudDatos;
+        asegurarMapa(total + 1);
+
+        mapa.put(posicion + 1, longitud, 0, largoLongitud);
+        mapa.put(posicion + 1 + largoLongitud, datos, 0, longitudDatos);
+        // Tras una caída puede haber restos de un registro sin confirmar:
+        // el byte siguiente queda en cero antes de confirmar este
+        mapa.put(posicion + total, (byte) 0);
+        // El tipo al final confirma el registro
+        mapa.put(posicion, (byte) tipo);
+        posicion += total;
+        bytesDesdeInstantanea += total;
+    }
+
+    private void asegurarMapa(int bytes) throws IOException {
+        if (posicion + bytes > mapa.capacity()) {
+            long nuevo = Math.max(2L * mapa.capacity(), (long) posicion + bytes);
+            mapa.force();
+            mapa = archivo.map(FileChannel.MapMode.READ_WRITE, 0, nuevo);
+        }
+    }
+
+    private void asegurarDatos(int bytes) {
+        if (longitudDatos + bytes > datos.length) {
+            datos = Arrays.copyOf(datos, Math.max(datos.length * 2, longitudDatos + bytes));
+        }
+    }
+
+    private void agregarByte(int valor) {
+        asegurarDatos(1);
+        datos[longitudDatos++] = (byte) valor;
+    }
+
+    private void agregarVarint(int valor) {
+        asegurarDatos(5);
+        longitudDatos = ProtocoloBattleship.escribirVarint(datos, longitudDatos, valor);
+    }
+
+    @Override
+    public void close() throws IOException {
+        mapa.force();
+        archivo.close();
+    }
+
+    /**
+     * Recibe los registros de un diario en orden, para reproducir partidas
+     */
+    public interface Oyente {
+        /**
+         * El juego llega con los barcos colocados y sin disparos
+         */
+        void alIniciar(JuegoBattleship juego, boolean esServidor);
+
+        void alEvento(boolean propio, ProtocoloBattleship.Mensaje mensaje);
+    }
+
+    /**
+     * Estado de una partida reconstruido desde su diario
+     */
+    public static final class Recuperacion {
+        public final Path ruta;
+        public final JuegoBattleship juego;
+        public final String partida;
+        public final boolean esServidor;
+        public final int turnos;
+        public final boolean miTurno;
+        public final boolean terminada;
+        final int finDatos;
+
+        Recuperacion(Path ruta, JuegoBattleship juego, String partida, boolean esServidor, int turnos,
+                boolean miTurno, boolean terminada, int finDatos) {
+            this.ruta = ruta;
+            this.juego = juego;
+            this.partida = partida;
+            this.esServidor = esServidor;
+            this.turnos = turnos;
+            this.miTurno = miTurno;
+            this.terminada = terminada;
+            this.finDatos = finDatos;
+        }
+    }
+
+    /**
+     * Reconstruye el estado desde la última instantánea y los eventos que la siguen
+     */
+    public static Recuperacion recuperar(Path ruta) throws IOException {
+        ByteBuffer buffer = mapearLectura(ruta);
+        int inicioPartida = -1;
+        int ultimaInstantanea = -1;
+        int fin = MAGIA.length;
+
+        while (fin < buffer.limit() && buffer.get(fin) != 0) {
+            int tipo = buffer.get(fin);
+            if (tipo == TIPO_INICIO) {
+                inicioPartida = fin;
+            } else if (tipo == TIPO_INSTANTANEA) {
+                ultimaInstantanea = fin;
+            }
+            fin = siguienteRegistro(buffer, fin);
+        }
+        if (inicioPartida < 0) {
+            throw new IOException("Diario sin inicio de partida: " + ruta);
+        }
+
+        boolean[] esServidor = new boolean[1];
+        String[] partida = new String[1];
+        JuegoBattleship juego = leerInicio(buffer, inicioPartida, esServidor, partida);
+        int turnos = 0;
+        boolean miTurno = esServidor[0];
+        boolean terminada = false;
+
+        int pos = siguienteRegistro(buffer, inicioPartida);
+        if (ultimaInstantanea >= 0) {
+            int datos = inicioDatos(buffer, ultimaInstantanea);
+            long lectura = leerVarint(buffer, datos);
+            turnos = (int) lectura;
+            int p = (int) (lectura >>> 32);
+            miTurno = buffer.get(p++) != 0;
+            juego = leerInstantanea(buffer, ultimaInstantanea, p, juego.getConfiguracion(), ruta);
+            pos = siguienteRegistro(buffer, ultimaInstantanea);
+        }
+
+        for (; pos < fin; pos = siguienteRegistro(buffer, pos)) {
+            int tipo = buffer.get(pos);
+            if (tipo != TIPO_EVENTO_PROPIO && tipo != TIPO_EVENTO_REMOTO) {
+                continue;
+            }
+            boolean propio = tipo == TIPO_EVENTO_PROPIO;
+            ProtocoloBattleship.Mensaje mensaje = leerEvento(buffer, pos, juego);
+            if (ProtocoloBattleship.JUEGO_TERMINADO.equals(mensaje.comando)) {
+                terminada = true;
+            } else if (!ProtocoloBattleship.DISPARAR.equals(mensaje.comando)) {
+                // El disparo cuenta recién cuando se registró su respuesta
+                aplicarResultado(juego, propio, mensaje);
+                turnos++;
+                miTurno = propio;
+            }
+        }
+
+        return new Recuperacion(ruta, juego, partida[0], esServidor[0], turnos, miTurno, terminada, fin);
+    }
+
+    /**
+     * Recorre todos los eventos de un diario, desde el inicio de la partida
+     */
+    public static void recorrer(Path ruta, Oyente oyente) throws IOException {
+        ByteBuffer buffer = mapearLectura(ruta);
+        JuegoBattleship juego = null;
+        for (int pos = MAGIA.length; pos < buffer.limit() && buffer.get(pos) != 0;
+                pos = siguienteRegistro(buffer, pos)) {
+            int tipo = buffer.get(pos);
+            if (tipo == TIPO_INICIO) {
+                boolean[] esServidor = new boolean[1];
+                juego = leerInicio(buffer, pos, esServidor, new String[1]);
+                oyente.alIniciar(juego, esServidor[0]);
+            } else if ((tipo == TIPO_EVENTO_PROPIO || tipo == TIPO_EVENTO_REMOTO) && juego != null) {
+                oyente.alEvento(tipo == TIPO_EVENTO_PROPIO, leerEvento(buffer, pos, juego));
+            }
+        }
+    }
+
+    /**
+     * Aplica al juego la respuesta a un disparo
+     */
+    static void aplicarResultado(JuegoBattleship juego, boolean propio, ProtocoloBattleship.Mensaje mensaje) {
+        if (propio) {
+            // Este jugador respondió: el disparo fue contra su tablero
+            juego.recibirDisparo(mensaje.x, mensaje.y);
+        } else if (ProtocoloBattleship.FALLO.equals(mensaje.comando)) {
+            juego.registrarFallo(mensaje.x, mensaje.y);
+        } else {
+            juego.registrarImpacto(mensaje.x, mensaje.y);
+        }
+    }
+
+    private static ByteBuffer mapearLectura(Path ruta) throws IOException {
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            for (int i = 0; i < MAGIA.length; i++) {
+                if (buffer.limit() <= i || buffer.get(i) != MAGIA[i]) {
+                    throw new IOException("No es un diario de partida: " + ruta);
+                }
+            }
+            return buffer;
+        }
+    }
+
+    private static JuegoBattleship leerInicio(ByteBuffer buffer, int registro, boolean[] esServidor,
+            String[] partida) {
+        int p = inicioDatos(buffer, registro);
+        esServidor[0] = buffer.get(p++) != 0;
+        long lectura = leerVarint(buffer, p);
+        int largoPartida = (int) lectura;
+        p = (int) (lectura >>> 32);
+        byte[] identificador = new byte[largoPartida];
+        buffer.get(p, identificador);
+        p += largoPartida;
+        partida[0] = new String(identificador, StandardCharsets.UTF_8);
+        lectura = leerVarint(buffer, p);
+        int tamanio = (int) lectura;
+        p = (int) (lectura >>> 32);
+        lectura = leerVarint(buffer, p);
+        int largoFlota = (int) lectura;
+        p = (int) (lectura >>> 32);
+        byte[] flota = new byte[largoFlota];
+        buffer.get(p, flota);
+        p += largoFlota;
+
+        ConfiguracionPartida configuracion = ConfiguracionPartida.parsear(String.valueOf(tamanio),
+                new String(flota, StandardCharsets.UTF_8));
+        JuegoBattleship juego = new JuegoBattleship(configuracion);
+        for (int barco = 0; barco < juego.getCantidadBarcos(); barco++) {
+            lectura = leerVarint(buffer, p);
+            int fila = (int) lectura;
+            lectura = leerVarint(buffer, (int) (lectura >>> 32));
+            int columna = (int) lectura;
+            p = (int) (lectura >>> 32);
+            juego.colocarBarco(barco, fila, columna, buffer.get(p++) != 0);
+        }
+        return juego;
+    }
+
+    private static ProtocoloBattleship.Mensaje leerEvento(ByteBuffer buffer, int registro, JuegoBattleship juego) {
+        int p = inicioDatos(buffer, registro);
+        int longitud = (int) leerVarint(buffer, registro + 1);
+        byte[] trama = new byte[longitud];
+        buffer.get(p, trama);
+        return ProtocoloBattleship.parsearMensajeBinario(trama, longitud, juego.getNombresBarcos());
+    }
+
+    /**
+     * Partida guardada en un registro de instantánea a partir de {@code p},
+     * que debe coincidir con la configuración del inicio
+     */
+    private static JuegoBattleship leerInstantanea(ByteBuffer buffer, int registro, int p,
+            ConfiguracionPartida configuracion, Path ruta) throws IOException {
+        int fin = siguienteRegistro(buffer, registro);
+        byte[] estado = new byte[fin - p];
+        buffer.get(p, estado);
+        try {
+            JuegoBattleship juego = InstantaneaJuego.decodificar(estado);
+            if (!juego.getConfiguracion().equals(configuracion)) {
+                throw new IOException("Instantánea de otra partida en el diario: " + ruta);
+            }
+            return juego;
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Instantánea dañada en el diario: " + ruta, e);
+        }
+    }
+
+    private static int inicioDatos(ByteBuffer buffer, int registro) {
+        return (int) (leerVarint(buffer, registro + 1) >>> 32);
+    }
+
+    private static int siguienteRegistro(ByteBuffer buffer, int registro) {
+        long lectura = leerVarint(buffer, registro + 1);
+        return (int) (lectura >>> 32) + (int) lectura;
+    }
+
+    /**
+     * Como {@link ProtocoloBattleship#leerVarint} pero sobre un buffer
+     */
+    private static long leerVarint(ByteBuffer buffer, int pos) {
+        int valor = 0;
+        int desplazamiento = 0;
+        int b;
+        do {
+            b = buffer.get(pos++);
+            valor |= (b & 0x7F) << desplazamiento;
+            desplazamiento += 7;
+        } while ((b & 0x80) != 0);
+        return ((long) pos << 32) | (valor & 0xFFFFFFFFL);
+    }
+}
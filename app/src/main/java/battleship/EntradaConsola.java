@@ -0,0 +1,77 @@
+package battleship;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Entrada de la consola leída en su propio hilo. Las líneas se encolan a
+ * medida que el usuario las escribe, así que el hilo del juego puede
+ * esperarlas con un plazo y, mientras tanto, seguir atendiendo la conexión.
+ * Lo que se escribe antes de que se pida queda en la cola, igual que con
+ * una lectura directa de la consola.
+ */
+public class EntradaConsola {
+    // Marca el fin de la entrada; se compara por identidad
+    private static final String FIN = new String("fin de la entrada");
+
+    private final BlockingQueue<String> lineas = new LinkedBlockingQueue<>();
+
+    public EntradaConsola(InputStream entrada) {
+        BufferedReader lector = new BufferedReader(new InputStreamReader(entrada, Charset.defaultCharset()));
+        // Un hilo propio y de fondo: bloqueado en la consola no retiene el proceso al terminar
+        Thread hilo = new Thread(() -> leer(lector), "consola");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Espera la próxima línea
+     * @throws NoSuchElementException si la entrada terminó, como {@link Scanner#nextLine()}
+     */
+    public String leerLinea() {
+        try {
+            return tomar(lineas.take());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NoSuchElementException("Lectura de la consola interrumpida");
+        }
+    }
+
+    /**
+     * Espera la próxima línea a lo sumo ese tiempo; devuelve null si no llegó
+     * @throws NoSuchElementException si la entrada terminó
+     */
+    public String esperarLinea(long milisegundos) {
+        try {
+            String linea = lineas.poll(milisegundos, TimeUnit.MILLISECONDS);
+            return linea == null ? null : tomar(linea);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NoSuchElementException("Lectura de la consola interrumpida");
+        }
+    }
+
+    private String tomar(String linea) {
+        if (linea == FIN) {
+            // Queda en la cola para las lecturas siguientes
+            lineas.add(FIN);
+            throw new NoSuchElementException("No hay más líneas en la consola");
+        }
+        return linea;
+    }
+
+    private void leer(BufferedReader lector) {
+        try {
+            String linea;
+            while ((linea = lector.readLine()) != null) {
+                lineas.add(linea);
+            }
+        } catch (IOException e) {
+            // Como el fin de la entrada
+        } finally {
+            lineas.add(FIN);
+        }
+    }
+}
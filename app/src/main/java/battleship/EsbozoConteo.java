@@ -0,0 +1,94 @@
+package battleship;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * Esbozo Count-Min: cuenta eventos por clave en memoria fija, sin guardar las
+ * claves. Cada clave suma en una columna de cada fila, elegida con un hash
+ * independiente por fila, y la estimación es el mínimo de esas columnas, así que
+ * nunca es menor que la cuenta real. Con probabilidad {@code 1 - 2^-filas} la
+ * excede en menos de {@code 2N / ancho}, donde N es el total sumado. Cada
+ * clave lleva varios campos que comparten las columnas. Admite sumas desde
+ * varios hilos sin bloqueos.
+ */
+public final class EsbozoConteo {
+    // Razón áurea en 64 bits: semillas de fila bien separadas entre sí
+    private static final long SEMILLA_FILA = 0x9e3779b97f4a7c15L;
+
+    private final int filas;
+    private final int mascara;
+    private final int campos;
+    // [fila][columna][campo]
+    private final AtomicLongArray cuentas;
+
+    /**
+     * @param ancho columnas por fila; se redondea a una potencia de dos
+     */
+    public EsbozoConteo(int filas, int ancho, int campos) {
+        if (filas < 1 || ancho < 1 || campos < 1) {
+            throw new IllegalArgumentException("Dimensiones inválidas: " + filas + "x" + ancho + "x" + campos);
+        }
+        int columnas = Integer.highestOneBit(Math.max(ancho, 2) - 1) << 1;
+        this.filas = filas;
+        this.mascara = columnas - 1;
+        this.campos = campos;
+        this.cuentas = new AtomicLongArray(filas * columnas * campos);
+    }
+
+    public void sumar(String clave, int campo, long cantidad) {
+        long hash = hash(clave);
+        for (int fila = 0; fila < filas; fila++) {
+            cuentas.addAndGet(posicion(hash, fila) + campo, cantidad);
+        }
+    }
+
+    /**
+     * Cuenta estimada del campo para la clave, nunca menor que la real
+     */
+    public long estimar(String clave, int campo) {
+        long hash = hash(clave);
+        long minimo = Long.MAX_VALUE;
+        for (int fila = 0; fila < filas; fila++) {
+            minimo = Math.min(minimo, cuentas.get(posicion(hash, fila) + campo));
+        }
+        return minimo;
+    }
+
+    /**
+     * Bytes que ocupan los contadores, fijos desde la creación
+     */
+    public long getBytes() {
+        return (long) cuentas.length() * Long.BYTES;
+    }
+
+    /**
+     * Cada fila vuelve a mezclar el hash con su propia semilla. Con doble
+     * hash ({@code h1 + fila * h2}) dos claves que chocan en dos filas
+     * chocan en todas, y la cota de error deja de valer.
+     */
+    private int posicion(long hash, int fila) {
+        int columna = (int) mezclar(hash + (fila + 1) * SEMILLA_FILA) & mascara;
+        return ((fila * (mascara + 1)) + columna) * campos;
+    }
+
+    /**
+     * FNV-1a de 64 bits con una mezcla final, para que los nombres parecidos
+     * caigan lejos
+     */
+    private static long hash(String clave) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < clave.length(); i++) {
+            h = (h ^ clave.charAt(i)) * 0x100000001b3L;
+        }
+        return mezclar(h);
+    }
+
+    // Finalizador de 64 bits de MurmurHash3
+    private static long mezclar(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+}
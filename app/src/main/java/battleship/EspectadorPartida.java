@@ -0,0 +1,124 @@
+package battleship;
+
+import java.io.*;
+
+/**
+ * Espectador de una partida del servidor de partidas: dibuja los disparos
+ * de cada jugador a medida que llegan. Las jugadas que llegan en el mismo
+ * lote se dibujan una sola vez.
+ */
+public class EspectadorPartida implements Closeable {
+    private final CanalMensajes canal;
+    private final JuegoBattleship[] vistas = new JuegoBattleship[2];
+    private final String[] nombres = { "Jugador 1", "Jugador 2" };
+    private boolean hayCambios;
+
+    public EspectadorPartida(Transporte transporte) {
+        this.canal = new CanalMensajes(transporte);
+        crearVistas(ConfiguracionPartida.ESTANDAR);
+    }
+
+    /**
+     * Mira la partida con ese número, o la última que comenzó si es cero,
+     * hasta que termina
+     */
+    public void mirar(int numeroPartida) throws IOException {
+        canal.enviarLinea(ProtocoloBattleship.construirMensajeEspectar(numeroPartida));
+
+        String linea;
+        while ((linea = canal.leerLinea()) != null) {
+            String[] partes = linea.split("\\" + ProtocoloBattleship.SEPARADOR_CAMPOS);
+            try {
+                switch (partes[0]) {
+                    case ProtocoloBattleship.ESPECTANDO:
+                        nombres[0] = partes[2];
+                        nombres[1] = partes[3];
+                        System.out.println("Mirando la partida #" + partes[1] + ": " + nombres[0] + " vs " + nombres[1]);
+                        break;
+
+                    case ProtocoloBattleship.CONFIGURACION:
+                        crearVistas(ProtocoloBattleship.parsearConfiguracion(linea));
+                        break;
+
+                    case ProtocoloBattleship.JUGADA: {
+                        int tirador = Integer.parseInt(partes[2]);
+                        String[] coordenadas = partes[3].split(ProtocoloBattleship.SEPARADOR_COORD);
+                        int x = Integer.parseInt(coordenadas[0]);
+                        int y = Integer.parseInt(coordenadas[1]);
+                        aplicar(tirador, x, y, partes[4]);
+                        System.out.println(nombres[tirador & 1] + ": " + partes[4] + " en (" + x + "," + y + ")"
+                                + (partes.length > 5 ? " " + partes[5] : ""));
+                        break;
+                    }
+
+                    case ProtocoloBattleship.RESUMEN: {
+                        String[] jugadas = partes.length > 2 ? partes[2].split(";") : new String[0];
+                        for (String jugada : jugadas) {
+                            String[] campos = jugada.split(",");
+                            aplicar(Integer.parseInt(campos[0]), Integer.parseInt(campos[1]),
+                                    Integer.parseInt(campos[2]), campos[3]);
+                        }
+                        System.out.println("(" + jugadas.length + " jugadas resumidas)");
+                        break;
+                    }
+
+                    case ProtocoloBattleship.JUEGO_TERMINADO:
+                        dibujar();
+                        System.out.println(partes.length > 1 ? "¡Ganó " + partes[1] + "!" : "La partida se interrumpió.");
+                        return;
+
+                    case ProtocoloBattleship.ERROR:
+                        System.out.println("El servidor respondió: " + linea);
+                        return;
+
+                    default:
+                        break;
+                }
+            } catch (RuntimeException e) {
+                System.out.println("Línea inválida del servidor: " + linea);
+            }
+
+            if (!canal.hayDatosPendientes()) {
+                dibujar();
+            }
+        }
+        System.out.println("El servidor cerró la conexión.");
+    }
+
+    private void crearVistas(ConfiguracionPartida configuracion) {
+        vistas[0] = new JuegoBattleship(configuracion);
+        vistas[1] = new JuegoBattleship(configuracion);
+    }
+
+    /**
+     * Anota un resultado; basta la inicial (como en RESUMEN) o el comando completo
+     */
+    private void aplicar(int tirador, int x, int y, String resultado) {
+        JuegoBattleship vista = vistas[tirador & 1];
+        if (!vista.dentroDelTablero(x, y)) {
+            return;
+        }
+        if (resultado.startsWith("F")) {
+            vista.registrarFallo(x, y);
+        } else {
+            vista.registrarImpacto(x, y);
+        }
+        hayCambios = true;
+    }
+
+    private void dibujar() {
+        if (!hayCambios) {
+            return;
+        }
+        for (int i = 0; i < 2; i++) {
+            System.out.println("\nDisparos de " + nombres[i] + ":");
+            vistas[i].mostrarTableroEnemigo();
+        }
+        hayCambios = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+}
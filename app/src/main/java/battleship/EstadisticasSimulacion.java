@@ -0,0 +1,123 @@
+package battleship;
+
+/**
+ * Estadísticas acumuladas de un lote de partidas simuladas entre dos
+ * estrategias. Los acumuladores parciales de cada hilo se combinan al final.
+ * <p>
+ * Los disparos para ganar van a un histograma exacto hasta
+ * {@code 2^BITS_EXACTOS} y logarítmico más arriba, como
+ * {@link HistogramaLatencia}: su tamaño crece con el logaritmo del máximo y
+ * no con el área del tablero.
+ */
+public class EstadisticasSimulacion {
+    private static final int BITS_EXACTOS = 8;
+    private static final int EXACTOS = 1 << BITS_EXACTOS;
+
+    private final long[] victorias = new long[2];
+    private final long[] sumaDisparos = new long[2];
+    private final long[][] disparosParaGanar;
+    private long partidas;
+    private long empates;
+
+    public EstadisticasSimulacion(int maximoDisparos) {
+        disparosParaGanar = new long[2][cubeta(maximoDisparos) + 1];
+    }
+
+    /**
+     * Registra una partida. {@code ganador} es 0 o 1, o -1 si nadie ganó.
+     */
+    public void registrar(int ganador, int disparosGanador) {
+        partidas++;
+        if (ganador < 0) {
+            empates++;
+            return;
+        }
+        victorias[ganador]++;
+        sumaDisparos[ganador] += disparosGanador;
+        long[] histograma = disparosParaGanar[ganador];
+        histograma[Math.min(cubeta(disparosGanador), histograma.length - 1)]++;
+    }
+
+    public void combinar(EstadisticasSimulacion otras) {
+        partidas += otras.partidas;
+        empates += otras.empates;
+        for (int j = 0; j < 2; j++) {
+            victorias[j] += otras.victorias[j];
+            sumaDisparos[j] += otras.sumaDisparos[j];
+            for (int i = 0; i < disparosParaGanar[j].length; i++) {
+                disparosParaGanar[j][i] += otras.disparosParaGanar[j][i];
+            }
+        }
+    }
+
+    public long getPartidas() {
+        return partidas;
+    }
+
+    public long getEmpates() {
+        return empates;
+    }
+
+    public long getVictorias(int jugador) {
+        return victorias[jugador];
+    }
+
+    public double getTasaVictorias(int jugador) {
+        return partidas == 0 ? 0 : (double) victorias[jugador] / partidas;
+    }
+
+    /**
+     * Media de disparos que necesitó el jugador en las partidas que ganó
+     */
+    public double getMediaDisparosParaGanar(int jugador) {
+        return victorias[jugador] == 0 ? 0 : (double) sumaDisparos[jugador] / victorias[jugador];
+    }
+
+    public int percentilDisparosParaGanar(int jugador, double percentil) {
+        long objetivo = (long) Math.ceil(victorias[jugador] * percentil / 100.0);
+        long acumulado = 0;
+        long[] histograma = disparosParaGanar[jugador];
+        for (int i = 0; i < histograma.length; i++) {
+            acumulado += histograma[i];
+            if (acumulado >= objetivo && acumulado > 0) {
+                return valorDe(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Cubeta de una cantidad de disparos: exacta debajo de {@link #EXACTOS};
+     * más arriba cada potencia de dos se divide en {@link #EXACTOS} partes
+     */
+    static int cubeta(int disparos) {
+        if (disparos < EXACTOS) {
+            return Math.max(disparos, 0);
+        }
+        int exponente = 31 - Integer.numberOfLeadingZeros(disparos);
+        return ((exponente - BITS_EXACTOS) << BITS_EXACTOS) + (disparos >>> (exponente - BITS_EXACTOS));
+    }
+
+    /**
+     * Menor cantidad de disparos que cae en la cubeta
+     */
+    static int valorDe(int cubeta) {
+        if (cubeta < EXACTOS) {
+            return cubeta;
+        }
+        int desplazamiento = (cubeta >>> BITS_EXACTOS) - 1;
+        return ((cubeta & (EXACTOS - 1)) + EXACTOS) << desplazamiento;
+    }
+
+    public String resumen(String nombreA, String nombreB) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Partidas: ").append(partidas).append(" (empates: ").append(empates).append(")\n");
+        String[] nombres = { nombreA, nombreB };
+        for (int j = 0; j < 2; j++) {
+            sb.append(String.format("  %-14s victorias=%6.2f%%  disparos para ganar: media=%.2f p50=%d p90=%d%n",
+                    nombres[j], getTasaVictorias(j) * 100, getMediaDisparosParaGanar(j),
+                    percentilDisparosParaGanar(j, 50), percentilDisparosParaGanar(j, 90)));
+        }
+        return sb.toString();
+    }
+}
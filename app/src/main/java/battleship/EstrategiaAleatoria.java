@@ -0,0 +1,41 @@
+package battleship;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Dispara a celdas no visitadas en orden aleatorio. Sirve como referencia
+ * mínima al comparar estrategias.
+ */
+public class EstrategiaAleatoria implements EstrategiaDisparo {
+    private int[] orden = new int[0];
+    private int siguiente;
+
+    @Override
+    public void reiniciar(JuegoBattleship juego, RandomGenerator random) {
+        int celdas = juego.getTamanioTablero() * juego.getTamanioTablero();
+        if (orden.length != celdas) {
+            orden = new int[celdas];
+        }
+        for (int i = 0; i < celdas; i++) {
+            orden[i] = i;
+        }
+        // Fisher-Yates
+        for (int i = celdas - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int temporal = orden[i];
+            orden[i] = orden[j];
+            orden[j] = temporal;
+        }
+        siguiente = 0;
+    }
+
+    @Override
+    public int elegirDisparo() {
+        return orden[siguiente++ % orden.length];
+    }
+
+    @Override
+    public void registrarResultado(int fila, int columna, String resultado, String tipoBarco) {
+        // No aprende de los resultados
+    }
+}
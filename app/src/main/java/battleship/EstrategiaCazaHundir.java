@@ -0,0 +1,117 @@
+package battleship;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Estrategia clásica de "cazar y hundir": busca en un patrón de tablero de
+ * ajedrez y, al impactar, prueba las celdas vecinas hasta hundir el barco.
+ */
+public class EstrategiaCazaHundir implements EstrategiaDisparo {
+    private JuegoBattleship juego;
+    private int tamanio;
+    private int[] orden = new int[0];
+    private int siguiente;
+    private int[] pila = new int[0];
+    private int cima;
+    private int impactosPendientes;
+
+    @Override
+    public void reiniciar(JuegoBattleship juego, RandomGenerator random) {
+        this.juego = juego;
+        this.tamanio = juego.getTamanioTablero();
+        int celdas = tamanio * tamanio;
+        if (orden.length != celdas) {
+            orden = new int[celdas];
+        }
+        // Cada impacto apila a lo sumo sus cuatro vecinas
+        int maximoPila = 4 * juego.getConfiguracion().getCeldasConBarco();
+        if (pila.length != maximoPila) {
+            pila = new int[maximoPila];
+        }
+
+        // Primero las celdas de paridad par, luego el resto, cada grupo barajado
+        int pares = 0;
+        for (int c = 0; c < celdas; c++) {
+            if (((c / tamanio) + (c % tamanio)) % 2 == 0) {
+                orden[pares++] = c;
+            }
+        }
+        int impares = pares;
+        for (int c = 0; c < celdas; c++) {
+            if (((c / tamanio) + (c % tamanio)) % 2 != 0) {
+                orden[impares++] = c;
+            }
+        }
+        barajar(random, 0, pares);
+        barajar(random, pares, celdas);
+
+        siguiente = 0;
+        cima = 0;
+        impactosPendientes = 0;
+    }
+
+    private void barajar(RandomGenerator random, int desde, int hasta) {
+        for (int i = hasta - 1; i > desde; i--) {
+            int j = desde + random.nextInt(i - desde + 1);
+            int temporal = orden[i];
+            orden[i] = orden[j];
+            orden[j] = temporal;
+        }
+    }
+
+    @Override
+    public int elegirDisparo() {
+        while (cima > 0) {
+            int c = pila[--cima];
+            if (!juego.yaDisparado(c / tamanio, c % tamanio)) {
+                return c;
+            }
+        }
+        while (siguiente < orden.length) {
+            int c = orden[siguiente++];
+            if (!juego.yaDisparado(c / tamanio, c % tamanio)) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public void registrarResultado(int fila, int columna, String resultado, String tipoBarco) {
+        if (ProtocoloBattleship.FALLO.equals(resultado)) {
+            return;
+        }
+
+        impactosPendientes++;
+        if (ProtocoloBattleship.HUNDIDO.equals(resultado)) {
+            impactosPendientes -= tamanioBarco(tipoBarco);
+            if (impactosPendientes <= 0) {
+                // No quedan barcos tocados: volver a cazar
+                impactosPendientes = 0;
+                cima = 0;
+                return;
+            }
+        }
+
+        apilar(fila - 1, columna);
+        apilar(fila + 1, columna);
+        apilar(fila, columna - 1);
+        apilar(fila, columna + 1);
+    }
+
+    private void apilar(int fila, int columna) {
+        if (fila >= 0 && fila < tamanio && columna >= 0 && columna < tamanio
+                && !juego.yaDisparado(fila, columna) && cima < pila.length) {
+            pila[cima++] = fila * tamanio + columna;
+        }
+    }
+
+    private int tamanioBarco(String tipoBarco) {
+        for (int i = 0; i < juego.getCantidadBarcos(); i++) {
+            if (juego.getNombreBarco(i).equals(tipoBarco)) {
+                return juego.getTamanioBarco(i);
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,55 @@
+package battleship;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Forma de elegir disparos sin intervención humana. Las celdas se numeran
+ * como {@code fila * tamanio + columna}.
+ */
+public interface EstrategiaDisparo {
+    /**
+     * Prepara la estrategia para una partida nueva. {@code juego} es el estado
+     * del jugador que dispara y registra el resultado de cada disparo.
+     */
+    void reiniciar(JuegoBattleship juego, RandomGenerator random);
+
+    /**
+     * Elige la próxima celda a disparar
+     */
+    int elegirDisparo();
+
+    /**
+     * Elige hasta {@code cantidad} celdas distintas para dispararlas juntas en
+     * una salva y devuelve cuántas eligió. Por omisión pide disparos uno tras
+     * otro, lo que sirve a las estrategias que avanzan al elegir; las que
+     * eligen sin cambiar su estado deben redefinirlo.
+     */
+    default int elegirSalva(int[] destino, int cantidad) {
+        int elegidas = 0;
+        for (int intentos = 0; elegidas < cantidad && intentos < 4 * cantidad; intentos++) {
+            int celda = elegirDisparo();
+            boolean repetida = false;
+            for (int i = 0; i < elegidas && !repetida; i++) {
+                repetida = destino[i] == celda;
+            }
+            if (!repetida) {
+                destino[elegidas++] = celda;
+            }
+        }
+        return elegidas;
+    }
+
+    /**
+     * Indica si el último disparo elegido dependía solo de los resultados
+     * registrados, sin usar el generador al azar. Solo entonces otra partida
+     * que llegó por el mismo camino puede reutilizarlo sin cambiar su curso.
+     */
+    default boolean eleccionDeterminista() {
+        return false;
+    }
+
+    /**
+     * Informa el resultado (IMPACTO, FALLO o HUNDIDO) del último disparo
+     */
+    void registrarResultado(int fila, int columna, String resultado, String tipoBarco);
+}
@@ -0,0 +1,270 @@
+package battleship;
+
+import java.util.concurrent.locks.*;
+import java.util.random.RandomGenerator;
+
+/**
+ * Estrategia que juega los primeros disparos desde un {@link LibroAperturas}
+ * y después sigue con otra. La otra estrategia recibe todos los resultados,
+ * así que al salir del libro continúa con el estado completo de la partida.
+ * <p>
+ * Fuera del libro, lo que la otra estrategia elige en los primeros
+ * {@link #PROFUNDIDAD_CACHE} disparos queda en una {@link CacheCaminos}
+ * compartida por todas las partidas con la misma configuración, que hace
+ * las veces de un libro construido sobre la marcha. Por eso la otra estrategia no debe
+ * cambiar su estado al elegir, como {@link EstrategiaProbabilidad}. Solo se
+ * guardan las elecciones deterministas: una que rompió un empate al azar
+ * dependería de qué partida llegó primero al camino, y las simulaciones en
+ * paralelo dejarían de dar siempre lo mismo.
+ */
+public class EstrategiaLibro implements EstrategiaDisparo {
+    static final int PROFUNDIDAD_CACHE = 8;
+    static final int CAPACIDAD_CACHE = 65_536;
+
+    private static final CacheCaminos CACHE = new CacheCaminos(CAPACIDAD_CACHE);
+
+    private final EstrategiaDisparo base;
+    private final LibroAperturas libroFijo;
+    private LibroAperturas libro;
+    private JuegoBattleship juego;
+    private ConfiguracionPartida configuracion;
+    private int nodo = -1;
+    // Disparos de la partida con su resultado: celda << 16 | código
+    private final long[] camino = new long[PROFUNDIDAD_CACHE];
+    // Hash de la configuración y del camino, actualizado con cada disparo
+    private long hashCamino;
+    private int disparos;
+
+    /**
+     * Usa el libro indicado con {@code battleship.aperturas}, si hay uno
+     */
+    public EstrategiaLibro(EstrategiaDisparo base) {
+        this(base, null);
+    }
+
+    public EstrategiaLibro(EstrategiaDisparo base, LibroAperturas libro) {
+        this.base = base;
+        this.libroFijo = libro;
+    }
+
+    @Override
+    public void reiniciar(JuegoBattleship juego, RandomGenerator random) {
+        base.reiniciar(juego, random);
+        this.juego = juego;
+        this.configuracion = juego.getConfiguracion();
+        // El libro predeterminado se abre recién cuando la computadora juega
+        libro = libroFijo != null ? libroFijo : LibroAperturas.predeterminado();
+        nodo = libro != null && libro.getConfiguracion().equals(configuracion) ? libro.raiz() : -1;
+        hashCamino = CacheCaminos.hashInicial(configuracion);
+        disparos = 0;
+    }
+
+    @Override
+    public int elegirDisparo() {
+        if (nodo >= 0) {
+            int celda = libro.celda(nodo);
+            int tamanio = juego.getTamanioTablero();
+            if (!juego.yaDisparado(celda / tamanio, celda % tamanio)) {
+                return celda;
+            }
+            nodo = -1;
+        }
+
+        if (disparos >= PROFUNDIDAD_CACHE) {
+            return base.elegirDisparo();
+        }
+        int guardada = CACHE.buscar(hashCamino, configuracion, camino, disparos);
+        if (guardada >= 0) {
+            return guardada;
+        }
+        int celda = base.elegirDisparo();
+        if (base.eleccionDeterminista()) {
+            CACHE.guardar(hashCamino, configuracion, camino, disparos, celda);
+        }
+        return celda;
+    }
+
+    /**
+     * El libro y la caché siguen partidas de a un disparo; una salva la elige
+     * la otra estrategia y deja la partida fuera de ambos
+     */
+    @Override
+    public int elegirSalva(int[] destino, int cantidad) {
+        if (cantidad == 1) {
+            destino[0] = elegirDisparo();
+            return 1;
+        }
+        nodo = -1;
+        disparos = Math.max(disparos, PROFUNDIDAD_CACHE);
+        return base.elegirSalva(destino, cantidad);
+    }
+
+    @Override
+    public void registrarResultado(int fila, int columna, String resultado, String tipoBarco) {
+        base.registrarResultado(fila, columna, resultado, tipoBarco);
+
+        int celda = fila * juego.getTamanioTablero() + columna;
+        int codigo = LibroAperturas.codigo(configuracion, resultado, tipoBarco);
+        if (nodo >= 0) {
+            // Un disparo que no es el del libro, como al reanudar, deja fuera del libro
+            nodo = celda == libro.celda(nodo) ? libro.siguiente(nodo, codigo) : -1;
+        }
+        if (disparos < PROFUNDIDAD_CACHE) {
+            camino[disparos] = (long) celda << 16 | codigo;
+            hashCamino = CacheCaminos.hashSiguiente(hashCamino, camino[disparos]);
+        }
+        disparos++;
+    }
+
+    /**
+     * Indica si la próxima elección sale del libro
+     */
+    public boolean enLibro() {
+        return nodo >= 0;
+    }
+
+    /**
+     * Caché de camino a disparo elegido, compartida por todos los hilos. Se
+     * reparte en franjas según el hash, cada una con su candado, así que las
+     * partidas de distintos hilos casi nunca esperan por la misma. Cada
+     * franja es asociativa por conjuntos de {@link #VIAS} entradas y, si el
+     * conjunto está lleno, reemplaza la usada hace más tiempo. Los caminos se
+     * guardan en arreglos planos y se comparan en el lugar, así que buscar no
+     * reserva memoria.
+     */
+    static final class CacheCaminos {
+        private static final int FRANJAS = 64;
+        private static final int VIAS = 4;
+
+        private final Franja[] franjas = new Franja[FRANJAS];
+
+        CacheCaminos(int capacidad) {
+            int conjuntos = Integer.highestOneBit(Math.max(1, capacidad / (FRANJAS * VIAS)));
+            for (int i = 0; i < FRANJAS; i++) {
+                franjas[i] = new Franja(conjuntos);
+            }
+        }
+
+        static long hashInicial(ConfiguracionPartida configuracion) {
+            return mezclar(configuracion.hashCode());
+        }
+
+        static long hashSiguiente(long hash, long paso) {
+            return mezclar(hash ^ (paso * 0x9e3779b97f4a7c15L));
+        }
+
+        // Finalizador de 64 bits de MurmurHash3
+        private static long mezclar(long h) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            return h ^ (h >>> 33);
+        }
+
+        /**
+         * Celda guardada para los primeros {@code largo} pasos de
+         * {@code camino}, o -1 si no está
+         */
+        int buscar(long hash, ConfiguracionPartida configuracion, long[] camino, int largo) {
+            Franja franja = franjas[(int) hash & (FRANJAS - 1)];
+            franja.candado.lock();
+            try {
+                int i = franja.buscar(hash, configuracion, camino, largo);
+                if (i < 0) {
+                    return -1;
+                }
+                franja.usos[i] = ++franja.reloj;
+                return franja.celdas[i];
+            } finally {
+                franja.candado.unlock();
+            }
+        }
+
+        void guardar(long hash, ConfiguracionPartida configuracion, long[] camino, int largo, int celda) {
+            Franja franja = franjas[(int) hash & (FRANJAS - 1)];
+            franja.candado.lock();
+            try {
+                int i = franja.buscar(hash, configuracion, camino, largo);
+                if (i < 0) {
+                    i = franja.reemplazable(hash);
+                    franja.hashes[i] = hash;
+                    franja.configuraciones[i] = configuracion;
+                    franja.largos[i] = largo;
+                    System.arraycopy(camino, 0, franja.pasos, i * PROFUNDIDAD_CACHE, largo);
+                }
+                franja.celdas[i] = celda;
+                franja.usos[i] = ++franja.reloj;
+            } finally {
+                franja.candado.unlock();
+            }
+        }
+
+        private static final class Franja {
+            final ReentrantLock candado = new ReentrantLock();
+            final int mascara;
+            final long[] hashes;
+            final ConfiguracionPartida[] configuraciones;
+            final int[] largos;
+            final long[] pasos;
+            final int[] celdas;
+            final int[] usos;
+            int reloj;
+
+            Franja(int conjuntos) {
+                int entradas = conjuntos * VIAS;
+                mascara = conjuntos - 1;
+                hashes = new long[entradas];
+                configuraciones = new ConfiguracionPartida[entradas];
+                largos = new int[entradas];
+                pasos = new long[entradas * PROFUNDIDAD_CACHE];
+                celdas = new int[entradas];
+                usos = new int[entradas];
+            }
+
+            private int inicioConjunto(long hash) {
+                // Los bits bajos ya eligieron la franja
+                return ((int) (hash >>> 32) & mascara) * VIAS;
+            }
+
+            int buscar(long hash, ConfiguracionPartida configuracion, long[] camino, int largo) {
+                int inicio = inicioConjunto(hash);
+                for (int i = inicio; i < inicio + VIAS; i++) {
+                    if (hashes[i] == hash && largos[i] == largo && configuraciones[i] != null
+                            && mismosPasos(i, camino, largo) && configuraciones[i].equals(configuracion)) {
+                        return i;
+                    }
+                }
+                return -1;
+            }
+
+            private boolean mismosPasos(int entrada, long[] camino, int largo) {
+                int base = entrada * PROFUNDIDAD_CACHE;
+                for (int k = 0; k < largo; k++) {
+                    if (pasos[base + k] != camino[k]) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            /**
+             * Entrada libre del conjunto, o la usada hace más tiempo
+             */
+            int reemplazable(long hash) {
+                int inicio = inicioConjunto(hash);
+                int elegida = inicio;
+                for (int i = inicio; i < inicio + VIAS; i++) {
+                    if (configuraciones[i] == null) {
+                        return i;
+                    }
+                    // Restar compara bien aunque el reloj haya dado la vuelta
+                    if (usos[i] - usos[elegida] < 0) {
+                        elegida = i;
+                    }
+                }
+                return elegida;
+            }
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package battleship;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.random.RandomGenerator;
+
+/**
+ * Estrategia por densidad de probabilidad: para cada celda cuenta cuántas
+ * colocaciones legales de los barcos que quedan la cubren y dispara a la de
+ * mayor cuenta. El mapa de calor no se recalcula en cada turno: un fallo o un
+ * hundimiento solo descuenta las colocaciones que pasaron a ser imposibles.
+ * Mientras haya impactos sin hundir, se puntúan solo las colocaciones que
+ * pasan por esos impactos.
+ */
+public class EstrategiaProbabilidad implements EstrategiaDisparo {
+    /**
+     * Tablero más grande (en celdas) para el que conviene esta estrategia: las
+     * tablas de colocaciones crecen con el área por el largo de los barcos
+     */
+    public static final int MAX_CELDAS = 10_000;
+
+    // Impactos explicados a partir de los que una colocación no pesa más
+    private static final int MAX_EXPLICADOS = 16;
+
+    private static final Map<Integer, Geometria> GEOMETRIAS = new ConcurrentHashMap<>();
+
+    private JuegoBattleship juego;
+    private RandomGenerator random;
+    private int tamanio;
+    private int celdas;
+    private Geometria[] geometrias = new Geometria[0];
+    private int[] multiplicidad = new int[0];
+    private boolean[][] valida = new boolean[0][];
+    private int[][] cobertura = new int[0][];
+    private long[] densidad = new long[0];
+    private long[] puntuacion = new long[0];
+    private boolean[] disparada = new boolean[0];
+    private boolean[] bloqueada = new boolean[0];
+    private boolean[] impactoPendiente = new boolean[0];
+    private int[] pendientes = new int[0];
+    private int cantidadPendientes;
+    // La última elección no tuvo empates que romper al azar
+    private boolean sinEmpates;
+
+    @Override
+    public void reiniciar(JuegoBattleship juego, RandomGenerator random) {
+        this.juego = juego;
+        this.random = random;
+
+        int maximoLargo = 0;
+        for (int i = 0; i < juego.getCantidadBarcos(); i++) {
+            maximoLargo = Math.max(maximoLargo, juego.getTamanioBarco(i));
+        }
+
+        if (juego.getTamanioTablero() != tamanio || geometrias.length != maximoLargo + 1) {
+            tamanio = juego.getTamanioTablero();
+            celdas = tamanio * tamanio;
+            geometrias = new Geometria[maximoLargo + 1];
+            multiplicidad = new int[maximoLargo + 1];
+            valida = new boolean[maximoLargo + 1][];
+            cobertura = new int[maximoLargo + 1][];
+            densidad = new long[celdas];
+            puntuacion = new long[celdas];
+            disparada = new boolean[celdas];
+            bloqueada = new boolean[celdas];
+            impactoPendiente = new boolean[celdas];
+            pendientes = new int[celdas];
+        }
+
+        Arrays.fill(multiplicidad, 0);
+        for (int i = 0; i < juego.getCantidadBarcos(); i++) {
+            int largo = juego.getTamanioBarco(i);
+            if (largo <= tamanio) {
+                multiplicidad[largo]++;
+            }
+        }
+
+        Arrays.fill(densidad, 0);
+        Arrays.fill(disparada, false);
+        Arrays.fill(bloqueada, false);
+        Arrays.fill(impactoPendiente, false);
+        cantidadPendientes = 0;
+
+        for (int largo = 1; largo < geometrias.length; largo++) {
+            if (multiplicidad[largo] == 0) {
+                continue;
+            }
+            Geometria geometria = geometria(tamanio, largo);
+            geometrias[largo] = geometria;
+            if (valida[largo] == null) {
+                valida[largo] = new boolean[geometria.cantidad];
+                cobertura[largo] = new int[celdas];
+            }
+            Arrays.fill(valida[largo], true);
+            for (int c = 0; c < celdas; c++) {
+                int cubren = geometria.inicioPorCelda[c + 1] - geometria.inicioPorCelda[c];
+                cobertura[largo][c] = cubren;
+                densidad[c] += multiplicidad[largo] * cubren;
+            }
+        }
+    }
+
+    @Override
+    public int elegirDisparo() {
+        if (cantidadPendientes > 0) {
+            int objetivo = elegirAlrededorDeImpactos();
+            if (objetivo >= 0) {
+                return objetivo;
+            }
+        }
+        return elegirMaximo(densidad);
+    }
+
+    /**
+     * Las mejores celdas según la misma puntuación: cada elegida se marca
+     * como disparada hasta completar la salva
+     */
+    @Override
+    public int elegirSalva(int[] destino, int cantidad) {
+        int elegidas = 0;
+        while (elegidas < cantidad) {
+            int c = elegirDisparo();
+            if (disparada[c]) {
+                // No quedan celdas sin disparar
+                break;
+            }
+            disparada[c] = true;
+            destino[elegidas++] = c;
+        }
+        for (int i = 0; i < elegidas; i++) {
+            disparada[destino[i]] = false;
+        }
+        return elegidas;
+    }
+
+    @Override
+    public void registrarResultado(int fila, int columna, String resultado, String tipoBarco) {
+        int c = fila * tamanio + columna;
+        disparada[c] = true;
+
+        if (ProtocoloBattleship.FALLO.equals(resultado)) {
+            bloquear(c);
+            return;
+        }
+
+        if (!impactoPendiente[c]) {
+            impactoPendiente[c] = true;
+            pendientes[cantidadPendientes++] = c;
+        }
+
+        if (ProtocoloBattleship.HUNDIDO.equals(resultado)) {
+            int largo = largoDe(tipoBarco);
+            if (largo > 0) {
+                resolverHundido(c, largo);
+            }
+        }
+    }
+
+    /**
+     * Marca como resueltas las celdas del barco hundido y descuenta el barco
+     * de la flota que queda.
+     */
+    private void resolverHundido(int c, int largo) {
+        int fila = c / tamanio;
+        int columna = c % tamanio;
+        int inicio = buscarTramo(fila, columna, largo, true);
+        boolean horizontal = inicio >= 0;
+        if (!horizontal) {
+            inicio = buscarTramo(fila, columna, largo, false);
+        }
+
+        if (inicio >= 0) {
+            int paso = horizontal ? 1 : tamanio;
+            for (int i = 0; i < largo; i++) {
+                int celda = inicio + i * paso;
+                quitarPendiente(celda);
+                bloquear(celda);
+            }
+        }
+
+        if (largo < multiplicidad.length && multiplicidad[largo] > 0) {
+            multiplicidad[largo]--;
+            int[] cubren = cobertura[largo];
+            for (int d = 0; d < celdas; d++) {
+                densidad[d] -= cubren[d];
+            }
+        }
+    }
+
+    /**
+     * Busca un tramo de {@code largo} impactos pendientes que contenga la celda
+     */
+    private int buscarTramo(int fila, int columna, int largo, boolean horizontal) {
+        int posicion = horizontal ? columna : fila;
+        for (int desde = Math.max(0, posicion - largo + 1); desde <= posicion && desde + largo <= tamanio; desde++) {
+            boolean completo = true;
+            for (int i = 0; i < largo && completo; i++) {
+                int celda = horizontal ? fila * tamanio + desde + i : (desde + i) * tamanio + columna;
+                completo = impactoPendiente[celda];
+            }
+            if (completo) {
+                return horizontal ? fila * tamanio + desde : desde * tamanio + columna;
+            }
+        }
+        return -1;
+    }
+
+    private void quitarPendiente(int celda) {
+        if (!impactoPendiente[celda]) return;
+        impactoPendiente[celda] = false;
+        for (int i = 0; i < cantidadPendientes; i++) {
+            if (pendientes[i] == celda) {
+                pendientes[i] = pendientes[--cantidadPendientes];
+                return;
+            }
+        }
+    }
+
+    /**
+     * Ninguna colocación puede pasar por esta celda: descontarlas del mapa
+     */
+    private void bloquear(int celda) {
+        if (bloqueada[celda]) return;
+        bloqueada[celda] = true;
+
+        for (int largo = 1; largo < geometrias.length; largo++) {
+            Geometria geometria = geometrias[largo];
+            if (geometria == null) continue;
+            boolean[] validas = valida[largo];
+            int[] cubren = cobertura[largo];
+            int peso = multiplicidad[largo];
+
+            for (int i = geometria.inicioPorCelda[celda]; i < geometria.inicioPorCelda[celda + 1]; i++) {
+                int p = geometria.colocacionesPorCelda[i];
+                if (!validas[p]) continue;
+                validas[p] = false;
+                int base = p * largo;
+                for (int k = 0; k < largo; k++) {
+                    int d = geometria.celdas[base + k];
+                    cubren[d]--;
+                    densidad[d] -= peso;
+                }
+            }
+        }
+    }
+
+    /**
+     * Puntúa las celdas libres de las colocaciones que pasan por impactos sin
+     * hundir; cuantos más impactos explica una colocación, más pesa.
+     */
+    private int elegirAlrededorDeImpactos() {
+        Arrays.fill(puntuacion, 0);
+        boolean hayCandidatas = false;
+
+        for (int h = 0; h < cantidadPendientes; h++) {
+            int impacto = pendientes[h];
+            for (int largo = 1; largo < geometrias.length; largo++) {
+                Geometria geometria = geometrias[largo];
+                if (geometria == null || multiplicidad[largo] == 0) continue;
+                boolean[] validas = valida[largo];
+
+                for (int i = geometria.inicioPorCelda[impacto]; i < geometria.inicioPorCelda[impacto + 1]; i++) {
+                    int p = geometria.colocacionesPorCelda[i];
+                    if (!validas[p]) continue;
+                    int base = p * largo;
+                    int explicados = 0;
+                    for (int k = 0; k < largo; k++) {
+                        if (impactoPendiente[geometria.celdas[base + k]]) explicados++;
+                    }
+                    // Con barcos tan largos como el tablero el peso desbordaría
+                    long peso = (long) multiplicidad[largo] << (2 * Math.min(explicados, MAX_EXPLICADOS));
+                    for (int k = 0; k < largo; k++) {
+                        int d = geometria.celdas[base + k];
+                        if (!disparada[d]) {
+                            long suma = puntuacion[d] + peso;
+                            puntuacion[d] = suma < 0 ? Long.MAX_VALUE : suma;
+                            hayCandidatas = true;
+                        }
+                    }
+                }
+            }
+        }
+        return hayCandidatas ? elegirMaximo(puntuacion) : -1;
+    }
+
+    /**
+     * Celda libre con el valor más alto; los empates se rompen al azar. El
+     * generador se usa solo si el máximo final está empatado, así que una
+     * elección sin empates no depende del azar ni lo consume.
+     */
+    private int elegirMaximo(long[] valores) {
+        int mejor = -1;
+        long mejorValor = Long.MIN_VALUE;
+        int empates = 0;
+        for (int c = 0; c < celdas; c++) {
+            if (disparada[c]) continue;
+            long valor = valores[c];
+            if (valor > mejorValor) {
+                mejor = c;
+                mejorValor = valor;
+                empates = 1;
+            } else if (valor == mejorValor) {
+                empates++;
+            }
+        }
+        sinEmpates = empates == 1;
+        if (empates > 1) {
+            // Segunda pasada hasta la empatada elegida
+            int saltar = random.nextInt(empates);
+            for (int c = mejor; ; c++) {
+                if (!disparada[c] && valores[c] == mejorValor && saltar-- == 0) {
+                    return c;
+                }
+            }
+        }
+        return mejor >= 0 ? mejor : 0;
+    }
+
+    @Override
+    public boolean eleccionDeterminista() {
+        return sinEmpates;
+    }
+
+    private int largoDe(String tipoBarco) {
+        for (int i = 0; i < juego.getCantidadBarcos(); i++) {
+            if (juego.getNombreBarco(i).equals(tipoBarco)) {
+                return juego.getTamanioBarco(i);
+            }
+        }
+        return -1;
+    }
+
+    private static Geometria geometria(int tamanio, int largo) {
+        return GEOMETRIAS.computeIfAbsent(tamanio * 1024 + largo, k -> new Geometria(tamanio, largo));
+    }
+
+    /**
+     * Todas las colocaciones posibles de un barco de cierto largo, y para cada
+     * celda la lista de colocaciones que la cubren. Es inmutable y se comparte
+     * entre partidas.
+     */
+    private static final class Geometria {
+        final int cantidad;
+        final int[] celdas;
+        final int[] inicioPorCelda;
+        final int[] colocacionesPorCelda;
+
+        Geometria(int tamanio, int largo) {
+            int porOrientacion = tamanio * (tamanio - largo + 1);
+            cantidad = 2 * porOrientacion;
+            celdas = new int[cantidad * largo];
+
+            int p = 0;
+            for (int fila = 0; fila < tamanio; fila++) {
+                for (int columna = 0; columna + largo <= tamanio; columna++, p++) {
+                    for (int k = 0; k < largo; k++) {
+                        celdas[p * largo + k] = fila * tamanio + columna + k;
+                    }
+                }
+            }
+            for (int fila = 0; fila + largo <= tamanio; fila++) {
+                for (int columna = 0; columna < tamanio; columna++, p++) {
+                    for (int k = 0; k < largo; k++) {
+                        celdas[p * largo + k] = (fila + k) * tamanio + columna;
+                    }
+                }
+            }
+
+            int totalCeldas = tamanio * tamanio;
+            inicioPorCelda = new int[totalCeldas + 1];
+            for (int c : celdas) {
+                inicioPorCelda[c + 1]++;
+            }
+            for (int c = 0; c < totalCeldas; c++) {
+                inicioPorCelda[c + 1] += inicioPorCelda[c];
+            }
+            colocacionesPorCelda = new int[celdas.length];
+            int[] siguiente = Arrays.copyOf(inicioPorCelda, totalCeldas);
+            for (int i = 0; i < celdas.length; i++) {
+                colocacionesPorCelda[siguiente[celdas[i]]++] = i / largo;
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package battleship;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Prueba de carga del protocolo: miles de clientes guionados, cada uno en su
+ * hilo virtual, juegan partidas completas (nombres, LISTO, DISPARAR,
+ * resultados y fin del juego) sobre {@link TransporteMemoria}. Se enfrentan
+ * de a pares o a través de un {@link ServidorPartidas} del mismo proceso,
+ * que los empareja y retransmite como lo haría por la red. Mide los turnos
+ * por segundo y la latencia de cada turno, desde que se envía el disparo
+ * hasta que llega su resultado.
+ */
+public class GeneradorCarga {
+    private static final int INTERVALO_INFORME_MS = 1000;
+
+    private final int clientes;
+    private final int partidasPorCliente;
+    private final ServidorPartidas servidor;
+    private final boolean binario;
+    private final long semilla;
+    private final LongAdder turnos = new LongAdder();
+    private final LongAdder partidas = new LongAdder();
+    private final LongAdder errores = new LongAdder();
+    private final HistogramaConcurrente latencia = new HistogramaConcurrente();
+    private ExecutorService hilos;
+
+    /**
+     * @param servidor servidor por el que pasan todas las partidas, o null
+     *                 para que los clientes se conecten de a pares
+     */
+    public GeneradorCarga(int clientes, int partidasPorCliente, ServidorPartidas servidor, boolean binario,
+            long semilla) {
+        if (clientes < 2 || clientes % 2 != 0) {
+            throw new IllegalArgumentException("Se necesita una cantidad par de clientes: " + clientes);
+        }
+        this.clientes = clientes;
+        this.partidasPorCliente = partidasPorCliente;
+        this.servidor = servidor;
+        this.binario = binario;
+        this.semilla = semilla;
+    }
+
+    /**
+     * Lanza a todos los clientes y espera a que terminen sus partidas
+     */
+    public void ejecutar() throws InterruptedException {
+        hilos = Executors.newVirtualThreadPerTaskExecutor();
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int i = 0; i < clientes; i++) {
+            int numero = i;
+            if (servidor != null) {
+                tareas.add(hilos.submit(() -> jugarPorServidor(numero)));
+            } else if (numero % 2 == 0) {
+                tareas.add(hilos.submit(() -> jugarDeAPares(numero)));
+            }
+        }
+        try {
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Falló un cliente de la carga", e.getCause());
+        } finally {
+            hilos.shutdown();
+        }
+    }
+
+    public long getTurnos() {
+        return turnos.sum();
+    }
+
+    public long getPartidas() {
+        return partidas.sum();
+    }
+
+    public long getErrores() {
+        return errores.sum();
+    }
+
+    public HistogramaConcurrente getLatencia() {
+        return latencia;
+    }
+
+    /**
+     * Dos clientes conectados directamente, como en una partida P2P: el de
+     * número par es el anfitrión y comienza
+     */
+    private void jugarDeAPares(int numero) {
+        SplittableRandom random = new SplittableRandom(semilla + numero);
+        for (int p = 0; p < partidasPorCliente; p++) {
+            TransporteMemoria[] par = TransporteMemoria.crearPar();
+            SplittableRandom randomInvitado = random.split();
+            Future<?> invitado = hilos.submit(
+                    () -> jugarGuion(par[1], "bot" + (numero + 1), false, false, randomInvitado));
+            jugarGuion(par[0], "bot" + numero, true, false, random);
+            try {
+                invitado.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                errores.increment();
+            }
+        }
+    }
+
+    private void jugarPorServidor(int numero) {
+        SplittableRandom random = new SplittableRandom(semilla + numero);
+        for (int p = 0; p < partidasPorCliente; p++) {
+            TransporteMemoria[] par = TransporteMemoria.crearPar();
+            servidor.atender(par[1]);
+            jugarGuion(par[0], "bot" + numero, false, true, random);
+        }
+    }
+
+    /**
+     * Una partida completa de un cliente. Cuenta como error todo lo que no
+     * termine con un ganador.
+     */
+    private void jugarGuion(Transporte transporte, String nombre, boolean anfitrion, boolean porServidor,
+            SplittableRandom random) {
+        try (CanalMensajes canal = new CanalMensajes(transporte)) {
+            boolean primero = anfitrion;
+            if (porServidor) {
+                canal.enviarLinea(nombre);
+                String aviso = canal.leerLinea();
+                String[] partes = aviso == null ? new String[0]
+                        : aviso.split("\\" + ProtocoloBattleship.SEPARADOR_CAMPOS, 3);
+                if (partes.length < 3 || !ProtocoloBattleship.EMPAREJADO.equals(partes[0])) {
+                    throw new IOException("Respuesta inesperada del servidor: " + aviso);
+                }
+                primero = ProtocoloBattleship.PRIMERO.equals(partes[1]);
+            } else if (anfitrion) {
+                canal.leerLinea();
+                canal.enviarLinea(nombre);
+            } else {
+                canal.enviarLinea(nombre);
+                canal.leerLinea();
+            }
+
+            // Configuración estándar: quien comienza no propone nada
+            canal.enviarLinea(ProtocoloBattleship.construirMensajeListo(binario));
+            String listo = canal.leerLinea();
+            if (listo == null || !canal.esComando(ProtocoloBattleship.LISTO)) {
+                throw new IOException("Se esperaba LISTO: " + listo);
+            }
+            canal.setBinario(binario
+                    && ProtocoloBattleship.anunciaCapacidad(listo, ProtocoloBattleship.CAPACIDAD_BINARIA));
+
+            if (jugarTurnos(canal, primero, random)) {
+                partidas.increment();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            errores.increment();
+        }
+    }
+
+    /**
+     * Alterna turnos hasta el fin del juego. Devuelve true si ganó; cada
+     * partida se cuenta una sola vez, del lado del ganador.
+     */
+    private boolean jugarTurnos(CanalMensajes canal, boolean miTurno, SplittableRandom random) throws IOException {
+        JuegoBattleship juego = new JuegoBattleship();
+        juego.colocarBarcosAutomaticamente(random);
+        canal.setNombresBarcos(juego.getNombresBarcos());
+        EstrategiaDisparo estrategia = new EstrategiaCazaHundir();
+        estrategia.reiniciar(juego, random);
+        int tamanio = juego.getTamanioTablero();
+
+        while (true) {
+            if (miTurno) {
+                int celda = estrategia.elegirDisparo();
+                int x = celda / tamanio;
+                int y = celda % tamanio;
+                long inicio = System.nanoTime();
+                canal.enviarDisparo(x, y);
+                ProtocoloBattleship.Mensaje resultado = canal.recibir();
+                latencia.registrar(System.nanoTime() - inicio);
+                turnos.increment();
+                if (resultado == null || resultado.x != x || resultado.y != y) {
+                    throw new IOException("Respuesta inválida al disparo (" + x + "," + y + "): " + resultado);
+                }
+                estrategia.registrarResultado(x, y, resultado.comando, resultado.tipoBarco);
+                if (ProtocoloBattleship.FALLO.equals(resultado.comando)) {
+                    juego.registrarFallo(x, y);
+                } else {
+                    juego.registrarImpacto(x, y);
+                }
+                miTurno = false;
+                continue;
+            }
+
+            ProtocoloBattleship.Mensaje mensaje = canal.recibir();
+            if (mensaje == null) {
+                throw new EOFException("El rival cerró la conexión");
+            }
+            if (ProtocoloBattleship.JUEGO_TERMINADO.equals(mensaje.comando)) {
+                return true;
+            }
+            if (!ProtocoloBattleship.DISPARAR.equals(mensaje.comando) || !juego.dentroDelTablero(mensaje.x, mensaje.y)) {
+                throw new IOException("Disparo inválido: " + mensaje);
+            }
+            int x = mensaje.x;
+            int y = mensaje.y;
+            if (!juego.recibirDisparo(x, y)) {
+                canal.enviarResultado(ProtocoloBattleship.FALLO, x, y, null);
+            } else {
+                int barco = juego.barcoEn(x, y);
+                if (!juego.estaBarcoHundido(barco)) {
+                    canal.enviarResultado(ProtocoloBattleship.IMPACTO, x, y, null);
+                } else {
+                    canal.enviarResultado(ProtocoloBattleship.HUNDIDO, x, y, juego.getNombreBarco(barco));
+                    if (juego.todosBarcosHundidos()) {
+                        canal.enviarComando(ProtocoloBattleship.JUEGO_TERMINADO);
+                        return false;
+                    }
+                }
+            }
+            miTurno = true;
+        }
+    }
+
+    private static String milisegundos(long nanos) {
+        return String.format("%.3f ms", nanos / 1e6);
+    }
+
+    /**
+     * Argumentos: clientes, partidas por cliente, pares|servidor. Con
+     * -Dbattleship.binario=true los clientes anuncian el protocolo binario.
+     */
+    public static void main(String[] args) throws Exception {
+        int clientes = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int partidasPorCliente = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        boolean porServidor = args.length > 2 && "servidor".equalsIgnoreCase(args[2]);
+        long semilla = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+
+        ServidorPartidas servidor = null;
+        if (porServidor) {
+            servidor = new ServidorPartidas(0);
+            servidor.setSilencioso(true);
+        }
+        GeneradorCarga generador = new GeneradorCarga(clientes, partidasPorCliente, servidor,
+                Boolean.getBoolean("battleship.binario"), semilla);
+        System.out.println("Carga: " + clientes + " clientes, " + partidasPorCliente + " partidas cada uno, "
+                + (porServidor ? "a través del servidor de partidas" : "de a pares") + ", en memoria...");
+
+        ScheduledExecutorService informe = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "informe-carga");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        long inicio = System.nanoTime();
+        long[] anteriores = { 0 };
+        informe.scheduleAtFixedRate(() -> {
+            long actuales = generador.getTurnos();
+            System.out.printf("%6.1f s: %d turnos/s, %d partidas, p99=%s%n", (System.nanoTime() - inicio) / 1e9,
+                    (actuales - anteriores[0]) * 1000 / INTERVALO_INFORME_MS, generador.getPartidas(),
+                    milisegundos(generador.getLatencia().percentil(99)));
+            anteriores[0] = actuales;
+        }, INTERVALO_INFORME_MS, INTERVALO_INFORME_MS, TimeUnit.MILLISECONDS);
+
+        try {
+            generador.ejecutar();
+        } finally {
+            informe.shutdownNow();
+            if (servidor != null) {
+                servidor.detener();
+            }
+        }
+
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        HistogramaConcurrente latencia = generador.getLatencia();
+        System.out.printf("Partidas: %d, errores: %d, turnos: %d en %.2f s (%.0f turnos/s)%n",
+                generador.getPartidas(), generador.getErrores(), generador.getTurnos(), segundos,
+                generador.getTurnos() / segundos);
+        System.out.println("Latencia por turno: media=" + milisegundos((long) latencia.getMedia())
+                + " p50=" + milisegundos(latencia.percentil(50)) + " p90=" + milisegundos(latencia.percentil(90))
+                + " p99=" + milisegundos(latencia.percentil(99)) + " p99.9=" + milisegundos(latencia.percentil(99.9))
+                + " max=" + milisegundos(latencia.getMaximo()));
+    }
+}
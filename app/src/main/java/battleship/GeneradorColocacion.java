@@ -0,0 +1,135 @@
+package battleship;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.random.RandomGenerator;
+
+/**
+ * Generador de colocaciones de barcos sin muestreo por rechazo. Para cada
+ * largo de barco precalcula la máscara de todas sus colocaciones posibles;
+ * elegir una consiste en contar las que no chocan con lo ya ocupado y tomar
+ * una al azar entre ellas, en un tiempo acotado por la cantidad de
+ * colocaciones. Las tablas son inmutables y se comparten entre hilos; el
+ * generador de números aleatorios lo pone quien llama.
+ */
+public final class GeneradorColocacion {
+    private static final Map<Integer, GeneradorColocacion> GENERADORES = new ConcurrentHashMap<>();
+
+    private final int tamanio;
+    private final Tabla[] tablas;
+
+    private GeneradorColocacion(int tamanio) {
+        if (tamanio * tamanio > Bitboard.MAX_CELDAS) {
+            throw new IllegalArgumentException("Tablero demasiado grande para máscaras: " + tamanio);
+        }
+        this.tamanio = tamanio;
+        this.tablas = new Tabla[tamanio + 1];
+    }
+
+    public static GeneradorColocacion para(int tamanio) {
+        return GENERADORES.computeIfAbsent(tamanio, GeneradorColocacion::new);
+    }
+
+    /**
+     * Elige al azar una colocación de un barco de {@code largo} celdas que no
+     * toque {@code ocupadas}. Devuelve su índice, o -1 si no cabe en ningún lado.
+     */
+    public int elegir(int largo, Bitboard ocupadas, RandomGenerator random) {
+        Tabla tabla = tabla(largo);
+
+        int libres = 0;
+        for (int p = 0; p < tabla.cantidad; p++) {
+            if (!ocupadas.intersecta(tabla.bajo[p], tabla.alto[p])) {
+                libres++;
+            }
+        }
+        if (libres == 0) {
+            return -1;
+        }
+
+        int elegida = random.nextInt(libres);
+        for (int p = 0; p < tabla.cantidad; p++) {
+            if (!ocupadas.intersecta(tabla.bajo[p], tabla.alto[p]) && elegida-- == 0) {
+                return p;
+            }
+        }
+        throw new IllegalStateException("Colocación no encontrada");
+    }
+
+    /**
+     * Agrega a {@code destino} las celdas de una colocación
+     */
+    public void aplicar(int largo, int colocacion, Bitboard destino) {
+        Tabla tabla = tabla(largo);
+        destino.unir(tabla.bajo[colocacion], tabla.alto[colocacion]);
+    }
+
+    /**
+     * Celda de origen (la de arriba a la izquierda) de una colocación
+     */
+    public int origen(int largo, int colocacion) {
+        int porFila = tamanio - largo + 1;
+        if (esHorizontal(largo, colocacion)) {
+            return (colocacion / porFila) * tamanio + colocacion % porFila;
+        }
+        // Las verticales se numeran en el mismo orden que sus celdas de origen
+        return colocacion - tamanio * porFila;
+    }
+
+    public boolean esHorizontal(int largo, int colocacion) {
+        return colocacion < tamanio * (tamanio - largo + 1);
+    }
+
+    public int getCantidadColocaciones(int largo) {
+        return tabla(largo).cantidad;
+    }
+
+    private Tabla tabla(int largo) {
+        if (largo < 1 || largo > tamanio) {
+            throw new IllegalArgumentException("Largo de barco inválido: " + largo);
+        }
+        Tabla tabla = tablas[largo];
+        if (tabla == null) {
+            // Carrera inocua: dos hilos pueden construir la misma tabla
+            tabla = new Tabla(tamanio, largo);
+            tablas[largo] = tabla;
+        }
+        return tabla;
+    }
+
+    private static final class Tabla {
+        final int cantidad;
+        final long[] bajo;
+        final long[] alto;
+
+        Tabla(int tamanio, int largo) {
+            cantidad = 2 * tamanio * (tamanio - largo + 1);
+            bajo = new long[cantidad];
+            alto = new long[cantidad];
+
+            int p = 0;
+            for (int fila = 0; fila < tamanio; fila++) {
+                for (int columna = 0; columna + largo <= tamanio; columna++, p++) {
+                    for (int k = 0; k < largo; k++) {
+                        marcar(p, fila * tamanio + columna + k);
+                    }
+                }
+            }
+            for (int fila = 0; fila + largo <= tamanio; fila++) {
+                for (int columna = 0; columna < tamanio; columna++, p++) {
+                    for (int k = 0; k < largo; k++) {
+                        marcar(p, (fila + k) * tamanio + columna);
+                    }
+                }
+            }
+        }
+
+        private void marcar(int p, int celda) {
+            if (celda < 64) {
+                bajo[p] |= 1L << celda;
+            } else {
+                alto[p] |= 1L << (celda - 64);
+            }
+        }
+    }
+}
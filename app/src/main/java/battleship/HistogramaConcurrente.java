@@ -0,0 +1,73 @@
+package battleship;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * Versión de {@link HistogramaLatencia} que admite registros desde varios
+ * hilos a la vez sin bloqueos ni reservas de memoria: mismas cubetas, pero
+ * con contadores atómicos. Las lecturas no detienen a quienes registran, así
+ * que un percentil leído mientras se registra puede no incluir los últimos
+ * valores.
+ */
+public class HistogramaConcurrente {
+    private static final int CUBETAS = HistogramaLatencia.indice(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray cuentas = new AtomicLongArray(CUBETAS);
+    private final LongAdder cantidad = new LongAdder();
+    private final LongAdder suma = new LongAdder();
+    private final AtomicLong maximo = new AtomicLong();
+
+    /**
+     * Registra una latencia en nanosegundos
+     */
+    public void registrar(long nanos) {
+        if (nanos < 0) nanos = 0;
+        cuentas.incrementAndGet(HistogramaLatencia.indice(nanos));
+        cantidad.increment();
+        suma.add(nanos);
+        long actual;
+        while (nanos > (actual = maximo.get()) && !maximo.compareAndSet(actual, nanos)) {
+            // Otro hilo cambió el máximo; se vuelve a comparar
+        }
+    }
+
+    public long getCantidad() {
+        return cantidad.sum();
+    }
+
+    public long getSuma() {
+        return suma.sum();
+    }
+
+    public long getMaximo() {
+        return maximo.get();
+    }
+
+    public double getMedia() {
+        long n = cantidad.sum();
+        return n == 0 ? 0 : (double) suma.sum() / n;
+    }
+
+    /**
+     * Devuelve el límite inferior de la cubeta que contiene el percentil pedido (0-100)
+     */
+    public long percentil(double percentil) {
+        long total = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            total += cuentas.get(i);
+        }
+        if (total == 0) return 0;
+        long objetivo = (long) Math.ceil(total * percentil / 100.0);
+        if (objetivo < 1) objetivo = 1;
+
+        long acumulado = 0;
+        long max = maximo.get();
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += cuentas.get(i);
+            if (acumulado >= objetivo) {
+                return Math.min(HistogramaLatencia.valorDe(i), max);
+            }
+        }
+        return max;
+    }
+}
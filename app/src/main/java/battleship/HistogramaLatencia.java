@@ -0,0 +1,91 @@
+package battleship;
+
+import java.util.*;
+
+/**
+ * Histograma de latencias con cubetas logarítmicas: cada potencia de dos se
+ * divide en 16 subcubetas lineales, lo que da un error relativo menor al 7%
+ * con una memoria fija y sin reservar objetos al registrar.
+ */
+public class HistogramaLatencia {
+    private static final int BITS_SUBCUBETA = 4;
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+    private static final int CUBETAS = (64 - BITS_SUBCUBETA) * SUBCUBETAS;
+
+    private final long[] cuentas = new long[CUBETAS];
+    private long cantidad;
+    private long suma;
+    private long maximo;
+
+    /**
+     * Registra una latencia en nanosegundos
+     */
+    public void registrar(long nanos) {
+        if (nanos < 0) nanos = 0;
+        cuentas[indice(nanos)]++;
+        cantidad++;
+        suma += nanos;
+        if (nanos > maximo) maximo = nanos;
+    }
+
+    public long getCantidad() {
+        return cantidad;
+    }
+
+    public long getMaximo() {
+        return maximo;
+    }
+
+    public double getMedia() {
+        return cantidad == 0 ? 0 : (double) suma / cantidad;
+    }
+
+    /**
+     * Devuelve el límite inferior de la cubeta que contiene el percentil pedido (0-100)
+     */
+    public long percentil(double percentil) {
+        if (cantidad == 0) return 0;
+        long objetivo = (long) Math.ceil(cantidad * percentil / 100.0);
+        if (objetivo < 1) objetivo = 1;
+
+        long acumulado = 0;
+        for (int i = 0; i < CUBETAS; i++) {
+            acumulado += cuentas[i];
+            if (acumulado >= objetivo) {
+                return Math.min(valorDe(i), maximo);
+            }
+        }
+        return maximo;
+    }
+
+    public void reiniciar() {
+        Arrays.fill(cuentas, 0);
+        cantidad = 0;
+        suma = 0;
+        maximo = 0;
+    }
+
+    /**
+     * Resumen legible con los valores en milisegundos
+     */
+    public String resumen() {
+        return String.format("n=%d, media=%.3f ms, p50=%.3f ms, p90=%.3f ms, p99=%.3f ms, max=%.3f ms",
+                cantidad, getMedia() / 1e6, percentil(50) / 1e6, percentil(90) / 1e6,
+                percentil(99) / 1e6, maximo / 1e6);
+    }
+
+    static int indice(long valor) {
+        if (valor < SUBCUBETAS) return (int) valor;
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        int desplazamiento = exponente - BITS_SUBCUBETA;
+        int sub = (int) (valor >>> desplazamiento) & (SUBCUBETAS - 1);
+        return (desplazamiento + 1) * SUBCUBETAS + sub;
+    }
+
+    static long valorDe(int indice) {
+        if (indice < SUBCUBETAS) return indice;
+        int desplazamiento = indice / SUBCUBETAS - 1;
+        int sub = indice % SUBCUBETAS;
+        return (long) (SUBCUBETAS + sub) << desplazamiento;
+    }
+}
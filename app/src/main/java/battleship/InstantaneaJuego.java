@@ -0,0 +1,326 @@
+package battleship;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Instantánea binaria y versionada del estado de un {@link JuegoBattleship}:
+ * configuración, colocación de la flota y las tres capas de disparos. Cada
+ * capa se guarda como mapa de bits o como lista ordenada de diferencias en
+ * varint, lo que ocupe menos, así que una partida estándar entra en unos 60
+ * bytes y un tablero grande casi vacío no paga por su área. Los impactos por
+ * barco y los barcos restantes no se guardan: se recalculan al aplicar los
+ * disparos recibidos sobre la flota.
+ * <p>
+ * Formato: {@code [magia "BSI"][versión][marcas][configuración][barcos][capas][CRC32C]}.
+ * Una versión nueva solo agrega campos, y {@link #decodificar} sigue leyendo
+ * las anteriores.
+ */
+public final class InstantaneaJuego {
+    public static final int VERSION = 1;
+
+    private static final byte[] MAGIA = { 'B', 'S', 'I' };
+    private static final int LARGO_CRC = 4;
+
+    private static final int MARCA_ESTANDAR = 1;
+    private static final int MARCA_FLOTA_COLOCADA = 2;
+
+    private static final int CAPA_BITS = 0;
+    private static final int CAPA_LISTA = 1;
+
+    private InstantaneaJuego() {
+    }
+
+    /**
+     * Codifica el estado completo de la partida
+     */
+    public static byte[] codificar(JuegoBattleship juego) {
+        ConfiguracionPartida configuracion = juego.getConfiguracion();
+        int tamanio = juego.getTamanioTablero();
+        boolean estandar = configuracion.esEstandar();
+        boolean colocada = flotaColocada(juego);
+
+        Escritor salida = new Escritor(64 + 5 * juego.getCantidadBarcos());
+        salida.agregarBytes(MAGIA, MAGIA.length);
+        salida.agregarByte(VERSION);
+        salida.agregarByte((estandar ? MARCA_ESTANDAR : 0) | (colocada ? MARCA_FLOTA_COLOCADA : 0));
+        if (!estandar) {
+            byte[] flota = configuracion.describirFlota().getBytes(StandardCharsets.UTF_8);
+            salida.agregarVarint(tamanio);
+            salida.agregarVarint(flota.length);
+            salida.agregarBytes(flota, flota.length);
+        }
+        if (colocada) {
+            for (int barco = 0; barco < juego.getCantidadBarcos(); barco++) {
+                int origen = juego.getFilaBarco(barco) * tamanio + juego.getColumnaBarco(barco);
+                salida.agregarVarint(origen << 1 | (juego.esBarcoHorizontal(barco) ? 1 : 0));
+            }
+        }
+
+        int celdas = tamanio * tamanio;
+        Recolector recolector = new Recolector();
+        juego.recorrerDisparosRecibidos(recolector);
+        escribirCapa(salida, celdas, recolector);
+        juego.recorrerImpactosEnemigo(recolector.reiniciar());
+        escribirCapa(salida, celdas, recolector);
+        juego.recorrerFallosEnemigo(recolector.reiniciar());
+        escribirCapa(salida, celdas, recolector);
+
+        CRC32C crc = new CRC32C();
+        crc.update(salida.datos, 0, salida.pos);
+        salida.agregarEntero((int) crc.getValue());
+        return Arrays.copyOf(salida.datos, salida.pos);
+    }
+
+    public static JuegoBattleship decodificar(byte[] datos) {
+        return decodificar(datos, 0, datos.length);
+    }
+
+    /**
+     * Reconstruye una partida desde {@code longitud} bytes de {@code datos}.
+     * Lanza {@link IllegalArgumentException} si la instantánea está dañada,
+     * incompleta o es de una versión posterior.
+     */
+    public static JuegoBattleship decodificar(byte[] datos, int desde, int longitud) {
+        if (longitud < MAGIA.length + 2 + LARGO_CRC
+                || !Arrays.equals(datos, desde, desde + MAGIA.length, MAGIA, 0, MAGIA.length)) {
+            throw new IllegalArgumentException("No es una instantánea de partida");
+        }
+        int fin = desde + longitud - LARGO_CRC;
+        CRC32C crc = new CRC32C();
+        crc.update(datos, desde, fin - desde);
+        if ((int) crc.getValue() != leerEntero(datos, fin)) {
+            throw new IllegalArgumentException("Instantánea dañada: el CRC no coincide");
+        }
+
+        int version = datos[desde + MAGIA.length] & 0xFF;
+        if (version < 1 || version > VERSION) {
+            throw new IllegalArgumentException("Versión de instantánea no soportada: " + version);
+        }
+        try {
+            return leer(new Lector(datos, desde + MAGIA.length + 1, fin));
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Instantánea incompleta", e);
+        }
+    }
+
+    private static JuegoBattleship leer(Lector entrada) {
+        int marcas = entrada.leerByte();
+        ConfiguracionPartida configuracion = ConfiguracionPartida.ESTANDAR;
+        if ((marcas & MARCA_ESTANDAR) == 0) {
+            int tamanio = entrada.leerVarint();
+            int largoFlota = entrada.leerVarint();
+            String flota = new String(entrada.datos, entrada.avanzar(largoFlota), largoFlota, StandardCharsets.UTF_8);
+            configuracion = ConfiguracionPartida.parsear(String.valueOf(tamanio), flota);
+        }
+        JuegoBattleship juego = new JuegoBattleship(configuracion);
+        int tamanio = juego.getTamanioTablero();
+        int celdas = tamanio * tamanio;
+
+        if ((marcas & MARCA_FLOTA_COLOCADA) != 0) {
+            for (int barco = 0; barco < juego.getCantidadBarcos(); barco++) {
+                int valor = entrada.leerVarint();
+                int origen = valor >>> 1;
+                if (origen >= celdas) {
+                    throw new IllegalArgumentException("Barco fuera del tablero: " + juego.getNombreBarco(barco));
+                }
+                juego.colocarBarco(barco, origen / tamanio, origen % tamanio, (valor & 1) != 0);
+            }
+        }
+
+        // Los disparos recibidos descuentan segmentos de la flota ya colocada
+        leerCapa(entrada, celdas, celda -> juego.recibirDisparo(celda / tamanio, celda % tamanio));
+        leerCapa(entrada, celdas, celda -> juego.registrarImpacto(celda / tamanio, celda % tamanio));
+        leerCapa(entrada, celdas, celda -> juego.registrarFallo(celda / tamanio, celda % tamanio));
+        if (entrada.pos != entrada.fin) {
+            throw new IllegalArgumentException("Instantánea con datos sobrantes");
+        }
+        return juego;
+    }
+
+    /**
+     * La flota está colocada si cada barco ocupa su celda de origen; tras
+     * {@link JuegoBattleship#reiniciar} ninguno la ocupa
+     */
+    private static boolean flotaColocada(JuegoBattleship juego) {
+        for (int barco = 0; barco < juego.getCantidadBarcos(); barco++) {
+            if (juego.barcoEn(juego.getFilaBarco(barco), juego.getColumnaBarco(barco)) != barco) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void escribirCapa(Escritor salida, int celdas, Recolector capa) {
+        int[] lista = capa.celdas;
+        int cantidad = capa.cantidad;
+        Arrays.sort(lista, 0, cantidad);
+
+        int largoLista = largoVarint(cantidad);
+        for (int i = 0, anterior = -1; i < cantidad; anterior = lista[i++]) {
+            largoLista += largoVarint(lista[i] - anterior - 1);
+        }
+        int largoBits = (celdas + 7) >>> 3;
+
+        if (largoBits < largoLista) {
+            salida.agregarByte(CAPA_BITS);
+            int inicio = salida.reservar(largoBits);
+            for (int i = 0; i < cantidad; i++) {
+                salida.datos[inicio + (lista[i] >>> 3)] |= (byte) (1 << (lista[i] & 7));
+            }
+        } else {
+            salida.agregarByte(CAPA_LISTA);
+            salida.agregarVarint(cantidad);
+            // Diferencias menos uno: las celdas vecinas ocupan un solo byte
+            for (int i = 0, anterior = -1; i < cantidad; anterior = lista[i++]) {
+                salida.agregarVarint(lista[i] - anterior - 1);
+            }
+        }
+    }
+
+    private static void leerCapa(Lector entrada, int celdas, IntConsumer accion) {
+        int formato = entrada.leerByte();
+        if (formato == CAPA_BITS) {
+            int largo = (celdas + 7) >>> 3;
+            int inicio = entrada.avanzar(largo);
+            for (int i = 0; i < largo; i++) {
+                for (int bits = entrada.datos[inicio + i] & 0xFF; bits != 0; bits &= bits - 1) {
+                    int celda = (i << 3) + Integer.numberOfTrailingZeros(bits);
+                    if (celda >= celdas) {
+                        throw new IllegalArgumentException("Celda fuera del tablero: " + celda);
+                    }
+                    accion.accept(celda);
+                }
+            }
+        } else if (formato == CAPA_LISTA) {
+            int cantidad = entrada.leerVarint();
+            long celda = -1;
+            for (int i = 0; i < cantidad; i++) {
+                celda += (entrada.leerVarint() & 0xFFFFFFFFL) + 1;
+                if (celda >= celdas) {
+                    throw new IllegalArgumentException("Celda fuera del tablero: " + celda);
+                }
+                accion.accept((int) celda);
+            }
+        } else {
+            throw new IllegalArgumentException("Formato de capa desconocido: " + formato);
+        }
+    }
+
+    private static int largoVarint(int valor) {
+        return (38 - Integer.numberOfLeadingZeros(valor | 1)) / 7;
+    }
+
+    private static int leerEntero(byte[] datos, int pos) {
+        return (datos[pos] & 0xFF) << 24 | (datos[pos + 1] & 0xFF) << 16
+                | (datos[pos + 2] & 0xFF) << 8 | (datos[pos + 3] & 0xFF);
+    }
+
+    /**
+     * Junta las celdas de una capa, reutilizando el arreglo entre capas
+     */
+    private static final class Recolector implements IntConsumer {
+        int[] celdas = new int[32];
+        int cantidad;
+
+        @Override
+        public void accept(int celda) {
+            if (cantidad == celdas.length) {
+                celdas = Arrays.copyOf(celdas, cantidad * 2);
+            }
+            celdas[cantidad++] = celda;
+        }
+
+        Recolector reiniciar() {
+            cantidad = 0;
+            return this;
+        }
+    }
+
+    private static final class Escritor {
+        byte[] datos;
+        int pos;
+
+        Escritor(int capacidad) {
+            datos = new byte[capacidad];
+        }
+
+        private void asegurar(int largo) {
+            if (pos + largo > datos.length) {
+                datos = Arrays.copyOf(datos, Math.max(datos.length * 2, pos + largo));
+            }
+        }
+
+        /**
+         * Reserva {@code largo} bytes y devuelve dónde empiezan
+         */
+        int reservar(int largo) {
+            asegurar(largo);
+            int inicio = pos;
+            pos += largo;
+            return inicio;
+        }
+
+        void agregarByte(int valor) {
+            int inicio = reservar(1);
+            datos[inicio] = (byte) valor;
+        }
+
+        void agregarBytes(byte[] origen, int largo) {
+            int inicio = reservar(largo);
+            System.arraycopy(origen, 0, datos, inicio, largo);
+        }
+
+        void agregarVarint(int valor) {
+            asegurar(5);
+            pos = ProtocoloBattleship.escribirVarint(datos, pos, valor);
+        }
+
+        void agregarEntero(int valor) {
+            int inicio = reservar(4);
+            datos[inicio] = (byte) (valor >>> 24);
+            datos[inicio + 1] = (byte) (valor >>> 16);
+            datos[inicio + 2] = (byte) (valor >>> 8);
+            datos[inicio + 3] = (byte) valor;
+        }
+    }
+
+    private static final class Lector {
+        final byte[] datos;
+        final int fin;
+        int pos;
+
+        Lector(byte[] datos, int pos, int fin) {
+            this.datos = datos;
+            this.pos = pos;
+            this.fin = fin;
+        }
+
+        /**
+         * Avanza {@code largo} bytes y devuelve dónde empezaban
+         */
+        int avanzar(int largo) {
+            if (largo < 0 || pos + largo > fin) {
+                throw new IllegalArgumentException("Instantánea incompleta");
+            }
+            int inicio = pos;
+            pos += largo;
+            return inicio;
+        }
+
+        int leerByte() {
+            return datos[avanzar(1)] & 0xFF;
+        }
+
+        int leerVarint() {
+            long lectura = ProtocoloBattleship.leerVarint(datos, pos);
+            pos = (int) (lectura >>> 32);
+            if (pos > fin) {
+                throw new IllegalArgumentException("Instantánea incompleta");
+            }
+            return (int) lectura;
+        }
+    }
+}
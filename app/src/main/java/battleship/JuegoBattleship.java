@@ -2,210 +2,462 @@ package battleship;
 
 // JuegoBattleship.java
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntConsumer;
+import java.util.random.RandomGenerator;
 
 public class JuegoBattleship {
-    private static final int TAMANIO_TABLERO = 10;
-    private char[][] tableroPropio;
-    private char[][] tableroEnemigo;
-    private Map<String, Integer> barcos;
-    private Map<String, Integer> impactosPorBarco;
-    private Set<String> posicionesDisparadas;
-    
+    private static final int MAX_INTENTOS_COLOCACION = 1000;
+    // Tableros grandes: cada intento puede recorrer el tablero varias veces
+    private static final int MAX_INTENTOS_MUESTREO = 2;
+    private static final int MAX_INTENTOS_POR_BARCO = 64;
+    private static final int MAX_RECORRIDOS_POR_INTENTO = 8;
+
+    private final ConfiguracionPartida configuracion;
+    private final int tamanio;
+
+    // Cada capa del tablero es un conjunto de celdas
+    private final ConjuntoCeldas celdasConBarco;
+    private final ConjuntoCeldas disparosRecibidos;
+    private final ConjuntoCeldas impactosEnemigo;
+    private final ConjuntoCeldas fallosEnemigo;
+
+    // Índice de colocación: barco que ocupa cada celda, y cuántas celdas
+    // sin tocar le quedan a cada barco y a la flota
+    private final MapaCeldas barcoPorCelda;
+    private final int[] segmentosRestantes;
+    private int barcosRestantes;
+
+    // Colocación de cada barco: celda de origen y orientación
+    private final int[] origenBarcos;
+    private final boolean[] horizontalBarcos;
+
+    private RenderizadorTablero renderizador;
+
     public JuegoBattleship() {
-        tableroPropio = new char[TAMANIO_TABLERO][TAMANIO_TABLERO];
-        tableroEnemigo = new char[TAMANIO_TABLERO][TAMANIO_TABLERO];
-        inicializarTableros();
-        
-        barcos = new HashMap<>();
-        barcos.put("PORTAAVIONES", 5);
-        barcos.put("ACORAZADO", 4);
-        barcos.put("CRUCERO", 3);
-        barcos.put("SUBMARINO", 3);
-        barcos.put("DESTRUCTOR", 2);
-        
-        impactosPorBarco = new HashMap<>();
-        for (String barco : barcos.keySet()) {
-            impactosPorBarco.put(barco, 0);
-        }
-        
-        posicionesDisparadas = new HashSet<>();
-    }
-    
-    private void inicializarTableros() {
-        for (int i = 0; i < TAMANIO_TABLERO; i++) {
-            for (int j = 0; j < TAMANIO_TABLERO; j++) {
-                tableroPropio[i][j] = '~'; // Agua
-                tableroEnemigo[i][j] = '?'; // Desconocido
-            }
+        this(ConfiguracionPartida.ESTANDAR);
+    }
+
+    public JuegoBattleship(ConfiguracionPartida configuracion) {
+        this.configuracion = configuracion;
+        this.tamanio = configuracion.getTamanioTablero();
+
+        int celdas = tamanio * tamanio;
+        celdasConBarco = ConjuntoCeldas.para(celdas);
+        disparosRecibidos = ConjuntoCeldas.para(celdas);
+        impactosEnemigo = ConjuntoCeldas.para(celdas);
+        fallosEnemigo = ConjuntoCeldas.para(celdas);
+
+        barcoPorCelda = new MapaCeldas(configuracion.getCeldasConBarco());
+        segmentosRestantes = new int[configuracion.getCantidadBarcos()];
+        origenBarcos = new int[configuracion.getCantidadBarcos()];
+        horizontalBarcos = new boolean[configuracion.getCantidadBarcos()];
+    }
+
+    private int celda(int fila, int columna) {
+        return fila * tamanio + columna;
+    }
+
+    /**
+     * Celda de unas coordenadas recibidas desde fuera; fuera del tablero
+     * se confundirían con otra celda o con el desplazamiento de la capa
+     */
+    private int celdaValida(int fila, int columna) {
+        if (!dentroDelTablero(fila, columna)) {
+            throw new IllegalArgumentException("Celda fuera del tablero: (" + fila + "," + columna + ")");
         }
+        return celda(fila, columna);
+    }
+
+    /**
+     * Vacía ambos tableros para reutilizar el objeto en otra partida
+     */
+    public void reiniciar() {
+        celdasConBarco.limpiar();
+        barcoPorCelda.limpiar();
+        Arrays.fill(segmentosRestantes, 0);
+        barcosRestantes = 0;
+        disparosRecibidos.limpiar();
+        impactosEnemigo.limpiar();
+        fallosEnemigo.limpiar();
     }
-    
+
+    public ConfiguracionPartida getConfiguracion() {
+        return configuracion;
+    }
+
+    public int getTamanioTablero() {
+        return tamanio;
+    }
+
+    public boolean dentroDelTablero(int fila, int columna) {
+        return fila >= 0 && fila < tamanio && columna >= 0 && columna < tamanio;
+    }
+
+    public int getCantidadBarcos() {
+        return configuracion.getCantidadBarcos();
+    }
+
+    public String getNombreBarco(int barco) {
+        return configuracion.getNombreBarco(barco);
+    }
+
+    public String[] getNombresBarcos() {
+        return configuracion.getNombresBarcos();
+    }
+
+    public int getTamanioBarco(int barco) {
+        return configuracion.getTamanioBarco(barco);
+    }
+
     public void colocarBarcosAutomaticamente() {
-        Random random = new Random();
-        
-        for (Map.Entry<String, Integer> entrada : barcos.entrySet()) {
-            String nombreBarco = entrada.getKey();
-            int tamanio = entrada.getValue();
-            boolean colocado = false;
-            
-            while (!colocado) {
-                boolean horizontal = random.nextBoolean();
-                int fila = random.nextInt(TAMANIO_TABLERO);
-                int columna = random.nextInt(TAMANIO_TABLERO);
-                
-                if (puedeColocarBarco(fila, columna, tamanio, horizontal)) {
-                    colocarBarco(fila, columna, tamanio, horizontal, nombreBarco.charAt(0));
-                    colocado = true;
-                }
+        colocarBarcosAutomaticamente(ThreadLocalRandom.current());
+    }
+
+    /**
+     * Coloca la flota en orden, eligiendo cada barco al azar entre las
+     * colocaciones libres. Si un barco no cabe se vuelve a empezar, lo que con
+     * la flota estándar no ocurre en la práctica; una flota tan justa que
+     * no se logra así queda en la colocación en filas de su configuración.
+     */
+    public void colocarBarcosAutomaticamente(RandomGenerator random) {
+        boolean mascaras = celdasConBarco instanceof Bitboard;
+        int intentos = mascaras ? MAX_INTENTOS_COLOCACION : MAX_INTENTOS_MUESTREO;
+        for (int intento = 0; intento < intentos; intento++) {
+            vaciarFlota();
+            boolean completa = mascaras
+                    ? colocarConMascaras((Bitboard) celdasConBarco, random)
+                    : colocarPorMuestreo(random);
+            if (completa) {
+                return;
             }
         }
+        vaciarFlota();
+        colocarEnFilas(random);
     }
-    
-    private boolean puedeColocarBarco(int fila, int columna, int tamanio, boolean horizontal) {
-        if (horizontal) {
-            if (columna + tamanio > TAMANIO_TABLERO) return false;
-            for (int i = columna; i < columna + tamanio; i++) {
-                if (tableroPropio[fila][i] != '~') return false;
+
+    private void vaciarFlota() {
+        celdasConBarco.limpiar();
+        barcoPorCelda.limpiar();
+        barcosRestantes = 0;
+    }
+
+    /**
+     * Tableros chicos: elige entre todas las colocaciones libres
+     */
+    private boolean colocarConMascaras(Bitboard ocupadas, RandomGenerator random) {
+        GeneradorColocacion generador = GeneradorColocacion.para(tamanio);
+        for (int barco = 0; barco < segmentosRestantes.length; barco++) {
+            int largo = getTamanioBarco(barco);
+            int colocacion = generador.elegir(largo, ocupadas, random);
+            if (colocacion < 0) {
+                return false;
             }
-        } else {
-            if (fila + tamanio > TAMANIO_TABLERO) return false;
-            for (int i = fila; i < fila + tamanio; i++) {
-                if (tableroPropio[i][columna] != '~') return false;
+            ubicarBarco(barco, generador.origen(largo, colocacion),
+                    generador.esHorizontal(largo, colocacion) ? 1 : tamanio);
+        }
+        return true;
+    }
+
+    /**
+     * Tableros grandes: prueba posiciones al azar, que casi nunca chocan
+     * porque la flota suele ocupar una fracción pequeña del tablero. Si un
+     * barco no encuentra lugar así, elige entre todas sus colocaciones libres.
+     */
+    private boolean colocarPorMuestreo(RandomGenerator random) {
+        int recorridos = 0;
+        for (int barco = 0; barco < segmentosRestantes.length; barco++) {
+            int largo = getTamanioBarco(barco);
+            boolean ubicado = false;
+            for (int intento = 0; intento < MAX_INTENTOS_POR_BARCO && !ubicado; intento++) {
+                boolean horizontal = random.nextBoolean();
+                int fila = random.nextInt(horizontal ? tamanio : tamanio - largo + 1);
+                int columna = random.nextInt(horizontal ? tamanio - largo + 1 : tamanio);
+                int origen = celda(fila, columna);
+                int paso = horizontal ? 1 : tamanio;
+                if (tramoLibre(origen, paso, largo)) {
+                    ubicarBarco(barco, origen, paso);
+                    ubicado = true;
+                }
+            }
+            if (!ubicado) {
+                if (++recorridos > MAX_RECORRIDOS_POR_INTENTO) {
+                    return false;
+                }
+                long libres = recorrerLibres(largo, -1);
+                if (libres == 0) {
+                    return false;
+                }
+                long elegida = recorrerLibres(largo, random.nextLong(libres));
+                ubicarBarco(barco, (int) (elegida >>> 1), (elegida & 1) != 0 ? 1 : tamanio);
             }
         }
         return true;
     }
-    
-    private void colocarBarco(int fila, int columna, int tamanio, boolean horizontal, char simbolo) {
-        if (horizontal) {
-            for (int i = columna; i < columna + tamanio; i++) {
-                tableroPropio[fila][i] = simbolo;
+
+    /**
+     * Recorre las colocaciones libres de un barco, fila por fila y después
+     * columna por columna. Con {@code buscada} negativa devuelve cuántas hay;
+     * si no, la de ese índice como {@code origen << 1 | horizontal}.
+     */
+    private long recorrerLibres(int largo, long buscada) {
+        long cuenta = 0;
+        for (int horizontal = 1; horizontal >= 0; horizontal--) {
+            for (int linea = 0; linea < tamanio; linea++) {
+                int seguidas = 0;
+                for (int pos = 0; pos < tamanio; pos++) {
+                    int c = horizontal == 1 ? celda(linea, pos) : celda(pos, linea);
+                    seguidas = celdasConBarco.contiene(c) ? 0 : seguidas + 1;
+                    if (seguidas < largo) {
+                        continue;
+                    }
+                    if (cuenta++ == buscada) {
+                        int inicio = pos - largo + 1;
+                        int origen = horizontal == 1 ? celda(linea, inicio) : celda(inicio, linea);
+                        return (long) origen << 1 | horizontal;
+                    }
+                }
             }
-        } else {
-            for (int i = fila; i < fila + tamanio; i++) {
-                tableroPropio[i][columna] = simbolo;
+        }
+        return cuenta;
+    }
+
+    /**
+     * Coloca la flota como la acomoda {@link ConfiguracionPartida#colocacionEnFilas},
+     * con las filas en orden al azar y cada una reflejada o no al azar
+     */
+    private void colocarEnFilas(RandomGenerator random) {
+        int[] origenes = configuracion.colocacionEnFilas();
+        int[] filas = new int[tamanio];
+        for (int i = 0; i < tamanio; i++) {
+            int j = random.nextInt(i + 1);
+            filas[i] = filas[j];
+            filas[j] = i;
+        }
+        boolean[] reflejada = new boolean[tamanio];
+        for (int i = 0; i < tamanio; i++) {
+            reflejada[i] = random.nextBoolean();
+        }
+        for (int barco = 0; barco < origenes.length; barco++) {
+            int fila = origenes[barco] / tamanio;
+            int columna = origenes[barco] % tamanio;
+            if (reflejada[fila]) {
+                columna = tamanio - columna - getTamanioBarco(barco);
+            }
+            ubicarBarco(barco, celda(filas[fila], columna), 1);
+        }
+    }
+
+    private boolean tramoLibre(int origen, int paso, int largo) {
+        for (int k = 0, c = origen; k < largo; k++, c += paso) {
+            if (celdasConBarco.contiene(c)) {
+                return false;
             }
         }
+        return true;
+    }
+
+    /**
+     * Coloca un barco en una posición dada, por ejemplo al recuperar una
+     * partida guardada. Los barcos se colocan sobre un tablero reiniciado.
+     */
+    public void colocarBarco(int barco, int fila, int columna, boolean horizontal) {
+        int largo = getTamanioBarco(barco);
+        int filaFinal = horizontal ? fila : fila + largo - 1;
+        int columnaFinal = horizontal ? columna + largo - 1 : columna;
+        if (!dentroDelTablero(fila, columna) || !dentroDelTablero(filaFinal, columnaFinal)) {
+            throw new IllegalArgumentException("Barco fuera del tablero: " + getNombreBarco(barco));
+        }
+        int origen = celda(fila, columna);
+        int paso = horizontal ? 1 : tamanio;
+        if (!tramoLibre(origen, paso, largo)) {
+            throw new IllegalArgumentException("Barco superpuesto: " + getNombreBarco(barco));
+        }
+        ubicarBarco(barco, origen, paso);
     }
-    
+
+    public int getFilaBarco(int barco) {
+        return origenBarcos[barco] / tamanio;
+    }
+
+    public int getColumnaBarco(int barco) {
+        return origenBarcos[barco] % tamanio;
+    }
+
+    public boolean esBarcoHorizontal(int barco) {
+        return horizontalBarcos[barco];
+    }
+
+    private void ubicarBarco(int barco, int origen, int paso) {
+        origenBarcos[barco] = origen;
+        horizontalBarcos[barco] = paso == 1;
+        int largo = getTamanioBarco(barco);
+        for (int k = 0, c = origen; k < largo; k++, c += paso) {
+            celdasConBarco.agregar(c);
+            barcoPorCelda.poner(c, barco);
+        }
+        segmentosRestantes[barco] = largo;
+        barcosRestantes++;
+    }
+
     public boolean recibirDisparo(int fila, int columna) {
+        int c = celdaValida(fila, columna);
+
         // Verificar si ya fue disparado aquí
-        if (tableroPropio[fila][columna] == 'X' || tableroPropio[fila][columna] == 'O') {
-            return false; // Ya fue disparado aquí
-        }
-        
-        if (tableroPropio[fila][columna] != '~') {
-            // ¡Impacto! - encontrar qué barco fue golpeado
-            char caracterBarco = tableroPropio[fila][columna];
-            String tipoBarco = obtenerTipoBarcoDesdeCaracter(caracterBarco);
-            
-            // VERIFICACIÓN DE SEGURIDAD AÑADIDA
-            if (impactosPorBarco.containsKey(tipoBarco)) {
-                impactosPorBarco.put(tipoBarco, impactosPorBarco.get(tipoBarco) + 1);
-            } else {
-                // Si el barco no está en el mapa, lo agregamos
-                System.out.println("Advertencia: Barco no registrado '" + tipoBarco + "' encontrado. Registrando...");
-                impactosPorBarco.put(tipoBarco, 1);
-            }
-            
-            tableroPropio[fila][columna] = 'X'; // Barco impactado
-            return true;
-        } else {
-            tableroPropio[fila][columna] = 'O'; // Agua impactada
+        if (disparosRecibidos.contiene(c)) {
+            return false;
+        }
+
+        disparosRecibidos.agregar(c);
+        int barco = barcoPorCelda.obtener(c);
+        if (barco == MapaCeldas.AUSENTE) {
             return false;
         }
+        if (--segmentosRestantes[barco] == 0) {
+            barcosRestantes--;
+        }
+        return true;
     }
-    
+
     public void registrarImpacto(int fila, int columna) {
-        tableroEnemigo[fila][columna] = 'X';
-        posicionesDisparadas.add(fila + "," + columna);
+        int c = celdaValida(fila, columna);
+        impactosEnemigo.agregar(c);
+        fallosEnemigo.quitar(c);
     }
-    
+
     public void registrarFallo(int fila, int columna) {
-        tableroEnemigo[fila][columna] = 'O';
-        posicionesDisparadas.add(fila + "," + columna);
+        int c = celdaValida(fila, columna);
+        fallosEnemigo.agregar(c);
+        impactosEnemigo.quitar(c);
     }
-    
+
     public boolean yaDisparado(int fila, int columna) {
-        return posicionesDisparadas.contains(fila + "," + columna);
+        int c = celdaValida(fila, columna);
+        return impactosEnemigo.contiene(c) || fallosEnemigo.contiene(c);
     }
-    
+
+    /**
+     * Nombre del barco que ocupa la celda, haya sido impactada o no
+     */
     public String obtenerTipoBarcoEn(int fila, int columna) {
-        char c = tableroPropio[fila][columna];
-        // Si es un impacto previo, buscar en la posición original
-        if (c == 'X') {
-            // En un juego real necesitarías guardar el tipo de barco original
-            // Por ahora retornamos "DESCONOCIDO"
-            return "DESCONOCIDO";
-        }
-        return obtenerTipoBarcoDesdeCaracter(c);
-    }
-    
-    private String obtenerTipoBarcoDesdeCaracter(char c) {
-        switch (c) {
-            case 'P': return "PORTAAVIONES";
-            case 'A': return "ACORAZADO";
-            case 'C': return "CRUCERO";
-            case 'S': return "SUBMARINO";
-            case 'D': return "DESTRUCTOR";
-            default: return "DESCONOCIDO";
-        }
-    }
-    
-    public boolean estaBarcoHundido(String tipoBarco) {
-        // VERIFICACIÓN DE SEGURIDAD AÑADIDA
-        if (!impactosPorBarco.containsKey(tipoBarco) || !barcos.containsKey(tipoBarco)) {
-            return false;
+        int barco = barcoEn(fila, columna);
+        return barco >= 0 ? getNombreBarco(barco) : "DESCONOCIDO";
+    }
+
+    /**
+     * Índice del barco que ocupa la celda, o -1 si hay agua
+     */
+    public int barcoEn(int fila, int columna) {
+        return barcoEn(celdaValida(fila, columna));
+    }
+
+    private int barcoEn(int celda) {
+        return barcoPorCelda.obtener(celda);
+    }
+
+    /**
+     * Índice en la flota del barco con ese nombre, o -1
+     */
+    public int indiceBarco(String tipoBarco) {
+        for (int i = 0; i < getCantidadBarcos(); i++) {
+            if (getNombreBarco(i).equals(tipoBarco)) {
+                return i;
+            }
         }
-        
-        int impactos = impactosPorBarco.get(tipoBarco);
-        int tamanio = barcos.get(tipoBarco);
-        return impactos >= tamanio;
+        return -1;
+    }
+
+    public boolean estaBarcoHundido(String tipoBarco) {
+        int barco = indiceBarco(tipoBarco);
+        return barco >= 0 && estaBarcoHundido(barco);
+    }
+
+    public boolean estaBarcoHundido(int barco) {
+        return segmentosRestantes[barco] == 0;
     }
-    
+
     public boolean todosBarcosHundidos() {
-        for (String barco : barcos.keySet()) {
-            if (!estaBarcoHundido(barco)) {
-                return false;
-            }
+        return barcosRestantes == 0;
+    }
+
+    public int impactosEnBarco(int barco) {
+        return getTamanioBarco(barco) - segmentosRestantes[barco];
+    }
+
+    /**
+     * Disparos de este jugador que ya tienen respuesta
+     */
+    public int getDisparosRealizados() {
+        return impactosEnemigo.cantidad() + fallosEnemigo.cantidad();
+    }
+
+    public int getDisparosRecibidos() {
+        return disparosRecibidos.cantidad();
+    }
+
+    /**
+     * Celdas propias que recibieron un disparo
+     */
+    public void recorrerDisparosRecibidos(IntConsumer accion) {
+        disparosRecibidos.recorrer(accion);
+    }
+
+    public void recorrerImpactosEnemigo(IntConsumer accion) {
+        impactosEnemigo.recorrer(accion);
+    }
+
+    public void recorrerFallosEnemigo(IntConsumer accion) {
+        fallosEnemigo.recorrer(accion);
+    }
+
+    /**
+     * Estado completo de la partida en el formato compacto de
+     * {@link InstantaneaJuego}, para guardarla o moverla a otro proceso
+     */
+    public byte[] exportarEstado() {
+        return InstantaneaJuego.codificar(this);
+    }
+
+    /**
+     * Partida reconstruida desde {@link #exportarEstado}
+     */
+    public static JuegoBattleship importarEstado(byte[] estado) {
+        return InstantaneaJuego.decodificar(estado);
+    }
+
+    public void setRenderizador(RenderizadorTablero renderizador) {
+        this.renderizador = renderizador;
+    }
+
+    private RenderizadorTablero renderizador() {
+        // Se crea al primer uso: las partidas simuladas nunca dibujan
+        if (renderizador == null) {
+            renderizador = RenderizadorTablero.desdeConfiguracion();
         }
-        return true;
+        return renderizador;
     }
-    
+
     public void mostrarTableroPropio() {
-        System.out.println("\n=== TU TABLERO ===");
-        mostrarTablero(tableroPropio);
-        
-        // Mostrar estado de barcos
-        System.out.println("\nEstado de tus barcos:");
-        for (String barco : barcos.keySet()) {
-            int impactos = impactosPorBarco.getOrDefault(barco, 0);
-            int tamanio = barcos.get(barco);
-            String estado = (impactos >= tamanio) ? "HUNDIDO" : impactos + "/" + tamanio;
-            System.out.println("  " + barco + ": " + estado);
-        }
-    }
-    
+        renderizador().mostrarTableroPropio(this);
+    }
+
     public void mostrarTableroEnemigo() {
-        System.out.println("\n=== TABLERO ENEMIGO ===");
-        mostrarTablero(tableroEnemigo);
-    }
-    
-    private void mostrarTablero(char[][] tablero) {
-        System.out.print("  ");
-        for (int i = 0; i < TAMANIO_TABLERO; i++) {
-            System.out.print(i + " ");
-        }
-        System.out.println();
-        
-        for (int i = 0; i < TAMANIO_TABLERO; i++) {
-            System.out.print(i + " ");
-            for (int j = 0; j < TAMANIO_TABLERO; j++) {
-                System.out.print(tablero[i][j] + " ");
-            }
-            System.out.println();
+        renderizador().mostrarTableroEnemigo(this);
+    }
+
+    public char caracterPropio(int fila, int columna) {
+        int c = celda(fila, columna);
+        if (disparosRecibidos.contiene(c)) {
+            return celdasConBarco.contiene(c) ? 'X' : 'O';
         }
-        
-        System.out.println("\nLeyenda: ~=Agua, ?=Desconocido, X=Impacto, O=Fallo, Letras=Barcos");
+        int barco = barcoEn(c);
+        return barco >= 0 ? getNombreBarco(barco).charAt(0) : '~';
+    }
+
+    public char caracterEnemigo(int fila, int columna) {
+        int c = celda(fila, columna);
+        if (impactosEnemigo.contiene(c)) return 'X';
+        if (fallosEnemigo.contiene(c)) return 'O';
+        return '?';
     }
-}
\ No newline at end of file
+}
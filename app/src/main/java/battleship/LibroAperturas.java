@@ -0,0 +1,324 @@
+package battleship;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Libro de aperturas para la computadora: para los primeros disparos de una
+ * partida guarda, resuelta de antemano, la mejor celda según lo que ya
+ * respondió el rival. Se construye fuera de línea a partir de flotas
+ * simuladas y se guarda en un archivo compacto que se mapea en memoria, así
+ * que consultar el libro es leer un nodo.
+ * <p>
+ * Cada nodo es una posición: los disparos del libro hasta ahí y sus
+ * resultados. Su celda es la que más veces tenía un barco entre las flotas
+ * simuladas que llegan a esa posición, y sus hijos son las posiciones
+ * siguientes según el resultado: fallo, impacto o qué barco se hundió. Las
+ * ramas a las que llegan pocas flotas se podan; fuera del libro la
+ * computadora vuelve a su estrategia.
+ * <p>
+ * El archivo es {@code [BSL1][tamaño][largo flota][flota][nodos][aristas]
+ * [nodos: celda int16, cantidad de hijos int16, primer hijo int32]
+ * [aristas: código 8 bits, nodo 24 bits]}.
+ */
+public final class LibroAperturas {
+    private static final byte[] MAGIA = { 'B', 'S', 'L', '1' };
+    private static final int BYTES_NODO = 8;
+    private static final int BYTES_ARISTA = 4;
+
+    static final int MUESTRAS_PREDETERMINADAS = 200_000;
+    static final int PROFUNDIDAD_PREDETERMINADA = 12;
+    // Una rama con menos flotas que esto no se estima con confianza
+    static final int MIN_MUESTRAS = 256;
+
+    // Códigos de resultado en las aristas; un hundimiento suma el índice del barco
+    static final int CODIGO_FALLO = 0;
+    static final int CODIGO_IMPACTO = 1;
+    static final int CODIGO_HUNDIDO = 2;
+
+    private final ConfiguracionPartida configuracion;
+    private final ByteBuffer nodos;
+    private final ByteBuffer aristas;
+    private final int cantidadNodos;
+
+    private LibroAperturas(ConfiguracionPartida configuracion, ByteBuffer nodos, ByteBuffer aristas) {
+        this.configuracion = configuracion;
+        this.nodos = nodos;
+        this.aristas = aristas;
+        this.cantidadNodos = nodos.limit() / BYTES_NODO;
+    }
+
+    /**
+     * Libro indicado con {@code battleship.aperturas}, que se abre la primera
+     * vez que se pide. Devuelve null si no se indicó o no se pudo abrir.
+     */
+    public static LibroAperturas predeterminado() {
+        return Predeterminado.LIBRO;
+    }
+
+    private static final class Predeterminado {
+        static final LibroAperturas LIBRO = abrirPredeterminado();
+
+        private static LibroAperturas abrirPredeterminado() {
+            String ruta = System.getProperty("battleship.aperturas");
+            if (ruta == null) {
+                return null;
+            }
+            try {
+                return abrir(Paths.get(ruta));
+            } catch (IOException | RuntimeException e) {
+                System.err.println("No se pudo abrir el libro de aperturas: " + e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Mapea un libro guardado con {@link #construir}
+     */
+    public static LibroAperturas abrir(Path ruta) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        }
+        for (int i = 0; i < MAGIA.length; i++) {
+            if (buffer.limit() <= i || buffer.get(i) != MAGIA[i]) {
+                throw new IOException("No es un libro de aperturas: " + ruta);
+            }
+        }
+        try {
+            int p = MAGIA.length;
+            int tamanio = buffer.getInt(p);
+            int largoFlota = buffer.getInt(p + 4);
+            byte[] flota = new byte[largoFlota];
+            buffer.get(p + 8, flota);
+            p += 8 + largoFlota;
+            ConfiguracionPartida configuracion = ConfiguracionPartida.parsear(String.valueOf(tamanio),
+                    new String(flota, StandardCharsets.UTF_8));
+
+            int cantidadNodos = buffer.getInt(p);
+            int cantidadAristas = buffer.getInt(p + 4);
+            p += 8;
+            ByteBuffer nodos = buffer.slice(p, cantidadNodos * BYTES_NODO);
+            ByteBuffer aristas = buffer.slice(p + cantidadNodos * BYTES_NODO, cantidadAristas * BYTES_ARISTA);
+            return new LibroAperturas(configuracion, nodos, aristas);
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Libro de aperturas dañado: " + ruta, e);
+        }
+    }
+
+    public ConfiguracionPartida getConfiguracion() {
+        return configuracion;
+    }
+
+    public int getCantidadNodos() {
+        return cantidadNodos;
+    }
+
+    /**
+     * Nodo de la posición inicial, o -1 si el libro está vacío
+     */
+    public int raiz() {
+        return cantidadNodos > 0 ? 0 : -1;
+    }
+
+    /**
+     * Celda a disparar en la posición del nodo
+     */
+    public int celda(int nodo) {
+        return nodos.getShort(nodo * BYTES_NODO) & 0xFFFF;
+    }
+
+    /**
+     * Posición siguiente tras el resultado dado, o -1 si queda fuera del libro
+     */
+    public int siguiente(int nodo, int codigo) {
+        int base = nodo * BYTES_NODO;
+        int cantidad = nodos.getShort(base + 2) & 0xFFFF;
+        int primera = nodos.getInt(base + 4);
+        for (int i = primera; i < primera + cantidad; i++) {
+            int arista = aristas.getInt(i * BYTES_ARISTA);
+            if (arista >>> 24 == codigo) {
+                return arista & 0xFFFFFF;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Código de un resultado del protocolo; el barco hundido se busca en la flota
+     */
+    public static int codigo(ConfiguracionPartida configuracion, String resultado, String tipoBarco) {
+        if (ProtocoloBattleship.FALLO.equals(resultado)) {
+            return CODIGO_FALLO;
+        }
+        if (ProtocoloBattleship.HUNDIDO.equals(resultado)) {
+            for (int i = 0; i < configuracion.getCantidadBarcos(); i++) {
+                if (configuracion.getNombreBarco(i).equals(tipoBarco)) {
+                    return CODIGO_HUNDIDO + i;
+                }
+            }
+        }
+        return CODIGO_IMPACTO;
+    }
+
+    /**
+     * Construye el libro simulando {@code muestras} flotas colocadas como las
+     * coloca el juego y lo guarda en {@code destino}. Cada nivel del árbol
+     * recorre una vez todas las flotas.
+     */
+    public static void construir(ConfiguracionPartida configuracion, int muestras, int profundidad, long semilla,
+            Path destino) throws IOException {
+        int tamanio = configuracion.getTamanioTablero();
+        int celdas = tamanio * tamanio;
+        if (celdas > 0xFFFF || configuracion.getCantidadBarcos() + CODIGO_HUNDIDO > 0xFF) {
+            throw new IllegalArgumentException("Configuración demasiado grande para un libro: " + configuracion);
+        }
+
+        // Barco por celda de cada flota simulada (0 = agua, si no índice + 1)
+        byte[][] flotas = new byte[muestras][celdas];
+        JuegoBattleship juego = new JuegoBattleship(configuracion);
+        SplittableRandom random = new SplittableRandom(semilla);
+        for (int m = 0; m < muestras; m++) {
+            juego.reiniciar();
+            juego.colocarBarcosAutomaticamente(random);
+            for (int c = 0; c < celdas; c++) {
+                flotas[m][c] = (byte) (juego.barcoEn(c / tamanio, c % tamanio) + 1);
+            }
+        }
+
+        int[] largos = new int[configuracion.getCantidadBarcos()];
+        for (int i = 0; i < largos.length; i++) {
+            largos[i] = configuracion.getTamanioBarco(i);
+        }
+
+        // Por niveles, para que los hijos de cada nodo queden contiguos
+        ByteArrayOutputStream nodosSalida = new ByteArrayOutputStream();
+        ByteArrayOutputStream aristasSalida = new ByteArrayOutputStream();
+        DataOutputStream nodosDatos = new DataOutputStream(nodosSalida);
+        DataOutputStream aristasDatos = new DataOutputStream(aristasSalida);
+        int creados = 1;
+        int cantidadAristas = 0;
+        int[] todas = new int[muestras];
+        for (int m = 0; m < muestras; m++) {
+            todas[m] = m;
+        }
+        ArrayDeque<Pendiente> pendientes = new ArrayDeque<>();
+        pendientes.add(new Pendiente(todas, new int[0]));
+        int[] ocupacion = new int[celdas];
+
+        while (!pendientes.isEmpty()) {
+            Pendiente nodo = pendientes.poll();
+            int[] camino = nodo.camino;
+
+            Arrays.fill(ocupacion, 0);
+            for (int m : nodo.muestras) {
+                byte[] flota = flotas[m];
+                for (int c = 0; c < celdas; c++) {
+                    if (flota[c] != 0) ocupacion[c]++;
+                }
+            }
+            boolean[] disparada = new boolean[celdas];
+            for (int c : camino) {
+                disparada[c] = true;
+            }
+            int mejor = -1;
+            for (int c = 0; c < celdas; c++) {
+                if (!disparada[c] && (mejor < 0 || ocupacion[c] > ocupacion[mejor])) {
+                    mejor = c;
+                }
+            }
+
+            // Repartir las flotas según lo que respondería cada una
+            int[][] porCodigo = new int[CODIGO_HUNDIDO + largos.length][];
+            int[] cantidadPorCodigo = new int[porCodigo.length];
+            for (int m : nodo.muestras) {
+                int codigo = resultado(flotas[m], camino, mejor, largos);
+                if (porCodigo[codigo] == null) {
+                    porCodigo[codigo] = new int[16];
+                } else if (cantidadPorCodigo[codigo] == porCodigo[codigo].length) {
+                    porCodigo[codigo] = Arrays.copyOf(porCodigo[codigo], porCodigo[codigo].length * 2);
+                }
+                porCodigo[codigo][cantidadPorCodigo[codigo]++] = m;
+            }
+
+            int primerHijo = cantidadAristas;
+            int hijos = 0;
+            if (camino.length + 1 < profundidad && creados + porCodigo.length <= 0xFFFFFF) {
+                int[] siguienteCamino = Arrays.copyOf(camino, camino.length + 1);
+                siguienteCamino[camino.length] = mejor;
+                for (int codigo = 0; codigo < porCodigo.length; codigo++) {
+                    if (cantidadPorCodigo[codigo] < MIN_MUESTRAS) {
+                        continue;
+                    }
+                    int hijo = creados++;
+                    pendientes.add(new Pendiente(Arrays.copyOf(porCodigo[codigo], cantidadPorCodigo[codigo]),
+                            siguienteCamino));
+                    aristasDatos.writeInt(codigo << 24 | hijo);
+                    cantidadAristas++;
+                    hijos++;
+                }
+            }
+            nodosDatos.writeShort(mejor);
+            nodosDatos.writeShort(hijos);
+            nodosDatos.writeInt(primerHijo);
+        }
+
+        byte[] flota = configuracion.describirFlota().getBytes(StandardCharsets.UTF_8);
+        try (DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(destino)))) {
+            salida.write(MAGIA);
+            salida.writeInt(tamanio);
+            salida.writeInt(flota.length);
+            salida.write(flota);
+            salida.writeInt(creados);
+            salida.writeInt(cantidadAristas);
+            nodosSalida.writeTo(salida);
+            aristasSalida.writeTo(salida);
+        }
+    }
+
+    /**
+     * Lo que respondería una flota al disparo en {@code celda} después de los del camino
+     */
+    private static int resultado(byte[] flota, int[] camino, int celda, int[] largos) {
+        int barco = (flota[celda] & 0xFF) - 1;
+        if (barco < 0) {
+            return CODIGO_FALLO;
+        }
+        int impactos = 1;
+        for (int c : camino) {
+            if ((flota[c] & 0xFF) - 1 == barco) impactos++;
+        }
+        return impactos == largos[barco] ? CODIGO_HUNDIDO + barco : CODIGO_IMPACTO;
+    }
+
+    private static final class Pendiente {
+        final int[] muestras;
+        final int[] camino;
+
+        Pendiente(int[] muestras, int[] camino) {
+            this.muestras = muestras;
+            this.camino = camino;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path destino = Paths.get(args.length > 0 ? args[0] : "aperturas.bin");
+        int muestras = args.length > 1 ? Integer.parseInt(args[1]) : MUESTRAS_PREDETERMINADAS;
+        int profundidad = args.length > 2 ? Integer.parseInt(args[2]) : PROFUNDIDAD_PREDETERMINADA;
+        long semilla = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+
+        ConfiguracionPartida configuracion = ConfiguracionPartida.desdeConfiguracion();
+        System.out.println("Construyendo libro de aperturas para " + configuracion + " con " + muestras
+                + " flotas y hasta " + profundidad + " disparos...");
+        long inicio = System.nanoTime();
+        construir(configuracion, muestras, profundidad, semilla, destino);
+        LibroAperturas libro = abrir(destino);
+        System.out.printf("%d posiciones, %d bytes en %s (%.1f s)%n", libro.getCantidadNodos(),
+                Files.size(destino), destino, (System.nanoTime() - inicio) / 1e9);
+    }
+}
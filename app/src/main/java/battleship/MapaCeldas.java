@@ -0,0 +1,105 @@
+package battleship;
+
+import java.util.*;
+
+/**
+ * Mapa de celda a entero no negativo con direccionamiento abierto y sondeo
+ * lineal sobre dos {@code int[]}. Ocupa memoria proporcional a las entradas,
+ * no al área del tablero, y las consultas no reservan memoria. No admite
+ * borrar entradas sueltas ni es seguro para varios hilos.
+ */
+public final class MapaCeldas {
+    public static final int AUSENTE = -1;
+
+    private static final int VACIA = -1;
+    private static final int CAPACIDAD_MINIMA = 16;
+
+    private int[] claves;
+    private int[] valores;
+    private int mascara;
+    private int desplazamiento;
+    private int cantidad;
+
+    public MapaCeldas() {
+        this(CAPACIDAD_MINIMA / 2);
+    }
+
+    /**
+     * Crea un mapa que guarda {@code esperadas} entradas sin agrandarse
+     */
+    public MapaCeldas(int esperadas) {
+        int capacidad = Math.max(CAPACIDAD_MINIMA, Integer.highestOneBit(Math.max(1, esperadas) * 2 - 1) * 2);
+        reservar(capacidad);
+    }
+
+    private void reservar(int capacidad) {
+        claves = new int[capacidad];
+        valores = new int[capacidad];
+        Arrays.fill(claves, VACIA);
+        mascara = capacidad - 1;
+        desplazamiento = Integer.numberOfLeadingZeros(mascara);
+    }
+
+    private int posicion(int celda) {
+        // Hash de Fibonacci, como en ConjuntoCeldasDisperso
+        return (celda * 0x9E3779B9) >>> desplazamiento;
+    }
+
+    /**
+     * Valor asociado a la celda, o {@link #AUSENTE}
+     */
+    public int obtener(int celda) {
+        for (int i = posicion(celda);; i = (i + 1) & mascara) {
+            int clave = claves[i];
+            if (clave == celda) return valores[i];
+            if (clave == VACIA) return AUSENTE;
+        }
+    }
+
+    public void poner(int celda, int valor) {
+        if (celda < 0 || valor < 0) {
+            throw new IllegalArgumentException("Entrada inválida: " + celda + " -> " + valor);
+        }
+        int i = posicion(celda);
+        while (claves[i] != VACIA) {
+            if (claves[i] == celda) {
+                valores[i] = valor;
+                return;
+            }
+            i = (i + 1) & mascara;
+        }
+        claves[i] = celda;
+        valores[i] = valor;
+        // Factor de carga máximo de 1/2
+        if (++cantidad * 2 > claves.length) {
+            agrandar();
+        }
+    }
+
+    public void limpiar() {
+        if (cantidad > 0) {
+            Arrays.fill(claves, VACIA);
+            cantidad = 0;
+        }
+    }
+
+    public int cantidad() {
+        return cantidad;
+    }
+
+    private void agrandar() {
+        int[] clavesAnteriores = claves;
+        int[] valoresAnteriores = valores;
+        reservar(claves.length * 2);
+        for (int j = 0; j < clavesAnteriores.length; j++) {
+            if (clavesAnteriores[j] != VACIA) {
+                int i = posicion(clavesAnteriores[j]);
+                while (claves[i] != VACIA) {
+                    i = (i + 1) & mascara;
+                }
+                claves[i] = clavesAnteriores[j];
+                valores[i] = valoresAnteriores[j];
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package battleship;
+
+import com.sun.net.httpserver.*;
+
+import java.io.*;
+import java.lang.management.*;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import javax.management.*;
+
+/**
+ * Métricas del proceso: mensajes parseados y rechazados, latencia de los
+ * turnos, desconexiones, reconexiones y partidas activas. Registrar es
+ * sumar a un contador sin bloqueos, sin reservar memoria, así que se puede
+ * hacer en cada mensaje.
+ * <p>
+ * Se consultan por JMX como {@code battleship:type=Metricas} y, si se indica
+ * un puerto con {@code battleship.metricas}, en texto plano en
+ * {@code http://host:puerto/metrics} con el formato de Prometheus. En el mismo
+ * puerto, {@code /analitica} muestra el resumen de {@link AnaliticaPartidas}.
+ */
+public final class Metricas {
+    public static final LongAdder MENSAJES_PARSEADOS = new LongAdder();
+    public static final LongAdder ERRORES_PARSEO = new LongAdder();
+    public static final LongAdder DESCONEXIONES = new LongAdder();
+    public static final LongAdder RECONEXIONES = new LongAdder();
+    public static final LongAdder PARTIDAS_ACTIVAS = new LongAdder();
+    // Desde que se envía el disparo hasta que llega su resultado
+    public static final HistogramaConcurrente TURNO_LOCAL = new HistogramaConcurrente();
+    // Desde que llega el disparo del rival hasta que se le envía el resultado
+    public static final HistogramaConcurrente TURNO_REMOTO = new HistogramaConcurrente();
+
+    private static final String NOMBRE_JMX = "battleship:type=Metricas";
+    private static HttpServer servidorHttp;
+
+    private Metricas() {
+    }
+
+    /**
+     * Registra las métricas en JMX y, si se configuró un puerto, abre el
+     * punto de consulta HTTP. Llamarlo más de una vez no tiene efecto.
+     */
+    public static synchronized void exponer() {
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nombre = new ObjectName(NOMBRE_JMX);
+            if (!servidor.isRegistered(nombre)) {
+                servidor.registerMBean(new Vista(), nombre);
+            }
+        } catch (JMException e) {
+            System.err.println("No se pudieron registrar las métricas en JMX: " + e.getMessage());
+        }
+
+        Integer puerto = Integer.getInteger("battleship.metricas");
+        if (puerto == null || servidorHttp != null) {
+            return;
+        }
+        try {
+            servidorHttp = HttpServer.create(new InetSocketAddress(puerto), 0);
+            servidorHttp.createContext("/metrics",
+                    intercambio -> responder(intercambio, texto(), "text/plain; version=0.0.4; charset=utf-8"));
+            servidorHttp.createContext("/analitica", intercambio -> responder(intercambio,
+                    AnaliticaPartidas.GLOBAL.resumen(), "text/plain; charset=utf-8"));
+            servidorHttp.setExecutor(Executors.newSingleThreadExecutor(r -> {
+                Thread hilo = new Thread(r, "metricas-http");
+                hilo.setDaemon(true);
+                return hilo;
+            }));
+            servidorHttp.start();
+            System.out.println("Métricas en http://localhost:" + puerto + "/metrics");
+        } catch (IOException e) {
+            System.err.println("No se pudo abrir el puerto de métricas " + puerto + ": " + e.getMessage());
+            servidorHttp = null;
+        }
+    }
+
+    /**
+     * Cierra el punto de consulta HTTP, cuyo hilo mantendría vivo el proceso
+     */
+    public static synchronized void detener() {
+        if (servidorHttp != null) {
+            servidorHttp.stop(0);
+            servidorHttp = null;
+        }
+    }
+
+    /**
+     * Todas las métricas en el formato de texto de Prometheus; las latencias
+     * en segundos
+     */
+    public static String texto() {
+        StringBuilder salida = new StringBuilder(2048);
+        contador(salida, "battleship_mensajes_parseados_total", "Mensajes del protocolo parseados",
+                MENSAJES_PARSEADOS.sum());
+        contador(salida, "battleship_errores_parseo_total", "Mensajes rechazados por formato inválido",
+                ERRORES_PARSEO.sum());
+        contador(salida, "battleship_desconexiones_total", "Conexiones de jugadores perdidas durante una partida",
+                DESCONEXIONES.sum());
+        contador(salida, "battleship_reconexiones_total", "Sesiones reanudadas tras una desconexión",
+                RECONEXIONES.sum());
+        salida.append("# HELP battleship_partidas_activas Partidas en curso\n")
+                .append("# TYPE battleship_partidas_activas gauge\n")
+                .append("battleship_partidas_activas ").append(PARTIDAS_ACTIVAS.sum()).append('\n');
+        resumen(salida, "battleship_turno_local_segundos",
+                "Desde que se envía un disparo hasta que llega su resultado", TURNO_LOCAL);
+        resumen(salida, "battleship_turno_remoto_segundos",
+                "Desde que llega un disparo hasta que se envía su resultado", TURNO_REMOTO);
+        return salida.toString();
+    }
+
+    private static void responder(HttpExchange intercambio, String texto, String tipo) throws IOException {
+        try (intercambio) {
+            if (!"GET".equals(intercambio.getRequestMethod())) {
+                intercambio.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] cuerpo = texto.getBytes(StandardCharsets.UTF_8);
+            intercambio.getResponseHeaders().set("Content-Type", tipo);
+            intercambio.sendResponseHeaders(200, cuerpo.length);
+            intercambio.getResponseBody().write(cuerpo);
+        }
+    }
+
+    private static void contador(StringBuilder salida, String nombre, String ayuda, long valor) {
+        salida.append("# HELP ").append(nombre).append(' ').append(ayuda).append('\n')
+                .append("# TYPE ").append(nombre).append(" counter\n")
+                .append(nombre).append(' ').append(valor).append('\n');
+    }
+
+    private static void resumen(StringBuilder salida, String nombre, String ayuda, HistogramaConcurrente histograma) {
+        salida.append("# HELP ").append(nombre).append(' ').append(ayuda).append('\n')
+                .append("# TYPE ").append(nombre).append(" summary\n");
+        for (double cuantil : new double[] { 0.5, 0.9, 0.99, 0.999 }) {
+            salida.append(nombre).append("{quantile=\"").append(cuantil).append("\"} ")
+                    .append(histograma.percentil(cuantil * 100) / 1e9).append('\n');
+        }
+        salida.append(nombre).append("_sum ").append(histograma.getSuma() / 1e9).append('\n')
+                .append(nombre).append("_count ").append(histograma.getCantidad()).append('\n')
+                .append("# HELP ").append(nombre).append("_max Máximo registrado\n")
+                .append("# TYPE ").append(nombre).append("_max gauge\n")
+                .append(nombre).append("_max ").append(histograma.getMaximo() / 1e9).append('\n');
+    }
+
+    /**
+     * Atributos visibles por JMX; las latencias en milisegundos
+     */
+    public interface MetricasMXBean {
+        long getMensajesParseados();
+
+        long getErroresParseo();
+
+        long getDesconexiones();
+
+        long getReconexiones();
+
+        long getPartidasActivas();
+
+        long getTurnosLocales();
+
+        double getTurnoLocalP50Ms();
+
+        double getTurnoLocalP99Ms();
+
+        double getTurnoLocalMaximoMs();
+
+        long getTurnosRemotos();
+
+        double getTurnoRemotoP50Ms();
+
+        double getTurnoRemotoP99Ms();
+
+        double getTurnoRemotoMaximoMs();
+    }
+
+    private static final class Vista implements MetricasMXBean {
+        @Override
+        public long getMensajesParseados() {
+            return MENSAJES_PARSEADOS.sum();
+        }
+
+        @Override
+        public long getErroresParseo() {
+            return ERRORES_PARSEO.sum();
+        }
+
+        @Override
+        public long getDesconexiones() {
+            return DESCONEXIONES.sum();
+        }
+
+        @Override
+        public long getReconexiones() {
+            return RECONEXIONES.sum();
+        }
+
+        @Override
+        public long getPartidasActivas() {
+            return PARTIDAS_ACTIVAS.sum();
+        }
+
+        @Override
+        public long getTurnosLocales() {
+            return TURNO_LOCAL.getCantidad();
+        }
+
+        @Override
+        public double getTurnoLocalP50Ms() {
+            return TURNO_LOCAL.percentil(50) / 1e6;
+        }
+
+        @Override
+        public double getTurnoLocalP99Ms() {
+            return TURNO_LOCAL.percentil(99) / 1e6;
+        }
+
+        @Override
+        public double getTurnoLocalMaximoMs() {
+            return TURNO_LOCAL.getMaximo() / 1e6;
+        }
+
+        @Override
+        public long getTurnosRemotos() {
+            return TURNO_REMOTO.getCantidad();
+        }
+
+        @Override
+        public double getTurnoRemotoP50Ms() {
+            return TURNO_REMOTO.percentil(50) / 1e6;
+        }
+
+        @Override
+        public double getTurnoRemotoP99Ms() {
+            return TURNO_REMOTO.percentil(99) / 1e6;
+        }
+
+        @Override
+        public double getTurnoRemotoMaximoMs() {
+            return TURNO_REMOTO.getMaximo() / 1e6;
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package battleship;
 
+import java.nio.charset.StandardCharsets;
+import java.security.*;
+
 public class ProtocoloBattleship {
     // Comandos del protocolo
     public static final String INICIAR_JUEGO = "INICIAR";
@@ -13,10 +16,75 @@ public class ProtocoloBattleship {
     public static final String ERROR = "ERROR";
     public static final String SALIR = "SALIR";
     public static final String CONECTADO = "CONECTADO";
+    public static final String EMPAREJADO = "EMPAREJADO";
+    public static final String CONFIGURACION = "CONFIGURACION";
+    public static final String LATIDO = "LATIDO";
+    public static final String SESION = "SESION";
+    public static final String REANUDAR = "REANUDAR";
+    // Varios disparos por turno y sus resultados en una sola línea
+    public static final String SALVA = "SALVA";
+    public static final String RESULTADOS = "RESULTADOS";
+
+    // Espectadores del servidor de partidas
+    public static final String ESPECTAR = "ESPECTAR";
+    public static final String ESPECTANDO = "ESPECTANDO";
+    public static final String JUGADA = "JUGADA";
+    public static final String RESUMEN = "RESUMEN";
+
+    // Turno asignado por el servidor de partidas
+    public static final String PRIMERO = "PRIMERO";
+    public static final String SEGUNDO = "SEGUNDO";
 
     // Separadores
     public static final String SEPARADOR_CAMPOS = "|";
     public static final String SEPARADOR_COORD = ",";
+    private static final byte SEPARADOR = (byte) '|';
+    private static final byte SEPARADOR_X_Y = (byte) ',';
+    // Comandos que se reconocen sin crear una cadena nueva
+    private static final String[] COMANDOS = {
+            DISPARAR, IMPACTO, FALLO, HUNDIDO, JUEGO_TERMINADO, LATIDO, REANUDAR, LISTO, CONFIGURACION,
+            SESION, ERROR, SALIR, INICIAR_JUEGO, COLOCAR_BARCOS, CONECTADO, EMPAREJADO,
+            ESPECTAR, ESPECTANDO, JUGADA, RESUMEN, SALVA, RESULTADOS
+    };
+
+    // Capacidades anunciadas junto a LISTO
+    public static final String CAPACIDAD_BINARIA = "BIN1";
+    public static final String CAPACIDAD_SESIONES = "SES1";
+    // Seguida de ":" y la cantidad de disparos por turno que acepta
+    public static final String CAPACIDAD_SALVA = "SALVA";
+    // Seguida de ":" y el identificador que quien comienza da a una partida nueva
+    public static final String CAPACIDAD_PARTIDA = "PARTIDA";
+    // Seguida de ":partida:turnos:PRIMERO|SEGUNDO", la partida guardada que se ofrece reanudar
+    public static final String CAPACIDAD_REANUDA = "REANUDA";
+
+    // Disparos por turno más de los que no se acepta una salva
+    public static final int MAX_SALVA = 32;
+
+    // Bytes que puede ocupar una línea o una trama binaria; quien envía
+    // algo más largo no sigue el protocolo y se cierra su conexión
+    public static final int LARGO_MAXIMO_TRAMA = 8 * 1024;
+
+    // Sesiones: cada cuánto se envía un latido, cuánto se espera una lectura
+    // y cuánto se espera a que el rival vuelva tras un corte
+    public static final int INTERVALO_LATIDO_MS = 5_000;
+    public static final int TIEMPO_LECTURA_MS = 15_000;
+    public static final int TIEMPO_RECONEXION_MS = 45_000;
+
+    private static final SecureRandom GENERADOR_TOKENS = new SecureRandom();
+
+    // Códigos del protocolo binario. Todos son menores que 0x20, así que el
+    // primer byte basta para distinguir una trama binaria de una línea de texto
+    // y los mensajes sin forma binaria pueden seguir viajando como texto.
+    public static final int OP_DISPARAR = 0x01;
+    public static final int OP_IMPACTO = 0x02;
+    public static final int OP_FALLO = 0x03;
+    public static final int OP_HUNDIDO = 0x04;
+    public static final int OP_JUEGO_TERMINADO = 0x05;
+    public static final int OP_SALIR = 0x06;
+    public static final int OP_LATIDO = 0x07;
+    // Bandera: ambas coordenadas caben en un byte (fila << 4 | columna)
+    public static final int OP_COORD_COMPACTA = 0x10;
+    public static final int MASCARA_OPCODE = 0x0F;
 
     /**
      * Construye un mensaje para disparar
@@ -33,47 +101,661 @@ public class ProtocoloBattleship {
                 (tipoBarco != null ? SEPARADOR_CAMPOS + tipoBarco : "");
     }
 
+    /**
+     * Construye el aviso del servidor de partidas con el turno y el nombre del rival
+     */
+    public static String construirMensajeEmparejado(boolean comienza, String nombreOponente) {
+        return EMPAREJADO + SEPARADOR_CAMPOS + (comienza ? PRIMERO : SEGUNDO) + SEPARADOR_CAMPOS + nombreOponente;
+    }
+
+    /**
+     * Construye la propuesta de tablero y flota que envía quien comienza
+     */
+    public static String construirMensajeConfiguracion(ConfiguracionPartida configuracion) {
+        return CONFIGURACION + SEPARADOR_CAMPOS + configuracion.getTamanioTablero()
+                + SEPARADOR_CAMPOS + configuracion.describirFlota();
+    }
+
+    /**
+     * Parsea un mensaje CONFIGURACION y valida la configuración recibida
+     */
+    public static ConfiguracionPartida parsearConfiguracion(String mensaje) {
+        String[] partes = mensaje.trim().split("\\" + SEPARADOR_CAMPOS);
+        if (partes.length != 3 || !CONFIGURACION.equals(partes[0])) {
+            throw new IllegalArgumentException("Mensaje de configuración inválido: " + mensaje);
+        }
+        return ConfiguracionPartida.parsear(partes[1], partes[2]);
+    }
+
+    /**
+     * Construye el mensaje LISTO anunciando, si corresponde, el protocolo binario
+     */
+    public static String construirMensajeListo(boolean binario) {
+        return construirMensajeListo(binario, false);
+    }
+
+    /**
+     * Construye el mensaje LISTO anunciando el protocolo binario y las sesiones
+     * reanudables que correspondan
+     */
+    public static String construirMensajeListo(boolean binario, boolean sesiones) {
+        return construirMensajeListo(binario, sesiones, 1);
+    }
+
+    /**
+     * Construye el mensaje LISTO con sus capacidades; una salva de un solo
+     * disparo no se anuncia
+     */
+    public static String construirMensajeListo(boolean binario, boolean sesiones, int salva) {
+        return LISTO + (binario ? SEPARADOR_CAMPOS + CAPACIDAD_BINARIA : "")
+                + (sesiones ? SEPARADOR_CAMPOS + CAPACIDAD_SESIONES : "")
+                + (salva > 1 ? SEPARADOR_CAMPOS + CAPACIDAD_SALVA + ":" + salva : "");
+    }
+
+    /**
+     * Disparos por turno que anuncia una línea LISTO: 1 si no anuncia salvas
+     * o el valor no es válido
+     */
+    public static int salvaAnunciada(String linea) {
+        String prefijo = CAPACIDAD_SALVA + ":";
+        String[] partes = linea.trim().split("\\" + SEPARADOR_CAMPOS);
+        for (int i = 1; i < partes.length; i++) {
+            if (partes[i].startsWith(prefijo)) {
+                try {
+                    int salva = Integer.parseInt(partes[i].substring(prefijo.length()));
+                    return salva >= 1 && salva <= MAX_SALVA ? salva : 1;
+                } catch (NumberFormatException e) {
+                    return 1;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Construye una salva con los disparos {@code x0, y0, x1, y1, ...}
+     */
+    public static String construirMensajeSalva(int[] disparos) {
+        StringBuilder sb = new StringBuilder(SALVA.length() + 6 * disparos.length);
+        sb.append(SALVA);
+        for (int i = 0; i + 1 < disparos.length; i += 2) {
+            sb.append(SEPARADOR_CAMPOS).append(disparos[i]).append(SEPARADOR_COORD).append(disparos[i + 1]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Parsea una salva y devuelve sus disparos como {@code x0, y0, x1, y1, ...}
+     */
+    public static int[] parsearSalva(String mensaje) {
+        String[] partes = mensaje.trim().split("\\" + SEPARADOR_CAMPOS);
+        if (partes.length < 2 || partes.length > MAX_SALVA + 1 || !SALVA.equals(partes[0])) {
+            throw new IllegalArgumentException("Salva inválida: " + mensaje);
+        }
+        int[] disparos = new int[2 * (partes.length - 1)];
+        for (int i = 1; i < partes.length; i++) {
+            String[] coordenadas = partes[i].split(SEPARADOR_COORD);
+            if (coordenadas.length != 2) {
+                throw new IllegalArgumentException("Salva inválida: " + mensaje);
+            }
+            try {
+                disparos[2 * (i - 1)] = Integer.parseInt(coordenadas[0].trim());
+                disparos[2 * (i - 1) + 1] = Integer.parseInt(coordenadas[1].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Salva inválida: " + mensaje, e);
+            }
+        }
+        return disparos;
+    }
+
+    /**
+     * Construye la respuesta a una salva: un campo {@code RESULTADO,x,y} por
+     * disparo, con el barco al final si lo hundió
+     */
+    public static String construirMensajeResultados(Mensaje[] resultados) {
+        StringBuilder sb = new StringBuilder(RESULTADOS.length() + 24 * resultados.length);
+        sb.append(RESULTADOS);
+        for (Mensaje resultado : resultados) {
+            sb.append(SEPARADOR_CAMPOS).append(resultado.comando)
+                    .append(SEPARADOR_COORD).append(resultado.x).append(SEPARADOR_COORD).append(resultado.y);
+            if (resultado.tipoBarco != null) {
+                sb.append(SEPARADOR_COORD).append(resultado.tipoBarco);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Parsea la respuesta a una salva. Los barcos de {@code nombresBarcos} se
+     * traducen a sus cadenas existentes.
+     */
+    public static Mensaje[] parsearResultados(String mensaje, String[] nombresBarcos) {
+        String[] partes = mensaje.trim().split("\\" + SEPARADOR_CAMPOS);
+        if (partes.length < 2 || partes.length > MAX_SALVA + 1 || !RESULTADOS.equals(partes[0])) {
+            throw new IllegalArgumentException("Resultados inválidos: " + mensaje);
+        }
+        Mensaje[] resultados = new Mensaje[partes.length - 1];
+        for (int i = 1; i < partes.length; i++) {
+            String[] campos = partes[i].split(SEPARADOR_COORD);
+            String comando = campos[0];
+            boolean hundido = HUNDIDO.equals(comando);
+            if (!(hundido || IMPACTO.equals(comando) || FALLO.equals(comando))
+                    || campos.length != (hundido ? 4 : 3)) {
+                throw new IllegalArgumentException("Resultados inválidos: " + mensaje);
+            }
+            try {
+                String tipoBarco = hundido ? barcoConocido(campos[3], nombresBarcos) : null;
+                resultados[i - 1] = new Mensaje(hundido ? HUNDIDO : IMPACTO.equals(comando) ? IMPACTO : FALLO,
+                        Integer.parseInt(campos[1].trim()), Integer.parseInt(campos[2].trim()), tipoBarco);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Resultados inválidos: " + mensaje, e);
+            }
+        }
+        return resultados;
+    }
+
+    private static String barcoConocido(String nombre, String[] nombresBarcos) {
+        if (nombresBarcos != null) {
+            for (String conocido : nombresBarcos) {
+                if (conocido.equals(nombre)) {
+                    return conocido;
+                }
+            }
+        }
+        return nombre;
+    }
+
+    /**
+     * Genera un token de sesión difícil de adivinar
+     */
+    public static String generarToken() {
+        byte[] bytes = new byte[16];
+        GENERADOR_TOKENS.nextBytes(bytes);
+        StringBuilder sb = new StringBuilder(32);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0x0F, 16)).append(Character.forDigit(b & 0x0F, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Construye el aviso con el token de la sesión
+     */
+    public static String construirMensajeSesion(String token) {
+        return SESION + SEPARADOR_CAMPOS + token;
+    }
+
+    /**
+     * Parsea un mensaje SESION y devuelve su token
+     */
+    public static String parsearSesion(String mensaje) {
+        String[] partes = mensaje.trim().split("\\" + SEPARADOR_CAMPOS);
+        if (partes.length != 2 || !SESION.equals(partes[0]) || partes[1].isEmpty()) {
+            throw new IllegalArgumentException("Mensaje de sesión inválido: " + mensaje);
+        }
+        return partes[1];
+    }
+
+    /**
+     * Construye el pedido de reanudación con los turnos completados por quien
+     * lo envía y su turno en la partida
+     */
+    public static String construirMensajeReanudar(String token, int turnos, boolean primero) {
+        return REANUDAR + SEPARADOR_CAMPOS + token + SEPARADOR_CAMPOS + turnos
+                + SEPARADOR_CAMPOS + (primero ? PRIMERO : SEGUNDO);
+    }
+
+    /**
+     * Parsea un mensaje REANUDAR
+     */
+    public static Reanudacion parsearReanudar(String mensaje) {
+        String[] partes = mensaje.trim().split("\\" + SEPARADOR_CAMPOS);
+        try {
+            if (partes.length != 4 || !REANUDAR.equals(partes[0])
+                    || !(PRIMERO.equals(partes[3]) || SEGUNDO.equals(partes[3]))) {
+                throw new IllegalArgumentException("Mensaje de reanudación inválido: " + mensaje);
+            }
+            int turnos = Integer.parseInt(partes[2]);
+            if (turnos < 0) {
+                throw new IllegalArgumentException("Turnos inválidos: " + turnos);
+            }
+            return new Reanudacion(partes[1], turnos, PRIMERO.equals(partes[3]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Mensaje de reanudación inválido: " + mensaje, e);
+        }
+    }
+
+    /**
+     * Construye el pedido para mirar una partida del servidor; sin número,
+     * la última que comenzó
+     */
+    public static String construirMensajeEspectar(int numeroPartida) {
+        return numeroPartida > 0 ? ESPECTAR + SEPARADOR_CAMPOS + numeroPartida : ESPECTAR;
+    }
+
+    /**
+     * Campo de LISTO con el identificador de una partida nueva
+     */
+    public static String anunciarPartida(String partida) {
+        return CAPACIDAD_PARTIDA + ":" + partida;
+    }
+
+    /**
+     * Campo de LISTO con la partida guardada que se ofrece reanudar: su
+     * identificador, los turnos completados y a quién le toca. Quién mueve se
+     * indica por rol y no desde quien anuncia, así que ambos jugadores
+     * anuncian exactamente lo mismo si sus diarios coinciden.
+     */
+    public static String anunciarReanudacion(String partida, int turnos, boolean mueveElPrimero) {
+        return CAPACIDAD_REANUDA + ":" + partida + ":" + turnos + ":" + (mueveElPrimero ? PRIMERO : SEGUNDO);
+    }
+
+    /**
+     * Valor de la capacidad {@code capacidad:valor} que anuncia una línea, o
+     * null si no la anuncia o viene vacía
+     */
+    public static String valorCapacidad(String linea, String capacidad) {
+        String prefijo = capacidad + ":";
+        String[] partes = linea.trim().split("\\" + SEPARADOR_CAMPOS);
+        for (int i = 1; i < partes.length; i++) {
+            if (partes[i].startsWith(prefijo) && partes[i].length() > prefijo.length()) {
+                return partes[i].substring(prefijo.length());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Indica si una línea anuncia la capacidad dada en alguno de sus campos
+     */
+    public static boolean anunciaCapacidad(String linea, String capacidad) {
+        String[] partes = linea.trim().split("\\" + SEPARADOR_CAMPOS);
+        for (int i = 1; i < partes.length; i++) {
+            if (capacidad.equals(partes[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Indica si el primer byte de una trama corresponde al protocolo binario
+     */
+    public static boolean esOpcodeBinario(int primerByte) {
+        return primerByte >= 0 && primerByte < 0x20 && primerByte != '\n' && primerByte != '\r';
+    }
+
+    /**
+     * Codifica un disparo en binario. Devuelve la cantidad de bytes escritos.
+     */
+    public static int codificarDisparo(byte[] destino, int x, int y) {
+        return codificarCoordenadas(destino, OP_DISPARAR, x, y);
+    }
+
+    /**
+     * Codifica un resultado en binario; el barco viaja como su índice en la
+     * flota, en formato varint. Devuelve la cantidad de bytes escritos.
+     */
+    public static int codificarResultado(byte[] destino, String resultado, int x, int y, int idBarco) {
+        int opcode = opcodeDe(resultado);
+        if (opcode != OP_IMPACTO && opcode != OP_FALLO && opcode != OP_HUNDIDO) {
+            throw new IllegalArgumentException("Resultado inválido: " + resultado);
+        }
+        int pos = codificarCoordenadas(destino, opcode, x, y);
+        if (opcode == OP_HUNDIDO) {
+            pos = escribirVarint(destino, pos, idBarco);
+        }
+        return pos;
+    }
+
+    private static int codificarCoordenadas(byte[] destino, int opcode, int x, int y) {
+        if (x >= 0 && x < 16 && y >= 0 && y < 16) {
+            destino[0] = (byte) (opcode | OP_COORD_COMPACTA);
+            destino[1] = (byte) (x << 4 | y);
+            return 2;
+        }
+        destino[0] = (byte) opcode;
+        int pos = escribirVarint(destino, 1, x);
+        return escribirVarint(destino, pos, y);
+    }
+
+    /**
+     * Escribe un entero no negativo en formato varint (7 bits por byte)
+     */
+    public static int escribirVarint(byte[] destino, int pos, int valor) {
+        while ((valor & ~0x7F) != 0) {
+            destino[pos++] = (byte) ((valor & 0x7F) | 0x80);
+            valor >>>= 7;
+        }
+        destino[pos++] = (byte) valor;
+        return pos;
+    }
+
+    /**
+     * Opcode binario de un comando, o -1 si el comando no tiene forma binaria
+     */
+    public static int opcodeDe(String comando) {
+        switch (comando) {
+            case DISPARAR: return OP_DISPARAR;
+            case IMPACTO: return OP_IMPACTO;
+            case FALLO: return OP_FALLO;
+            case HUNDIDO: return OP_HUNDIDO;
+            case JUEGO_TERMINADO: return OP_JUEGO_TERMINADO;
+            case SALIR: return OP_SALIR;
+            case LATIDO: return OP_LATIDO;
+            default: return -1;
+        }
+    }
+
+    /**
+     * Comando textual de un opcode binario
+     */
+    public static String comandoDe(int opcode) {
+        switch (opcode & MASCARA_OPCODE) {
+            case OP_DISPARAR: return DISPARAR;
+            case OP_IMPACTO: return IMPACTO;
+            case OP_FALLO: return FALLO;
+            case OP_HUNDIDO: return HUNDIDO;
+            case OP_JUEGO_TERMINADO: return JUEGO_TERMINADO;
+            case OP_SALIR: return SALIR;
+            case OP_LATIDO: return LATIDO;
+            default: throw new IllegalArgumentException("Opcode desconocido: " + opcode);
+        }
+    }
+
+    /**
+     * Parsea una trama binaria completa
+     */
+    public static Mensaje parsearMensajeBinario(byte[] trama, int longitud, String[] nombresBarcos) {
+        return parsearMensajeBinario(trama, longitud, nombresBarcos, new Mensaje());
+    }
+
+    /**
+     * Parsea una trama binaria completa en {@code destino}, que se devuelve
+     */
+    public static Mensaje parsearMensajeBinario(byte[] trama, int longitud, String[] nombresBarcos, Mensaje destino) {
+        try {
+            interpretarMensajeBinario(trama, longitud, nombresBarcos, destino);
+            Metricas.MENSAJES_PARSEADOS.increment();
+            return destino;
+        } catch (IllegalArgumentException e) {
+            Metricas.ERRORES_PARSEO.increment();
+            throw e;
+        } catch (IndexOutOfBoundsException e) {
+            // Trama truncada en medio de un varint
+            Metricas.ERRORES_PARSEO.increment();
+            throw new IllegalArgumentException("Trama binaria incompleta", e);
+        }
+    }
+
+    private static void interpretarMensajeBinario(byte[] trama, int longitud, String[] nombresBarcos,
+            Mensaje destino) {
+        if (longitud < 1) {
+            throw new IllegalArgumentException("Trama binaria vacía");
+        }
+
+        int opcode = trama[0] & 0xFF;
+        String comando = comandoDe(opcode);
+        int base = opcode & MASCARA_OPCODE;
+
+        if (base != OP_DISPARAR && base != OP_IMPACTO && base != OP_FALLO && base != OP_HUNDIDO) {
+            verificarLongitud(1, longitud);
+            destino.asignar(comando, -1, -1, null);
+            return;
+        }
+
+        int x;
+        int y;
+        int pos;
+        if ((opcode & OP_COORD_COMPACTA) != 0) {
+            x = (trama[1] >> 4) & 0x0F;
+            y = trama[1] & 0x0F;
+            pos = 2;
+        } else {
+            long lectura = leerVarint(trama, 1);
+            x = (int) lectura;
+            pos = (int) (lectura >>> 32);
+            lectura = leerVarint(trama, pos);
+            y = (int) lectura;
+            pos = (int) (lectura >>> 32);
+        }
+
+        String tipoBarco = null;
+        if (base == OP_HUNDIDO) {
+            long lectura = leerVarint(trama, pos);
+            int idBarco = (int) lectura;
+            pos = (int) (lectura >>> 32);
+            if (nombresBarcos == null || idBarco < 0 || idBarco >= nombresBarcos.length) {
+                throw new IllegalArgumentException("Barco desconocido en trama binaria: " + idBarco);
+            }
+            tipoBarco = nombresBarcos[idBarco];
+        }
+        verificarLongitud(pos, longitud);
+        destino.asignar(comando, x, y, tipoBarco);
+    }
+
+    /**
+     * La trama debe terminar justo donde termina su último campo; si no, el
+     * buffer traía bytes de otra trama
+     */
+    private static void verificarLongitud(int leidos, int longitud) {
+        if (leidos != longitud) {
+            throw new IllegalArgumentException(leidos > longitud
+                    ? "Trama binaria incompleta"
+                    : "Trama binaria con " + (longitud - leidos) + " bytes de más");
+        }
+    }
+
+    /**
+     * Lee un varint de a lo sumo 5 bytes. Devuelve el valor en los 32 bits
+     * bajos y la posición siguiente en los 32 bits altos.
+     */
+    static long leerVarint(byte[] origen, int pos) {
+        int valor = 0;
+        int desplazamiento = 0;
+        int b;
+        do {
+            if (desplazamiento > 28) {
+                // Más bytes desplazarían fuera del int y pisarían los bits bajos
+                throw new IllegalArgumentException("Varint de más de 5 bytes");
+            }
+            b = origen[pos++];
+            valor |= (b & 0x7F) << desplazamiento;
+            desplazamiento += 7;
+        } while ((b & 0x80) != 0);
+        return ((long) pos << 32) | (valor & 0xFFFFFFFFL);
+    }
+
     /**
      * Parsea un mensaje recibido
      */
     public static Mensaje parsearMensaje(String mensaje) {
-        if (mensaje == null || mensaje.trim().isEmpty()) {
+        if (mensaje == null) {
+            Metricas.ERRORES_PARSEO.increment();
             throw new IllegalArgumentException("Mensaje nulo o vacío");
         }
+        byte[] bytes = mensaje.getBytes(StandardCharsets.UTF_8);
+        return parsearMensaje(bytes, bytes.length, null, new Mensaje());
+    }
 
-        String[] partes = mensaje.split("\\" + SEPARADOR_CAMPOS);
-        String comando = partes[0];
-
+    /**
+     * Parsea una línea de texto (en UTF-8, sin el fin de línea) en
+     * {@code destino}, que se devuelve. Recorre los bytes sin copiarlos: los
+     * comandos conocidos y los barcos de {@code nombresBarcos} se traducen a
+     * sus cadenas existentes, así que un mensaje del juego no reserva memoria.
+     */
+    public static Mensaje parsearMensaje(byte[] linea, int longitud, String[] nombresBarcos, Mensaje destino) {
         try {
-            switch (comando) {
-                case DISPARAR:
-                    String[] coordenadas = partes[1].split(SEPARADOR_COORD);
-                    int x = Integer.parseInt(coordenadas[0]);
-                    int y = Integer.parseInt(coordenadas[1]);
-                    return new Mensaje(comando, x, y);
+            interpretarMensaje(linea, longitud, nombresBarcos, destino);
+            Metricas.MENSAJES_PARSEADOS.increment();
+            return destino;
+        } catch (IllegalArgumentException e) {
+            Metricas.ERRORES_PARSEO.increment();
+            throw e;
+        }
+    }
+
+    private static void interpretarMensaje(byte[] linea, int longitud, String[] nombresBarcos, Mensaje destino) {
+        int inicio = 0;
+        while (inicio < longitud && (linea[inicio] & 0xFF) <= ' ') {
+            inicio++;
+        }
+        if (inicio == longitud) {
+            throw new IllegalArgumentException("Mensaje nulo o vacío");
+        }
+
+        int finComando = buscar(linea, 0, longitud, SEPARADOR);
+        if (finComando == 0 && !hayCampoNoVacio(linea, 0, longitud)) {
+            throw formatoInvalido(linea, longitud);
+        }
+        String comando = comandoConocido(linea, finComando);
+        if (comando == null) {
+            comando = new String(linea, 0, finComando, StandardCharsets.UTF_8);
+        }
+        boolean conCoordenadas = DISPARAR.equals(comando) || IMPACTO.equals(comando)
+                || FALLO.equals(comando) || HUNDIDO.equals(comando);
+        if (!conCoordenadas) {
+            destino.asignar(comando, -1, -1, null);
+            return;
+        }
 
-                case IMPACTO:
-                case FALLO:
-                case HUNDIDO:
-                    coordenadas = partes[1].split(SEPARADOR_COORD);
-                    x = Integer.parseInt(coordenadas[0]);
-                    y = Integer.parseInt(coordenadas[1]);
-                    String tipoBarco = partes.length > 2 ? partes[2] : null;
-                    return new Mensaje(comando, x, y, tipoBarco);
+        // Coordenadas "x,y" en el segundo campo; lo que sigue a y se ignora
+        int inicioCampo = Math.min(finComando + 1, longitud);
+        int finCampo = buscar(linea, inicioCampo, longitud, SEPARADOR);
+        int coma = buscar(linea, inicioCampo, finCampo, SEPARADOR_X_Y);
+        if (coma == finCampo) {
+            throw formatoInvalido(linea, longitud);
+        }
+        int x = leerEntero(linea, inicioCampo, coma, longitud);
+        int y = leerEntero(linea, coma + 1, buscar(linea, coma + 1, finCampo, SEPARADOR_X_Y), longitud);
+
+        String tipoBarco = null;
+        if (!DISPARAR.equals(comando) && finCampo < longitud) {
+            int inicioBarco = finCampo + 1;
+            int finBarco = buscar(linea, inicioBarco, longitud, SEPARADOR);
+            if (finBarco > inicioBarco) {
+                tipoBarco = nombreBarco(linea, inicioBarco, finBarco, nombresBarcos);
+            } else if (hayCampoNoVacio(linea, finBarco, longitud)) {
+                // Como en la división por campos, solo se descartan los vacíos del final
+                tipoBarco = "";
+            }
+        }
+        destino.asignar(comando, x, y, tipoBarco);
+    }
+
+    private static int buscar(byte[] linea, int desde, int hasta, byte separador) {
+        int i = desde;
+        while (i < hasta && linea[i] != separador) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean hayCampoNoVacio(byte[] linea, int desde, int hasta) {
+        for (int i = desde; i < hasta; i++) {
+            if (linea[i] != SEPARADOR) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String comandoConocido(byte[] linea, int largo) {
+        for (String comando : COMANDOS) {
+            if (coincide(linea, 0, largo, comando)) {
+                return comando;
+            }
+        }
+        return null;
+    }
 
-                default:
-                    return new Mensaje(comando);
+    private static String nombreBarco(byte[] linea, int desde, int hasta, String[] nombresBarcos) {
+        if (nombresBarcos != null) {
+            for (String nombre : nombresBarcos) {
+                if (coincide(linea, desde, hasta, nombre)) {
+                    return nombre;
+                }
             }
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Mensaje con formato inválido: " + mensaje, e);
         }
+        return new String(linea, desde, hasta - desde, StandardCharsets.UTF_8);
     }
 
+    /**
+     * Compara bytes con una cadena; solo coinciden los caracteres ASCII, un
+     * nombre con otros caracteres se resuelve creando la cadena
+     */
+    private static boolean coincide(byte[] linea, int desde, int hasta, String texto) {
+        if (hasta - desde != texto.length()) {
+            return false;
+        }
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (c >= 0x80 || linea[desde + i] != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Entero decimal con signo opcional, con las mismas reglas que
+     * {@link Integer#parseInt(String)} para texto ASCII
+     */
+    private static int leerEntero(byte[] linea, int desde, int hasta, int longitud) {
+        if (desde >= hasta) {
+            throw formatoInvalido(linea, longitud);
+        }
+        boolean negativo = linea[desde] == '-';
+        int i = linea[desde] == '-' || linea[desde] == '+' ? desde + 1 : desde;
+        if (i == hasta) {
+            throw formatoInvalido(linea, longitud);
+        }
+        long limite = negativo ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+        long valor = 0;
+        for (; i < hasta; i++) {
+            int digito = linea[i] - '0';
+            if (digito < 0 || digito > 9) {
+                throw formatoInvalido(linea, longitud);
+            }
+            valor = valor * 10 + digito;
+            if (valor > limite) {
+                throw formatoInvalido(linea, longitud);
+            }
+        }
+        return (int) (negativo ? -valor : valor);
+    }
+
+    private static IllegalArgumentException formatoInvalido(byte[] linea, int longitud) {
+        return new IllegalArgumentException("Mensaje con formato inválido: "
+                + new String(linea, 0, longitud, StandardCharsets.UTF_8));
+    }
+
+    public static class Reanudacion {
+        public final String token;
+        public final int turnos;
+        public final boolean primero;
+
+        public Reanudacion(String token, int turnos, boolean primero) {
+            this.token = token;
+            this.turnos = turnos;
+            this.primero = primero;
+        }
+    }
+
+    /**
+     * Mensaje del protocolo. Los que se reciben por un {@link CanalMensajes}
+     * se reutilizan de un mensaje al siguiente; quien necesite conservar uno
+     * debe copiarlo.
+     */
     public static class Mensaje {
-        public final String comando;
-        public final int x;
-        public final int y;
-        public final String tipoBarco;
+        public String comando;
+        public int x;
+        public int y;
+        public String tipoBarco;
+
+        public Mensaje() {
+            this(null, -1, -1, null);
+        }
 
         public Mensaje(String comando) {
             this(comando, -1, -1, null);
@@ -84,10 +766,19 @@ public class ProtocoloBattleship {
         }
 
         public Mensaje(String comando, int x, int y, String tipoBarco) {
+            asignar(comando, x, y, tipoBarco);
+        }
+
+        void asignar(String comando, int x, int y, String tipoBarco) {
             this.comando = comando;
             this.x = x;
             this.y = y;
             this.tipoBarco = tipoBarco;
         }
+
+        @Override
+        public String toString() {
+            return x < 0 ? comando : construirMensajeResultado(comando, x, y, tipoBarco);
+        }
     }
 }
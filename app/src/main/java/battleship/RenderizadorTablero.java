@@ -0,0 +1,237 @@
+package battleship;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Dibuja los tableros armando cada cuadro completo en un buffer reutilizable
+ * y escribiéndolo de una sola vez. El modo se elige con la propiedad
+ * {@code battleship.render}:
+ * <ul>
+ * <li>{@code completo} (por defecto): escribe cada cuadro que se pide.</li>
+ * <li>{@code diferencial}: omite el cuadro si no cambió desde el anterior.</li>
+ * <li>{@code ninguno}: no dibuja nada, para partidas sin consola.</li>
+ * </ul>
+ */
+public class RenderizadorTablero {
+    public enum Modo { COMPLETO, DIFERENCIAL, NINGUNO }
+
+    // Más allá de este tamaño la grilla no entra en una consola
+    public static final int MAX_TAMANIO_DIBUJO = 50;
+    // Con flotas más grandes solo se resume cuántos barcos se hundieron
+    public static final int MAX_BARCOS_DETALLE = 20;
+
+    private static final byte[] TITULO_PROPIO = ascii("\n=== TU TABLERO ===\n");
+    private static final byte[] TITULO_ENEMIGO = ascii("\n=== TABLERO ENEMIGO ===\n");
+    private static final byte[] LEYENDA = ascii("\nLeyenda: ~=Agua, ?=Desconocido, X=Impacto, O=Fallo, Letras=Barcos\n");
+    private static final byte[] ESTADO_BARCOS = ascii("\nEstado de tus barcos:\n");
+    private static final byte[] HUNDIDO = ascii("HUNDIDO");
+    private static final byte[] HUNDIDOS = ascii("barcos hundidos\n");
+    private static final byte[] SIN_GRILLA = ascii("(tablero demasiado grande para dibujarlo)\n");
+
+    private final OutputStream salida;
+    private final Modo modo;
+    private byte[] buffer = new byte[1024];
+    private int longitud;
+    private byte[] anteriorPropio = new byte[0];
+    private int longitudAnteriorPropio = -1;
+    private byte[] anteriorEnemigo = new byte[0];
+    private int longitudAnteriorEnemigo = -1;
+
+    public RenderizadorTablero(OutputStream salida, Modo modo) {
+        this.salida = salida;
+        this.modo = modo;
+    }
+
+    /**
+     * Renderizador sobre la salida estándar con el modo configurado
+     */
+    public static RenderizadorTablero desdeConfiguracion() {
+        String valor = System.getProperty("battleship.render", "completo");
+        return new RenderizadorTablero(System.out, Modo.valueOf(valor.toUpperCase(Locale.ROOT)));
+    }
+
+    public Modo getModo() {
+        return modo;
+    }
+
+    public void mostrarTableroPropio(JuegoBattleship juego) {
+        if (modo == Modo.NINGUNO) return;
+
+        longitud = 0;
+        agregar(TITULO_PROPIO);
+        agregarTablero(juego, true);
+
+        // Estado de los barcos
+        agregar(ESTADO_BARCOS);
+        if (juego.getCantidadBarcos() > MAX_BARCOS_DETALLE) {
+            agregarResumenFlota(juego);
+        } else {
+            agregarDetalleFlota(juego);
+        }
+
+        if (modo == Modo.DIFERENCIAL && igualAlAnterior(anteriorPropio, longitudAnteriorPropio)) {
+            return;
+        }
+        anteriorPropio = guardar(anteriorPropio);
+        longitudAnteriorPropio = longitud;
+        escribir();
+    }
+
+    public void mostrarTableroEnemigo(JuegoBattleship juego) {
+        if (modo == Modo.NINGUNO) return;
+
+        longitud = 0;
+        agregar(TITULO_ENEMIGO);
+        agregarTablero(juego, false);
+
+        if (modo == Modo.DIFERENCIAL && igualAlAnterior(anteriorEnemigo, longitudAnteriorEnemigo)) {
+            return;
+        }
+        anteriorEnemigo = guardar(anteriorEnemigo);
+        longitudAnteriorEnemigo = longitud;
+        escribir();
+    }
+
+    private void agregarDetalleFlota(JuegoBattleship juego) {
+        for (int barco = 0; barco < juego.getCantidadBarcos(); barco++) {
+            int impactos = juego.impactosEnBarco(barco);
+            int tamanio = juego.getTamanioBarco(barco);
+            agregar(' ');
+            agregar(' ');
+            agregarTexto(juego.getNombreBarco(barco));
+            agregar(':');
+            agregar(' ');
+            if (impactos >= tamanio) {
+                agregar(HUNDIDO);
+            } else {
+                agregarNumero(impactos);
+                agregar('/');
+                agregarNumero(tamanio);
+            }
+            agregar('\n');
+        }
+    }
+
+    private void agregarResumenFlota(JuegoBattleship juego) {
+        int hundidos = 0;
+        for (int barco = 0; barco < juego.getCantidadBarcos(); barco++) {
+            if (juego.estaBarcoHundido(barco)) {
+                hundidos++;
+            }
+        }
+        agregar(' ');
+        agregar(' ');
+        agregarNumero(hundidos);
+        agregar('/');
+        agregarNumero(juego.getCantidadBarcos());
+        agregar(' ');
+        agregar(HUNDIDOS);
+    }
+
+    private void agregarTablero(JuegoBattleship juego, boolean propio) {
+        int tamanio = juego.getTamanioTablero();
+        if (tamanio > MAX_TAMANIO_DIBUJO) {
+            agregarNumero(tamanio);
+            agregar('x');
+            agregarNumero(tamanio);
+            agregar(' ');
+            agregar(SIN_GRILLA);
+            return;
+        }
+
+        // Todas las columnas con el ancho del número más largo
+        int ancho = digitos(tamanio - 1);
+        agregarRelleno(ancho + 1);
+        for (int i = 0; i < tamanio; i++) {
+            agregarNumero(i, ancho);
+            agregar(' ');
+        }
+        agregar('\n');
+
+        for (int i = 0; i < tamanio; i++) {
+            agregarNumero(i, ancho);
+            agregar(' ');
+            for (int j = 0; j < tamanio; j++) {
+                agregarRelleno(ancho - 1);
+                agregar(propio ? juego.caracterPropio(i, j) : juego.caracterEnemigo(i, j));
+                agregar(' ');
+            }
+            agregar('\n');
+        }
+
+        agregar(LEYENDA);
+    }
+
+    private boolean igualAlAnterior(byte[] anterior, int longitudAnterior) {
+        return longitudAnterior == longitud && Arrays.equals(anterior, 0, longitud, buffer, 0, longitud);
+    }
+
+    private byte[] guardar(byte[] destino) {
+        if (destino.length < longitud) {
+            destino = new byte[buffer.length];
+        }
+        System.arraycopy(buffer, 0, destino, 0, longitud);
+        return destino;
+    }
+
+    private void escribir() {
+        try {
+            salida.write(buffer, 0, longitud);
+            salida.flush();
+        } catch (IOException e) {
+            // La consola no está disponible: no hay dónde avisar
+        }
+    }
+
+    private void agregar(int b) {
+        if (longitud == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        buffer[longitud++] = (byte) b;
+    }
+
+    private void agregar(byte[] bytes) {
+        for (byte b : bytes) {
+            agregar(b);
+        }
+    }
+
+    private void agregarTexto(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            agregar(c < 128 ? c : '?');
+        }
+    }
+
+    private void agregarNumero(int numero, int ancho) {
+        agregarRelleno(ancho - digitos(numero));
+        agregarNumero(numero);
+    }
+
+    private void agregarRelleno(int espacios) {
+        for (int i = 0; i < espacios; i++) {
+            agregar(' ');
+        }
+    }
+
+    private static int digitos(int numero) {
+        int digitos = 1;
+        while (numero >= 10) {
+            numero /= 10;
+            digitos++;
+        }
+        return digitos;
+    }
+
+    private void agregarNumero(int numero) {
+        if (numero >= 10) {
+            agregarNumero(numero / 10);
+        }
+        agregar('0' + numero % 10);
+    }
+
+    private static byte[] ascii(String texto) {
+        return texto.getBytes(java.nio.charset.StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,88 @@
+package battleship;
+
+import java.io.*;
+import java.nio.file.*;
+
+/**
+ * Reproduce a toda velocidad una partida guardada por {@link DiarioPartida}:
+ * lista los eventos y al final muestra el resultado y, si se pide, los
+ * tableros finales.
+ * <p>
+ * Uso: {@code ReproductorDiario <archivo.diario> [--tableros] [--silencioso]}
+ */
+public class ReproductorDiario implements DiarioPartida.Oyente {
+    private final boolean silencioso;
+    private JuegoBattleship juego;
+    private int turnos;
+    private int disparosPropios;
+    private int aciertosPropios;
+    private int disparosRival;
+    private int aciertosRival;
+    private String resultado = "sin terminar";
+
+    public ReproductorDiario(boolean silencioso) {
+        this.silencioso = silencioso;
+    }
+
+    @Override
+    public void alIniciar(JuegoBattleship juego, boolean esServidor) {
+        this.juego = juego;
+        if (!silencioso) {
+            System.out.println("Partida " + juego.getConfiguracion() + (esServidor ? ", comenzando" : ", segundo"));
+        }
+    }
+
+    @Override
+    public void alEvento(boolean propio, ProtocoloBattleship.Mensaje mensaje) {
+        if (ProtocoloBattleship.JUEGO_TERMINADO.equals(mensaje.comando)) {
+            // Quien envía el fin de la partida es quien perdió su flota
+            resultado = propio ? "derrota" : "victoria";
+        } else if (!ProtocoloBattleship.DISPARAR.equals(mensaje.comando)) {
+            DiarioPartida.aplicarResultado(juego, propio, mensaje);
+            turnos++;
+            boolean acierto = !ProtocoloBattleship.FALLO.equals(mensaje.comando);
+            if (propio) {
+                disparosRival++;
+                if (acierto) aciertosRival++;
+            } else {
+                disparosPropios++;
+                if (acierto) aciertosPropios++;
+            }
+        }
+
+        if (!silencioso) {
+            System.out.println((propio ? "  > " : "  < ") + mensaje);
+        }
+    }
+
+    public String resumen() {
+        return "Turnos: " + turnos + ", resultado: " + resultado
+                + "\n  disparos propios: " + disparosPropios + " (" + aciertosPropios + " aciertos)"
+                + "\n  disparos del rival: " + disparosRival + " (" + aciertosRival + " aciertos)";
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Uso: ReproductorDiario <archivo.diario> [--tableros] [--silencioso]");
+            return;
+        }
+        boolean tableros = false;
+        boolean silencioso = false;
+        for (int i = 1; i < args.length; i++) {
+            if ("--tableros".equals(args[i])) tableros = true;
+            if ("--silencioso".equals(args[i])) silencioso = true;
+        }
+
+        ReproductorDiario reproductor = new ReproductorDiario(silencioso);
+        long inicio = System.nanoTime();
+        DiarioPartida.recorrer(Paths.get(args[0]), reproductor);
+        double milisegundos = (System.nanoTime() - inicio) / 1e6;
+
+        System.out.println(reproductor.resumen());
+        if (tableros && reproductor.juego != null) {
+            reproductor.juego.mostrarTableroEnemigo();
+            reproductor.juego.mostrarTableroPropio();
+        }
+        System.out.printf("Reproducida en %.2f ms%n", milisegundos);
+    }
+}
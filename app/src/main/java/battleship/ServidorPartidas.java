@@ -0,0 +1,522 @@
+package battleship;
+
+import java.io.*;
+import java.net.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * Servidor de partidas: acepta conexiones de forma continua, empareja a los
+ * jugadores de dos en dos según su puntuación Elo y retransmite el
+ * protocolo entre ellos. Cada
+ * conexión se atiende en su propio hilo virtual, por lo que un solo proceso
+ * puede mantener miles de partidas simultáneas. Con el transporte NIO las
+ * lecturas de todas las conexiones las atiende además un único selector.
+ * <p>
+ * Toda lectura tiene plazo, así que un jugador que deja de responder no
+ * retiene su hilo ni su conexión. Si ambos jugadores acordaron una sesión
+ * reanudable, quien se desconecta tiene un tiempo de gracia para volver con
+ * REANUDAR y el token de la sesión en lugar de su nombre.
+ * <p>
+ * Quien se conecta con ESPECTAR (y opcionalmente el número de partida) mira
+ * una partida en curso: recibe los resultados a medida que ocurren, a través
+ * de {@link TransmisionPartida}.
+ */
+public class ServidorPartidas {
+    // Plazo para recibir el nombre o el pedido de reanudación
+    private static final int TIEMPO_SALUDO_MS = 30_000;
+    // Quien no anuncia sesiones tampoco envía latidos: se le da más margen
+    private static final int TIEMPO_LECTURA_SIN_SESION_MS = 10 * 60_000;
+    private static final int INTERVALO_EMPAREJAMIENTO_MS = 500;
+
+    private final int puerto;
+    private final ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger contadorPartidas = new AtomicInteger();
+    private final AtomicInteger partidasActivas = new AtomicInteger();
+    private final Map<String, Partida> sesiones = new ConcurrentHashMap<>();
+    private final Map<Integer, Partida> enCurso = new ConcurrentHashMap<>();
+    private final ClasificacionElo clasificacion = new ClasificacionElo();
+    private final ColaEmparejamiento<Jugador> cola = new ColaEmparejamiento<>(j -> j.transporte.isAbierto());
+    private final ScheduledExecutorService emparejador = Executors.newSingleThreadScheduledExecutor();
+    private final AtomicBoolean emparejadorProgramado = new AtomicBoolean();
+    private ServerSocketChannel servidor;
+    // Sin avisos por partida, para pruebas de carga
+    private volatile boolean silencioso;
+
+    public ServidorPartidas(int puerto) {
+        this.puerto = puerto;
+    }
+
+    public void iniciar() throws IOException {
+        servidor = ServerSocketChannel.open().bind(new InetSocketAddress(puerto));
+        System.out.println("Servidor de partidas escuchando en puerto " + puerto
+                + (Transporte.usarNio() ? " (NIO)" : "") + "...");
+
+        programarEmparejamiento();
+
+        while (servidor.isOpen()) {
+            Transporte transporte;
+            try {
+                transporte = Transporte.aceptar(servidor);
+            } catch (ClosedChannelException e) {
+                break; // Servidor cerrado
+            } catch (IOException e) {
+                System.err.println("Error al aceptar conexión: " + e.getMessage());
+                continue;
+            }
+            hilos.execute(() -> atenderConexion(transporte));
+        }
+    }
+
+    /**
+     * Atiende una conexión que no llegó por el puerto, como un extremo de
+     * {@link TransporteMemoria}. No hace falta haber llamado a {@link #iniciar()}.
+     */
+    public void atender(Transporte transporte) {
+        programarEmparejamiento();
+        hilos.execute(() -> atenderConexion(transporte));
+    }
+
+    public void setSilencioso(boolean silencioso) {
+        this.silencioso = silencioso;
+    }
+
+    private void programarEmparejamiento() {
+        if (emparejadorProgramado.compareAndSet(false, true)) {
+            // Quienes esperan amplían su margen de puntuación con el tiempo
+            emparejador.scheduleWithFixedDelay(this::emparejarPendientes,
+                    INTERVALO_EMPAREJAMIENTO_MS, INTERVALO_EMPAREJAMIENTO_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void avisar(String mensaje) {
+        if (!silencioso) {
+            System.out.println(mensaje);
+        }
+    }
+
+    public void detener() throws IOException {
+        if (servidor != null)
+            servidor.close();
+        emparejador.shutdownNow();
+        hilos.shutdownNow();
+    }
+
+    public int getPartidasActivas() {
+        return partidasActivas.get();
+    }
+
+    public int getJugadoresEnEspera() {
+        return cola.getCantidadEnEspera();
+    }
+
+    public ClasificacionElo getClasificacion() {
+        return clasificacion;
+    }
+
+    private void atenderConexion(Transporte transporte) {
+        Jugador jugador = new Jugador(transporte);
+        try {
+            // El cliente envía su nombre en cuanto se conecta, o pide reanudar
+            transporte.setTiempoLectura(TIEMPO_SALUDO_MS);
+            String linea = jugador.canal.leerLinea();
+            if (linea == null) {
+                jugador.cerrar();
+                return;
+            }
+            if (jugador.canal.esComando(ProtocoloBattleship.REANUDAR)) {
+                reanudar(jugador, linea);
+                return;
+            }
+            if (jugador.canal.esComando(ProtocoloBattleship.ESPECTAR)) {
+                mirar(jugador, linea);
+                return;
+            }
+            jugador.nombre = linea;
+
+            Jugador rival = cola.unirse(jugador, clasificacion.puntuacion(jugador.nombre));
+            if (rival != null) {
+                jugarPartida(rival, jugador);
+            }
+        } catch (IOException e) {
+            jugador.cerrar();
+        }
+    }
+
+    private void jugarPartida(Jugador primero, Jugador segundo) {
+        int numero = contadorPartidas.incrementAndGet();
+        partidasActivas.incrementAndGet();
+        Metricas.PARTIDAS_ACTIVAS.increment();
+        String descripcionPrimero = describir(primero);
+        String descripcionSegundo = describir(segundo);
+        avisar("Partida #" + numero + " iniciada: " + descripcionPrimero + " vs " + descripcionSegundo
+                + " (activas: " + partidasActivas.get() + ")");
+        Partida partida = new Partida(primero, segundo, new TransmisionPartida(numero, primero.nombre, segundo.nombre));
+        enCurso.put(numero, partida);
+
+        // Quien esperaba comienza, igual que el anfitrión en una partida P2P
+        try {
+            primero.canal.enviarLinea(ProtocoloBattleship.construirMensajeEmparejado(true, descripcionSegundo));
+            segundo.canal.enviarLinea(ProtocoloBattleship.construirMensajeEmparejado(false, descripcionPrimero));
+            primero.transporte.setTiempoLectura(TIEMPO_LECTURA_SIN_SESION_MS);
+            segundo.transporte.setTiempoLectura(TIEMPO_LECTURA_SIN_SESION_MS);
+        } catch (IOException e) {
+            partida.terminar();
+        }
+
+        Future<?> ida = hilos.submit(() -> retransmitir(partida, 0));
+        retransmitir(partida, 1);
+        try {
+            ida.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // La retransmisión ya cerró ambas conexiones
+        } finally {
+            enCurso.remove(numero);
+            partida.transmision.terminar(null);
+            if (partida.token != null) {
+                sesiones.remove(partida.token, partida);
+            }
+            partidasActivas.decrementAndGet();
+            Metricas.PARTIDAS_ACTIVAS.decrement();
+            avisar("Partida #" + numero + " finalizada (activas: " + partidasActivas.get() + ")");
+        }
+    }
+
+    private void emparejarPendientes() {
+        cola.emparejarPendientes((primero, segundo) -> hilos.execute(() -> jugarPartida(primero, segundo)));
+    }
+
+    private String describir(Jugador jugador) {
+        return jugador.nombre + " (" + clasificacion.puntuacion(jugador.nombre) + ")";
+    }
+
+    /**
+     * Copia las tramas de un jugador al otro hasta que la partida termina.
+     * Las tramas se reenvían tal cual, ya sean de texto o binarias. En una
+     * sesión reanudable la desconexión de quien envía no termina la partida
+     * mientras vuelva a tiempo, y lo que no se pudo entregar al otro lo
+     * reenvían los propios jugadores al reanudar.
+     */
+    private void retransmitir(Partida partida, int indice) {
+        Jugador origen = partida.jugador(indice);
+        try {
+            while (origen != null) {
+                try {
+                    while (origen.canal.leerTrama()) {
+                        observar(partida, indice, origen);
+                        try {
+                            partida.jugador(1 - indice).canal.reenviar(origen.canal);
+                        } catch (IOException e) {
+                            if (!partida.esReanudable()) {
+                                return;
+                            }
+                        }
+                    }
+                } catch (IOException e) {
+                    // Desconexión o plazo de lectura vencido
+                }
+                if (!partida.terminada) {
+                    Metricas.DESCONEXIONES.increment();
+                }
+                origen = partida.esReanudable() ? partida.esperarRegreso(indice, origen) : null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            partida.terminar();
+        }
+    }
+
+    /**
+     * Sigue en las tramas que retransmite la configuración, la negociación de
+     * la sesión, los resultados (sueltos o de una salva), que se transmiten a
+     * los espectadores y se suman a {@link AnaliticaPartidas}, y el fin del
+     * juego, que actualiza la clasificación.
+     * Solo convierte a texto las líneas de la negociación y las salvas.
+     */
+    private void observar(Partida partida, int indice, Jugador origen) throws IOException {
+        CanalMensajes canal = origen.canal;
+        if (canal.esComando(ProtocoloBattleship.JUEGO_TERMINADO)) {
+            // Quien avisa el fin del juego es quien perdió su flota
+            if (!partida.terminada) {
+                partida.terminada = true;
+                String ganador = partida.jugador(1 - indice).nombre;
+                int puntos = clasificacion.registrarResultado(ganador, origen.nombre);
+                AnaliticaPartidas.GLOBAL.registrarPartida(ganador, origen.nombre, partida.disparos[1 - indice]);
+                avisar(ganador + " venció a " + origen.nombre + " (+" + puntos + " puntos)");
+                partida.transmision.terminar(ganador);
+            }
+        } else if (canal.esComando(ProtocoloBattleship.IMPACTO) || canal.esComando(ProtocoloBattleship.FALLO)
+                || canal.esComando(ProtocoloBattleship.HUNDIDO)) {
+            // Quien envía el resultado es el blanco del disparo
+            try {
+                ProtocoloBattleship.Mensaje resultado = canal.mensajeDeTrama();
+                partida.transmision.anotar(1 - indice, resultado);
+                partida.analizar(1 - indice, resultado);
+            } catch (IllegalArgumentException e) {
+                // Los jugadores lo rechazarán; no se transmite
+            }
+        } else if (canal.esComando(ProtocoloBattleship.RESULTADOS)) {
+            // Respuesta a una salva: se transmite disparo por disparo
+            try {
+                for (ProtocoloBattleship.Mensaje resultado
+                        : ProtocoloBattleship.parsearResultados(canal.tramaComoTexto(), null)) {
+                    partida.transmision.anotar(1 - indice, resultado);
+                    partida.analizar(1 - indice, resultado);
+                }
+            } catch (IllegalArgumentException e) {
+                // Los jugadores la rechazarán; no se transmite
+            }
+        } else if (partida.token == null && !canal.esTramaBinaria()) {
+            if (canal.esComando(ProtocoloBattleship.LISTO) && ProtocoloBattleship
+                    .anunciaCapacidad(canal.tramaComoTexto(), ProtocoloBattleship.CAPACIDAD_SESIONES)) {
+                origen.transporte.setTiempoLectura(ProtocoloBattleship.TIEMPO_LECTURA_MS);
+                partida.anunciaSesiones[indice] = true;
+            } else if (indice == 0 && canal.esComando(ProtocoloBattleship.CONFIGURACION)) {
+                try {
+                    String linea = canal.tramaComoTexto();
+                    ConfiguracionPartida configuracion = ProtocoloBattleship.parsearConfiguracion(linea);
+                    partida.setNombresBarcos(configuracion.getNombresBarcos());
+                    partida.tamanio = configuracion.getTamanioTablero();
+                    partida.transmision.setConfiguracion(linea);
+                } catch (IllegalArgumentException e) {
+                    // El otro jugador la rechazará
+                }
+            } else if (indice == 0 && canal.esComando(ProtocoloBattleship.SESION)) {
+                // El token lo elige quien comienza; uno inválido deja la partida sin sesión
+                try {
+                    String token = ProtocoloBattleship.parsearSesion(canal.tramaComoTexto());
+                    if (sesiones.putIfAbsent(token, partida) == null) {
+                        partida.token = token;
+                    }
+                } catch (IllegalArgumentException e) {
+                    partida.anunciaSesiones[indice] = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Transmite una partida en curso a un espectador hasta que termina
+     */
+    private void mirar(Jugador espectador, String linea) throws IOException {
+        Partida partida = null;
+        String[] partes = linea.split("\\" + ProtocoloBattleship.SEPARADOR_CAMPOS);
+        try {
+            partida = partes.length > 1
+                    ? enCurso.get(Integer.parseInt(partes[1].trim()))
+                    : enCurso.get(enCurso.keySet().stream().max(Integer::compare).orElse(-1));
+        } catch (NumberFormatException e) {
+            // Número inválido: como si no existiera
+        }
+        if (partida == null) {
+            espectador.canal.enviarLinea(ProtocoloBattleship.ERROR + ProtocoloBattleship.SEPARADOR_CAMPOS
+                    + "No hay esa partida en curso");
+            espectador.cerrar();
+            return;
+        }
+        // El espectador no envía nada más; solo se le escribe
+        espectador.transporte.setTiempoLectura(0);
+        try {
+            partida.transmision.transmitir(espectador.canal);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Devuelve a su partida a un jugador que se reconecta y le pasa al rival
+     * el pedido de reanudación, que este contesta con sus propios turnos
+     */
+    private void reanudar(Jugador jugador, String linea) throws IOException {
+        ProtocoloBattleship.Reanudacion reanudacion;
+        try {
+            reanudacion = ProtocoloBattleship.parsearReanudar(linea);
+        } catch (IllegalArgumentException e) {
+            reanudacion = null;
+        }
+        Partida partida = reanudacion != null ? sesiones.get(reanudacion.token) : null;
+        if (partida == null || partida.terminada) {
+            jugador.canal.enviarLinea(ProtocoloBattleship.ERROR + ProtocoloBattleship.SEPARADOR_CAMPOS
+                    + "Sesión desconocida");
+            jugador.cerrar();
+            return;
+        }
+
+        int indice = reanudacion.primero ? 0 : 1;
+        jugador.transporte.setTiempoLectura(ProtocoloBattleship.TIEMPO_LECTURA_MS);
+        Jugador anterior = partida.reemplazar(indice, jugador);
+        jugador.nombre = anterior.nombre;
+        Metricas.RECONEXIONES.increment();
+        avisar(jugador.nombre + " volvió a su partida desde " + jugador.transporte.getDireccionRemota());
+        try {
+            partida.jugador(1 - indice).canal.enviarLinea(linea);
+        } catch (IOException e) {
+            // Si el rival también cayó, su propia reanudación pondrá a ambos al día
+        }
+    }
+
+    /**
+     * Los dos jugadores de una partida. Un jugador puede cambiar de conexión
+     * al reanudar, por eso se consultan siempre a través de la partida.
+     */
+    private static final class Partida {
+        private final Jugador[] jugadores;
+        final TransmisionPartida transmision;
+        private final ReentrantLock candado = new ReentrantLock();
+        private final Condition cambio = candado.newCondition();
+        final boolean[] anunciaSesiones = new boolean[2];
+        volatile String token;
+        volatile boolean terminada;
+
+        // Flota con la que se leen los barcos hundidos de las tramas binarias
+        private String[] nombresBarcos = ConfiguracionPartida.ESTANDAR.getNombresBarcos();
+        volatile int tamanio = ConfiguracionPartida.ESTANDAR.getTamanioTablero();
+        // Disparos respondidos de cada jugador; cada posición la escribe solo
+        // el hilo que retransmite las respuestas de su rival
+        final int[] disparos = new int[2];
+
+        Partida(Jugador primero, Jugador segundo, TransmisionPartida transmision) {
+            this.jugadores = new Jugador[] { primero, segundo };
+            this.transmision = transmision;
+            primero.canal.setNombresBarcos(nombresBarcos);
+            segundo.canal.setNombresBarcos(nombresBarcos);
+        }
+
+        void setNombresBarcos(String[] nombresBarcos) {
+            candado.lock();
+            try {
+                this.nombresBarcos = nombresBarcos;
+                jugadores[0].canal.setNombresBarcos(nombresBarcos);
+                jugadores[1].canal.setNombresBarcos(nombresBarcos);
+            } finally {
+                candado.unlock();
+            }
+        }
+
+        /**
+         * Suma a las estadísticas del proceso un disparo de {@code tirador}
+         */
+        void analizar(int tirador, ProtocoloBattleship.Mensaje resultado) {
+            disparos[tirador]++;
+            AnaliticaPartidas.GLOBAL.registrarDisparo(jugador(tirador).nombre, tamanio, resultado.x, resultado.y,
+                    resultado.comando);
+        }
+
+        Jugador jugador(int indice) {
+            candado.lock();
+            try {
+                return jugadores[indice];
+            } finally {
+                candado.unlock();
+            }
+        }
+
+        boolean esReanudable() {
+            return token != null && anunciaSesiones[0] && anunciaSesiones[1] && !terminada;
+        }
+
+        Jugador reemplazar(int indice, Jugador nuevo) {
+            candado.lock();
+            try {
+                Jugador anterior = jugadores[indice];
+                nuevo.canal.setNombresBarcos(nombresBarcos);
+                jugadores[indice] = nuevo;
+                anterior.cerrar();
+                cambio.signalAll();
+                return anterior;
+            } finally {
+                candado.unlock();
+            }
+        }
+
+        /**
+         * Espera a que el jugador caído vuelva con otra conexión y la
+         * devuelve, o null si se vence el tiempo de gracia. Mientras tanto
+         * envía latidos al otro jugador para que no dé la conexión por perdida.
+         * El latido se escribe sin el candado: si el otro deja de leer, la
+         * escritura se bloquea y el regreso no debe quedar esperándola.
+         */
+        Jugador esperarRegreso(int indice, Jugador caido) throws InterruptedException {
+            caido.cerrar();
+            long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ProtocoloBattleship.TIEMPO_RECONEXION_MS);
+            long intervalo = TimeUnit.MILLISECONDS.toNanos(ProtocoloBattleship.INTERVALO_LATIDO_MS);
+            while (true) {
+                Jugador otro;
+                candado.lock();
+                try {
+                    if (terminada) {
+                        return null;
+                    }
+                    if (jugadores[indice] != caido) {
+                        return jugadores[indice];
+                    }
+                    if (limite - System.nanoTime() <= 0) {
+                        return null;
+                    }
+                    otro = jugadores[1 - indice];
+                } finally {
+                    candado.unlock();
+                }
+
+                try {
+                    otro.canal.enviarLatido();
+                } catch (IOException e) {
+                    // El otro también cayó; su retransmisión lo espera
+                }
+
+                candado.lock();
+                try {
+                    long espera = Math.min(limite - System.nanoTime(), intervalo);
+                    while (espera > 0 && jugadores[indice] == caido && !terminada) {
+                        espera = cambio.awaitNanos(espera);
+                    }
+                } finally {
+                    candado.unlock();
+                }
+            }
+        }
+
+        void terminar() {
+            candado.lock();
+            try {
+                terminada = true;
+                jugadores[0].cerrar();
+                jugadores[1].cerrar();
+                cambio.signalAll();
+            } finally {
+                candado.unlock();
+            }
+        }
+    }
+
+    private static class Jugador {
+        final Transporte transporte;
+        final CanalMensajes canal;
+        String nombre;
+
+        Jugador(Transporte transporte) {
+            this.transporte = transporte;
+            this.canal = new CanalMensajes(transporte);
+        }
+
+        void cerrar() {
+            try {
+                transporte.close();
+            } catch (IOException e) {
+                // Ya estaba cerrado
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int puerto = args.length > 0 ? Integer.parseInt(args[0]) : BattleshipP2P.PUERTO;
+        Metricas.exponer();
+        new ServidorPartidas(puerto).iniciar();
+    }
+}
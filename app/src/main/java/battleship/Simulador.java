@@ -0,0 +1,187 @@
+package battleship;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+/**
+ * Motor de simulación sin entrada ni salida: enfrenta dos estrategias en
+ * partidas completas y reparte lotes grandes entre todos los núcleos con
+ * fork/join. Cada partida usa su propia semilla, así que los resultados no
+ * dependen de cómo se reparta el trabajo.
+ */
+public class Simulador {
+    private static final int UMBRAL_LOTE = 1024;
+
+    private final ConfiguracionPartida configuracion;
+    private final Supplier<EstrategiaDisparo> fabricaA;
+    private final Supplier<EstrategiaDisparo> fabricaB;
+
+    public Simulador(Supplier<EstrategiaDisparo> fabricaA, Supplier<EstrategiaDisparo> fabricaB) {
+        this(ConfiguracionPartida.ESTANDAR, fabricaA, fabricaB);
+    }
+
+    public Simulador(ConfiguracionPartida configuracion,
+            Supplier<EstrategiaDisparo> fabricaA, Supplier<EstrategiaDisparo> fabricaB) {
+        this.configuracion = configuracion;
+        this.fabricaA = fabricaA;
+        this.fabricaB = fabricaB;
+    }
+
+    /**
+     * Juega una sola partida y devuelve el ganador (0 = A, 1 = B, -1 = ninguno)
+     */
+    public int jugarPartida(long semilla) {
+        return new Mesa().jugar(semilla, 0);
+    }
+
+    /**
+     * Simula {@code partidas} partidas en paralelo. El jugador que empieza se
+     * alterna para no favorecer a ninguna estrategia.
+     */
+    public EstadisticasSimulacion simular(long partidas, long semilla) {
+        return simular(partidas, semilla, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Como {@link #simular(long, long)}, pero en el pool indicado
+     */
+    public EstadisticasSimulacion simular(long partidas, long semilla, ForkJoinPool pool) {
+        return pool.invoke(new Lote(0, partidas, semilla));
+    }
+
+    /**
+     * Simula en el hilo actual las partidas {@code desde} (incluida) a
+     * {@code hasta} de la serie de {@code semilla}: los mismos índices dan las
+     * mismas partidas que en {@link #simular}
+     */
+    public EstadisticasSimulacion simularRango(long desde, long hasta, long semilla) {
+        Mesa mesa = new Mesa();
+        EstadisticasSimulacion estadisticas = new EstadisticasSimulacion(mesa.limiteDisparos);
+        for (long i = desde; i < hasta; i++) {
+            int ganador = mesa.jugar(semillaDePartida(semilla, i), (int) (i & 1));
+            estadisticas.registrar(ganador, ganador >= 0 ? mesa.disparos[ganador] : 0);
+        }
+        return estadisticas;
+    }
+
+    private static long semillaDePartida(long semilla, long indice) {
+        return semilla + indice * 0x9E3779B97F4A7C15L;
+    }
+
+    private class Lote extends RecursiveTask<EstadisticasSimulacion> {
+        private static final long serialVersionUID = 1L;
+
+        private final long desde;
+        private final long hasta;
+        private final long semilla;
+
+        Lote(long desde, long hasta, long semilla) {
+            this.desde = desde;
+            this.hasta = hasta;
+            this.semilla = semilla;
+        }
+
+        @Override
+        protected EstadisticasSimulacion compute() {
+            if (hasta - desde <= UMBRAL_LOTE) {
+                return simularRango(desde, hasta, semilla);
+            }
+
+            long medio = (desde + hasta) >>> 1;
+            Lote izquierda = new Lote(desde, medio, semilla);
+            izquierda.fork();
+            EstadisticasSimulacion resultado = new Lote(medio, hasta, semilla).compute();
+            resultado.combinar(izquierda.join());
+            return resultado;
+        }
+    }
+
+    /**
+     * Estado reutilizable de un hilo: dos juegos y dos estrategias
+     */
+    private class Mesa {
+        final JuegoBattleship[] juegos = { new JuegoBattleship(configuracion), new JuegoBattleship(configuracion) };
+        final EstrategiaDisparo[] estrategias = { fabricaA.get(), fabricaB.get() };
+        final int[] disparos = new int[2];
+        final int tamanio = juegos[0].getTamanioTablero();
+        // Tope de seguridad para estrategias que repiten celdas
+        final int limiteDisparos = tamanio * tamanio * 2;
+
+        int jugar(long semilla, int primero) {
+            SplittableRandom random = new SplittableRandom(semilla);
+            for (int j = 0; j < 2; j++) {
+                juegos[j].reiniciar();
+                juegos[j].colocarBarcosAutomaticamente(random);
+                estrategias[j].reiniciar(juegos[j], random);
+                disparos[j] = 0;
+            }
+
+            int turno = primero;
+            while (disparos[turno] < limiteDisparos) {
+                JuegoBattleship propio = juegos[turno];
+                JuegoBattleship rival = juegos[1 - turno];
+
+                int celda = estrategias[turno].elegirDisparo();
+                int fila = celda / tamanio;
+                int columna = celda % tamanio;
+                disparos[turno]++;
+
+                String resultado = ProtocoloBattleship.FALLO;
+                String tipoBarco = null;
+                boolean repetido = propio.yaDisparado(fila, columna);
+                if (rival.recibirDisparo(fila, columna)) {
+                    int barco = rival.barcoEn(fila, columna);
+                    propio.registrarImpacto(fila, columna);
+                    if (rival.estaBarcoHundido(barco)) {
+                        resultado = ProtocoloBattleship.HUNDIDO;
+                        tipoBarco = rival.getNombreBarco(barco);
+                    } else {
+                        resultado = ProtocoloBattleship.IMPACTO;
+                    }
+                } else if (!repetido) {
+                    propio.registrarFallo(fila, columna);
+                }
+                estrategias[turno].registrarResultado(fila, columna, resultado, tipoBarco);
+
+                if (rival.todosBarcosHundidos()) {
+                    return turno;
+                }
+                turno = 1 - turno;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Crea la fábrica de una estrategia a partir de su nombre
+     */
+    public static Supplier<EstrategiaDisparo> fabrica(String nombre) {
+        switch (nombre.toLowerCase()) {
+            case "aleatoria": return EstrategiaAleatoria::new;
+            case "cazahundir": return EstrategiaCazaHundir::new;
+            case "probabilidad": return EstrategiaProbabilidad::new;
+            case "libro": return () -> new EstrategiaLibro(new EstrategiaProbabilidad());
+            default: throw new IllegalArgumentException("Estrategia desconocida: " + nombre);
+        }
+    }
+
+    public static void main(String[] args) {
+        long partidas = args.length > 0 ? Long.parseLong(args[0]) : 100_000;
+        String nombreA = args.length > 1 ? args[1] : "probabilidad";
+        String nombreB = args.length > 2 ? args[2] : "cazahundir";
+        long semilla = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+
+        ConfiguracionPartida configuracion = ConfiguracionPartida.desdeConfiguracion();
+        Simulador simulador = new Simulador(configuracion, fabrica(nombreA), fabrica(nombreB));
+        System.out.println("Simulando " + partidas + " partidas de " + configuracion + ": " + nombreA + " vs " + nombreB
+                + " en " + ForkJoinPool.commonPool().getParallelism() + " hilos...");
+
+        long inicio = System.nanoTime();
+        EstadisticasSimulacion estadisticas = simulador.simular(partidas, semilla);
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        System.out.print(estadisticas.resumen(nombreA, nombreB));
+        System.out.printf("Tiempo: %.2f s (%.0f partidas/s)%n", segundos, partidas / segundos);
+    }
+}
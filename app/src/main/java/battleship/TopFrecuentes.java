@@ -0,0 +1,79 @@
+package battleship;
+
+import java.util.*;
+
+/**
+ * Claves más frecuentes de un flujo con el algoritmo Space-Saving. Guarda a
+ * lo sumo {@code capacidad} claves: una clave nueva con la tabla llena ocupa
+ * el lugar de la de menor cuenta y hereda esa cuenta como error posible.
+ * Toda clave que aparezca más de {@code N / capacidad} veces está en la
+ * tabla, y su cuenta la excede en a lo sumo su error.
+ */
+public final class TopFrecuentes {
+    private final int capacidad;
+    private final Map<String, Entrada> entradas;
+
+    public TopFrecuentes(int capacidad) {
+        if (capacidad < 1) {
+            throw new IllegalArgumentException("Capacidad inválida: " + capacidad);
+        }
+        this.capacidad = capacidad;
+        this.entradas = new HashMap<>(capacidad * 2);
+    }
+
+    public synchronized void agregar(String clave) {
+        Entrada entrada = entradas.get(clave);
+        if (entrada != null) {
+            entrada.cuenta++;
+            return;
+        }
+        if (entradas.size() < capacidad) {
+            entradas.put(clave, new Entrada(clave, 1, 0));
+            return;
+        }
+        // Con pocas entradas recorrerlas es más barato que mantener un heap
+        Entrada menor = null;
+        for (Entrada candidata : entradas.values()) {
+            if (menor == null || candidata.cuenta < menor.cuenta) {
+                menor = candidata;
+            }
+        }
+        entradas.remove(menor.clave);
+        entradas.put(clave, new Entrada(clave, menor.cuenta + 1, menor.cuenta));
+    }
+
+    /**
+     * Copia de las entradas, de mayor a menor cuenta
+     */
+    public synchronized List<Entrada> mayores() {
+        List<Entrada> copia = new ArrayList<>(entradas.size());
+        for (Entrada entrada : entradas.values()) {
+            copia.add(new Entrada(entrada.clave, entrada.cuenta, entrada.error));
+        }
+        copia.sort(Comparator.comparingLong((Entrada e) -> e.cuenta).reversed().thenComparing(e -> e.clave));
+        return copia;
+    }
+
+    public static final class Entrada {
+        public final String clave;
+        long cuenta;
+        final long error;
+
+        Entrada(String clave, long cuenta, long error) {
+            this.clave = clave;
+            this.cuenta = cuenta;
+            this.error = error;
+        }
+
+        public long getCuenta() {
+            return cuenta;
+        }
+
+        /**
+         * Cuánto puede exceder la cuenta a la real
+         */
+        public long getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package battleship;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+
+/**
+ * Torneo entre estrategias de disparo, en liga (todos contra todos) o por
+ * sistema suizo, con muchas partidas en cada cruce. Las partidas de todos los
+ * cruces de una ronda se dividen en lotes que se reparten con fork/join, así
+ * que los núcleos libres le roban trabajo a los ocupados, y cada lote
+ * terminado se suma a la tabla, que se puede consultar mientras el torneo
+ * avanza.
+ */
+public class Torneo {
+    static final int PARTIDAS_POR_LOTE = 256;
+    private static final int INTERVALO_TABLA_MS = 1000;
+
+    public enum Formato { LIGA, SUIZO }
+
+    private final ConfiguracionPartida configuracion;
+    private final String[] nombres;
+    private final List<Supplier<EstrategiaDisparo>> fabricas;
+    private final long partidasPorCruce;
+    private final long semilla;
+    // Resultados de cada cruce desde el punto de vista del primero (i < j)
+    private final EstadisticasSimulacion[][] cruces;
+    private final Simulador[][] simuladores;
+    private long partidasJugadas;
+    private int rondasJugadas;
+
+    public Torneo(ConfiguracionPartida configuracion, String[] nombres, List<Supplier<EstrategiaDisparo>> fabricas,
+            long partidasPorCruce, long semilla) {
+        if (nombres.length < 2 || nombres.length != fabricas.size()) {
+            throw new IllegalArgumentException("Un torneo necesita al menos dos estrategias con nombre");
+        }
+        this.configuracion = configuracion;
+        this.nombres = nombres.clone();
+        this.fabricas = List.copyOf(fabricas);
+        this.partidasPorCruce = partidasPorCruce;
+        this.semilla = semilla;
+        this.cruces = new EstadisticasSimulacion[nombres.length][nombres.length];
+        this.simuladores = new Simulador[nombres.length][nombres.length];
+    }
+
+    /**
+     * Juega el torneo completo y bloquea hasta que termina. En el sistema
+     * suizo las rondas son secuenciales porque cada una empareja según la
+     * tabla de la anterior.
+     */
+    public void jugar(Formato formato, int rondas) {
+        if (formato == Formato.LIGA) {
+            List<int[]> todos = new ArrayList<>();
+            for (int i = 0; i < nombres.length; i++) {
+                for (int j = i + 1; j < nombres.length; j++) {
+                    todos.add(new int[] { i, j });
+                }
+            }
+            jugarRonda(todos);
+            return;
+        }
+        for (int r = 0; r < rondas; r++) {
+            List<int[]> emparejados = emparejarSuizo();
+            if (emparejados.isEmpty()) {
+                return;
+            }
+            jugarRonda(emparejados);
+        }
+    }
+
+    /**
+     * Rondas que usa el sistema suizo si no se indican: las necesarias para
+     * separar a un ganador, sin repetir cruces
+     */
+    public int rondasSuizoPredeterminadas() {
+        int rondas = 32 - Integer.numberOfLeadingZeros(nombres.length - 1);
+        return Math.max(1, Math.min(rondas, nombres.length - 1));
+    }
+
+    private void jugarRonda(List<int[]> emparejados) {
+        List<ForkJoinTask<?>> lotes = new ArrayList<>();
+        for (int[] cruce : emparejados) {
+            int a = cruce[0];
+            int b = cruce[1];
+            Simulador simulador = simulador(a, b);
+            long semillaCruce = semilla + (a * 31L + b) * 0xC2B2AE3D27D4EB4FL;
+            for (long desde = 0; desde < partidasPorCruce; desde += PARTIDAS_POR_LOTE) {
+                long inicio = desde;
+                long fin = Math.min(partidasPorCruce, desde + PARTIDAS_POR_LOTE);
+                lotes.add(ForkJoinTask.adapt(() -> registrar(a, b, simulador.simularRango(inicio, fin, semillaCruce))));
+            }
+        }
+        ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute() {
+                invokeAll(lotes);
+            }
+        });
+        synchronized (this) {
+            rondasJugadas++;
+        }
+    }
+
+    private synchronized Simulador simulador(int a, int b) {
+        if (simuladores[a][b] == null) {
+            simuladores[a][b] = new Simulador(configuracion, fabricas.get(a), fabricas.get(b));
+        }
+        return simuladores[a][b];
+    }
+
+    private synchronized void registrar(int a, int b, EstadisticasSimulacion lote) {
+        if (cruces[a][b] == null) {
+            cruces[a][b] = lote;
+        } else {
+            cruces[a][b].combinar(lote);
+        }
+        partidasJugadas += lote.getPartidas();
+    }
+
+    /**
+     * Empareja a cada estrategia, de la mejor a la peor en la tabla, con la
+     * siguiente que todavía no enfrentó. Con un número impar, la última sin
+     * rival descansa la ronda.
+     */
+    private List<int[]> emparejarSuizo() {
+        List<Posicion> tabla = tabla();
+        boolean[] emparejada = new boolean[nombres.length];
+        List<int[]> emparejados = new ArrayList<>();
+        for (int p = 0; p < tabla.size(); p++) {
+            int a = tabla.get(p).indice;
+            if (emparejada[a]) continue;
+            for (int q = p + 1; q < tabla.size(); q++) {
+                int b = tabla.get(q).indice;
+                if (!emparejada[b] && !seEnfrentaron(a, b)) {
+                    emparejada[a] = true;
+                    emparejada[b] = true;
+                    emparejados.add(new int[] { Math.min(a, b), Math.max(a, b) });
+                    break;
+                }
+            }
+        }
+        return emparejados;
+    }
+
+    private synchronized boolean seEnfrentaron(int a, int b) {
+        return cruces[Math.min(a, b)][Math.max(a, b)] != null;
+    }
+
+    public synchronized long getPartidasJugadas() {
+        return partidasJugadas;
+    }
+
+    public synchronized int getRondasJugadas() {
+        return rondasJugadas;
+    }
+
+    /**
+     * Tabla de posiciones con lo jugado hasta ahora, ordenada por porcentaje
+     * de victorias y, a igualdad, por menos disparos para ganar
+     */
+    public synchronized List<Posicion> tabla() {
+        List<Posicion> tabla = new ArrayList<>(nombres.length);
+        for (int i = 0; i < nombres.length; i++) {
+            long partidas = 0;
+            long victorias = 0;
+            double disparos = 0;
+            for (int j = 0; j < nombres.length; j++) {
+                EstadisticasSimulacion cruce = i < j ? cruces[i][j] : cruces[j][i];
+                if (i == j || cruce == null) continue;
+                int lado = i < j ? 0 : 1;
+                partidas += cruce.getPartidas();
+                victorias += cruce.getVictorias(lado);
+                disparos += cruce.getMediaDisparosParaGanar(lado) * cruce.getVictorias(lado);
+            }
+            tabla.add(new Posicion(i, nombres[i], partidas, victorias, victorias == 0 ? 0 : disparos / victorias));
+        }
+        tabla.sort(Comparator.comparingDouble(Posicion::getTasaVictorias).reversed()
+                .thenComparingDouble(p -> p.mediaDisparosParaGanar)
+                .thenComparingInt(p -> p.indice));
+        return tabla;
+    }
+
+    public String resumenTabla() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-4s %-14s %10s %10s %8s %10s%n",
+                "Pos", "Estrategia", "Partidas", "Victorias", "%", "Disparos"));
+        int puesto = 1;
+        for (Posicion posicion : tabla()) {
+            sb.append(String.format("%-4d %-14s %10d %10d %7.2f%% %10.2f%n", puesto++, posicion.nombre,
+                    posicion.partidas, posicion.victorias, posicion.getTasaVictorias() * 100,
+                    posicion.mediaDisparosParaGanar));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Porcentaje de victorias de cada fila contra cada columna, para los
+     * cruces jugados
+     */
+    public synchronized String resumenCruces() {
+        StringBuilder sb = new StringBuilder(String.format("%-14s", ""));
+        for (String nombre : nombres) {
+            sb.append(String.format(" %14.14s", nombre));
+        }
+        sb.append('\n');
+        for (int i = 0; i < nombres.length; i++) {
+            sb.append(String.format("%-14s", nombres[i]));
+            for (int j = 0; j < nombres.length; j++) {
+                EstadisticasSimulacion cruce = i < j ? cruces[i][j] : cruces[j][i];
+                if (i == j || cruce == null) {
+                    sb.append(String.format(" %14s", "-"));
+                } else {
+                    sb.append(String.format(" %13.2f%%", cruce.getTasaVictorias(i < j ? 0 : 1) * 100));
+                }
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    public static final class Posicion {
+        final int indice;
+        public final String nombre;
+        public final long partidas;
+        public final long victorias;
+        public final double mediaDisparosParaGanar;
+
+        Posicion(int indice, String nombre, long partidas, long victorias, double mediaDisparosParaGanar) {
+            this.indice = indice;
+            this.nombre = nombre;
+            this.partidas = partidas;
+            this.victorias = victorias;
+            this.mediaDisparosParaGanar = mediaDisparosParaGanar;
+        }
+
+        public double getTasaVictorias() {
+            return partidas == 0 ? 0 : (double) victorias / partidas;
+        }
+    }
+
+    /**
+     * Argumentos: liga|suizo, partidas por cruce, semilla y dos o más
+     * estrategias (ver {@link Simulador#fabrica}). Un nombre repetido juega
+     * como otro participante. Con -Dbattleship.rondas se fija la cantidad de
+     * rondas del sistema suizo.
+     */
+    public static void main(String[] args) {
+        if (args.length < 5) {
+            System.out.println("Uso: Torneo liga|suizo partidasPorCruce semilla estrategia estrategia...");
+            return;
+        }
+        Formato formato = Formato.valueOf(args[0].toUpperCase());
+        long partidasPorCruce = Long.parseLong(args[1]);
+        long semilla = Long.parseLong(args[2]);
+
+        String[] nombres = new String[args.length - 3];
+        List<Supplier<EstrategiaDisparo>> fabricas = new ArrayList<>();
+        Map<String, Integer> repetidos = new HashMap<>();
+        for (int i = 0; i < nombres.length; i++) {
+            String nombre = args[i + 3];
+            fabricas.add(Simulador.fabrica(nombre));
+            int vez = repetidos.merge(nombre, 1, Integer::sum);
+            nombres[i] = vez == 1 ? nombre : nombre + "#" + vez;
+        }
+
+        ConfiguracionPartida configuracion = ConfiguracionPartida.desdeConfiguracion();
+        Torneo torneo = new Torneo(configuracion, nombres, fabricas, partidasPorCruce, semilla);
+        int rondas = Integer.getInteger("battleship.rondas", torneo.rondasSuizoPredeterminadas());
+        System.out.println("Torneo " + formato.name().toLowerCase() + " de " + nombres.length + " estrategias, "
+                + partidasPorCruce + " partidas por cruce"
+                + (formato == Formato.SUIZO ? ", " + rondas + " rondas" : "") + ", " + configuracion
+                + ", en " + ForkJoinPool.commonPool().getParallelism() + " hilos...");
+
+        // La tabla parcial se muestra mientras llegan los lotes
+        ScheduledExecutorService tablero = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread hilo = new Thread(r, "tabla-torneo");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        long inicio = System.nanoTime();
+        long[] mostradas = { 0 };
+        tablero.scheduleAtFixedRate(() -> {
+            long jugadas = torneo.getPartidasJugadas();
+            if (jugadas != mostradas[0]) {
+                mostradas[0] = jugadas;
+                System.out.printf("%n%d partidas, ronda %d (%.1f s)%n%s", jugadas, torneo.getRondasJugadas() + 1,
+                        (System.nanoTime() - inicio) / 1e9, torneo.resumenTabla());
+            }
+        }, INTERVALO_TABLA_MS, INTERVALO_TABLA_MS, TimeUnit.MILLISECONDS);
+
+        try {
+            torneo.jugar(formato, rondas);
+        } finally {
+            tablero.shutdownNow();
+        }
+
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        System.out.println("\n=== TABLA FINAL ===");
+        System.out.print(torneo.resumenTabla());
+        System.out.println("\nVictorias por cruce (fila contra columna):");
+        System.out.print(torneo.resumenCruces());
+        System.out.printf("Tiempo: %.2f s (%.0f partidas/s)%n", segundos, torneo.getPartidasJugadas() / segundos);
+    }
+}
@@ -0,0 +1,257 @@
+package battleship;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * Transmisión de una partida del servidor a sus espectadores. Cada resultado
+ * se anota una sola vez en un registro que solo crece, y cada espectador lo
+ * recorre con su propio cursor desde su hilo, sin bloqueos ni avisos del
+ * lado de quien anota: anotar una jugada no depende de cuántos miran ni de
+ * lo lentos que sean.
+ * <p>
+ * Los espectadores revisan el registro cada {@link #INTERVALO_LOTE_MS} y
+ * envían juntas, en una sola escritura, todas las jugadas pendientes. Quien
+ * se atrasa más de {@link #MAX_PENDIENTES} jugadas no recibe la historia
+ * sino el último resultado de cada celda que cambió, en líneas RESUMEN de
+ * hasta {@link #JUGADAS_POR_RESUMEN} celdas que se envían a medida que se
+ * llenan. Así lo que ocupa cada espectador depende del tablero y no de
+ * cuántas jugadas se atrasó.
+ */
+public final class TransmisionPartida {
+    static final int MAX_PENDIENTES = 256;
+    static final int INTERVALO_LOTE_MS = 100;
+    // Cada jugada resumida ocupa a lo sumo 12 bytes ("1,999,999,F;"), así
+    // que una línea RESUMEN con estas jugadas no pasa del largo máximo
+    static final int JUGADAS_POR_RESUMEN = 512;
+    // Un lote más largo se envía antes de seguir resumiendo
+    static final int LARGO_MAXIMO_LOTE = 64 * 1024;
+
+    // Jugada empaquetada: fila (10 bits), columna (10 bits), tirador (1 bit), resultado (2 bits)
+    private static final int RESULTADO_FALLO = 0;
+    private static final int RESULTADO_IMPACTO = 1;
+    private static final int RESULTADO_HUNDIDO = 2;
+
+    // Solo excluye entre sí a quienes anotan; los espectadores leen sin él
+    private final ReentrantLock candado = new ReentrantLock();
+    private final String encabezado;
+    // Se publica el arreglo antes que la cantidad que lo usa
+    private volatile int[] jugadas = new int[64];
+    private volatile int cantidad;
+    private final Map<Integer, String> barcosHundidos = new ConcurrentHashMap<>();
+    private volatile String configuracion;
+    private volatile String ganador;
+    private volatile boolean terminada;
+    private final Set<CanalMensajes> espectadores = ConcurrentHashMap.newKeySet();
+
+    public TransmisionPartida(int numero, String primero, String segundo) {
+        this.encabezado = ProtocoloBattleship.ESPECTANDO + ProtocoloBattleship.SEPARADOR_CAMPOS + numero
+                + ProtocoloBattleship.SEPARADOR_CAMPOS + primero + ProtocoloBattleship.SEPARADOR_CAMPOS + segundo;
+    }
+
+    public int getCantidadEspectadores() {
+        return espectadores.size();
+    }
+
+    /**
+     * Línea CONFIGURACION de una partida que no es la estándar
+     */
+    public void setConfiguracion(String linea) {
+        configuracion = linea;
+    }
+
+    /**
+     * Anota el resultado de un disparo de {@code tirador} (0 si es quien comienza)
+     */
+    public void anotar(int tirador, ProtocoloBattleship.Mensaje resultado) {
+        if (resultado.x < 0 || resultado.x >= ConfiguracionPartida.TAMANIO_MAXIMO
+                || resultado.y < 0 || resultado.y >= ConfiguracionPartida.TAMANIO_MAXIMO) {
+            return;
+        }
+        int codigo;
+        switch (resultado.comando) {
+            case ProtocoloBattleship.IMPACTO: codigo = RESULTADO_IMPACTO; break;
+            case ProtocoloBattleship.HUNDIDO: codigo = RESULTADO_HUNDIDO; break;
+            default: codigo = RESULTADO_FALLO; break;
+        }
+
+        candado.lock();
+        try {
+            int n = cantidad;
+            int[] destino = jugadas;
+            if (n == destino.length) {
+                destino = Arrays.copyOf(destino, n * 2);
+                jugadas = destino;
+            }
+            if (codigo == RESULTADO_HUNDIDO && resultado.tipoBarco != null) {
+                barcosHundidos.put(n, resultado.tipoBarco);
+            }
+            destino[n] = resultado.x << 13 | resultado.y << 3 | tirador << 2 | codigo;
+            cantidad = n + 1;
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Cierra la transmisión; {@code ganador} es null si la partida se cortó
+     */
+    public void terminar(String ganador) {
+        candado.lock();
+        try {
+            if (!terminada) {
+                this.ganador = ganador;
+                terminada = true;
+            }
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Transmite la partida a un espectador hasta que termina o el espectador
+     * se desconecta. Se ejecuta en el hilo que atiende su conexión.
+     */
+    public void transmitir(CanalMensajes canal) throws InterruptedException {
+        espectadores.add(canal);
+        try {
+            StringBuilder lote = new StringBuilder(encabezado).append('\n');
+            String propuesta = configuracion;
+            if (propuesta != null) {
+                lote.append(propuesta).append('\n');
+            }
+            int cursor = 0;
+            long ultimoEnvio = 0;
+            // Celdas ya resumidas de cada tirador, solo mientras se resume
+            ConjuntoCeldas[] resumidas = null;
+            while (true) {
+                // Leer el fin antes que la cantidad asegura ver todas las jugadas
+                boolean fin = terminada;
+                int hasta = cantidad;
+                int[] registro = jugadas;
+
+                if (hasta - cursor > MAX_PENDIENTES) {
+                    if (resumidas == null) {
+                        resumidas = new ConjuntoCeldas[] { new ConjuntoCeldasDisperso(), new ConjuntoCeldasDisperso() };
+                    }
+                    resumir(canal, lote, cursor, hasta, registro, resumidas);
+                } else {
+                    for (int i = cursor; i < hasta; i++) {
+                        int jugada = registro[i];
+                        describir(lote, i, jugada,
+                                (jugada & 3) == RESULTADO_HUNDIDO ? barcosHundidos.get(i) : null);
+                    }
+                }
+                cursor = hasta;
+                if (fin) {
+                    lote.append(ProtocoloBattleship.JUEGO_TERMINADO);
+                    String vencedor = ganador;
+                    if (vencedor != null) {
+                        lote.append(ProtocoloBattleship.SEPARADOR_CAMPOS).append(vencedor);
+                    }
+                    lote.append('\n');
+                }
+
+                // Todo el lote en una sola escritura; sin novedades por un
+                // rato, un latido descubre a los espectadores que ya se fueron
+                long ahora = System.nanoTime();
+                if (lote.length() > 0) {
+                    enviar(canal, lote);
+                    ultimoEnvio = ahora;
+                } else if (ahora - ultimoEnvio > TimeUnit.MILLISECONDS.toNanos(ProtocoloBattleship.INTERVALO_LATIDO_MS)) {
+                    canal.enviarLatido();
+                    ultimoEnvio = ahora;
+                }
+                if (fin) {
+                    return;
+                }
+                Thread.sleep(INTERVALO_LOTE_MS);
+            }
+        } catch (IOException e) {
+            // El espectador se desconectó
+        } finally {
+            espectadores.remove(canal);
+            try {
+                canal.close();
+            } catch (IOException e) {
+                // Ya estaba cerrado
+            }
+        }
+    }
+
+    private static void describir(StringBuilder lote, int turno, int jugada, String barco) {
+        String separador = ProtocoloBattleship.SEPARADOR_CAMPOS;
+        lote.append(ProtocoloBattleship.JUGADA).append(separador).append(turno)
+                .append(separador).append(jugada >> 2 & 1)
+                .append(separador).append(jugada >>> 13).append(ProtocoloBattleship.SEPARADOR_COORD)
+                .append(jugada >> 3 & 0x3FF)
+                .append(separador).append(nombreResultado(jugada & 3));
+        if (barco != null) {
+            lote.append(separador).append(barco);
+        }
+        lote.append('\n');
+    }
+
+    /**
+     * Envía las líneas del lote en una sola escritura y lo vacía
+     */
+    private static void enviar(CanalMensajes canal, StringBuilder lote) throws IOException {
+        lote.setLength(lote.length() - 1);
+        canal.enviarLinea(lote.toString());
+        lote.setLength(0);
+    }
+
+    /**
+     * Último resultado de cada celda disparada entre las jugadas {@code desde}
+     * y {@code hasta}, sin los nombres de los barcos, en líneas
+     * {@code RESUMEN|desde|tirador,fila,columna,R;...} donde R es la inicial
+     * del resultado. Recorre las jugadas de la última a la primera y saltea
+     * las celdas ya resumidas, así que cada celda aparece una vez.
+     */
+    private static void resumir(CanalMensajes canal, StringBuilder lote, int desde, int hasta, int[] registro,
+            ConjuntoCeldas[] resumidas) throws IOException {
+        resumidas[0].limpiar();
+        resumidas[1].limpiar();
+        int enLinea = 0;
+        for (int i = hasta - 1; i >= desde; i--) {
+            int jugada = registro[i];
+            int tirador = jugada >> 2 & 1;
+            int fila = jugada >>> 13;
+            int columna = jugada >> 3 & 0x3FF;
+            int celda = fila * ConfiguracionPartida.TAMANIO_MAXIMO + columna;
+            if (resumidas[tirador].contiene(celda)) {
+                continue;
+            }
+            resumidas[tirador].agregar(celda);
+
+            if (enLinea == 0) {
+                lote.append(ProtocoloBattleship.RESUMEN).append(ProtocoloBattleship.SEPARADOR_CAMPOS).append(desde)
+                        .append(ProtocoloBattleship.SEPARADOR_CAMPOS);
+            } else {
+                lote.append(';');
+            }
+            lote.append(tirador).append(',').append(fila).append(',').append(columna).append(',')
+                    .append(nombreResultado(jugada & 3).charAt(0));
+            if (++enLinea == JUGADAS_POR_RESUMEN) {
+                lote.append('\n');
+                enLinea = 0;
+                if (lote.length() > LARGO_MAXIMO_LOTE) {
+                    enviar(canal, lote);
+                }
+            }
+        }
+        if (enLinea > 0) {
+            lote.append('\n');
+        }
+    }
+
+    private static String nombreResultado(int codigo) {
+        switch (codigo) {
+            case RESULTADO_IMPACTO: return ProtocoloBattleship.IMPACTO;
+            case RESULTADO_HUNDIDO: return ProtocoloBattleship.HUNDIDO;
+            default: return ProtocoloBattleship.FALLO;
+        }
+    }
+}
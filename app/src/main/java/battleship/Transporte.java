@@ -0,0 +1,62 @@
+package battleship;
+
+import java.io.*;
+import java.net.*;
+import java.nio.channels.*;
+
+/**
+ * Conexión de bytes entre dos extremos sobre la que viaja el protocolo. La
+ * implementación se elige al arrancar con la propiedad
+ * {@code battleship.transporte} ({@code bloqueante} por defecto o {@code nio}).
+ * Para pruebas dentro de un mismo proceso, {@link TransporteMemoria} une dos
+ * extremos sin pasar por la red.
+ */
+public interface Transporte extends Closeable {
+    InputStream getEntrada();
+
+    OutputStream getSalida();
+
+    boolean isAbierto();
+
+    String getDireccionRemota();
+
+    /**
+     * Plazo máximo de espera de cada lectura; al vencer, la lectura lanza
+     * {@link SocketTimeoutException}. Cero espera sin límite.
+     */
+    void setTiempoLectura(int milisegundos) throws IOException;
+
+    static boolean usarNio() {
+        return "nio".equalsIgnoreCase(System.getProperty("battleship.transporte"));
+    }
+
+    /**
+     * Abre una conexión saliente con el transporte configurado
+     */
+    static Transporte conectar(String host, int puerto) throws IOException {
+        return usarNio() ? TransporteNio.conectar(host, puerto) : TransporteSocket.conectar(host, puerto);
+    }
+
+    /**
+     * Espera la siguiente conexión entrante y la envuelve en el transporte configurado
+     */
+    static Transporte aceptar(ServerSocketChannel servidor) throws IOException {
+        SocketChannel canal = servidor.accept();
+        return usarNio() ? new TransporteNio(canal) : new TransporteSocket(canal.socket());
+    }
+
+    /**
+     * Como {@link #aceptar(ServerSocketChannel)} pero esperando a lo sumo
+     * {@code milisegundos}; al vencer lanza {@link SocketTimeoutException}
+     */
+    static Transporte aceptar(ServerSocketChannel servidor, int milisegundos) throws IOException {
+        ServerSocket socket = servidor.socket();
+        socket.setSoTimeout(milisegundos);
+        try {
+            SocketChannel canal = socket.accept().getChannel();
+            return usarNio() ? new TransporteNio(canal) : new TransporteSocket(canal.socket());
+        } finally {
+            socket.setSoTimeout(0);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package battleship;
+
+import java.io.*;
+import java.net.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * Transporte dentro del mismo proceso: dos extremos unidos por un par de
+ * buffers circulares, uno por sentido. Se comporta como un socket (lecturas
+ * con plazo, fin de flujo al cerrar el otro extremo, escritura que espera
+ * si el buffer está lleno), pero sin puerto ni llamadas al sistema, así que
+ * un proceso puede abrir miles de conexiones para pruebas de carga.
+ */
+public class TransporteMemoria implements Transporte {
+    public static final int CAPACIDAD_PREDETERMINADA = 16 * 1024;
+
+    private final Anillo recibido;
+    private final Anillo enviado;
+    private final String nombre;
+    private final InputStream entrada = new Entrada();
+    private final OutputStream salida = new Salida();
+    private volatile long tiempoLecturaNanos;
+
+    private TransporteMemoria(Anillo recibido, Anillo enviado, String nombre) {
+        this.recibido = recibido;
+        this.enviado = enviado;
+        this.nombre = nombre;
+    }
+
+    /**
+     * Crea dos extremos conectados entre sí
+     */
+    public static TransporteMemoria[] crearPar() {
+        return crearPar(CAPACIDAD_PREDETERMINADA);
+    }
+
+    /**
+     * Crea dos extremos conectados con buffers de {@code capacidad} bytes por
+     * sentido (se redondea a una potencia de dos)
+     */
+    public static TransporteMemoria[] crearPar(int capacidad) {
+        Anillo ida = new Anillo(capacidad);
+        Anillo vuelta = new Anillo(capacidad);
+        return new TransporteMemoria[] {
+                new TransporteMemoria(vuelta, ida, "memoria:a"),
+                new TransporteMemoria(ida, vuelta, "memoria:b")
+        };
+    }
+
+    @Override
+    public InputStream getEntrada() {
+        return entrada;
+    }
+
+    @Override
+    public OutputStream getSalida() {
+        return salida;
+    }
+
+    @Override
+    public boolean isAbierto() {
+        return !enviado.isCerrado();
+    }
+
+    @Override
+    public String getDireccionRemota() {
+        return nombre;
+    }
+
+    @Override
+    public void setTiempoLectura(int milisegundos) {
+        tiempoLecturaNanos = TimeUnit.MILLISECONDS.toNanos(milisegundos);
+    }
+
+    /**
+     * Cierra ambos sentidos: el otro extremo lee lo que quedaba y luego el
+     * fin del flujo, y sus escrituras fallan
+     */
+    @Override
+    public void close() {
+        enviado.cerrar();
+        recibido.cerrar();
+    }
+
+    /**
+     * Buffer circular de un solo sentido. Las posiciones crecen sin volver a
+     * cero y se reducen con la máscara, así que lleno y vacío no se confunden.
+     */
+    private static final class Anillo {
+        private final byte[] datos;
+        private final int mascara;
+        private final ReentrantLock candado = new ReentrantLock();
+        private final Condition hayDatos = candado.newCondition();
+        private final Condition hayEspacio = candado.newCondition();
+        private long escritos;
+        private long leidos;
+        private boolean cerrado;
+
+        Anillo(int capacidad) {
+            int tamanio = Integer.highestOneBit(Math.max(capacidad, 64) - 1) << 1;
+            this.datos = new byte[tamanio];
+            this.mascara = tamanio - 1;
+        }
+
+        int leer(byte[] destino, int desde, int longitud, long plazoNanos) throws IOException {
+            if (longitud == 0) return 0;
+
+            candado.lock();
+            try {
+                long restante = plazoNanos;
+                while (escritos == leidos && !cerrado) {
+                    if (plazoNanos == 0) {
+                        hayDatos.await();
+                    } else if (restante <= 0) {
+                        throw new SocketTimeoutException("Tiempo de lectura agotado");
+                    } else {
+                        restante = hayDatos.awaitNanos(restante);
+                    }
+                }
+                int cantidad = (int) Math.min(longitud, escritos - leidos);
+                if (cantidad == 0) {
+                    return -1;
+                }
+                int inicio = (int) (leidos & mascara);
+                int primero = Math.min(cantidad, datos.length - inicio);
+                System.arraycopy(datos, inicio, destino, desde, primero);
+                System.arraycopy(datos, 0, destino, desde + primero, cantidad - primero);
+                leidos += cantidad;
+                hayEspacio.signal();
+                return cantidad;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Lectura interrumpida");
+            } finally {
+                candado.unlock();
+            }
+        }
+
+        void escribir(byte[] origen, int desde, int longitud) throws IOException {
+            candado.lock();
+            try {
+                while (longitud > 0) {
+                    while (escritos - leidos == datos.length && !cerrado) {
+                        hayEspacio.await();
+                    }
+                    if (cerrado) {
+                        throw new SocketException("Conexión cerrada");
+                    }
+                    int cantidad = (int) Math.min(longitud, datos.length - (escritos - leidos));
+                    int inicio = (int) (escritos & mascara);
+                    int primero = Math.min(cantidad, datos.length - inicio);
+                    System.arraycopy(origen, desde, datos, inicio, primero);
+                    System.arraycopy(origen, desde + primero, datos, 0, cantidad - primero);
+                    escritos += cantidad;
+                    desde += cantidad;
+                    longitud -= cantidad;
+                    hayDatos.signal();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Escritura interrumpida");
+            } finally {
+                candado.unlock();
+            }
+        }
+
+        int disponibles() {
+            candado.lock();
+            try {
+                return (int) (escritos - leidos);
+            } finally {
+                candado.unlock();
+            }
+        }
+
+        boolean isCerrado() {
+            candado.lock();
+            try {
+                return cerrado;
+            } finally {
+                candado.unlock();
+            }
+        }
+
+        void cerrar() {
+            candado.lock();
+            try {
+                cerrado = true;
+                hayDatos.signalAll();
+                hayEspacio.signalAll();
+            } finally {
+                candado.unlock();
+            }
+        }
+    }
+
+    private class Entrada extends InputStream {
+        private final byte[] unByte = new byte[1];
+
+        @Override
+        public int read() throws IOException {
+            return recibido.leer(unByte, 0, 1, tiempoLecturaNanos) < 0 ? -1 : unByte[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] destino, int desde, int longitud) throws IOException {
+            return recibido.leer(destino, desde, longitud, tiempoLecturaNanos);
+        }
+
+        @Override
+        public int available() {
+            return recibido.disponibles();
+        }
+
+        @Override
+        public void close() {
+            TransporteMemoria.this.close();
+        }
+    }
+
+    private class Salida extends OutputStream {
+        private final byte[] unByte = new byte[1];
+
+        @Override
+        public void write(int b) throws IOException {
+            unByte[0] = (byte) b;
+            enviado.escribir(unByte, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] origen, int desde, int longitud) throws IOException {
+            enviado.escribir(origen, desde, longitud);
+        }
+
+        @Override
+        public void close() {
+            TransporteMemoria.this.close();
+        }
+    }
+}
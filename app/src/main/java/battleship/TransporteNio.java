@@ -0,0 +1,294 @@
+package battleship;
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * Transporte sobre un {@link SocketChannel} no bloqueante atendido por un
+ * {@link BucleNio}. Cada conexión reserva dos {@link ByteBuffer} directos al
+ * crearse y los reutiliza durante toda la partida; el bucle llena el de
+ * lectura y quien lee solo espera cuando no hay datos disponibles.
+ */
+public class TransporteNio implements Transporte {
+    private static final int TAMANIO_BUFFER = 16 * 1024;
+    // Plazo de escritura cuando no hay tiempo de lectura configurado
+    private static final long PLAZO_ESCRITURA_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final SocketChannel canal;
+    private final BucleNio bucle;
+    private final SelectionKey clave;
+    private final ByteBuffer lectura = ByteBuffer.allocateDirect(TAMANIO_BUFFER);
+    private final ByteBuffer escritura = ByteBuffer.allocateDirect(TAMANIO_BUFFER);
+    private final ReentrantLock candadoLectura = new ReentrantLock();
+    private final Condition hayDatos = candadoLectura.newCondition();
+    private final ReentrantLock candadoEscritura = new ReentrantLock();
+    private final Condition puedeEscribir = candadoEscritura.newCondition();
+    private final InputStream entrada = new Entrada();
+    private final OutputStream salida = new Salida();
+    private boolean finDeFlujo;
+    private volatile long tiempoLecturaNanos;
+
+    public TransporteNio(SocketChannel canal) throws IOException {
+        this(canal, BucleNio.compartido());
+    }
+
+    public TransporteNio(SocketChannel canal, BucleNio bucle) throws IOException {
+        this.canal = canal;
+        this.bucle = bucle;
+        canal.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        canal.configureBlocking(false);
+        this.clave = bucle.registrar(this, canal);
+    }
+
+    public static TransporteNio conectar(String host, int puerto) throws IOException {
+        SocketChannel canal = SocketChannel.open(new InetSocketAddress(host, puerto));
+        return new TransporteNio(canal);
+    }
+
+    @Override
+    public InputStream getEntrada() {
+        return entrada;
+    }
+
+    @Override
+    public OutputStream getSalida() {
+        return salida;
+    }
+
+    @Override
+    public boolean isAbierto() {
+        return canal.isOpen();
+    }
+
+    @Override
+    public String getDireccionRemota() {
+        try {
+            return String.valueOf(canal.getRemoteAddress());
+        } catch (IOException e) {
+            return "desconocida";
+        }
+    }
+
+    @Override
+    public void setTiempoLectura(int milisegundos) {
+        tiempoLecturaNanos = TimeUnit.MILLISECONDS.toNanos(milisegundos);
+    }
+
+    /**
+     * Llamado por el bucle cuando el canal tiene datos para leer
+     */
+    void alPoderLeer(SelectionKey clave) {
+        candadoLectura.lock();
+        try {
+            int leidos;
+            try {
+                leidos = canal.read(lectura);
+            } catch (IOException e) {
+                leidos = -1;
+            }
+            if (leidos < 0) {
+                finDeFlujo = true;
+                clave.interestOpsAnd(~SelectionKey.OP_READ);
+            } else if (!lectura.hasRemaining()) {
+                // Buffer lleno: dejar de leer hasta que alguien consuma
+                clave.interestOpsAnd(~SelectionKey.OP_READ);
+            }
+            hayDatos.signalAll();
+        } finally {
+            candadoLectura.unlock();
+        }
+    }
+
+    /**
+     * Llamado por el bucle cuando el canal vuelve a aceptar escrituras
+     */
+    void alPoderEscribir(SelectionKey clave) {
+        candadoEscritura.lock();
+        try {
+            clave.interestOpsAnd(~SelectionKey.OP_WRITE);
+            puedeEscribir.signalAll();
+        } finally {
+            candadoEscritura.unlock();
+        }
+    }
+
+    /**
+     * Llamado por el bucle cuando la clave se canceló
+     */
+    void alCerrarse() {
+        candadoLectura.lock();
+        try {
+            finDeFlujo = true;
+            hayDatos.signalAll();
+        } finally {
+            candadoLectura.unlock();
+        }
+        candadoEscritura.lock();
+        try {
+            puedeEscribir.signalAll();
+        } finally {
+            candadoEscritura.unlock();
+        }
+    }
+
+    private int leer(byte[] destino, int desde, int longitud) throws IOException {
+        if (longitud == 0) return 0;
+
+        candadoLectura.lock();
+        try {
+            long plazo = tiempoLecturaNanos;
+            long restante = plazo;
+            while (lectura.position() == 0 && !finDeFlujo && canal.isOpen()) {
+                if (plazo == 0) {
+                    hayDatos.await();
+                } else if (restante <= 0) {
+                    throw new SocketTimeoutException("Tiempo de lectura agotado");
+                } else {
+                    restante = hayDatos.awaitNanos(restante);
+                }
+            }
+            if (lectura.position() == 0) {
+                return -1;
+            }
+
+            boolean estabaLleno = !lectura.hasRemaining();
+            lectura.flip();
+            int cantidad = Math.min(longitud, lectura.remaining());
+            lectura.get(destino, desde, cantidad);
+            lectura.compact();
+
+            if (estabaLleno && !finDeFlujo) {
+                bucle.interesar(clave, SelectionKey.OP_READ);
+            }
+            return cantidad;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Lectura interrumpida");
+        } finally {
+            candadoLectura.unlock();
+        }
+    }
+
+    private void escribir(byte[] origen, int desde, int longitud) throws IOException {
+        candadoEscritura.lock();
+        try {
+            while (longitud > 0) {
+                if (!escritura.hasRemaining()) {
+                    vaciarBloqueado();
+                }
+                int cantidad = Math.min(longitud, escritura.remaining());
+                escritura.put(origen, desde, cantidad);
+                desde += cantidad;
+                longitud -= cantidad;
+            }
+        } finally {
+            candadoEscritura.unlock();
+        }
+    }
+
+    private void vaciar() throws IOException {
+        candadoEscritura.lock();
+        try {
+            vaciarBloqueado();
+        } finally {
+            candadoEscritura.unlock();
+        }
+    }
+
+    /**
+     * Envía lo acumulado. Si el otro extremo no lo termina de leer dentro
+     * del tiempo de lectura configurado, lanza {@link SocketTimeoutException}.
+     * El plazo vale para todo el vaciado: quien lee de a un byte no retiene
+     * al que escribe, ni al candado de escritura, indefinidamente.
+     */
+    private void vaciarBloqueado() throws IOException {
+        escritura.flip();
+        try {
+            long limite = System.nanoTime() + (tiempoLecturaNanos != 0 ? tiempoLecturaNanos : PLAZO_ESCRITURA_NANOS);
+            while (escritura.hasRemaining()) {
+                if (canal.write(escritura) > 0) {
+                    continue;
+                }
+                long restante = limite - System.nanoTime();
+                if (restante <= 0) {
+                    throw new SocketTimeoutException("Tiempo de escritura agotado");
+                }
+                // El buffer del socket está lleno: esperar al bucle
+                bucle.interesar(clave, SelectionKey.OP_WRITE);
+                puedeEscribir.awaitNanos(restante);
+                if (!canal.isOpen()) {
+                    throw new ClosedChannelException();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Escritura interrumpida");
+        } finally {
+            escritura.compact();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+        alCerrarse();
+    }
+
+    private class Entrada extends InputStream {
+        private final byte[] unByte = new byte[1];
+
+        @Override
+        public int read() throws IOException {
+            return leer(unByte, 0, 1) < 0 ? -1 : unByte[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] destino, int desde, int longitud) throws IOException {
+            return leer(destino, desde, longitud);
+        }
+
+        @Override
+        public int available() {
+            candadoLectura.lock();
+            try {
+                return lectura.position();
+            } finally {
+                candadoLectura.unlock();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            TransporteNio.this.close();
+        }
+    }
+
+    private class Salida extends OutputStream {
+        private final byte[] unByte = new byte[1];
+
+        @Override
+        public void write(int b) throws IOException {
+            unByte[0] = (byte) b;
+            escribir(unByte, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] origen, int desde, int longitud) throws IOException {
+            escribir(origen, desde, longitud);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            vaciar();
+        }
+
+        @Override
+        public void close() throws IOException {
+            TransporteNio.this.close();
+        }
+    }
+}
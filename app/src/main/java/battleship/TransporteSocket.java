@@ -0,0 +1,54 @@
+package battleship;
+
+import java.io.*;
+import java.net.*;
+
+/**
+ * Transporte bloqueante clásico sobre un {@link Socket}.
+ */
+public class TransporteSocket implements Transporte {
+    private final Socket socket;
+    private final InputStream entrada;
+    private final OutputStream salida;
+
+    public TransporteSocket(Socket socket) throws IOException {
+        this.socket = socket;
+        socket.setTcpNoDelay(true);
+        this.entrada = socket.getInputStream();
+        this.salida = socket.getOutputStream();
+    }
+
+    public static TransporteSocket conectar(String host, int puerto) throws IOException {
+        return new TransporteSocket(new Socket(host, puerto));
+    }
+
+    @Override
+    public InputStream getEntrada() {
+        return entrada;
+    }
+
+    @Override
+    public OutputStream getSalida() {
+        return salida;
+    }
+
+    @Override
+    public boolean isAbierto() {
+        return !socket.isClosed();
+    }
+
+    @Override
+    public String getDireccionRemota() {
+        return String.valueOf(socket.getInetAddress());
+    }
+
+    @Override
+    public void setTiempoLectura(int milisegundos) throws IOException {
+        socket.setSoTimeout(milisegundos);
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
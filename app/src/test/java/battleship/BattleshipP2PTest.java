@@ -0,0 +1,175 @@
+package battleship;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import org.junit.jupiter.api.Test;
+
+class BattleshipP2PTest {
+
+    @Test
+    void salvaDeIdaYVuelta() throws Exception {
+        TransporteMemoria[] par = TransporteMemoria.crearPar();
+        JuegoBattleship propio = flota(1);
+        JuegoBattleship ajeno = flota(2);
+        BattleshipP2P tirador = new BattleshipP2P("Ana", par[0], propio, true, 3, new Random(3));
+        BattleshipP2P blanco = new BattleshipP2P("Beto", par[1], ajeno, false, 3, new Random(4));
+
+        ExecutorService ejecutor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> respuesta = ejecutor.submit(blanco::turnoRemoto);
+            assertTrue(tirador.turnoSalvaLocal());
+            assertTrue(respuesta.get(10, TimeUnit.SECONDS));
+        } finally {
+            ejecutor.shutdownNow();
+        }
+
+        assertEquals(3, tirador.getTurnosCompletados());
+        assertEquals(3, blanco.getTurnosCompletados());
+        assertEquals(3, ajeno.getDisparosRecibidos());
+        // Cada disparo vuelve con su resultado y queda anotado en el tablero enemigo
+        int tamanio = ajeno.getTamanioTablero();
+        Set<Integer> anotados = new HashSet<>();
+        propio.recorrerImpactosEnemigo(c -> {
+            anotados.add(c);
+            assertTrue(ajeno.barcoEn(c / tamanio, c % tamanio) >= 0, "impacto en agua: " + c);
+        });
+        propio.recorrerFallosEnemigo(c -> {
+            anotados.add(c);
+            assertTrue(ajeno.barcoEn(c / tamanio, c % tamanio) < 0, "fallo sobre un barco: " + c);
+        });
+        assertEquals(3, anotados.size());
+    }
+
+    @Test
+    void rechazaUnaSalvaMayorQueLaAcordada() throws Exception {
+        TransporteMemoria[] par = TransporteMemoria.crearPar();
+        JuegoBattleship juego = flota(5);
+        BattleshipP2P blanco = new BattleshipP2P("Beto", par[1], juego, false, 2, new Random(5));
+
+        int[] disparos = { 0, 0, 1, 1, 2, 2 };
+        new CanalMensajes(par[0]).enviarLinea(ProtocoloBattleship.construirMensajeSalva(disparos));
+        assertFalse(blanco.turnoRemoto());
+        assertEquals(0, juego.getDisparosRecibidos());
+        assertEquals(0, blanco.getTurnosCompletados());
+    }
+
+    @Test
+    void reanudaConElRivalUnTurnoAdelante() throws Exception {
+        reanudarTrasPerderLaRespuesta(1);
+    }
+
+    @Test
+    void reanudaConElRivalUnaSalvaAdelante() throws Exception {
+        reanudarTrasPerderLaRespuesta(3);
+    }
+
+    /**
+     * El rival contesta el disparo pero la respuesta se pierde en la conexión
+     * caída: queda un turno (o una salva) adelante. Al ponerse al día reenvía
+     * su respuesta y quien quedó atrás no repite el disparo; si lo repitiera,
+     * el turno siguiente leería un disparo donde espera un resultado.
+     */
+    private static void reanudarTrasPerderLaRespuesta(int salva) throws Exception {
+        TransporteMemoria[] par = TransporteMemoria.crearPar();
+        Cortable conexionRival = new Cortable(par[1]);
+        BattleshipP2P atrasado = new BattleshipP2P("Ana", par[0], flota(6), true, salva, new Random(6));
+        BattleshipP2P adelantado = new BattleshipP2P("Beto", conexionRival, flota(7), false, salva, new Random(7));
+
+        conexionRival.perdida = true;
+        par[0].setTiempoLectura(300);
+        Callable<Boolean> turno = salva > 1 ? atrasado::turnoSalvaLocal : atrasado::turnoLocal;
+        ExecutorService ejecutor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> respuesta = ejecutor.submit(adelantado::turnoRemoto);
+            assertThrows(IOException.class, turno::call);
+            assertTrue(respuesta.get(10, TimeUnit.SECONDS));
+            assertEquals(0, atrasado.getTurnosCompletados());
+            assertEquals(salva, adelantado.getTurnosCompletados());
+            assertThrows(IOException.class, () -> atrasado.ponerseAlDia(2 * salva + 1));
+
+            // Reconectados: cada uno se pone al día con los turnos del otro
+            conexionRival.perdida = false;
+            par[0].setTiempoLectura(0);
+            adelantado.ponerseAlDia(atrasado.getTurnosCompletados());
+            atrasado.ponerseAlDia(adelantado.getTurnosCompletados());
+            assertTrue(turno.call());
+            assertEquals(salva, atrasado.getTurnosCompletados());
+
+            // El juego sigue con el turno del rival
+            respuesta = ejecutor.submit(atrasado::turnoRemoto);
+            assertTrue(salva > 1 ? adelantado.turnoSalvaLocal() : adelantado.turnoLocal());
+            assertTrue(respuesta.get(10, TimeUnit.SECONDS));
+            assertEquals(2 * salva, atrasado.getTurnosCompletados());
+            assertEquals(2 * salva, adelantado.getTurnosCompletados());
+        } finally {
+            ejecutor.shutdownNow();
+        }
+    }
+
+    private static JuegoBattleship flota(long semilla) {
+        JuegoBattleship juego = new JuegoBattleship(ConfiguracionPartida.ESTANDAR);
+        juego.colocarBarcosAutomaticamente(new Random(semilla));
+        return juego;
+    }
+
+    /**
+     * Conexión cuyos envíos se pierden mientras está {@link #perdida}
+     */
+    private static final class Cortable implements Transporte {
+        private final Transporte transporte;
+        private final OutputStream salida;
+        volatile boolean perdida;
+
+        Cortable(Transporte transporte) {
+            this.transporte = transporte;
+            this.salida = new FilterOutputStream(transporte.getSalida()) {
+                @Override
+                public void write(byte[] datos, int desde, int longitud) throws IOException {
+                    if (!perdida) {
+                        out.write(datos, desde, longitud);
+                    }
+                }
+
+                @Override
+                public void write(int dato) throws IOException {
+                    if (!perdida) {
+                        out.write(dato);
+                    }
+                }
+            };
+        }
+
+        @Override
+        public InputStream getEntrada() {
+            return transporte.getEntrada();
+        }
+
+        @Override
+        public OutputStream getSalida() {
+            return salida;
+        }
+
+        @Override
+        public boolean isAbierto() {
+            return transporte.isAbierto();
+        }
+
+        @Override
+        public String getDireccionRemota() {
+            return transporte.getDireccionRemota();
+        }
+
+        @Override
+        public void setTiempoLectura(int milisegundos) throws IOException {
+            transporte.setTiempoLectura(milisegundos);
+        }
+
+        @Override
+        public void close() throws IOException {
+            transporte.close();
+        }
+    }
+}
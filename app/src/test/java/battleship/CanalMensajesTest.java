@@ -0,0 +1,97 @@
+package battleship;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class CanalMensajesTest {
+    private static final String[] NOMBRES = ConfiguracionPartida.ESTANDAR.getNombresBarcos();
+
+    private boolean cerrado;
+
+    @Test
+    void mezclaTextoYBinarioEnElMismoFlujo() throws IOException {
+        ByteArrayOutputStream enviado = new ByteArrayOutputStream();
+        CanalMensajes emisor = new CanalMensajes(new ByteArrayInputStream(new byte[0]), enviado, () -> { });
+        emisor.setNombresBarcos(NOMBRES);
+        emisor.enviarLinea("LISTO|BIN1");
+        emisor.setBinario(true);
+        emisor.enviarDisparo(3, 4);
+        emisor.enviarDisparo(300, 4000);
+        emisor.enviarLatido();
+        emisor.enviarResultado(ProtocoloBattleship.HUNDIDO, 7, 8, "SUBMARINO");
+        emisor.enviarComando(ProtocoloBattleship.JUEGO_TERMINADO);
+
+        CanalMensajes receptor = canal(enviado.toByteArray());
+        assertEquals("LISTO|BIN1", receptor.leerLinea());
+        assertMensaje(ProtocoloBattleship.DISPARAR, 3, 4, null, receptor.recibir());
+        assertMensaje(ProtocoloBattleship.DISPARAR, 300, 4000, null, receptor.recibir());
+        // El latido se descarta al recibir mensajes
+        assertMensaje(ProtocoloBattleship.HUNDIDO, 7, 8, "SUBMARINO", receptor.recibir());
+        assertEquals(ProtocoloBattleship.JUEGO_TERMINADO, receptor.recibir().comando);
+        assertNull(receptor.recibir());
+        assertFalse(cerrado);
+    }
+
+    @Test
+    void aceptaLineasHastaElLargoMaximo() throws IOException {
+        byte[] linea = new byte[ProtocoloBattleship.LARGO_MAXIMO_TRAMA + 1];
+        Arrays.fill(linea, (byte) 'A');
+        linea[linea.length - 2] = '\r';
+        linea[linea.length - 1] = '\n';
+        CanalMensajes receptor = canal(linea);
+        assertEquals(ProtocoloBattleship.LARGO_MAXIMO_TRAMA - 1, receptor.leerLinea().length());
+        assertFalse(cerrado);
+    }
+
+    @Test
+    void cierraAnteUnaLineaDemasiadoLarga() {
+        byte[] linea = new byte[4 * ProtocoloBattleship.LARGO_MAXIMO_TRAMA];
+        Arrays.fill(linea, (byte) 'A');
+        CanalMensajes receptor = canal(linea);
+        assertThrows(IOException.class, receptor::leerLinea);
+        assertTrue(cerrado);
+    }
+
+    @Test
+    void cierraAnteUnVarintQueNoTermina() {
+        byte[] trama = new byte[64];
+        Arrays.fill(trama, (byte) 0x80);
+        trama[0] = (byte) ProtocoloBattleship.OP_DISPARAR;
+        CanalMensajes receptor = canal(trama);
+        assertThrows(IOException.class, receptor::recibir);
+        assertTrue(cerrado);
+    }
+
+    @Test
+    void tramaBinariaCortada() {
+        CanalMensajes receptor = canal(new byte[] { ProtocoloBattleship.OP_DISPARAR, (byte) 0x85 });
+        assertThrows(EOFException.class, receptor::recibir);
+    }
+
+    @Test
+    void cierraAnteUnOpcodeDesconocido() {
+        CanalMensajes receptor = canal(new byte[] { 0x1F, 0x05, 0x01 });
+        IOException error = assertThrows(IOException.class, receptor::recibir);
+        assertTrue(error.getMessage().contains("desconocido"), error.getMessage());
+        assertTrue(cerrado);
+    }
+
+    private CanalMensajes canal(byte[] datos) {
+        CanalMensajes canal = new CanalMensajes(new ByteArrayInputStream(datos), new ByteArrayOutputStream(),
+                () -> cerrado = true);
+        canal.setNombresBarcos(NOMBRES);
+        return canal;
+    }
+
+    private static void assertMensaje(String comando, int x, int y, String tipoBarco,
+            ProtocoloBattleship.Mensaje mensaje) {
+        assertEquals(comando, mensaje.comando);
+        assertEquals(x, mensaje.x);
+        assertEquals(y, mensaje.y);
+        assertEquals(tipoBarco, mensaje.tipoBarco);
+    }
+}
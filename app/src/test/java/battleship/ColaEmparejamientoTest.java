@@ -0,0 +1,84 @@
+package battleship;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import org.junit.jupiter.api.Test;
+
+class ColaEmparejamientoTest {
+
+    @Test
+    void nadieQuedaEnDosParejas() throws Exception {
+        int hilos = 8;
+        int porHilo = 5000;
+        ColaEmparejamiento<Integer> cola = new ColaEmparejamiento<>(jugador -> true);
+        Set<Integer> emparejados = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicados = new AtomicInteger();
+        AtomicInteger parejas = new AtomicInteger();
+        AtomicBoolean terminaron = new AtomicBoolean();
+
+        Thread pendientes = new Thread(() -> {
+            while (!terminaron.get()) {
+                cola.emparejarPendientes((a, b) -> anotar(emparejados, duplicados, parejas, a, b));
+            }
+        });
+        pendientes.start();
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int h = 0; h < hilos; h++) {
+            int primero = h * porHilo;
+            tareas.add(ejecutor.submit(() -> {
+                Random random = new Random(primero);
+                for (int jugador = primero; jugador < primero + porHilo; jugador++) {
+                    // Puntuaciones juntas para que casi todos encuentren rival
+                    Integer rival = cola.unirse(jugador, 1000 + random.nextInt(300));
+                    if (rival != null) {
+                        anotar(emparejados, duplicados, parejas, jugador, rival);
+                    }
+                }
+            }));
+        }
+        for (Future<?> tarea : tareas) {
+            tarea.get();
+        }
+        ejecutor.shutdown();
+        terminaron.set(true);
+        pendientes.join();
+
+        assertEquals(0, duplicados.get());
+        assertTrue(parejas.get() > 0);
+        assertEquals(hilos * porHilo - 2 * parejas.get(), cola.getCantidadEnEspera());
+    }
+
+    @Test
+    void elMargenCreceConLaEspera() throws Exception {
+        ColaEmparejamiento<String> cola = new ColaEmparejamiento<>(jugador -> true);
+        List<String> parejas = new ArrayList<>();
+        assertNull(cola.unirse("Ana", 1000));
+        // 200 puntos de diferencia: más que el margen inicial
+        assertNull(cola.unirse("Beto", 1200));
+        assertNull(cola.unirse("Ceci", 2000));
+        cola.emparejarPendientes((a, b) -> parejas.add(a + "-" + b));
+        assertEquals(List.of(), parejas);
+
+        // Con dos segundos de espera el margen llega a 200 puntos, lejos de 800
+        Thread.sleep(2100);
+        cola.emparejarPendientes((a, b) -> parejas.add(a + "-" + b));
+        assertEquals(List.of("Ana-Beto"), parejas);
+        assertEquals(1, cola.getCantidadEnEspera());
+    }
+
+    private static void anotar(Set<Integer> emparejados, AtomicInteger duplicados, AtomicInteger parejas,
+            int a, int b) {
+        parejas.incrementAndGet();
+        if (!emparejados.add(a)) {
+            duplicados.incrementAndGet();
+        }
+        if (!emparejados.add(b)) {
+            duplicados.incrementAndGet();
+        }
+    }
+}
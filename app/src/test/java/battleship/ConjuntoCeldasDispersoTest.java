@@ -0,0 +1,91 @@
+package battleship;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+class ConjuntoCeldasDispersoTest {
+    @Test
+    void coincideConUnHashSetEnOperacionesAlAzar() {
+        Random random = new Random(21);
+        ConjuntoCeldasDisperso conjunto = new ConjuntoCeldasDisperso();
+        Set<Integer> esperado = new HashSet<>();
+        // Rango chico para que haya muchas colisiones, borrados y reinserciones
+        int rango = 2_000;
+        for (int paso = 0; paso < 200_000; paso++) {
+            int celda = random.nextInt(rango);
+            if (random.nextInt(3) == 0) {
+                conjunto.quitar(celda);
+                esperado.remove(celda);
+            } else {
+                conjunto.agregar(celda);
+                esperado.add(celda);
+            }
+            if (paso % 10_000 == 0) {
+                assertMismoContenido(esperado, conjunto, rango);
+            }
+        }
+        assertMismoContenido(esperado, conjunto, rango);
+    }
+
+    @Test
+    void borrarEnMedioDeUnaRachaDeColisiones() {
+        ConjuntoCeldasDisperso conjunto = new ConjuntoCeldasDisperso();
+        Set<Integer> esperado = new HashSet<>();
+        // Celdas vecinas y múltiplos grandes: se agrupan en rachas largas
+        for (int i = 0; i < 30; i++) {
+            conjunto.agregar(i);
+            conjunto.agregar(i << 20);
+            esperado.add(i);
+            esperado.add(i << 20);
+        }
+        for (int i = 0; i < 30; i += 2) {
+            conjunto.quitar(i << 20);
+            esperado.remove(i << 20);
+            assertMismoContenido(esperado, conjunto, 31 << 20);
+        }
+    }
+
+    @Test
+    void quitarYAgregarVaciaElConjunto() {
+        ConjuntoCeldasDisperso conjunto = new ConjuntoCeldasDisperso();
+        for (int i = 0; i < 1000; i++) {
+            conjunto.agregar(i * 7919);
+        }
+        for (int i = 0; i < 1000; i++) {
+            conjunto.quitar(i * 7919);
+        }
+        assertTrue(conjunto.estaVacio());
+        conjunto.recorrer(celda -> fail("Quedó la celda " + celda));
+        conjunto.agregar(5);
+        conjunto.limpiar();
+        assertFalse(conjunto.contiene(5));
+    }
+
+    @Test
+    void celdasNegativas() {
+        ConjuntoCeldasDisperso conjunto = new ConjuntoCeldasDisperso();
+        conjunto.agregar(3);
+        assertThrows(IllegalArgumentException.class, () -> conjunto.agregar(-1));
+        assertFalse(conjunto.contiene(-1));
+        conjunto.quitar(-1);
+        assertEquals(1, conjunto.cantidad());
+        assertTrue(conjunto.contiene(3));
+    }
+
+    private static void assertMismoContenido(Set<Integer> esperado, ConjuntoCeldasDisperso conjunto, int rango) {
+        assertEquals(esperado.size(), conjunto.cantidad());
+        Set<Integer> recorridas = new HashSet<>();
+        conjunto.recorrer(celda -> assertTrue(recorridas.add(celda), "Celda repetida: " + celda));
+        assertEquals(esperado, recorridas);
+        for (int celda : esperado) {
+            assertTrue(conjunto.contiene(celda), "Falta la celda " + celda);
+        }
+        Random random = new Random(rango);
+        for (int i = 0; i < 1000; i++) {
+            int celda = random.nextInt(rango);
+            assertEquals(esperado.contains(celda), conjunto.contiene(celda), "Celda " + celda);
+        }
+    }
+}
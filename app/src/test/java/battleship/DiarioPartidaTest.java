@@ -0,0 +1,66 @@
+package battleship;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DiarioPartidaTest {
+    @TempDir
+    Path directorio;
+
+    @Test
+    void recuperaDesdeLaUltimaInstantaneaYLosEventosPosteriores() throws IOException {
+        ConfiguracionPartida configuracion = ConfiguracionPartida.parsear("30", "PORTAAVIONES:5,ACORAZADO:4");
+        JuegoBattleship juego = new JuegoBattleship(configuracion);
+        juego.colocarBarcosAutomaticamente(new Random(11));
+        Path ruta = directorio.resolve("partida.diario");
+
+        Random random = new Random(12);
+        int turnos = 0;
+        boolean propio = true;
+        try (DiarioPartida diario = DiarioPartida.crear(ruta, juego, true, "3f9a")) {
+            // Suficientes turnos para que se escriban varias instantáneas
+            for (; turnos < 700; turnos++) {
+                int x = random.nextInt(30);
+                int y = random.nextInt(30);
+                String resultado = random.nextInt(4) == 0 ? ProtocoloBattleship.IMPACTO : ProtocoloBattleship.FALLO;
+                diario.registrarDisparo(!propio, x, y);
+                diario.registrarResultado(propio, resultado, x, y, null);
+                DiarioPartida.aplicarResultado(juego, propio, new ProtocoloBattleship.Mensaje(resultado, x, y));
+                propio = !propio;
+            }
+        }
+
+        DiarioPartida.Recuperacion recuperacion = DiarioPartida.recuperar(ruta);
+        assertEquals(turnos, recuperacion.turnos);
+        assertEquals("3f9a", recuperacion.partida);
+        assertTrue(recuperacion.esServidor);
+        assertFalse(recuperacion.terminada);
+        assertEquals(!propio, recuperacion.miTurno);
+        InstantaneaJuegoTest.assertMismoEstado(juego, recuperacion.juego);
+    }
+
+    @Test
+    void partidaTerminada() throws IOException {
+        JuegoBattleship juego = new JuegoBattleship();
+        juego.colocarBarcosAutomaticamente(new Random(1));
+        Path ruta = directorio.resolve("fin.diario");
+        try (DiarioPartida diario = DiarioPartida.crear(ruta, juego, false, "b71c")) {
+            diario.registrarFin(true);
+        }
+        DiarioPartida.Recuperacion recuperacion = DiarioPartida.recuperar(ruta);
+        assertTrue(recuperacion.terminada);
+        assertEquals("b71c", recuperacion.partida);
+        assertFalse(recuperacion.esServidor);
+    }
+
+    @Test
+    void rechazaArchivosQueNoSonDiarios() throws IOException {
+        Path ruta = Files.write(directorio.resolve("otro.diario"), new byte[] { 'X', 'Y', 'Z' });
+        assertThrows(IOException.class, () -> DiarioPartida.recuperar(ruta));
+    }
+}
@@ -0,0 +1,56 @@
+package battleship;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+class EsbozoConteoTest {
+    private static final int FILAS = 5;
+    private static final int ANCHO = 4096;
+
+    @Test
+    void nuncaSubestimaYRespetaLaCota() {
+        EsbozoConteo esbozo = new EsbozoConteo(FILAS, ANCHO, 2);
+        Map<String, Long> reales = new HashMap<>();
+        Random random = new Random(42);
+        long total = 0;
+        for (int i = 0; i < 200_000; i++) {
+            // Pocas claves muy frecuentes y una cola larga, como los jugadores
+            int indice = random.nextInt(1 + random.nextInt(20_000));
+            String clave = "jugador-" + indice;
+            esbozo.sumar(clave, 1, 1);
+            reales.merge(clave, 1L, Long::sum);
+            total++;
+        }
+
+        long cota = 2 * total / ANCHO;
+        int fuera = 0;
+        for (Map.Entry<String, Long> real : reales.entrySet()) {
+            long estimada = esbozo.estimar(real.getKey(), 1);
+            assertTrue(estimada >= real.getValue(), real.getKey());
+            if (estimada - real.getValue() >= cota) {
+                fuera++;
+            }
+        }
+        // Cada clave supera la cota con probabilidad a lo sumo 2^-filas
+        assertTrue(fuera <= reales.size() / (1 << FILAS), fuera + " claves fuera de la cota");
+    }
+
+    @Test
+    void losCamposNoSeMezclan() {
+        EsbozoConteo esbozo = new EsbozoConteo(FILAS, ANCHO, 3);
+        esbozo.sumar("ana", 0, 7);
+        esbozo.sumar("ana", 2, 3);
+        assertEquals(7, esbozo.estimar("ana", 0));
+        assertEquals(0, esbozo.estimar("ana", 1));
+        assertEquals(3, esbozo.estimar("ana", 2));
+        assertEquals(0, esbozo.estimar("beto", 0));
+    }
+
+    @Test
+    void anchoRedondeadoAPotenciaDeDos() {
+        assertEquals(FILAS * 4096L * 2 * Long.BYTES, new EsbozoConteo(FILAS, 3000, 2).getBytes());
+        assertThrows(IllegalArgumentException.class, () -> new EsbozoConteo(0, ANCHO, 1));
+    }
+}
@@ -0,0 +1,46 @@
+package battleship;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class EstadisticasSimulacionTest {
+
+    @Test
+    void cubetasExactasAbajoYConErrorAcotadoArriba() {
+        int anterior = -1;
+        for (int disparos = 0; disparos < 3_000_000; disparos++) {
+            int cubeta = EstadisticasSimulacion.cubeta(disparos);
+            assertTrue(cubeta == anterior || cubeta == anterior + 1, "cubetas salteadas en " + disparos);
+            anterior = cubeta;
+            int desde = EstadisticasSimulacion.valorDe(cubeta);
+            assertTrue(desde <= disparos && disparos - desde <= disparos / 256, disparos + " cae en " + desde);
+            if (disparos < 256) {
+                assertEquals(disparos, desde);
+            }
+        }
+    }
+
+    @Test
+    void percentilesExactosEnElTableroEstandar() {
+        EstadisticasSimulacion estadisticas = new EstadisticasSimulacion(200);
+        for (int disparos = 17; disparos <= 116; disparos++) {
+            estadisticas.registrar(0, disparos);
+        }
+        assertEquals(66, estadisticas.percentilDisparosParaGanar(0, 50));
+        assertEquals(106, estadisticas.percentilDisparosParaGanar(0, 90));
+        assertEquals(116, estadisticas.percentilDisparosParaGanar(0, 100));
+    }
+
+    @Test
+    void tableroGrandeConPercentilesAproximados() {
+        // 1000x1000: el tope de disparos es 2.000.000
+        EstadisticasSimulacion estadisticas = new EstadisticasSimulacion(2_000_000);
+        for (int i = 1; i <= 1000; i++) {
+            estadisticas.registrar(1, i * 1000);
+        }
+        int p50 = estadisticas.percentilDisparosParaGanar(1, 50);
+        assertTrue(p50 <= 500_000 && p50 > 500_000 - 500_000 / 256, "p50=" + p50);
+        assertEquals(500_500.0, estadisticas.getMediaDisparosParaGanar(1));
+    }
+}
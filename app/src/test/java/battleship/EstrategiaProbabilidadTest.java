@@ -0,0 +1,44 @@
+package battleship;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+class EstrategiaProbabilidadTest {
+
+    @Test
+    void prefiereLasVecinasDeUnImpacto() {
+        for (long semilla = 0; semilla < 20; semilla++) {
+            EstrategiaProbabilidad estrategia = new EstrategiaProbabilidad();
+            JuegoBattleship juego = new JuegoBattleship(ConfiguracionPartida.ESTANDAR);
+            estrategia.reiniciar(juego, new Random(semilla));
+            estrategia.registrarResultado(4, 4, ProtocoloBattleship.IMPACTO, null);
+            int celda = estrategia.elegirDisparo();
+            int tamanio = juego.getTamanioTablero();
+            assertEquals(1, Math.abs(celda / tamanio - 4) + Math.abs(celda % tamanio - 4), "eligió " + celda);
+
+            // Con el agua a un lado, sigue por los otros tres
+            estrategia.registrarResultado(4, 5, ProtocoloBattleship.FALLO, null);
+            celda = estrategia.elegirDisparo();
+            assertEquals(1, Math.abs(celda / tamanio - 4) + Math.abs(celda % tamanio - 4), "eligió " + celda);
+            assertNotEquals(4 * tamanio + 5, celda);
+        }
+    }
+
+    @Test
+    void barcoTanLargoComoElTableroSigueLaFila() {
+        ConfiguracionPartida configuracion = ConfiguracionPartida.parsear("20", "CRUCERO:20");
+        for (int impactos = 2; impactos < 20; impactos++) {
+            EstrategiaProbabilidad estrategia = new EstrategiaProbabilidad();
+            estrategia.reiniciar(new JuegoBattleship(configuracion), new Random(impactos));
+            for (int columna = 0; columna < impactos; columna++) {
+                estrategia.registrarResultado(0, columna, ProtocoloBattleship.IMPACTO, null);
+            }
+            // Solo la colocación horizontal de la fila 0 explica todos los impactos
+            int celda = estrategia.elegirDisparo();
+            assertEquals(0, celda / 20, "con " + impactos + " impactos eligió " + celda);
+            assertTrue(celda % 20 >= impactos, "con " + impactos + " impactos eligió " + celda);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package battleship;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import java.util.zip.CRC32C;
+import org.junit.jupiter.api.Test;
+
+class InstantaneaJuegoTest {
+    private static final ConfiguracionPartida GRANDE = ConfiguracionPartida.parsear("40",
+            "PORTAAVIONES:5,ACORAZADO:4,CRUCERO:3,CRUCERO2:3,SUBMARINO:3,DESTRUCTOR:2");
+
+    @Test
+    void idaYVueltaConservaElEstado() {
+        Random random = new Random(7);
+        for (ConfiguracionPartida configuracion : List.of(ConfiguracionPartida.ESTANDAR, GRANDE)) {
+            for (int i = 0; i < 200; i++) {
+                JuegoBattleship juego = partidaAlAzar(configuracion, random, random.nextDouble());
+                JuegoBattleship copia = InstantaneaJuego.decodificar(InstantaneaJuego.codificar(juego));
+                assertMismoEstado(juego, copia);
+            }
+        }
+    }
+
+    @Test
+    void flotaSinColocar() {
+        JuegoBattleship juego = new JuegoBattleship(GRANDE);
+        juego.registrarFallo(3, 4);
+        JuegoBattleship copia = InstantaneaJuego.decodificar(InstantaneaJuego.codificar(juego));
+        assertEquals(-1, copia.barcoEn(juego.getFilaBarco(0), juego.getColumnaBarco(0)));
+        assertTrue(copia.yaDisparado(3, 4));
+    }
+
+    @Test
+    void partidaEstandarOcupaPocosBytes() {
+        JuegoBattleship juego = partidaAlAzar(ConfiguracionPartida.ESTANDAR, new Random(1), 0.3);
+        assertTrue(InstantaneaJuego.codificar(juego).length <= 64);
+    }
+
+    @Test
+    void detectaCadaBitCambiado() {
+        byte[] datos = InstantaneaJuego.codificar(partidaAlAzar(GRANDE, new Random(3), 0.2));
+        for (int bit = 0; bit < datos.length * 8; bit++) {
+            byte[] danado = datos.clone();
+            danado[bit >>> 3] ^= (byte) (1 << (bit & 7));
+            assertThrows(IllegalArgumentException.class, () -> InstantaneaJuego.decodificar(danado), "bit " + bit);
+        }
+    }
+
+    @Test
+    void rechazaCadaTruncamiento() {
+        byte[] datos = InstantaneaJuego.codificar(partidaAlAzar(GRANDE, new Random(4), 0.5));
+        for (int largo = 0; largo < datos.length; largo++) {
+            int n = largo;
+            assertThrows(IllegalArgumentException.class, () -> InstantaneaJuego.decodificar(datos, 0, n), "largo " + n);
+        }
+    }
+
+    @Test
+    void rechazaDatosSobrantesYVersionesPosteriores() {
+        byte[] datos = InstantaneaJuego.codificar(partidaAlAzar(ConfiguracionPartida.ESTANDAR, new Random(5), 0.4));
+        byte[] cuerpo = Arrays.copyOf(datos, datos.length - 4);
+
+        byte[] sobrante = Arrays.copyOf(cuerpo, cuerpo.length + 1);
+        assertThrows(IllegalArgumentException.class, () -> InstantaneaJuego.decodificar(conCrc(sobrante)));
+
+        byte[] posterior = cuerpo.clone();
+        posterior[3] = (byte) (InstantaneaJuego.VERSION + 1);
+        assertThrows(IllegalArgumentException.class, () -> InstantaneaJuego.decodificar(conCrc(posterior)));
+
+        assertThrows(IllegalArgumentException.class, () -> InstantaneaJuego.decodificar("BSX".getBytes()));
+    }
+
+    @Test
+    void decodificaDesdeUnDesplazamiento() {
+        JuegoBattleship juego = partidaAlAzar(ConfiguracionPartida.ESTANDAR, new Random(6), 0.5);
+        byte[] datos = InstantaneaJuego.codificar(juego);
+        byte[] rodeado = new byte[datos.length + 10];
+        System.arraycopy(datos, 0, rodeado, 3, datos.length);
+        assertMismoEstado(juego, InstantaneaJuego.decodificar(rodeado, 3, datos.length));
+    }
+
+    /**
+     * Partida con la flota colocada y una fracción de cada capa disparada
+     */
+    static JuegoBattleship partidaAlAzar(ConfiguracionPartida configuracion, Random random, double densidad) {
+        JuegoBattleship juego = new JuegoBattleship(configuracion);
+        juego.colocarBarcosAutomaticamente(random);
+        int tamanio = configuracion.getTamanioTablero();
+        for (int fila = 0; fila < tamanio; fila++) {
+            for (int columna = 0; columna < tamanio; columna++) {
+                if (random.nextDouble() < densidad) {
+                    juego.recibirDisparo(fila, columna);
+                }
+                double tiro = random.nextDouble();
+                if (tiro < densidad / 3) {
+                    juego.registrarImpacto(fila, columna);
+                } else if (tiro < densidad) {
+                    juego.registrarFallo(fila, columna);
+                }
+            }
+        }
+        return juego;
+    }
+
+    static void assertMismoEstado(JuegoBattleship esperado, JuegoBattleship real) {
+        assertEquals(esperado.getConfiguracion(), real.getConfiguracion());
+        assertArrayEquals(esperado.exportarEstado(), real.exportarEstado());
+        for (int barco = 0; barco < esperado.getCantidadBarcos(); barco++) {
+            assertEquals(esperado.getFilaBarco(barco), real.getFilaBarco(barco));
+            assertEquals(esperado.getColumnaBarco(barco), real.getColumnaBarco(barco));
+            assertEquals(esperado.esBarcoHorizontal(barco), real.esBarcoHorizontal(barco));
+            assertEquals(esperado.impactosEnBarco(barco), real.impactosEnBarco(barco));
+        }
+        assertEquals(esperado.todosBarcosHundidos(), real.todosBarcosHundidos());
+        assertEquals(esperado.getDisparosRealizados(), real.getDisparosRealizados());
+        assertEquals(esperado.getDisparosRecibidos(), real.getDisparosRecibidos());
+    }
+
+    private static byte[] conCrc(byte[] cuerpo) {
+        CRC32C crc = new CRC32C();
+        crc.update(cuerpo);
+        int valor = (int) crc.getValue();
+        byte[] datos = Arrays.copyOf(cuerpo, cuerpo.length + 4);
+        datos[cuerpo.length] = (byte) (valor >>> 24);
+        datos[cuerpo.length + 1] = (byte) (valor >>> 16);
+        datos[cuerpo.length + 2] = (byte) (valor >>> 8);
+        datos[cuerpo.length + 3] = (byte) valor;
+        return datos;
+    }
+}
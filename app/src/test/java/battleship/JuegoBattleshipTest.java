@@ -0,0 +1,66 @@
+package battleship;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+class JuegoBattleshipTest {
+
+    @Test
+    void flotaJustaEnTableroGrande() {
+        // Llena el tablero: solo entra con todos los barcos en la misma orientación
+        assertColocaEntera(flota(200, 200, 200), new Random(1));
+        // Tableros llenos con barcos más cortos: al azar los cruzados dejan huecos inútiles
+        assertColocaEntera(flota(12, 24, 6), new Random(4));
+        assertColocaEntera(flota(30, 90, 10), new Random(5));
+        // Tres cuartos del tablero con largos mezclados
+        assertColocaEntera(flota(150, 60, 150, 60, 100, 50, 37), new Random(2));
+    }
+
+    @Test
+    void flotaJustaEnTableroChico() {
+        assertColocaEntera(flota(11, 11, 11), new Random(3));
+    }
+
+    @Test
+    void rechazaFlotasQueNoEntranEnFilas() {
+        // 15 celdas de 16, pero cinco barcos de 3 no entran en un tablero de 4x4
+        assertThrows(IllegalArgumentException.class,
+                () -> ConfiguracionPartida.parsear("4", "A:3,B:3,C:3,D:3,E:3"));
+    }
+
+    /**
+     * Tablero de {@code tamanio} con pares (cantidad, largo) de barcos
+     */
+    private static ConfiguracionPartida flota(int tamanio, int... cantidadesYLargos) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < cantidadesYLargos.length; i += 2) {
+            for (int n = 0; n < cantidadesYLargos[i]; n++) {
+                sb.append(sb.length() > 0 ? "," : "").append("B").append(i).append('_').append(n)
+                        .append(':').append(cantidadesYLargos[i + 1]);
+            }
+        }
+        return ConfiguracionPartida.parsear(String.valueOf(tamanio), sb.toString());
+    }
+
+    private static void assertColocaEntera(ConfiguracionPartida configuracion, Random random) {
+        JuegoBattleship juego = new JuegoBattleship(configuracion);
+        juego.colocarBarcosAutomaticamente(random);
+
+        int tamanio = juego.getTamanioTablero();
+        Set<Integer> ocupadas = new HashSet<>();
+        for (int barco = 0; barco < juego.getCantidadBarcos(); barco++) {
+            int fila = juego.getFilaBarco(barco);
+            int columna = juego.getColumnaBarco(barco);
+            for (int k = 0; k < juego.getTamanioBarco(barco); k++) {
+                int f = juego.esBarcoHorizontal(barco) ? fila : fila + k;
+                int c = juego.esBarcoHorizontal(barco) ? columna + k : columna;
+                assertEquals(barco, juego.barcoEn(f, c));
+                assertTrue(ocupadas.add(f * tamanio + c));
+            }
+        }
+        assertEquals(configuracion.getCeldasConBarco(), ocupadas.size());
+        assertFalse(juego.todosBarcosHundidos());
+    }
+}
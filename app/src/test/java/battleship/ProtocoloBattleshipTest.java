@@ -0,0 +1,266 @@
+package battleship;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+class ProtocoloBattleshipTest {
+    private static final String[] NOMBRES = ConfiguracionPartida.ESTANDAR.getNombresBarcos();
+
+    // Fragmentos con los que se arman líneas al azar, válidas y no tanto
+    private static final String[] FRAGMENTOS = {
+            "DISPARAR", "IMPACTO", "FALLO", "HUNDIDO", "LISTO", "SALIR", "LATIDO", "|", "|", ",", ",",
+            "0", "7", "12", "-3", "+4", "2147483647", "2147483648", "-2147483648", "-", "+", " ", "\t",
+            "x", "PORTAAVIONES", "DESTRUCTOR", "ñandú", ""
+    };
+
+    @Test
+    void coincideConElParserPorDivisionDeCampos() {
+        Random random = new Random(18);
+        ProtocoloBattleship.Mensaje destino = new ProtocoloBattleship.Mensaje();
+        for (int i = 0; i < 200_000; i++) {
+            StringBuilder linea = new StringBuilder();
+            int partes = 1 + random.nextInt(7);
+            for (int j = 0; j < partes; j++) {
+                linea.append(FRAGMENTOS[random.nextInt(FRAGMENTOS.length)]);
+            }
+            comparar(linea.toString(), destino);
+        }
+    }
+
+    @Test
+    void casosLimite() {
+        ProtocoloBattleship.Mensaje destino = new ProtocoloBattleship.Mensaje();
+        for (String linea : new String[] {
+                "DISPARAR|3,4", "IMPACTO|0,9", "FALLO|9,0|", "HUNDIDO|1,2|SUBMARINO", "HUNDIDO|1,2||X",
+                "HUNDIDO|1,2|", "DISPARAR|1,2,3", "DISPARAR|1,2|extra", "DISPARAR", "DISPARAR|", "DISPARAR|1",
+                "DISPARAR|1,", "DISPARAR|,1", "DISPARAR|1,,2", "DISPARAR| 1,2", "DISPARAR|-1,-2",
+                "DISPARAR|2147483647,-2147483648", "DISPARAR|2147483648,0", "DISPARAR|+,1", "|", "||", "|DISPARAR",
+                " |", " ", "", "LISTO|BIN1|SES1", "JUEGO_TERMINADO", " DISPARAR|1,2", "DISPARAR |1,2",
+                "HUNDIDO|1,2|ñandú", "OTRO|1,2"
+        }) {
+            comparar(linea, destino);
+        }
+    }
+
+    @Test
+    void respetaLaLongitudIndicada() {
+        byte[] buffer = "DISPARAR|12,34|basura".getBytes(StandardCharsets.UTF_8);
+        ProtocoloBattleship.Mensaje mensaje = ProtocoloBattleship.parsearMensaje(buffer, 13, NOMBRES,
+                new ProtocoloBattleship.Mensaje());
+        assertEquals(ProtocoloBattleship.DISPARAR, mensaje.comando);
+        assertEquals(12, mensaje.x);
+        assertEquals(3, mensaje.y);
+    }
+
+    @Test
+    void reutilizaLasCadenasDeComandosYBarcos() {
+        byte[] linea = "HUNDIDO|1,2|SUBMARINO".getBytes(StandardCharsets.UTF_8);
+        ProtocoloBattleship.Mensaje mensaje = ProtocoloBattleship.parsearMensaje(linea, linea.length, NOMBRES,
+                new ProtocoloBattleship.Mensaje());
+        assertSame(ProtocoloBattleship.HUNDIDO, mensaje.comando);
+        assertSame(NOMBRES[3], mensaje.tipoBarco);
+    }
+
+    @Test
+    void capacidadesDeReanudacionEnListo() {
+        String listo = ProtocoloBattleship.construirMensajeListo(true, false, 1) + "|"
+                + ProtocoloBattleship.anunciarPartida("ab12") + "|"
+                + ProtocoloBattleship.anunciarReanudacion("77cd", 41, false);
+        assertEquals("ab12", ProtocoloBattleship.valorCapacidad(listo, ProtocoloBattleship.CAPACIDAD_PARTIDA));
+        assertTrue(ProtocoloBattleship.anunciaCapacidad(listo,
+                ProtocoloBattleship.anunciarReanudacion("77cd", 41, false)));
+        // Otro turno o el otro jugador moviendo no es la misma partida
+        assertFalse(ProtocoloBattleship.anunciaCapacidad(listo,
+                ProtocoloBattleship.anunciarReanudacion("77cd", 41, true)));
+        assertFalse(ProtocoloBattleship.anunciaCapacidad(listo,
+                ProtocoloBattleship.anunciarReanudacion("77cd", 40, false)));
+        assertNull(ProtocoloBattleship.valorCapacidad("LISTO|BIN1", ProtocoloBattleship.CAPACIDAD_PARTIDA));
+        assertNull(ProtocoloBattleship.valorCapacidad("LISTO|PARTIDA:", ProtocoloBattleship.CAPACIDAD_PARTIDA));
+    }
+
+    @Test
+    void salvaIdaYVuelta() {
+        int[] disparos = { 0, 9, 4, 4, -1, 12 };
+        String mensaje = ProtocoloBattleship.construirMensajeSalva(disparos);
+        assertEquals("SALVA|0,9|4,4|-1,12", mensaje);
+        assertArrayEquals(disparos, ProtocoloBattleship.parsearSalva(mensaje));
+        assertEquals(3, ProtocoloBattleship.salvaAnunciada(ProtocoloBattleship.construirMensajeListo(false, true, 3)));
+        assertEquals(1, ProtocoloBattleship.salvaAnunciada("LISTO|SALVA:" + (ProtocoloBattleship.MAX_SALVA + 1)));
+
+        int[] demasiados = new int[2 * (ProtocoloBattleship.MAX_SALVA + 1)];
+        assertThrows(IllegalArgumentException.class,
+                () -> ProtocoloBattleship.parsearSalva(ProtocoloBattleship.construirMensajeSalva(demasiados)));
+        for (String invalida : new String[] { "SALVA", "SALVA|1", "SALVA|1,x", "SALVA|1,2,3", "DISPARAR|1,2" }) {
+            assertThrows(IllegalArgumentException.class, () -> ProtocoloBattleship.parsearSalva(invalida), invalida);
+        }
+    }
+
+    @Test
+    void varintIdaYVuelta() {
+        byte[] buffer = new byte[8];
+        int[] valores = { 0, 1, 127, 128, 16_383, 16_384, 2_097_151, 2_097_152, Integer.MAX_VALUE, -1,
+                Integer.MIN_VALUE };
+        int[] largos = { 1, 1, 1, 2, 2, 3, 3, 4, 5, 5, 5 };
+        for (int i = 0; i < valores.length; i++) {
+            int fin = ProtocoloBattleship.escribirVarint(buffer, 2, valores[i]);
+            assertEquals(2 + largos[i], fin, "largo de " + valores[i]);
+            long lectura = ProtocoloBattleship.leerVarint(buffer, 2);
+            assertEquals(valores[i], (int) lectura);
+            assertEquals(fin, (int) (lectura >>> 32));
+        }
+    }
+
+    @Test
+    void varintDeMasDeCincoBytes() {
+        byte[] largo = { (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x01 };
+        assertThrows(IllegalArgumentException.class, () -> ProtocoloBattleship.leerVarint(largo, 0));
+    }
+
+    @Test
+    void tramasBinariasIdaYVuelta() {
+        byte[] trama = new byte[16];
+        int[][] coordenadas = { { 0, 0 }, { 15, 15 }, { 3, 12 }, { 16, 0 }, { 0, 16 }, { 999, 999 },
+                { 127, 128 }, { Integer.MAX_VALUE, 5 } };
+        for (int[] c : coordenadas) {
+            int largo = ProtocoloBattleship.codificarDisparo(trama, c[0], c[1]);
+            // Las coordenadas menores que 16 caben en un solo byte
+            assertEquals(c[0] < 16 && c[1] < 16, largo == 2);
+            assertMensaje(ProtocoloBattleship.DISPARAR, c[0], c[1], null,
+                    ProtocoloBattleship.parsearMensajeBinario(trama, largo, NOMBRES));
+
+            for (String resultado : new String[] { ProtocoloBattleship.IMPACTO, ProtocoloBattleship.FALLO }) {
+                largo = ProtocoloBattleship.codificarResultado(trama, resultado, c[0], c[1], 0);
+                assertMensaje(resultado, c[0], c[1], null,
+                        ProtocoloBattleship.parsearMensajeBinario(trama, largo, NOMBRES));
+            }
+            for (int barco = 0; barco < NOMBRES.length; barco++) {
+                largo = ProtocoloBattleship.codificarResultado(trama, ProtocoloBattleship.HUNDIDO, c[0], c[1], barco);
+                assertMensaje(ProtocoloBattleship.HUNDIDO, c[0], c[1], NOMBRES[barco],
+                        ProtocoloBattleship.parsearMensajeBinario(trama, largo, NOMBRES));
+            }
+        }
+        for (String comando : new String[] { ProtocoloBattleship.JUEGO_TERMINADO, ProtocoloBattleship.SALIR,
+                ProtocoloBattleship.LATIDO }) {
+            trama[0] = (byte) ProtocoloBattleship.opcodeDe(comando);
+            assertMensaje(comando, -1, -1, null, ProtocoloBattleship.parsearMensajeBinario(trama, 1, NOMBRES));
+        }
+    }
+
+    @Test
+    void coordenadasNegativasViajanComoEnTexto() {
+        // El texto acepta "-1,2"; en binario el varint de 5 bytes conserva el signo
+        byte[] trama = new byte[16];
+        int largo = ProtocoloBattleship.codificarDisparo(trama, -1, 2);
+        assertEquals(7, largo);
+        assertMensaje(ProtocoloBattleship.DISPARAR, -1, 2, null,
+                ProtocoloBattleship.parsearMensajeBinario(trama, largo, NOMBRES));
+    }
+
+    @Test
+    void rechazaTramasBinariasMalformadas() {
+        byte[] trama = new byte[16];
+        int largo = ProtocoloBattleship.codificarResultado(trama, ProtocoloBattleship.HUNDIDO, 300, 400, 4);
+        for (int n = 0; n < largo; n++) {
+            int truncada = n;
+            assertThrows(IllegalArgumentException.class,
+                    () -> ProtocoloBattleship.parsearMensajeBinario(trama, truncada, NOMBRES), "largo " + n);
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> ProtocoloBattleship.parsearMensajeBinario(trama, largo + 1, NOMBRES));
+
+        // Barco fuera de la flota, negativo o sin flota conocida
+        int conBarco = ProtocoloBattleship.codificarResultado(trama, ProtocoloBattleship.HUNDIDO, 1, 2, NOMBRES.length);
+        assertThrows(IllegalArgumentException.class,
+                () -> ProtocoloBattleship.parsearMensajeBinario(trama, conBarco, NOMBRES));
+        int negativo = ProtocoloBattleship.codificarResultado(trama, ProtocoloBattleship.HUNDIDO, 1, 2, -1);
+        assertThrows(IllegalArgumentException.class,
+                () -> ProtocoloBattleship.parsearMensajeBinario(trama, negativo, NOMBRES));
+        int sinFlota = ProtocoloBattleship.codificarResultado(trama, ProtocoloBattleship.HUNDIDO, 1, 2, 0);
+        assertThrows(IllegalArgumentException.class,
+                () -> ProtocoloBattleship.parsearMensajeBinario(trama, sinFlota, null));
+
+        // Varint de coordenada que no termina
+        byte[] largoInfinito = new byte[12];
+        Arrays.fill(largoInfinito, (byte) 0x80);
+        largoInfinito[0] = (byte) ProtocoloBattleship.OP_DISPARAR;
+        assertThrows(IllegalArgumentException.class,
+                () -> ProtocoloBattleship.parsearMensajeBinario(largoInfinito, largoInfinito.length, NOMBRES));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> ProtocoloBattleship.parsearMensajeBinario(new byte[] { 0x1F }, 1, NOMBRES));
+        assertThrows(IllegalArgumentException.class,
+                () -> ProtocoloBattleship.parsearMensajeBinario(trama, 0, NOMBRES));
+        assertThrows(IllegalArgumentException.class,
+                () -> ProtocoloBattleship.codificarResultado(trama, ProtocoloBattleship.DISPARAR, 1, 2, 0));
+    }
+
+    private static void assertMensaje(String comando, int x, int y, String tipoBarco,
+            ProtocoloBattleship.Mensaje mensaje) {
+        assertEquals(comando, mensaje.comando);
+        assertEquals(x, mensaje.x);
+        assertEquals(y, mensaje.y);
+        assertEquals(tipoBarco, mensaje.tipoBarco);
+    }
+
+    /**
+     * El parser en el lugar debe dar el mismo mensaje que el parser por
+     * división de campos, o fallar con IllegalArgumentException donde aquel falla
+     */
+    private static void comparar(String linea, ProtocoloBattleship.Mensaje destino) {
+        ProtocoloBattleship.Mensaje esperado;
+        try {
+            esperado = parsearConDivision(linea);
+        } catch (RuntimeException e) {
+            byte[] bytes = linea.getBytes(StandardCharsets.UTF_8);
+            assertThrows(IllegalArgumentException.class,
+                    () -> ProtocoloBattleship.parsearMensaje(bytes, bytes.length, NOMBRES, destino),
+                    () -> "Debió fallar: \"" + linea + "\"");
+            return;
+        }
+        byte[] bytes = linea.getBytes(StandardCharsets.UTF_8);
+        ProtocoloBattleship.Mensaje real = ProtocoloBattleship.parsearMensaje(bytes, bytes.length, NOMBRES, destino);
+        String contexto = "\"" + linea + "\"";
+        assertEquals(esperado.comando, real.comando, contexto);
+        assertEquals(esperado.x, real.x, contexto);
+        assertEquals(esperado.y, real.y, contexto);
+        assertEquals(esperado.tipoBarco, real.tipoBarco, contexto);
+    }
+
+    /**
+     * Parser original con {@link String#split} y {@link Integer#parseInt},
+     * que sirve de referencia
+     */
+    private static ProtocoloBattleship.Mensaje parsearConDivision(String mensaje) {
+        if (mensaje == null || mensaje.trim().isEmpty()) {
+            throw new IllegalArgumentException("Mensaje nulo o vacío");
+        }
+
+        String[] partes = mensaje.split("\\" + ProtocoloBattleship.SEPARADOR_CAMPOS);
+        String comando = partes[0];
+
+        try {
+            switch (comando) {
+                case ProtocoloBattleship.DISPARAR: {
+                    String[] coordenadas = partes[1].split(ProtocoloBattleship.SEPARADOR_COORD);
+                    return new ProtocoloBattleship.Mensaje(comando, Integer.parseInt(coordenadas[0]),
+                            Integer.parseInt(coordenadas[1]));
+                }
+                case ProtocoloBattleship.IMPACTO:
+                case ProtocoloBattleship.FALLO:
+                case ProtocoloBattleship.HUNDIDO: {
+                    String[] coordenadas = partes[1].split(ProtocoloBattleship.SEPARADOR_COORD);
+                    int x = Integer.parseInt(coordenadas[0]);
+                    int y = Integer.parseInt(coordenadas[1]);
+                    return new ProtocoloBattleship.Mensaje(comando, x, y, partes.length > 2 ? partes[2] : null);
+                }
+                default:
+                    return new ProtocoloBattleship.Mensaje(comando);
+            }
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Mensaje con formato inválido: " + mensaje, e);
+        }
+    }
+}
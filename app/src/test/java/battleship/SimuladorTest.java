@@ -0,0 +1,31 @@
+package battleship;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.*;
+import org.junit.jupiter.api.Test;
+
+class SimuladorTest {
+    private static final long PARTIDAS = 3000;
+    private static final long SEMILLA = 42;
+
+    @Test
+    void mismaSemillaDaLoMismoConCualquierParalelismo() {
+        // El libro comparte su caché entre partidas: que la llene otro orden primero
+        Simulador simulador = new Simulador(Simulador.fabrica("libro"), Simulador.fabrica("probabilidad"));
+        EstadisticasSimulacion invertida = simulador.simularRango(PARTIDAS / 2, PARTIDAS, SEMILLA);
+        invertida.combinar(simulador.simularRango(0, PARTIDAS / 2, SEMILLA));
+        String esperado = invertida.resumen("libro", "probabilidad");
+
+        for (int paralelismo : new int[] { 1, 4, 4 }) {
+            ForkJoinPool pool = new ForkJoinPool(paralelismo);
+            try {
+                EstadisticasSimulacion estadisticas = simulador.simular(PARTIDAS, SEMILLA, pool);
+                assertEquals(PARTIDAS, estadisticas.getPartidas());
+                assertEquals(esperado, estadisticas.resumen("libro", "probabilidad"), "paralelismo " + paralelismo);
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package battleship;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+class TransmisionPartidaTest {
+
+    @Test
+    void espectadorAtrasadoRecibeElUltimoResultadoDeCadaCelda() throws Exception {
+        TransmisionPartida transmision = new TransmisionPartida(1, "Ana", "Beto");
+        // Muchas más jugadas que celdas: se repiten y cambian de resultado
+        Map<String, String> esperado = new HashMap<>();
+        Random random = new Random(16);
+        int jugadas = 20_000;
+        for (int i = 0; i < jugadas; i++) {
+            int tirador = i & 1;
+            int x = random.nextInt(30);
+            int y = random.nextInt(30);
+            String resultado = random.nextBoolean() ? ProtocoloBattleship.FALLO : ProtocoloBattleship.IMPACTO;
+            transmision.anotar(tirador, new ProtocoloBattleship.Mensaje(resultado, x, y));
+            esperado.put(tirador + "," + x + "," + y, resultado.substring(0, 1));
+        }
+        transmision.terminar("Ana");
+
+        TransporteMemoria[] par = TransporteMemoria.crearPar(1 << 20);
+        Thread hilo = new Thread(() -> {
+            try {
+                transmision.transmitir(new CanalMensajes(par[0]));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        hilo.start();
+
+        Map<String, String> recibido = new HashMap<>();
+        int celdasResumidas = 0;
+        try (CanalMensajes lector = new CanalMensajes(par[1])) {
+            String linea;
+            while ((linea = lector.leerLinea()) != null && !linea.startsWith(ProtocoloBattleship.JUEGO_TERMINADO)) {
+                assertTrue(linea.length() <= ProtocoloBattleship.LARGO_MAXIMO_TRAMA);
+                assertFalse(linea.startsWith(ProtocoloBattleship.JUGADA), "la historia no se envía jugada por jugada");
+                if (!linea.startsWith(ProtocoloBattleship.RESUMEN)) {
+                    continue;
+                }
+                for (String jugada : linea.split("\\|")[2].split(";")) {
+                    int coma = jugada.lastIndexOf(',');
+                    assertNull(recibido.put(jugada.substring(0, coma), jugada.substring(coma + 1)),
+                            "celda repetida: " + jugada);
+                    celdasResumidas++;
+                }
+            }
+            assertNotNull(linea);
+        }
+        hilo.join();
+
+        assertEquals(esperado, recibido);
+        assertTrue(celdasResumidas <= 2 * 30 * 30);
+    }
+}